@@ -43,4 +43,12 @@ public interface AnalysisResults {
    */
   Map<ClientInputFile, Language> languagePerFile();
 
+  /**
+   * Number of indexed files that were not analyzed, because they did not change since their last analysis: their issues were
+   * replayed from the issue cache. Always 0 when the issue cache is not enabled.
+   */
+  default int cachedFileCount() {
+    return 0;
+  }
+
 }
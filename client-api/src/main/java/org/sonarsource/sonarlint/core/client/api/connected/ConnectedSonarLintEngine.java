@@ -20,6 +20,7 @@
 package org.sonarsource.sonarlint.core.client.api.connected;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -173,6 +174,25 @@ public interface ConnectedSonarLintEngine extends SonarLintEngine {
    */
   List<ServerIssue> downloadServerIssues(ServerConfiguration serverConfig, ProjectBinding projectBinding, String ideFilePath);
 
+  /**
+   * Downloads, stores and returns server issues for several files, with fewer requests than calling
+   * {@link #downloadServerIssues(ServerConfiguration, ProjectBinding, String)} for each file.
+   * The default implementation calls it for each file, for implementations that don't support batching.
+   *
+   * @param projectBinding information about the project (must have been previously updated with {@link #updateProject(ServerConfiguration, String, ProgressMonitor)})
+   * @param ideFilePaths   relative to the project in the IDE.
+   * @return All server issues in the local storage, for each of the given files. If a file has no issues, an empty list is returned for it.
+   * @throws DownloadException if it fails to download
+   * @since 4.15
+   */
+  default Map<String, List<ServerIssue>> downloadServerIssues(ServerConfiguration serverConfig, ProjectBinding projectBinding, Collection<String> ideFilePaths) {
+    Map<String, List<ServerIssue>> issuesByIdePath = new LinkedHashMap<>();
+    for (String ideFilePath : ideFilePaths) {
+      issuesByIdePath.put(ideFilePath, downloadServerIssues(serverConfig, projectBinding, ideFilePath));
+    }
+    return issuesByIdePath;
+  }
+
   /**
    * Downloads and stores server issues for a given project.
    *
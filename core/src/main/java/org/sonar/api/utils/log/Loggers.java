@@ -19,6 +19,7 @@
  */
 package org.sonar.api.utils.log;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonarsource.sonarlint.core.client.api.common.LogOutput;
 import org.sonarsource.sonarlint.core.log.LogOutputDelegator;
@@ -56,4 +57,9 @@ public abstract class Loggers {
   public static void setTarget(@Nullable LogOutput output) {
     logOutputDelegator.setTarget(output);
   }
+
+  @CheckForNull
+  public static LogOutput getTarget() {
+    return logOutputDelegator.getTarget();
+  }
 }
@@ -23,7 +23,9 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -56,6 +58,7 @@ import org.sonarsource.sonarlint.core.client.api.exceptions.StorageException;
 import org.sonarsource.sonarlint.core.container.connected.ConnectedContainer;
 import org.sonarsource.sonarlint.core.container.storage.StorageContainer;
 import org.sonarsource.sonarlint.core.container.storage.StorageContainerHandler;
+import org.sonarsource.sonarlint.core.container.storage.StorageSwap;
 import org.sonarsource.sonarlint.core.util.ProgressWrapper;
 
 import static java.util.Objects.requireNonNull;
@@ -65,10 +68,23 @@ public final class ConnectedSonarLintEngineImpl implements ConnectedSonarLintEng
   private static final Logger LOG = Loggers.get(ConnectedSonarLintEngineImpl.class);
 
   private final ConnectedGlobalConfiguration globalConfig;
-  private StorageContainer storageContainer;
+  private volatile StorageContainer storageContainer;
+  /**
+   * Readers of the storage take the read lock. Updates are downloaded and staged while holding only the update lock,
+   * and take the write lock just to swap the staged files in, see {@link StorageSwap}.
+   */
   private final ReadWriteLock rwl = new ReentrantReadWriteLock();
+  private final Lock updateLock = new ReentrantLock();
+  private final StorageSwap storageSwap = new StorageSwap(moves -> withWriteLock(() -> {
+    releaseStorage();
+    moves.run();
+  }));
   private final List<StateListener> stateListeners = new CopyOnWriteArrayList<>();
   private volatile State state = State.UNKNOWN;
+  /**
+   * State of the storage currently used by readers. Unlike {@link #state}, it stays unchanged while an update is staged.
+   */
+  private volatile State storageState = State.UNKNOWN;
   private LogOutput logOutput = null;
 
   public ConnectedSonarLintEngineImpl(ConnectedGlobalConfiguration globalConfig) {
@@ -94,11 +110,23 @@ public final class ConnectedSonarLintEngineImpl implements ConnectedSonarLintEng
 
   private void changeState(State state) {
     this.state = state;
+    if (state != State.UPDATING) {
+      this.storageState = state;
+    }
     for (StateListener listener : stateListeners) {
       listener.stateChanged(state);
     }
   }
 
+  /**
+   * To be called with the write lock held, before files of the storage are replaced
+   */
+  private void releaseStorage() {
+    if (storageContainer != null) {
+      getHandler().releaseStorage();
+    }
+  }
+
   private StorageContainerHandler getHandler() {
     if (storageContainer == null) {
       throw new IllegalStateException("SonarLint Engine for server '" + globalConfig.getServerId() + "' is stopped.");
@@ -113,7 +141,7 @@ public final class ConnectedSonarLintEngineImpl implements ConnectedSonarLintEng
   public void start() {
     setLogging(null);
     rwl.writeLock().lock();
-    storageContainer = StorageContainer.create(globalConfig);
+    storageContainer = StorageContainer.create(globalConfig, storageSwap);
     try {
       storageContainer.startComponents();
       if (getHandler().getGlobalStorageStatus() == null) {
@@ -146,34 +174,48 @@ public final class ConnectedSonarLintEngineImpl implements ConnectedSonarLintEng
   public AnalysisResults analyze(ConnectedAnalysisConfiguration configuration, IssueListener issueListener, @Nullable LogOutput logOutput, @Nullable ProgressMonitor monitor) {
     requireNonNull(configuration);
     requireNonNull(issueListener);
-    return withReadLock(() -> {
-      try {
+    // captured before withReadLock, which resets the target to the engine default
+    LogOutput previousLogOutput = Loggers.getTarget();
+    try {
+      return withReadLock(() -> {
         setLogging(logOutput);
         return getHandler().analyze(storageContainer.getGlobalExtensionContainer(), configuration, issueListener, new ProgressWrapper(monitor));
-      } catch (RuntimeException e) {
-        throw SonarLintWrappedException.wrap(e);
-      }
-    });
-
+      });
+    } finally {
+      // the calling thread may be reused by the client for other analyses
+      Loggers.setTarget(previousLogOutput);
+    }
   }
 
   @Override
   public GlobalStorageStatus getGlobalStorageStatus() {
-    return withRwLock(getHandler()::getGlobalStorageStatus);
+    return withReadLock(() -> getHandler().getGlobalStorageStatus(), false);
   }
 
   @Override
   public UpdateResult update(ServerConfiguration serverConfig, @Nullable ProgressMonitor monitor) {
     requireNonNull(serverConfig);
     setLogging(null);
-    return withRwLock(() -> {
-      stop(false);
+    return withUpdateLock(() -> {
+      State stateBeforeUpdate = state;
       changeState(State.UPDATING);
+      // plugins and rules may have changed, so the storage container is restarted on the new storage
+      StorageSwap restartingSwap = new StorageSwap(moves -> withWriteLock(() -> {
+        try {
+          stop(false);
+          moves.run();
+        } finally {
+          start();
+        }
+      }));
       List<SonarAnalyzer> analyzers;
       try {
-        analyzers = runInConnectedContainer(serverConfig, container -> container.update(new ProgressWrapper(monitor)));
+        analyzers = runInConnectedContainer(serverConfig, restartingSwap, container -> container.update(new ProgressWrapper(monitor)));
       } finally {
-        start();
+        if (state == State.UPDATING) {
+          // failed before the swap, the previous storage is still in use
+          changeState(stateBeforeUpdate);
+        }
       }
       return new UpdateResult(getHandler().getGlobalStorageStatus(), analyzers);
     });
@@ -197,14 +239,14 @@ public final class ConnectedSonarLintEngineImpl implements ConnectedSonarLintEng
   @Override
   public StorageUpdateCheckResult checkIfGlobalStorageNeedUpdate(ServerConfiguration serverConfig, @Nullable ProgressMonitor monitor) {
     requireNonNull(serverConfig);
-    return withReadLock(() -> runInConnectedContainer(serverConfig, container -> container.checkForUpdate(new ProgressWrapper(monitor))));
+    return withReadLock(() -> runInConnectedContainer(serverConfig, storageSwap, container -> container.checkForUpdate(new ProgressWrapper(monitor))));
   }
 
   @Override
   public StorageUpdateCheckResult checkIfProjectStorageNeedUpdate(ServerConfiguration serverConfig, String projectKey, @Nullable ProgressMonitor monitor) {
     requireNonNull(serverConfig);
     requireNonNull(projectKey);
-    return withReadLock(() -> runInConnectedContainer(serverConfig, container -> container.checkForUpdate(projectKey, new ProgressWrapper(monitor))));
+    return withReadLock(() -> runInConnectedContainer(serverConfig, storageSwap, container -> container.checkForUpdate(projectKey, new ProgressWrapper(monitor))));
   }
 
   @Override
@@ -214,14 +256,14 @@ public final class ConnectedSonarLintEngineImpl implements ConnectedSonarLintEng
 
   @Override
   public Map<String, RemoteProject> downloadAllProjects(ServerConfiguration serverConfig, @Nullable ProgressMonitor monitor) {
-    return withRwLock(() -> {
+    return withUpdateLock(() -> {
       checkUpdateStatus();
       return getHandler().downloadProjectList(serverConfig, new ProgressWrapper(monitor));
     });
   }
 
   private void checkUpdateStatus() {
-    if (state != State.UPDATED) {
+    if (storageState != State.UPDATED) {
       throw new GlobalStorageUpdateRequiredException(globalConfig.getServerId());
     }
   }
@@ -238,15 +280,23 @@ public final class ConnectedSonarLintEngineImpl implements ConnectedSonarLintEng
 
   @Override
   public List<ServerIssue> downloadServerIssues(ServerConfiguration serverConfig, ProjectBinding projectBinding, String ideFilePath) {
-    return withRwLock(() -> {
+    return withUpdateLock(() -> {
       checkUpdateStatus();
       return getHandler().downloadServerIssues(serverConfig, projectBinding, ideFilePath);
     });
   }
 
+  @Override
+  public Map<String, List<ServerIssue>> downloadServerIssues(ServerConfiguration serverConfig, ProjectBinding projectBinding, Collection<String> ideFilePaths) {
+    return withUpdateLock(() -> {
+      checkUpdateStatus();
+      return getHandler().downloadServerIssues(serverConfig, projectBinding, ideFilePaths);
+    });
+  }
+
   @Override
   public void downloadServerIssues(ServerConfiguration serverConfig, String projectKey) {
-    withRwLock(() -> {
+    withUpdateLock(() -> {
       getHandler().downloadServerIssues(serverConfig, projectKey);
       return null;
     });
@@ -262,9 +312,22 @@ public final class ConnectedSonarLintEngineImpl implements ConnectedSonarLintEng
     requireNonNull(serverConfig);
     requireNonNull(projectKey);
     setLogging(null);
-    rwl.writeLock().lock();
-    checkUpdateStatus();
-    ConnectedContainer connectedContainer = new ConnectedContainer(globalConfig, serverConfig);
+    updateLock.lock();
+    try {
+      checkUpdateStatus();
+      doUpdateProject(serverConfig, projectKey, monitor);
+    } finally {
+      updateLock.unlock();
+    }
+  }
+
+  private void doUpdateProject(ServerConfiguration serverConfig, String projectKey, @Nullable ProgressMonitor monitor) {
+    // the rules of the project are cached by readers, they are invalidated before readers see the new storage
+    StorageSwap projectSwap = new StorageSwap(moves -> storageSwap.swap(() -> {
+      moves.run();
+      getHandler().invalidateProjectRules(projectKey);
+    }));
+    ConnectedContainer connectedContainer = new ConnectedContainer(globalConfig, serverConfig, projectSwap);
     try {
       changeState(State.UPDATING);
       connectedContainer.startComponents();
@@ -278,7 +341,6 @@ public final class ConnectedSonarLintEngineImpl implements ConnectedSonarLintEng
         // Ignore
       }
       changeState(getHandler().getGlobalStorageStatus() != null ? State.UPDATED : State.NEVER_UPDATED);
-      rwl.writeLock().unlock();
     }
   }
 
@@ -291,6 +353,7 @@ public final class ConnectedSonarLintEngineImpl implements ConnectedSonarLintEng
   @Override
   public void stop(boolean deleteStorage) {
     setLogging(null);
+    updateLock.lock();
     rwl.writeLock().lock();
     try {
       if (storageContainer == null) {
@@ -306,11 +369,12 @@ public final class ConnectedSonarLintEngineImpl implements ConnectedSonarLintEng
       this.storageContainer = null;
       changeState(State.UNKNOWN);
       rwl.writeLock().unlock();
+      updateLock.unlock();
     }
   }
 
-  private <U> U runInConnectedContainer(ServerConfiguration serverConfig, Function<ConnectedContainer, U> func) {
-    ConnectedContainer connectedContainer = new ConnectedContainer(globalConfig, serverConfig);
+  private <U> U runInConnectedContainer(ServerConfiguration serverConfig, StorageSwap swap, Function<ConnectedContainer, U> func) {
+    ConnectedContainer connectedContainer = new ConnectedContainer(globalConfig, serverConfig, swap);
     try {
       connectedContainer.startComponents();
       return func.apply(connectedContainer);
@@ -323,13 +387,26 @@ public final class ConnectedSonarLintEngineImpl implements ConnectedSonarLintEng
     }
   }
 
-  private <T> T withRwLock(Supplier<T> callable) {
+  /**
+   * Storage updates are serialized, but don't block readers: only the swap of the staged files takes the write lock.
+   * The read lock must not be held here, as it can't be upgraded to the write lock.
+   */
+  private <T> T withUpdateLock(Supplier<T> callable) {
     setLogging(null);
-    rwl.writeLock().lock();
+    updateLock.lock();
     try {
       return callable.get();
     } catch (RuntimeException e) {
       throw SonarLintWrappedException.wrap(e);
+    } finally {
+      updateLock.unlock();
+    }
+  }
+
+  private void withWriteLock(Runnable runnable) {
+    rwl.writeLock().lock();
+    try {
+      runnable.run();
     } finally {
       rwl.writeLock().unlock();
     }
@@ -84,6 +84,7 @@ public final class StandaloneSonarLintEngineImpl implements StandaloneSonarLintE
   public AnalysisResults analyze(StandaloneAnalysisConfiguration configuration, IssueListener issueListener, @Nullable LogOutput logOutput, @Nullable ProgressMonitor monitor) {
     requireNonNull(configuration);
     requireNonNull(issueListener);
+    LogOutput previousLogOutput = Loggers.getTarget();
     setLogging(logOutput);
     rwl.readLock().lock();
     try {
@@ -92,6 +93,8 @@ public final class StandaloneSonarLintEngineImpl implements StandaloneSonarLintE
       throw SonarLintWrappedException.wrap(e);
     } finally {
       rwl.readLock().unlock();
+      // the calling thread may be reused by the client for other analyses
+      Loggers.setTarget(previousLogOutput);
     }
   }
 
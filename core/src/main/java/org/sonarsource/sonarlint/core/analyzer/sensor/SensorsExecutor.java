@@ -23,13 +23,24 @@ import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.sonar.api.batch.DependedUpon;
 import org.sonar.api.batch.DependsUpon;
 import org.sonar.api.batch.Phase;
 import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.AnnotationUtils;
 import org.sonar.api.utils.dag.DirectAcyclicGraph;
 import org.sonar.api.utils.log.Logger;
@@ -41,28 +52,46 @@ import static java.util.Arrays.asList;
 
 /**
  * Execute Sensors.
+ * <p>
+ * Sensors are executed one after the other in the calling thread, unless {@value #PARALLELISM_PROPERTY} is set to more than 1.
+ * Sensors of a phase are then split into groups that don't share any {@link DependsUpon} or {@link DependedUpon} value, and the groups
+ * are executed concurrently on a pool of that many threads. Sensors of a group are executed in the order of the DAG, and a phase starts
+ * once the sensors of the previous one are done.
+ * <p>
+ * Reporting to {@link SonarLintSensorStorage}, the lazy initialization of input files and the issue exclusions recorded on them
+ * (NOSONAR lines, ignored line ranges) can be used concurrently. Nothing else is made thread-safe: sensors of different plugins must
+ * not share other mutable state, including other state of input files, to use this mode.
  */
 public class SensorsExecutor {
 
   private static final Logger LOG = Loggers.get(SensorsExecutor.class);
 
+  public static final String PARALLELISM_PROPERTY = "sonarlint.sensors.parallelism";
+
   private final SensorOptimizer sensorOptimizer;
   private final ProgressWrapper progress;
   private final Sensor[] sensors;
   private final DefaultSensorContext context;
+  private final int parallelism;
 
-  public SensorsExecutor(DefaultSensorContext context, SensorOptimizer sensorOptimizer, ProgressWrapper progress) {
-    this(context, sensorOptimizer, progress, new Sensor[0]);
+  public SensorsExecutor(DefaultSensorContext context, SensorOptimizer sensorOptimizer, ProgressWrapper progress, Configuration configuration) {
+    this(context, sensorOptimizer, progress, configuration, new Sensor[0]);
   }
 
-  public SensorsExecutor(DefaultSensorContext context, SensorOptimizer sensorOptimizer, ProgressWrapper progress, Sensor[] sensors) {
+  public SensorsExecutor(DefaultSensorContext context, SensorOptimizer sensorOptimizer, ProgressWrapper progress, Configuration configuration,
+    Sensor[] sensors) {
     this.context = context;
     this.sensors = sensors;
     this.sensorOptimizer = sensorOptimizer;
     this.progress = progress;
+    this.parallelism = configuration.getInt(PARALLELISM_PROPERTY).orElse(1);
   }
 
   public void execute() {
+    if (parallelism > 1) {
+      executeInParallel(sort(asList(sensors)));
+      return;
+    }
     for (Sensor sensor : sort(asList(sensors))) {
       progress.checkCancel();
       DefaultSensorDescriptor descriptor = new DefaultSensorDescriptor();
@@ -73,6 +102,100 @@ public class SensorsExecutor {
     }
   }
 
+  private void executeInParallel(Collection<Sensor> sortedSensors) {
+    Map<Phase.Name, List<Sensor>> sensorsByPhase = new EnumMap<>(Phase.Name.class);
+    Map<Sensor, DefaultSensorDescriptor> descriptors = new HashMap<>();
+    for (Sensor sensor : sortedSensors) {
+      DefaultSensorDescriptor descriptor = new DefaultSensorDescriptor();
+      sensor.describe(descriptor);
+      if (sensorOptimizer.shouldExecute(descriptor)) {
+        descriptors.put(sensor, descriptor);
+        sensorsByPhase.computeIfAbsent(evaluatePhase(sensor), p -> new ArrayList<>()).add(sensor);
+      }
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism, new SensorThreadFactory());
+    try {
+      // phases are in the order of the enum
+      for (Map.Entry<Phase.Name, List<Sensor>> phase : sensorsByPhase.entrySet()) {
+        List<List<Sensor>> groups = partition(phase.getValue());
+        LOG.debug("Execute {} independent group(s) of sensors for phase {}", groups.size(), phase.getKey());
+        List<Future<?>> futures = new ArrayList<>(groups.size());
+        for (List<Sensor> group : groups) {
+          futures.add(executor.submit(() -> executeGroup(group, descriptors)));
+        }
+        awaitAll(futures);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void executeGroup(List<Sensor> group, Map<Sensor, DefaultSensorDescriptor> descriptors) {
+    for (Sensor sensor : group) {
+      progress.checkCancel();
+      executeSensor(context, sensor, descriptors.get(sensor));
+    }
+  }
+
+  private static void awaitAll(List<Future<?>> futures) {
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while executing sensors", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException("Failed to execute sensors", cause);
+    }
+  }
+
+  /**
+   * Split sensors into groups of sensors connected by the values of their {@link DependsUpon} and {@link DependedUpon} annotations.
+   * Groups are in the order of their first sensor, and sensors keep their order inside a group.
+   */
+  static <T> List<List<T>> partition(List<T> sortedExtensions) {
+    Map<Object, Object> parents = new HashMap<>();
+    for (T extension : sortedExtensions) {
+      for (Object dependency : getDependencies(extension)) {
+        union(parents, extension, dependency);
+      }
+      for (Object dependent : getDependents(extension)) {
+        union(parents, extension, dependent);
+      }
+    }
+    Map<Object, List<T>> groupsByRoot = new LinkedHashMap<>();
+    for (T extension : sortedExtensions) {
+      groupsByRoot.computeIfAbsent(find(parents, extension), r -> new ArrayList<>()).add(extension);
+    }
+    return new ArrayList<>(groupsByRoot.values());
+  }
+
+  private static void union(Map<Object, Object> parents, Object node, Object other) {
+    Object root = find(parents, node);
+    Object otherRoot = find(parents, other);
+    if (!root.equals(otherRoot)) {
+      parents.put(otherRoot, root);
+    }
+  }
+
+  private static Object find(Map<Object, Object> parents, Object node) {
+    Object parent = parents.get(node);
+    if (parent == null) {
+      return node;
+    }
+    Object root = find(parents, parent);
+    parents.put(node, root);
+    return root;
+  }
+
   private static void executeSensor(SensorContext context, Sensor sensor, DefaultSensorDescriptor descriptor) {
     if (LOG.isDebugEnabled()) {
       LOG.debug("Execute Sensor: {}", descriptor.name() != null ? descriptor.name() : StringUtils.describe(sensor));
@@ -161,4 +284,16 @@ public class SensorsExecutor {
       evaluateClass(anInterface, annotationClass, results);
     }
   }
+
+  private static class SensorThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "sonarlint-sensor-" + count.incrementAndGet());
+      // don't prevent the JVM from exiting if an analysis is abandoned
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
 }
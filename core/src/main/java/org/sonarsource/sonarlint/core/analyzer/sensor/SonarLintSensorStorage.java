@@ -49,6 +49,7 @@ import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile
 import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueListener;
 import org.sonarsource.sonarlint.core.container.analysis.SonarLintRule;
 import org.sonarsource.sonarlint.core.container.analysis.filesystem.SonarLintInputFile;
+import org.sonarsource.sonarlint.core.container.analysis.issue.cache.AnalysisIssueCache;
 import org.sonarsource.sonarlint.core.container.model.DefaultAnalysisResult;
 
 import static java.util.stream.Collectors.toList;
@@ -62,13 +63,16 @@ public class SonarLintSensorStorage implements SensorStorage {
   private final IssueFilters filters;
   private final IssueListener issueListener;
   private final DefaultAnalysisResult analysisResult;
+  private final AnalysisIssueCache issueCache;
 
-  public SonarLintSensorStorage(ActiveRules activeRules, Rules rules, IssueFilters filters, IssueListener issueListener, DefaultAnalysisResult analysisResult) {
+  public SonarLintSensorStorage(ActiveRules activeRules, Rules rules, IssueFilters filters, IssueListener issueListener, DefaultAnalysisResult analysisResult,
+    AnalysisIssueCache issueCache) {
     this.activeRules = activeRules;
     this.rules = rules;
     this.filters = filters;
     this.issueListener = issueListener;
     this.analysisResult = analysisResult;
+    this.issueCache = issueCache;
   }
 
   @Override
@@ -101,8 +105,17 @@ public class SonarLintSensorStorage implements SensorStorage {
 
     DefaultClientIssue newIssue = new DefaultClientIssue(severity, type, activeRule, rules.find(activeRule.ruleKey()), primaryMessage, issue.primaryLocation().textRange(),
       inputComponent.isFile() ? ((SonarLintInputFile) inputComponent).getClientInputFile() : null, flows);
+    report(inputComponent, newIssue);
+  }
+
+  /**
+   * Sensors can be executed concurrently (see {@link SensorsExecutor#PARALLELISM_PROPERTY}): the issue listener is called by one
+   * thread at a time.
+   */
+  private synchronized void report(InputComponent inputComponent, DefaultClientIssue newIssue) {
     if (filters.accept(inputComponent, newIssue)) {
       issueListener.handle(newIssue);
+      issueCache.record(newIssue);
     }
   }
 
@@ -156,7 +169,7 @@ public class SonarLintSensorStorage implements SensorStorage {
   }
 
   @Override
-  public void store(AnalysisError analysisError) {
+  public synchronized void store(AnalysisError analysisError) {
     ClientInputFile clientInputFile = ((SonarLintInputFile) analysisError.inputFile()).getClientInputFile();
     analysisResult.addFailedAnalysisFile(clientInputFile);
   }
@@ -238,7 +238,10 @@ public class ComponentContainer implements ContainerPopulator.Container {
   }
 
   public void declareExtension(@Nullable PluginInfo pluginInfo, Object extension) {
-    propertyDefinitions.addComponent(extension, pluginInfo != null ? pluginInfo.getName() : "");
+    // shared by all the containers of the hierarchy, including concurrent analyses
+    synchronized (propertyDefinitions) {
+      propertyDefinitions.addComponent(extension, pluginInfo != null ? pluginInfo.getName() : "");
+    }
   }
 
   public ComponentContainer addPicoAdapter(ComponentAdapter<?> adapter) {
@@ -41,6 +41,7 @@ import org.sonarsource.sonarlint.core.container.analysis.filesystem.InputFileCac
 import org.sonarsource.sonarlint.core.container.analysis.filesystem.LanguageDetection;
 import org.sonarsource.sonarlint.core.container.analysis.filesystem.SonarLintFileSystem;
 import org.sonarsource.sonarlint.core.container.analysis.filesystem.SonarLintInputProject;
+import org.sonarsource.sonarlint.core.container.analysis.issue.cache.AnalysisIssueCache;
 import org.sonarsource.sonarlint.core.container.analysis.issue.ignore.EnforceIssuesFilter;
 import org.sonarsource.sonarlint.core.container.analysis.issue.ignore.IgnoreIssuesFilter;
 import org.sonarsource.sonarlint.core.container.analysis.issue.ignore.SonarLintNoSonarFilter;
@@ -109,6 +110,7 @@ public class AnalysisContainer extends ComponentContainer {
       DefaultSensorContext.class,
       SonarLintSensorStorage.class,
       IssueFilters.class,
+      AnalysisIssueCache.class,
 
       // rules
       CheckFactory.class,
@@ -130,6 +132,7 @@ public class AnalysisContainer extends ComponentContainer {
     // Don't initialize Sensors before the FS is indexed
     getComponentByType(FileIndexer.class).index();
     getComponentByType(SensorsExecutor.class).execute();
+    getComponentByType(AnalysisIssueCache.class).save();
   }
 
 }
@@ -30,12 +30,18 @@ public class ExclusionFilters {
 
   private static final Logger LOG = Loggers.get(ExclusionFilters.class);
 
+  private static final int MAIN_INCLUSIONS = 1;
+  private static final int MAIN_EXCLUSIONS = 1 << 1;
+  private static final int TEST_INCLUSIONS = 1 << 2;
+  private static final int TEST_EXCLUSIONS = 1 << 3;
+
   private final FileExclusions exclusionSettings;
 
   private SonarLintPathPattern[] mainInclusions;
   private SonarLintPathPattern[] mainExclusions;
   private SonarLintPathPattern[] testInclusions;
   private SonarLintPathPattern[] testExclusions;
+  private PathPatternMatcher matcher;
 
   public ExclusionFilters(Configuration configuration) {
     this.exclusionSettings = new FileExclusions(configuration);
@@ -46,6 +52,7 @@ public class ExclusionFilters {
     mainExclusions = prepareMainExclusions();
     testInclusions = prepareTestInclusions();
     testExclusions = prepareTestExclusions();
+    matcher = new PathPatternMatcher(mainInclusions, mainExclusions, testInclusions, testExclusions);
     log("Server included sources: ", mainInclusions);
     log("Server excluded sources: ", mainExclusions);
     log("Server included tests: ", testInclusions);
@@ -62,35 +69,18 @@ public class ExclusionFilters {
   }
 
   public boolean accept(String relativePath, InputFile.Type type) {
-    SonarLintPathPattern[] inclusionPatterns;
-    SonarLintPathPattern[] exclusionPatterns;
     if (InputFile.Type.MAIN == type) {
-      inclusionPatterns = mainInclusions;
-      exclusionPatterns = mainExclusions;
+      return accept(relativePath, mainInclusions.length > 0, MAIN_INCLUSIONS, MAIN_EXCLUSIONS);
     } else if (InputFile.Type.TEST == type) {
-      inclusionPatterns = testInclusions;
-      exclusionPatterns = testExclusions;
+      return accept(relativePath, testInclusions.length > 0, TEST_INCLUSIONS, TEST_EXCLUSIONS);
     } else {
       throw new IllegalArgumentException("Unknown file type: " + type);
     }
+  }
 
-    if (inclusionPatterns.length > 0) {
-      boolean matchInclusion = false;
-      for (SonarLintPathPattern pattern : inclusionPatterns) {
-        matchInclusion |= pattern.match(relativePath);
-      }
-      if (!matchInclusion) {
-        return false;
-      }
-    }
-    if (exclusionPatterns.length > 0) {
-      for (SonarLintPathPattern pattern : exclusionPatterns) {
-        if (pattern.match(relativePath)) {
-          return false;
-        }
-      }
-    }
-    return true;
+  private boolean accept(String relativePath, boolean hasInclusions, int inclusions, int exclusions) {
+    int matches = matcher.match(relativePath, inclusions | exclusions);
+    return (!hasInclusions || (matches & inclusions) != 0) && (matches & exclusions) == 0;
   }
 
   SonarLintPathPattern[] prepareMainInclusions() {
@@ -0,0 +1,239 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.analysis;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.utils.PathUtils;
+
+/**
+ * Matches a path against many {@link SonarLintPathPattern} at once. The patterns are split on '/' and merged into a trie of segments,
+ * walked as a non-deterministic automaton: the path is sanitized and split once, and each of its segments is looked up once whatever
+ * the number of patterns. Each group of patterns given to the constructor is a category, and matching returns a mask with a bit set
+ * for each category having a matching pattern.
+ * <p>
+ * Segments follow {@link org.sonar.api.utils.WildcardPattern}: "**" matches zero or more directories, "*" zero or more characters
+ * and "?" a single character, other than '/'. The few patterns that can't be split in such segments (for instance "**" glued to other
+ * characters) are still matched one by one.
+ */
+class PathPatternMatcher {
+
+  private static final String ANY_DIRECTORIES = "**";
+  private static final String ANY_NAME = "*";
+
+  private final Node root = new Node(false);
+  private final List<SonarLintPathPattern> others = new ArrayList<>();
+  private final List<Integer> otherCategories = new ArrayList<>();
+
+  PathPatternMatcher(SonarLintPathPattern[]... patternsByCategory) {
+    if (patternsByCategory.length > Integer.SIZE) {
+      throw new IllegalArgumentException("Too many categories: " + patternsByCategory.length);
+    }
+    for (int i = 0; i < patternsByCategory.length; i++) {
+      for (SonarLintPathPattern pattern : patternsByCategory[i]) {
+        add(pattern, 1 << i);
+      }
+    }
+  }
+
+  private void add(SonarLintPathPattern pattern, int category) {
+    String[] segments = split(pattern.getPattern());
+    if (segments == null) {
+      others.add(pattern);
+      otherCategories.add(category);
+      return;
+    }
+    Node node = root;
+    for (int i = 0; i < segments.length; i++) {
+      String segment = segments[i];
+      if (ANY_DIRECTORIES.equals(segment)) {
+        if (i == segments.length - 1) {
+          // a trailing "**" needs at least one more segment
+          node = node.child(ANY_NAME);
+        }
+        node = node.anyDirectories();
+      } else {
+        node = node.child(segment);
+      }
+    }
+    node.categories |= category;
+  }
+
+  /**
+   * @return the segments of the pattern, or null if it has segments that are neither "**" nor free of "**"
+   */
+  @CheckForNull
+  private static String[] split(String pattern) {
+    if (pattern.indexOf('\\') >= 0) {
+      return null;
+    }
+    String[] segments = StringUtils.splitPreserveAllTokens(pattern, '/');
+    for (String segment : segments) {
+      if (segment.isEmpty() || (!ANY_DIRECTORIES.equals(segment) && segment.contains(ANY_DIRECTORIES))) {
+        return null;
+      }
+    }
+    return segments;
+  }
+
+  /**
+   * @param categories mask of the categories to look for
+   * @return mask of the categories, among the requested ones, having a pattern that matches the path
+   */
+  int match(@Nullable String filePath, int categories) {
+    String path = PathUtils.sanitize(filePath);
+    if (path == null) {
+      return 0;
+    }
+    int result = matchSegments(StringUtils.removeEnd(StringUtils.removeStart(path, "/"), "/")) & categories;
+    for (int i = 0; i < others.size(); i++) {
+      int category = otherCategories.get(i);
+      if ((category & categories & ~result) != 0 && others.get(i).pattern.match(path)) {
+        result |= category;
+      }
+    }
+    return result;
+  }
+
+  private int matchSegments(String path) {
+    List<Node> active = new ArrayList<>();
+    addWithAnyDirectories(active, root);
+    int start = 0;
+    while (!active.isEmpty()) {
+      int end = path.indexOf('/', start);
+      String segment = path.substring(start, end >= 0 ? end : path.length());
+      active = next(active, segment);
+      if (end < 0) {
+        break;
+      }
+      start = end + 1;
+    }
+    int result = 0;
+    for (Node node : active) {
+      result |= node.categories;
+    }
+    return result;
+  }
+
+  private static List<Node> next(List<Node> active, String segment) {
+    List<Node> next = new ArrayList<>();
+    for (Node node : active) {
+      if (node.loop) {
+        addWithAnyDirectories(next, node);
+      }
+      Node literal = node.literals.get(segment);
+      if (literal != null) {
+        addWithAnyDirectories(next, literal);
+      }
+      for (int i = 0; i < node.globs.size(); i++) {
+        if (matchSegment(node.globs.get(i), segment)) {
+          addWithAnyDirectories(next, node.globChildren.get(i));
+        }
+      }
+    }
+    return next;
+  }
+
+  private static void addWithAnyDirectories(List<Node> nodes, Node node) {
+    Node current = node;
+    while (current != null && !nodes.contains(current)) {
+      nodes.add(current);
+      current = current.anyDirectories;
+    }
+  }
+
+  /**
+   * Match a segment against a glob of "*" and "?", backtracking only to the last "*".
+   */
+  static boolean matchSegment(String glob, String segment) {
+    int g = 0;
+    int s = 0;
+    int lastStar = -1;
+    int lastStarSegment = 0;
+    while (s < segment.length()) {
+      // '/' is never part of a segment, so it stands for the end of the glob
+      char c = g < glob.length() ? glob.charAt(g) : '/';
+      if (c == '*') {
+        lastStar = g;
+        lastStarSegment = s;
+        g++;
+      } else if (c == '?' || c == segment.charAt(s)) {
+        g++;
+        s++;
+      } else if (lastStar >= 0) {
+        g = lastStar + 1;
+        lastStarSegment++;
+        s = lastStarSegment;
+      } else {
+        return false;
+      }
+    }
+    while (g < glob.length() && glob.charAt(g) == '*') {
+      g++;
+    }
+    return g == glob.length();
+  }
+
+  private static boolean isGlob(String segment) {
+    return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0;
+  }
+
+  private static class Node {
+    /**
+     * Node reached through "**", which stays active whatever the next segment
+     */
+    private final boolean loop;
+    private final Map<String, Node> literals = new HashMap<>();
+    private final List<String> globs = new ArrayList<>();
+    private final List<Node> globChildren = new ArrayList<>();
+    private Node anyDirectories;
+    private int categories;
+
+    Node(boolean loop) {
+      this.loop = loop;
+    }
+
+    Node anyDirectories() {
+      if (anyDirectories == null) {
+        anyDirectories = new Node(true);
+      }
+      return anyDirectories;
+    }
+
+    Node child(String segment) {
+      if (!isGlob(segment)) {
+        return literals.computeIfAbsent(segment, s -> new Node(false));
+      }
+      int index = globs.indexOf(segment);
+      if (index >= 0) {
+        return globChildren.get(index);
+      }
+      Node child = new Node(false);
+      globs.add(segment);
+      globChildren.add(child);
+      return child;
+    }
+  }
+}
@@ -35,6 +35,7 @@ public class SonarLintPathPattern {
   private static final Logger LOG = Loggers.get(SonarLintPathPattern.class);
 
   final WildcardPattern pattern;
+  private final String antPattern;
 
   public SonarLintPathPattern(String pattern) {
     if (pattern.startsWith("file:")) {
@@ -44,9 +45,17 @@ public class SonarLintPathPattern {
     if (!pattern.startsWith("**/")) {
       pattern = "**/" + pattern;
     }
+    this.antPattern = pattern;
     this.pattern = WildcardPattern.create(pattern);
   }
 
+  /**
+   * @return the pattern as given to {@link WildcardPattern}, starting with "**&#47;"
+   */
+  String getPattern() {
+    return antPattern;
+  }
+
   public static SonarLintPathPattern[] create(String[] s) {
     SonarLintPathPattern[] result = new SonarLintPathPattern[s.length];
     for (int i = 0; i < s.length; i++) {
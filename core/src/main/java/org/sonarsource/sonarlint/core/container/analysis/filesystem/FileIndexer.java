@@ -20,52 +20,72 @@
 package org.sonarsource.sonarlint.core.container.analysis.filesystem;
 
 import java.net.URI;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFileFilter;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonarsource.api.sonarlint.SonarLintSide;
 import org.sonarsource.sonarlint.core.client.api.common.AbstractAnalysisConfiguration;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.container.analysis.issue.cache.AnalysisIssueCache;
 import org.sonarsource.sonarlint.core.container.analysis.issue.ignore.scanner.IssueExclusionsLoader;
 import org.sonarsource.sonarlint.core.container.model.DefaultAnalysisResult;
 import org.sonarsource.sonarlint.core.util.ProgressReport;
 
 /**
  * Index input files into {@link InputFileCache}.
+ * <p>
+ * Building input files and evaluating {@link InputFileFilter}s can be spread over a pool of threads by setting
+ * {@value #PARALLELISM_PROPERTY} to more than 1. Files are then added to the cache in the order of the input files,
+ * once they have all been built. Filters provided by plugins must be thread-safe to use this mode.
+ * <p>
+ * Files found in the {@link AnalysisIssueCache} are not added to the cache: their issues are replayed instead of analyzing them.
  */
 @SonarLintSide
 public class FileIndexer {
 
   private static final Logger LOG = Loggers.get(FileIndexer.class);
 
+  public static final String PARALLELISM_PROPERTY = "sonarlint.indexing.parallelism";
+
   private final InputFileBuilder inputFileBuilder;
   private final AbstractAnalysisConfiguration analysisConfiguration;
   private final DefaultAnalysisResult analysisResult;
   private final InputFileFilter[] filters;
   private final IssueExclusionsLoader issueExclusionsLoader;
   private final InputFileCache inputFileCache;
+  private final AnalysisIssueCache issueCache;
+  private final int parallelism;
 
   private ProgressReport progressReport;
 
   public FileIndexer(InputFileCache inputFileCache, InputFileBuilder inputFileBuilder, AbstractAnalysisConfiguration analysisConfiguration,
-    DefaultAnalysisResult analysisResult, IssueExclusionsLoader issueExclusionsLoader,
+    DefaultAnalysisResult analysisResult, IssueExclusionsLoader issueExclusionsLoader, Configuration configuration, AnalysisIssueCache issueCache,
     InputFileFilter[] filters) {
     this.inputFileCache = inputFileCache;
     this.inputFileBuilder = inputFileBuilder;
     this.analysisConfiguration = analysisConfiguration;
     this.analysisResult = analysisResult;
     this.issueExclusionsLoader = issueExclusionsLoader;
+    this.issueCache = issueCache;
     this.filters = filters;
+    this.parallelism = configuration.getInt(PARALLELISM_PROPERTY).orElse(1);
   }
 
   public FileIndexer(InputFileCache inputFileCache, InputFileBuilder inputFileBuilder, AbstractAnalysisConfiguration analysisConfiguration,
-    DefaultAnalysisResult analysisResult, IssueExclusionsLoader issueExclusionsLoader) {
-    this(inputFileCache, inputFileBuilder, analysisConfiguration, analysisResult, issueExclusionsLoader, new InputFileFilter[0]);
+    DefaultAnalysisResult analysisResult, IssueExclusionsLoader issueExclusionsLoader, Configuration configuration, AnalysisIssueCache issueCache) {
+    this(inputFileCache, inputFileBuilder, analysisConfiguration, analysisResult, issueExclusionsLoader, configuration, issueCache, new InputFileFilter[0]);
   }
 
   public void index() {
@@ -75,7 +95,11 @@ public class FileIndexer {
     Progress progress = new Progress();
 
     try {
-      indexFiles(inputFileCache, progress, analysisConfiguration.inputFiles());
+      if (parallelism > 1) {
+        indexFilesInParallel(inputFileCache, progress, analysisConfiguration.inputFiles());
+      } else {
+        indexFiles(inputFileCache, progress, analysisConfiguration.inputFiles());
+      }
     } catch (Exception e) {
       progressReport.stop(null);
       throw e;
@@ -98,15 +122,68 @@ public class FileIndexer {
   private void indexFile(InputFileCache inputFileCache, Progress progress, ClientInputFile file) {
     SonarLintInputFile inputFile = inputFileBuilder.create(file);
     if (accept(inputFile)) {
-      analysisResult.setLanguageForFile(file, inputFile.getLanguage());
-      indexFile(inputFileCache, progress, inputFile);
-      issueExclusionsLoader.addMulticriteriaPatterns(inputFile);
+      progress.markAsIndexed(inputFile);
+      List<Issue> cachedIssues = issueCache.lookup(inputFile);
+      if (cachedIssues != null) {
+        replay(file, inputFile, cachedIssues);
+      } else {
+        addFile(inputFileCache, file, inputFile);
+      }
     }
   }
 
-  private void indexFile(final InputFileCache inputFileCache, final Progress status, final SonarLintInputFile inputFile) {
+  /**
+   * Input files are built, filtered and looked up in the issue cache by the pool, then added to the cache or replayed from the calling thread,
+   * in the order of the input files.
+   */
+  private void indexFilesInParallel(InputFileCache inputFileCache, Progress progress, Iterable<ClientInputFile> inputFiles) {
+    List<ClientInputFile> files = new ArrayList<>();
+    inputFiles.forEach(files::add);
+    SonarLintInputFile[] accepted = new SonarLintInputFile[files.size()];
+    List<List<Issue>> cachedIssues = new ArrayList<>(files.size());
+    files.forEach(f -> cachedIssues.add(null));
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      pool.submit(() -> IntStream.range(0, files.size()).parallel().forEach(i -> {
+        SonarLintInputFile inputFile = inputFileBuilder.create(files.get(i));
+        if (accept(inputFile)) {
+          progress.markAsIndexed(inputFile);
+          accepted[i] = inputFile;
+          cachedIssues.set(i, issueCache.lookup(inputFile));
+        }
+      })).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while indexing files", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Failed to index files", e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+    for (int i = 0; i < accepted.length; i++) {
+      if (accepted[i] == null) {
+        continue;
+      }
+      if (cachedIssues.get(i) != null) {
+        replay(files.get(i), accepted[i], cachedIssues.get(i));
+      } else {
+        addFile(inputFileCache, files.get(i), accepted[i]);
+      }
+    }
+  }
+
+  private void addFile(InputFileCache inputFileCache, ClientInputFile file, SonarLintInputFile inputFile) {
+    analysisResult.setLanguageForFile(file, inputFile.getLanguage());
     inputFileCache.doAdd(inputFile);
-    status.markAsIndexed(inputFile);
+    issueExclusionsLoader.addMulticriteriaPatterns(inputFile);
+  }
+
+  private void replay(ClientInputFile file, SonarLintInputFile inputFile, List<Issue> cachedIssues) {
+    analysisResult.setLanguageForFile(file, inputFile.getLanguage());
+    issueCache.replay(cachedIssues);
   }
 
   private boolean accept(InputFile indexedFile) {
@@ -121,13 +198,12 @@ public class FileIndexer {
   }
 
   private class Progress {
-    private final Set<URI> indexed = new HashSet<>();
+    private final Set<URI> indexed = ConcurrentHashMap.newKeySet();
 
     void markAsIndexed(SonarLintInputFile inputFile) {
-      if (indexed.contains(inputFile.uri())) {
+      if (!indexed.add(inputFile.uri())) {
         throw MessageException.of("File " + inputFile + " can't be indexed twice.");
       }
-      indexed.add(inputFile.uri());
       int size = indexed.size();
       progressReport.message(() -> size + " files indexed...  (last one was " + inputFile.uri() + ")");
     }
@@ -19,7 +19,6 @@
  */
 package org.sonarsource.sonarlint.core.container.analysis.filesystem;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -29,8 +28,7 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.URI;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import javax.annotation.Nullable;
 import org.apache.commons.io.ByteOrderMark;
 import org.apache.commons.io.input.BOMInputStream;
@@ -50,7 +48,14 @@ public class FileMetadata {
 
   private static final char LINE_FEED = '\n';
   private static final char CARRIAGE_RETURN = '\r';
+  private static final char REPLACEMENT_CHARACTER = '\ufffd';
+  private static final int BUFFER_SIZE = 16 * 1024;
+  private static final int INITIAL_LINE_OFFSETS = 256;
 
+  /**
+   * Receives the content of a file, line by line. Line terminators are passed to {@link #handleAll(char)} only, and the other
+   * characters are passed by ranges to {@link #handleRange(char[], int, int)}.
+   */
   public abstract static class CharHandler {
 
     protected void handleAll(char c) {
@@ -59,77 +64,22 @@ public class FileMetadata {
     protected void handleIgnoreEoL(char c) {
     }
 
-    protected void newLine() {
-    }
-
-    protected void eof() {
-    }
-  }
-
-  private static class LineCounter extends CharHandler {
-    private int lines = 1;
-    boolean alreadyLoggedInvalidCharacter = false;
-    private final URI fileUri;
-    private final Charset encoding;
-
-    LineCounter(URI fileUri, Charset encoding) {
-      this.fileUri = fileUri;
-      this.encoding = encoding;
-    }
-
-    @Override
-    protected void handleAll(char c) {
-      if (!alreadyLoggedInvalidCharacter && c == '\ufffd') {
-        LOG.warn("Invalid character encountered in file '{}' at line {} for encoding {}. Please fix file content or configure the encoding to be used using property '{}'.",
-          fileUri,
-          lines, encoding, CoreProperties.ENCODING_PROPERTY);
-        alreadyLoggedInvalidCharacter = true;
+    /**
+     * Called with a range of characters of the current line, excluding line terminators. The array is reused after the call returns.
+     * By default, calls {@link #handleIgnoreEoL(char)} and {@link #handleAll(char)} for each character.
+     */
+    protected void handleRange(char[] chars, int start, int end) {
+      for (int i = start; i < end; i++) {
+        handleIgnoreEoL(chars[i]);
+        handleAll(chars[i]);
       }
     }
 
-    @Override
-    protected void newLine() {
-      lines++;
-    }
-
-    public int lines() {
-      return lines;
-    }
-
-  }
-
-  private static class LineOffsetCounter extends CharHandler {
-    private int currentOriginalOffset = 0;
-    private List<Integer> originalLineOffsets = new ArrayList<>();
-    private int lastValidOffset = 0;
-
-    public LineOffsetCounter() {
-      originalLineOffsets.add(0);
-    }
-
-    @Override
-    protected void handleAll(char c) {
-      currentOriginalOffset++;
-    }
-
-    @Override
     protected void newLine() {
-      originalLineOffsets.add(currentOriginalOffset);
     }
 
-    @Override
     protected void eof() {
-      lastValidOffset = currentOriginalOffset;
     }
-
-    public List<Integer> getOriginalLineOffsets() {
-      return originalLineOffsets;
-    }
-
-    public int getLastValidOffset() {
-      return lastValidOffset;
-    }
-
   }
 
   /**
@@ -145,20 +95,13 @@ public class FileMetadata {
    * Maximum performance is needed.
    */
   public Metadata readMetadata(InputStream stream, Charset encoding, URI fileUri, @Nullable CharHandler otherHandler) {
-    LineCounter lineCounter = new LineCounter(fileUri, encoding);
-    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
-    try (Reader reader = new BufferedReader(new InputStreamReader(stream, encoding))) {
-      CharHandler[] handlers;
-      if (otherHandler != null) {
-        handlers = new CharHandler[] {lineCounter, lineOffsetCounter, otherHandler};
-      } else {
-        handlers = new CharHandler[] {lineCounter, lineOffsetCounter};
-      }
-      read(reader, handlers);
+    Scanner scanner = new Scanner(fileUri, encoding, otherHandler != null ? otherHandler : NoOpCharHandler.INSTANCE);
+    try (Reader reader = new InputStreamReader(stream, encoding)) {
+      scanner.read(reader);
     } catch (IOException e) {
       throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", fileUri, encoding), e);
     }
-    return new Metadata(lineCounter.lines(), lineOffsetCounter.getOriginalLineOffsets().stream().mapToInt(i -> i).toArray(), lineOffsetCounter.getLastValidOffset());
+    return scanner.metadata();
   }
 
   private static InputStream streamFile(File file) {
@@ -170,50 +113,125 @@ public class FileMetadata {
     }
   }
 
-  private static void read(Reader reader, CharHandler... handlers) throws IOException {
-    char c;
-    int i = reader.read();
-    boolean afterCR = false;
-    while (i != -1) {
-      c = (char) i;
+  private static class NoOpCharHandler extends CharHandler {
+    private static final NoOpCharHandler INSTANCE = new NoOpCharHandler();
+
+    @Override
+    protected void handleRange(char[] chars, int start, int end) {
+      // nothing to do
+    }
+  }
+
+  /**
+   * Reads chars in chunks, and looks for line terminators in a tight loop. Lines and their offsets are counted here, and only
+   * ranges of characters between line terminators are passed to the handler.
+   * <p>
+   * A line starts after "\n", "\r\n", or a "\r" not followed by "\n". A "\r" at the end of a chunk is resolved with the first
+   * char of the next chunk.
+   */
+  private static class Scanner {
+    private final URI fileUri;
+    private final Charset encoding;
+    private final CharHandler handler;
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    private int[] lineOffsets = new int[INITIAL_LINE_OFFSETS];
+    private int lines = 1;
+    private int offset;
+    private boolean afterCR;
+    private boolean alreadyLoggedInvalidCharacter;
+
+    Scanner(URI fileUri, Charset encoding, CharHandler handler) {
+      this.fileUri = fileUri;
+      this.encoding = encoding;
+      this.handler = handler;
+    }
+
+    void read(Reader reader) throws IOException {
+      int length;
+      while ((length = reader.read(buffer, 0, buffer.length)) != -1) {
+        if (length > 0) {
+          scan(length);
+        }
+      }
       if (afterCR) {
-        for (CharHandler handler : handlers) {
-          if (c == CARRIAGE_RETURN) {
-            handler.newLine();
-            handler.handleAll(c);
-          } else if (c == LINE_FEED) {
-            handler.handleAll(c);
-            handler.newLine();
-          } else {
-            handler.newLine();
-            handler.handleIgnoreEoL(c);
-            handler.handleAll(c);
-          }
+        newLine(offset);
+      }
+      handler.eof();
+    }
+
+    private void scan(int length) {
+      char[] chars = buffer;
+      int i = 0;
+      if (afterCR) {
+        afterCR = false;
+        if (chars[0] == LINE_FEED) {
+          handler.handleAll(LINE_FEED);
+          i = 1;
         }
-        afterCR = c == CARRIAGE_RETURN;
-      } else if (c == LINE_FEED) {
-        for (CharHandler handler : handlers) {
-          handler.handleAll(c);
-          handler.newLine();
+        newLine(offset + i);
+      }
+      int start = i;
+      while (i < length) {
+        char c = chars[i];
+        // both terminators are below '\r', so most chars are skipped by the first test
+        if (c > CARRIAGE_RETURN || (c != LINE_FEED && c != CARRIAGE_RETURN)) {
+          i++;
+          continue;
         }
-      } else if (c == CARRIAGE_RETURN) {
-        afterCR = true;
-        for (CharHandler handler : handlers) {
-          handler.handleAll(c);
+        range(chars, start, i);
+        handler.handleAll(c);
+        i++;
+        if (c == CARRIAGE_RETURN) {
+          if (i == length) {
+            afterCR = true;
+            start = i;
+            break;
+          }
+          if (chars[i] == LINE_FEED) {
+            handler.handleAll(LINE_FEED);
+            i++;
+          }
         }
-      } else {
-        for (CharHandler handler : handlers) {
-          handler.handleIgnoreEoL(c);
-          handler.handleAll(c);
+        newLine(offset + i);
+        start = i;
+      }
+      range(chars, start, length);
+      offset += length;
+    }
+
+    private void range(char[] chars, int start, int end) {
+      if (start == end) {
+        return;
+      }
+      if (!alreadyLoggedInvalidCharacter) {
+        checkInvalidCharacter(chars, start, end);
+      }
+      handler.handleRange(chars, start, end);
+    }
+
+    private void checkInvalidCharacter(char[] chars, int start, int end) {
+      for (int i = start; i < end; i++) {
+        if (chars[i] == REPLACEMENT_CHARACTER) {
+          LOG.warn("Invalid character encountered in file '{}' at line {} for encoding {}. Please fix file content or configure the encoding to be used using property '{}'.",
+            fileUri, lines, encoding, CoreProperties.ENCODING_PROPERTY);
+          alreadyLoggedInvalidCharacter = true;
+          return;
         }
       }
-      i = reader.read();
     }
-    for (CharHandler handler : handlers) {
-      if (afterCR) {
-        handler.newLine();
+
+    private void newLine(int lineOffset) {
+      if (lines == lineOffsets.length) {
+        lineOffsets = Arrays.copyOf(lineOffsets, lines * 2);
       }
-      handler.eof();
+      lineOffsets[lines] = lineOffset;
+      lines++;
+      handler.newLine();
+    }
+
+    Metadata metadata() {
+      return new Metadata(lines, Arrays.copyOf(lineOffsets, lines), offset);
     }
   }
 
@@ -22,9 +22,7 @@ package org.sonarsource.sonarlint.core.container.analysis.filesystem;
 import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
-import java.util.Locale;
 import java.util.Map;
-import java.util.Map.Entry;
 import javax.annotation.CheckForNull;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.fs.InputFile;
@@ -38,22 +36,32 @@ import static java.util.stream.Collectors.joining;
 
 /**
  * Detect language of a source file based on its suffix and configured patterns.
+ * <p>
+ * Extensions of all languages are compiled into a trie of reversed extensions, so that the file name is read once,
+ * from its end, without allocation.
  */
 public class LanguageDetection {
 
   private static final Logger LOG = Loggers.get(LanguageDetection.class);
 
+  private static final Language[] LANGUAGES = Language.values();
+
   /**
-   * Lower-case extension -> languages
+   * Lower-case extensions, per language
    */
   private final Map<Language, String[]> extensionsByLanguage = new LinkedHashMap<>();
+  private final Node reversedExtensions = new Node();
 
   public LanguageDetection(Configuration config) {
-    for (Language language : Language.values()) {
+    if (LANGUAGES.length > Long.SIZE) {
+      throw new IllegalStateException("Too many languages");
+    }
+    for (Language language : LANGUAGES) {
       String[] extensions = config.hasKey(language.getFileSuffixesPropKey()) ? config.getStringArray(language.getFileSuffixesPropKey()) : language.getDefaultFileSuffixes();
       for (int i = 0; i < extensions.length; i++) {
         String suffix = extensions[i];
         extensions[i] = sanitizeExtension(suffix);
+        reversedExtensions.add(extensions[i], language);
       }
       extensionsByLanguage.put(language, extensions);
     }
@@ -61,32 +69,35 @@ public class LanguageDetection {
 
   @CheckForNull
   Language language(InputFile inputFile) {
-    Language detectedLanguage = null;
-    for (Entry<Language, String[]> languagePatterns : extensionsByLanguage.entrySet()) {
-      if (isCandidateForLanguage(inputFile, languagePatterns.getValue())) {
-        if (detectedLanguage == null) {
-          detectedLanguage = languagePatterns.getKey();
-        } else {
-          // Language was already forced by another pattern
-          throw MessageException.of(MessageFormat.format("Language of file ''{0}'' can not be decided as the file extension matches both {1} and {2}",
-            inputFile.uri(), getDetails(detectedLanguage), getDetails(languagePatterns.getKey())));
-        }
-      }
+    long matches = matchingLanguages(inputFile.filename());
+    if (matches == 0) {
+      return null;
     }
-    if (detectedLanguage != null) {
-      LOG.debug("Language of file '{}' is detected to be '{}'", inputFile.uri(), detectedLanguage);
-      return detectedLanguage;
+    Language detectedLanguage = LANGUAGES[Long.numberOfTrailingZeros(matches)];
+    long otherMatches = matches & (matches - 1);
+    if (otherMatches != 0) {
+      throw MessageException.of(MessageFormat.format("Language of file ''{0}'' can not be decided as the file extension matches both {1} and {2}",
+        inputFile.uri(), getDetails(detectedLanguage), getDetails(LANGUAGES[Long.numberOfTrailingZeros(otherMatches)])));
     }
-    return null;
+    LOG.debug("Language of file '{}' is detected to be '{}'", inputFile.uri(), detectedLanguage);
+    return detectedLanguage;
   }
 
-  private static boolean isCandidateForLanguage(InputFile inputFile, String[] extensions) {
-    for (String extension : extensions) {
-      if (inputFile.filename().toLowerCase(Locale.ENGLISH).endsWith("." + extension)) {
-        return true;
+  /**
+   * @return a bit set of the ordinals of the languages having an extension that matches the file name
+   */
+  long matchingLanguages(String filename) {
+    long matches = 0;
+    Node node = reversedExtensions;
+    for (int i = filename.length() - 1; i >= 0 && node != null; i--) {
+      char c = Character.toLowerCase(filename.charAt(i));
+      if (c == '.') {
+        // extensions ending at this node are preceded by a dot
+        matches |= node.languages;
       }
+      node = node.child(c);
     }
-    return false;
+    return matches;
   }
 
   private String getDetails(Language detectedLanguage) {
@@ -98,4 +109,43 @@ public class LanguageDetection {
   static String sanitizeExtension(String suffix) {
     return StringUtils.lowerCase(StringUtils.removeStart(suffix, "."));
   }
+
+  /**
+   * Node of the trie: the path from the root spells an extension backwards.
+   */
+  private static class Node {
+    private char[] keys = new char[0];
+    private Node[] children = new Node[0];
+    private long languages;
+
+    void add(String extension, Language language) {
+      Node node = this;
+      for (int i = extension.length() - 1; i >= 0; i--) {
+        node = node.getOrAddChild(extension.charAt(i));
+      }
+      node.languages |= 1L << language.ordinal();
+    }
+
+    @CheckForNull
+    Node child(char c) {
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] == c) {
+          return children[i];
+        }
+      }
+      return null;
+    }
+
+    private Node getOrAddChild(char c) {
+      Node child = child(c);
+      if (child == null) {
+        child = new Node();
+        keys = Arrays.copyOf(keys, keys.length + 1);
+        children = Arrays.copyOf(children, children.length + 1);
+        keys[keys.length - 1] = c;
+        children[children.length - 1] = child;
+      }
+      return child;
+    }
+  }
 }
@@ -26,10 +26,10 @@ import java.net.URI;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Function;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -47,11 +47,12 @@ public class SonarLintInputFile implements InputFile {
   private final String relativePath;
   private Language language;
   private Type type;
-  private Metadata metadata;
+  private volatile Metadata metadata;
   private final Function<SonarLintInputFile, Metadata> metadataGenerator;
-  private boolean ignoreAllIssues;
-  private final Set<Integer> noSonarLines = new HashSet<>();
-  private Collection<int[]> ignoreIssuesOnlineRanges;
+  // concurrent, since sensors executed in parallel can record exclusions while others filter their issues
+  private volatile boolean ignoreAllIssues;
+  private final Set<Integer> noSonarLines = ConcurrentHashMap.newKeySet();
+  private final Collection<int[]> ignoreIssuesOnlineRanges = new CopyOnWriteArrayList<>();
 
   public SonarLintInputFile(ClientInputFile clientInputFile, Function<SonarLintInputFile, Metadata> metadataGenerator) {
     this.clientInputFile = clientInputFile;
@@ -59,9 +60,17 @@ public class SonarLintInputFile implements InputFile {
     this.relativePath = PathUtils.sanitize(clientInputFile.relativePath());
   }
 
+  /**
+   * Sensors can be executed concurrently (see {@link org.sonarsource.sonarlint.core.analyzer.sensor.SensorsExecutor#PARALLELISM_PROPERTY}):
+   * metadata is generated once, under the lock of this file.
+   */
   public void checkMetadata() {
     if (metadata == null) {
-      this.metadata = metadataGenerator.apply(this);
+      synchronized (this) {
+        if (metadata == null) {
+          this.metadata = metadataGenerator.apply(this);
+        }
+      }
     }
   }
 
@@ -265,15 +274,12 @@ public class SonarLintInputFile implements InputFile {
   }
 
   public void addIgnoreIssuesOnLineRanges(Collection<int[]> lineRanges) {
-    if (this.ignoreIssuesOnlineRanges == null) {
-      this.ignoreIssuesOnlineRanges = new ArrayList<>();
-    }
     this.ignoreIssuesOnlineRanges.addAll(lineRanges);
   }
 
   public boolean isIgnoreAllIssuesOnLine(@Nullable Integer line) {
     checkMetadata();
-    if (line == null || ignoreIssuesOnlineRanges == null) {
+    if (line == null) {
       return false;
     }
     return ignoreIssuesOnlineRanges.stream().anyMatch(r -> r[0] <= line && line <= r[1]);
@@ -0,0 +1,349 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.analysis.issue.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.rule.ActiveRule;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonarsource.api.sonarlint.SonarLintSide;
+import org.sonarsource.sonarlint.core.client.api.common.AbstractAnalysisConfiguration;
+import org.sonarsource.sonarlint.core.client.api.common.AbstractGlobalConfiguration;
+import org.sonarsource.sonarlint.core.client.api.common.TextRange;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueListener;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueLocation;
+import org.sonarsource.sonarlint.core.container.analysis.MutableAnalysisSettings;
+import org.sonarsource.sonarlint.core.container.analysis.filesystem.SonarLintInputFile;
+import org.sonarsource.sonarlint.core.container.model.DefaultAnalysisResult;
+import org.sonarsource.sonarlint.core.plugin.PluginInfo;
+import org.sonarsource.sonarlint.core.plugin.PluginRepository;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.CachedIssues;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Replays the issues of the files that did not change since a previous analysis, and records the issues of the other files in
+ * the {@link IssueCache}.
+ * <p>
+ * The key of a file covers its content, path, type and language, and a fingerprint of the analysis: active rules and their
+ * parameters, versions and jars of the plugins, analysis settings, base directory and Node.js version. Issues of a file are
+ * not stored if its analysis failed, or if one of them has locations in other files. Issues that are not on a file are never cached.
+ * <p>
+ * Analyzers that use other files than the analyzed one (like compiled classes of a classpath) can raise different issues on a file
+ * that did not change, which is why the cache is opt-in.
+ */
+@SonarLintSide
+public class AnalysisIssueCache {
+
+  private static final Logger LOG = Loggers.get(AnalysisIssueCache.class);
+
+  // to be increased when the content of the key or of the entries changes
+  private static final String FORMAT_VERSION = "1";
+  private static final int STREAM_BUFFER_LENGTH = 8192;
+
+  private final IssueCache issueCache;
+  private final AbstractGlobalConfiguration globalConfiguration;
+  private final AbstractAnalysisConfiguration analysisConfiguration;
+  private final ActiveRules activeRules;
+  private final MutableAnalysisSettings settings;
+  private final PluginRepository pluginRepository;
+  private final IssueListener issueListener;
+  private final DefaultAnalysisResult analysisResult;
+  private final Map<ClientInputFile, Recorder> missedFiles = new ConcurrentHashMap<>();
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+  private String fingerprint;
+
+  public AnalysisIssueCache(IssueCache issueCache, AbstractGlobalConfiguration globalConfiguration, AbstractAnalysisConfiguration analysisConfiguration,
+    ActiveRules activeRules, MutableAnalysisSettings settings, PluginRepository pluginRepository, IssueListener issueListener,
+    DefaultAnalysisResult analysisResult) {
+    this.issueCache = issueCache;
+    this.globalConfiguration = globalConfiguration;
+    this.analysisConfiguration = analysisConfiguration;
+    this.activeRules = activeRules;
+    this.settings = settings;
+    this.pluginRepository = pluginRepository;
+    this.issueListener = issueListener;
+    this.analysisResult = analysisResult;
+  }
+
+  /**
+   * Can be called concurrently for different files.
+   *
+   * @return the issues of the file if it did not change since it was last analyzed, null if it has to be analyzed
+   */
+  @CheckForNull
+  public List<Issue> lookup(SonarLintInputFile inputFile) {
+    if (!issueCache.isEnabled()) {
+      return null;
+    }
+    ClientInputFile clientInputFile = inputFile.getClientInputFile();
+    String key = key(inputFile);
+    if (key == null) {
+      return null;
+    }
+    CachedIssues cached = issueCache.get(key);
+    if (cached == null) {
+      misses.incrementAndGet();
+      missedFiles.put(clientInputFile, new Recorder(key));
+      return null;
+    }
+    hits.incrementAndGet();
+    return cached.getIssueList().stream()
+      .map(i -> new CachedIssue(i, clientInputFile))
+      .collect(toList());
+  }
+
+  public void replay(List<Issue> issues) {
+    issues.forEach(issueListener::handle);
+  }
+
+  /**
+   * Record an issue reported by the analysis, to be stored by {@link #save()}.
+   */
+  public void record(Issue issue) {
+    ClientInputFile clientInputFile = issue.getInputFile();
+    if (clientInputFile == null) {
+      return;
+    }
+    Recorder recorder = missedFiles.get(clientInputFile);
+    if (recorder != null) {
+      recorder.add(issue);
+    }
+  }
+
+  /**
+   * Store the issues of the files that were analyzed, once the analysis is complete.
+   */
+  public void save() {
+    if (!issueCache.isEnabled()) {
+      return;
+    }
+    Collection<ClientInputFile> failedFiles = analysisResult.failedAnalysisFiles();
+    missedFiles.forEach((clientInputFile, recorder) -> {
+      CachedIssues issues = recorder.build();
+      if (issues != null && !failedFiles.contains(clientInputFile)) {
+        issueCache.put(recorder.key, issues);
+      }
+    });
+    analysisResult.setCachedFileCount(hits.get());
+    LOG.debug("Issue cache: {} hit(s), {} miss(es)", hits.get(), misses.get());
+  }
+
+  @CheckForNull
+  private String key(SonarLintInputFile inputFile) {
+    ClientInputFile clientInputFile = inputFile.getClientInputFile();
+    MessageDigest digest = sha256();
+    update(digest, fingerprint());
+    update(digest, clientInputFile.relativePath());
+    update(digest, clientInputFile.uri().toString());
+    update(digest, Boolean.toString(clientInputFile.isTest()));
+    update(digest, inputFile.language());
+    Charset charset = clientInputFile.getCharset();
+    update(digest, charset != null ? charset.name() : null);
+    try (InputStream input = clientInputFile.inputStream()) {
+      byte[] buffer = new byte[STREAM_BUFFER_LENGTH];
+      int read = input.read(buffer);
+      while (read > -1) {
+        digest.update(buffer, 0, read);
+        read = input.read(buffer);
+      }
+    } catch (IOException e) {
+      LOG.debug("Unable to read file {}, it will not be cached", clientInputFile.uri(), e);
+      return null;
+    }
+    return toHex(digest.digest());
+  }
+
+  private synchronized String fingerprint() {
+    if (fingerprint == null) {
+      MessageDigest digest = sha256();
+      update(digest, FORMAT_VERSION);
+      List<ActiveRule> rules = new ArrayList<>(activeRules.findAll());
+      rules.sort(Comparator.comparing(r -> r.ruleKey().toString()));
+      for (ActiveRule rule : rules) {
+        update(digest, rule.ruleKey().toString());
+        update(digest, rule.severity());
+        update(digest, rule.internalKey());
+        update(digest, rule.templateRuleKey());
+        update(digest, new TreeMap<>(rule.params()).toString());
+      }
+      List<PluginInfo> plugins = new ArrayList<>(pluginRepository.getActivePluginInfos());
+      plugins.sort(Comparator.comparing(PluginInfo::getKey));
+      for (PluginInfo plugin : plugins) {
+        update(digest, plugin.getKey());
+        update(digest, plugin.getVersion() != null ? plugin.getVersion().toString() : null);
+        File jar = plugin.getJarFile();
+        if (jar != null) {
+          // snapshots of plugins are replaced without changing their version
+          update(digest, jar.getAbsolutePath() + ":" + jar.length() + ":" + jar.lastModified());
+        }
+      }
+      update(digest, new TreeMap<>(settings.getProperties()).toString());
+      update(digest, analysisConfiguration.baseDir().toString());
+      update(digest, globalConfiguration.getNodeJsVersion() != null ? globalConfiguration.getNodeJsVersion().toString() : null);
+      fingerprint = toHex(digest.digest());
+    }
+    return fingerprint;
+  }
+
+  private static void update(MessageDigest digest, @Nullable String value) {
+    if (value != null) {
+      digest.update(value.getBytes(StandardCharsets.UTF_8));
+    }
+    // separator, so that consecutive values can't be confused
+    digest.update((byte) 0);
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not supported", e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    BigInteger bi = new BigInteger(1, bytes);
+    return String.format("%0" + (bytes.length << 1) + "x", bi);
+  }
+
+  /**
+   * Issues reported on a file that was not found in the cache.
+   */
+  private static class Recorder {
+    private final String key;
+    private final List<CachedIssues.Issue> issues = new ArrayList<>();
+    private boolean cacheable = true;
+
+    Recorder(String key) {
+      this.key = key;
+    }
+
+    synchronized void add(Issue issue) {
+      if (!cacheable) {
+        return;
+      }
+      CachedIssues.Issue cached = toCachedIssue(issue);
+      if (cached == null) {
+        cacheable = false;
+        issues.clear();
+      } else {
+        issues.add(cached);
+      }
+    }
+
+    @CheckForNull
+    synchronized CachedIssues build() {
+      return cacheable ? CachedIssues.newBuilder().addAllIssue(issues).build() : null;
+    }
+
+    /**
+     * @return null if the issue can't be replayed from the file alone
+     */
+    @CheckForNull
+    private static CachedIssues.Issue toCachedIssue(Issue issue) {
+      CachedIssues.Issue.Builder builder = CachedIssues.Issue.newBuilder()
+        .setRuleKey(issue.getRuleKey())
+        .setRuleName(issue.getRuleName())
+        .setSeverity(issue.getSeverity());
+      if (issue.getType() != null) {
+        builder.setType(issue.getType());
+      }
+      if (issue.getMessage() != null) {
+        builder.setMessage(issue.getMessage());
+      }
+      TextRange textRange = issue.getTextRange();
+      if (textRange != null) {
+        CachedIssues.TextRange cachedRange = toCachedTextRange(textRange);
+        if (cachedRange == null) {
+          return null;
+        }
+        builder.setTextRange(cachedRange);
+      }
+      for (Issue.Flow flow : issue.flows()) {
+        CachedIssues.Flow.Builder flowBuilder = CachedIssues.Flow.newBuilder();
+        for (IssueLocation location : flow.locations()) {
+          CachedIssues.Location cachedLocation = toCachedLocation(issue.getInputFile(), location);
+          if (cachedLocation == null) {
+            return null;
+          }
+          flowBuilder.addLocation(cachedLocation);
+        }
+        builder.addFlow(flowBuilder);
+      }
+      return builder.build();
+    }
+
+    @CheckForNull
+    private static CachedIssues.Location toCachedLocation(@Nullable ClientInputFile inputFile, IssueLocation location) {
+      if (location.getInputFile() != inputFile) {
+        return null;
+      }
+      CachedIssues.Location.Builder builder = CachedIssues.Location.newBuilder();
+      if (location.getMessage() != null) {
+        builder.setMessage(location.getMessage());
+      }
+      TextRange textRange = location.getTextRange();
+      if (textRange != null) {
+        CachedIssues.TextRange cachedRange = toCachedTextRange(textRange);
+        if (cachedRange == null) {
+          return null;
+        }
+        builder.setTextRange(cachedRange);
+      }
+      return builder.build();
+    }
+
+    @CheckForNull
+    private static CachedIssues.TextRange toCachedTextRange(TextRange textRange) {
+      if (textRange.getStartLine() == null || textRange.getStartLineOffset() == null
+        || textRange.getEndLine() == null || textRange.getEndLineOffset() == null) {
+        return null;
+      }
+      return CachedIssues.TextRange.newBuilder()
+        .setStartLine(textRange.getStartLine())
+        .setStartLineOffset(textRange.getStartLineOffset())
+        .setEndLine(textRange.getEndLine())
+        .setEndLineOffset(textRange.getEndLineOffset())
+        .build();
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.analysis.issue.cache;
+
+import java.util.List;
+import javax.annotation.CheckForNull;
+import org.sonarsource.sonarlint.core.client.api.common.TextRange;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueLocation;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.CachedIssues;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Issue read from the {@link IssueCache}, reported on the input file of the current analysis.
+ */
+final class CachedIssue implements Issue {
+  private final CachedIssues.Issue issue;
+  private final ClientInputFile inputFile;
+  private final TextRange textRange;
+  private final List<Flow> flows;
+
+  CachedIssue(CachedIssues.Issue issue, ClientInputFile inputFile) {
+    this.issue = issue;
+    this.inputFile = inputFile;
+    this.textRange = issue.hasTextRange() ? toTextRange(issue.getTextRange()) : null;
+    this.flows = issue.getFlowList().stream()
+      .map(f -> new CachedFlow(f, inputFile))
+      .collect(toList());
+  }
+
+  @Override
+  public String getSeverity() {
+    return issue.getSeverity();
+  }
+
+  @CheckForNull
+  @Override
+  public String getType() {
+    return issue.getType().isEmpty() ? null : issue.getType();
+  }
+
+  @Override
+  public String getRuleKey() {
+    return issue.getRuleKey();
+  }
+
+  @Override
+  public String getRuleName() {
+    return issue.getRuleName();
+  }
+
+  @Override
+  public String getMessage() {
+    return issue.getMessage();
+  }
+
+  @Override
+  public ClientInputFile getInputFile() {
+    return inputFile;
+  }
+
+  @CheckForNull
+  @Override
+  public TextRange getTextRange() {
+    return textRange;
+  }
+
+  @Override
+  public List<Flow> flows() {
+    return flows;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("[");
+    sb.append("rule=").append(issue.getRuleKey());
+    sb.append(", severity=").append(issue.getSeverity());
+    Integer startLine = getStartLine();
+    if (startLine != null) {
+      sb.append(", line=").append(startLine);
+    }
+    sb.append(", file=").append(inputFile.uri());
+    sb.append(", cached");
+    sb.append("]");
+    return sb.toString();
+  }
+
+  private static TextRange toTextRange(CachedIssues.TextRange textRange) {
+    return new TextRange(textRange.getStartLine(), textRange.getStartLineOffset(), textRange.getEndLine(), textRange.getEndLineOffset());
+  }
+
+  private static class CachedFlow implements Flow {
+    private final List<IssueLocation> locations;
+
+    CachedFlow(CachedIssues.Flow flow, ClientInputFile inputFile) {
+      this.locations = flow.getLocationList().stream()
+        .map(l -> new CachedLocation(l, inputFile))
+        .collect(toList());
+    }
+
+    @Override
+    public List<IssueLocation> locations() {
+      return locations;
+    }
+  }
+
+  private static class CachedLocation implements IssueLocation {
+    private final ClientInputFile inputFile;
+    private final TextRange textRange;
+    private final String message;
+
+    CachedLocation(CachedIssues.Location location, ClientInputFile inputFile) {
+      this.inputFile = inputFile;
+      this.textRange = location.hasTextRange() ? toTextRange(location.getTextRange()) : null;
+      this.message = location.getMessage().isEmpty() ? null : location.getMessage();
+    }
+
+    @Override
+    public ClientInputFile getInputFile() {
+      return inputFile;
+    }
+
+    @CheckForNull
+    @Override
+    public TextRange getTextRange() {
+      return textRange;
+    }
+
+    @CheckForNull
+    @Override
+    public String getMessage() {
+      return message;
+    }
+  }
+}
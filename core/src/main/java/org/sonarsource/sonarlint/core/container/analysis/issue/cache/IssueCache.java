@@ -0,0 +1,281 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.analysis.issue.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonarsource.sonarlint.core.client.api.common.AbstractGlobalConfiguration;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.CachedIssues;
+
+/**
+ * Issues raised by previous analyses, stored on disk under a key computed by {@link AnalysisIssueCache} from the content of the file
+ * and from everything else the issues depend on. Entries are never updated: any change gives a new key, and the entries that are not
+ * used anymore are evicted, least recently used first, when the cache grows over {@value #MAX_SIZE_PROPERTY} megabytes.
+ * Temporary files left by writes that were interrupted count in the size of the cache, and are deleted by the next eviction.
+ * <p>
+ * The cache is disabled unless the {@value #ENABLED_PROPERTY} global extra property is set to true. It is only an optimization:
+ * entries that can't be read are misses, and the directory can be deleted at any time.
+ */
+public class IssueCache {
+
+  private static final Logger LOG = Loggers.get(IssueCache.class);
+
+  public static final String ENABLED_PROPERTY = "sonarlint.issueCache.enabled";
+  public static final String MAX_SIZE_PROPERTY = "sonarlint.issueCache.maxSizeMb";
+  static final long DEFAULT_MAX_SIZE_MB = 50;
+  static final String DIRNAME = "issue-cache";
+  private static final String EXTENSION = ".pb";
+  private static final String TEMP_EXTENSION = ".tmp";
+  /**
+   * Temporary files older than that are not being written anymore
+   */
+  static final long STALE_TEMP_FILE_AGE_MS = TimeUnit.HOURS.toMillis(1);
+
+  private final Path dir;
+  private final boolean enabled;
+  private final long maxSize;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  // size of the entries on disk, -1 until computed
+  private long size = -1;
+
+  public IssueCache(AbstractGlobalConfiguration globalConfiguration) {
+    this(globalConfiguration.getSonarLintUserHome().resolve(DIRNAME),
+      Boolean.parseBoolean(globalConfiguration.extraProperties().get(ENABLED_PROPERTY)),
+      maxSizeMb(globalConfiguration.extraProperties().get(MAX_SIZE_PROPERTY)) * FileUtils.ONE_MB);
+  }
+
+  IssueCache(Path dir, boolean enabled, long maxSize) {
+    this.dir = dir;
+    this.enabled = enabled;
+    this.maxSize = maxSize;
+  }
+
+  private static long maxSizeMb(@Nullable String value) {
+    if (value == null) {
+      return DEFAULT_MAX_SIZE_MB;
+    }
+    try {
+      return Math.max(0, Long.parseLong(value.trim()));
+    } catch (NumberFormatException e) {
+      LOG.warn("Invalid value for '{}': {}", MAX_SIZE_PROPERTY, value);
+      return DEFAULT_MAX_SIZE_MB;
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return the issues stored under the key, or null if there is no readable entry for it
+   */
+  @CheckForNull
+  public CachedIssues get(String key) {
+    Path entry = entry(key);
+    CachedIssues issues;
+    try (InputStream in = Files.newInputStream(entry)) {
+      issues = CachedIssues.parseFrom(in);
+    } catch (NoSuchFileException e) {
+      misses.incrementAndGet();
+      return null;
+    } catch (IOException e) {
+      LOG.debug("Ignoring unreadable issue cache entry {}", entry, e);
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    touch(entry);
+    return issues;
+  }
+
+  public void put(String key, CachedIssues issues) {
+    Path entry = entry(key);
+    Path tempFile = null;
+    try {
+      Files.createDirectories(entry.getParent());
+      tempFile = Files.createTempFile(entry.getParent(), key, TEMP_EXTENSION);
+      try (OutputStream out = Files.newOutputStream(tempFile)) {
+        issues.writeTo(out);
+      }
+      long written = Files.size(tempFile);
+      move(tempFile, entry);
+      added(written);
+    } catch (IOException e) {
+      LOG.debug("Unable to write issue cache entry {}", entry, e);
+      if (tempFile != null) {
+        FileUtils.deleteQuietly(tempFile.toFile());
+      }
+    }
+  }
+
+  /**
+   * Number of lookups that found an entry since the start of the engine.
+   */
+  public long hits() {
+    return hits.get();
+  }
+
+  /**
+   * Number of lookups that did not find an entry since the start of the engine.
+   */
+  public long misses() {
+    return misses.get();
+  }
+
+  private Path entry(String key) {
+    // spread the entries over subdirectories, like git objects
+    return dir.resolve(key.substring(0, 2)).resolve(key + EXTENSION);
+  }
+
+  private static void touch(Path entry) {
+    try {
+      Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      // only makes the entry more likely to be evicted
+      LOG.debug("Unable to touch issue cache entry {}", entry, e);
+    }
+  }
+
+  private synchronized void added(long entrySize) {
+    if (size < 0) {
+      // the new entry is already on disk
+      size = entries().stream().mapToLong(Entry::size).sum();
+    } else {
+      // over-estimated when an entry is replaced, which only triggers the next eviction earlier
+      size += entrySize;
+    }
+    if (size > maxSize) {
+      evict();
+    }
+  }
+
+  /**
+   * Delete the stale temporary files, then the least recently used entries down to 3/4 of the maximum size, so that the cache is not
+   * listed again on every put.
+   */
+  private void evict() {
+    List<Entry> entries = entries();
+    long remaining = entries.stream().mapToLong(Entry::size).sum();
+    long staleBefore = System.currentTimeMillis() - STALE_TEMP_FILE_AGE_MS;
+    List<Entry> evictable = new ArrayList<>();
+    for (Entry entry : entries) {
+      if (!entry.isTempFile()) {
+        evictable.add(entry);
+      } else if (entry.lastModified < staleBefore && FileUtils.deleteQuietly(entry.path.toFile())) {
+        remaining -= entry.size;
+      }
+    }
+    evictable.sort(Comparator.comparingLong(Entry::lastModified));
+    long target = maxSize / 4 * 3;
+    int evicted = 0;
+    for (Entry entry : evictable) {
+      if (remaining <= target) {
+        break;
+      }
+      if (FileUtils.deleteQuietly(entry.path.toFile())) {
+        remaining -= entry.size;
+        evicted++;
+      }
+    }
+    LOG.debug("Evicted {} issue cache entries", evicted);
+    size = remaining;
+  }
+
+  private List<Entry> entries() {
+    if (!Files.isDirectory(dir)) {
+      return new ArrayList<>();
+    }
+    try (Stream<Path> files = Files.walk(dir, 2)) {
+      return files
+        .filter(f -> f.getFileName().toString().endsWith(EXTENSION) || f.getFileName().toString().endsWith(TEMP_EXTENSION))
+        .map(Entry::of)
+        .filter(e -> e != null)
+        .collect(Collectors.toCollection(ArrayList::new));
+    } catch (IOException | UncheckedIOException e) {
+      LOG.debug("Unable to list issue cache {}", dir, e);
+      return new ArrayList<>();
+    }
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static class Entry {
+    private final Path path;
+    private final long size;
+    private final long lastModified;
+
+    private Entry(Path path, long size, long lastModified) {
+      this.path = path;
+      this.size = size;
+      this.lastModified = lastModified;
+    }
+
+    @CheckForNull
+    static Entry of(Path path) {
+      try {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return new Entry(path, attributes.size(), attributes.lastModifiedTime().toMillis());
+      } catch (IOException e) {
+        // deleted in the meantime
+        return null;
+      }
+    }
+
+    long size() {
+      return size;
+    }
+
+    long lastModified() {
+      return lastModified;
+    }
+
+    boolean isTempFile() {
+      return path.getFileName().toString().endsWith(TEMP_EXTENSION);
+    }
+  }
+}
@@ -54,12 +54,12 @@ public class IssueExclusionsRegexpScanner extends CharHandler {
   }
 
   @Override
-  public void handleIgnoreEoL(char c) {
+  public void handleRange(char[] chars, int start, int end) {
     if (ignoreAllIssues) {
       // Optimization
       return;
     }
-    sb.append(c);
+    sb.append(chars, start, end - start);
   }
 
   @Override
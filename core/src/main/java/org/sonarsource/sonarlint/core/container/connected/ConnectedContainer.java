@@ -58,6 +58,7 @@ import org.sonarsource.sonarlint.core.container.global.GlobalTempFolderProvider;
 import org.sonarsource.sonarlint.core.container.storage.ProjectStorageStatusReader;
 import org.sonarsource.sonarlint.core.container.storage.StoragePaths;
 import org.sonarsource.sonarlint.core.container.storage.StorageReader;
+import org.sonarsource.sonarlint.core.container.storage.StorageSwap;
 import org.sonarsource.sonarlint.core.plugin.cache.PluginCacheProvider;
 import org.sonarsource.sonarlint.core.plugin.cache.PluginHashes;
 import org.sonarsource.sonarlint.core.util.ProgressWrapper;
@@ -68,10 +69,12 @@ public class ConnectedContainer extends ComponentContainer {
 
   private final ServerConfiguration serverConfiguration;
   private final ConnectedGlobalConfiguration globalConfig;
+  private final StorageSwap storageSwap;
 
-  public ConnectedContainer(ConnectedGlobalConfiguration globalConfig, ServerConfiguration serverConfiguration) {
+  public ConnectedContainer(ConnectedGlobalConfiguration globalConfig, ServerConfiguration serverConfiguration, StorageSwap storageSwap) {
     this.globalConfig = globalConfig;
     this.serverConfiguration = serverConfiguration;
+    this.storageSwap = storageSwap;
   }
 
   @Override
@@ -79,6 +82,7 @@ public class ConnectedContainer extends ComponentContainer {
     add(
       globalConfig,
       serverConfiguration,
+      storageSwap,
       new GlobalTempFolderProvider(),
       ServerVersionAndStatusChecker.class,
       PluginVersionChecker.class,
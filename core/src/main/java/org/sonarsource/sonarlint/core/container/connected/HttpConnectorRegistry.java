@@ -0,0 +1,70 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.connected;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.sonarsource.sonarlint.core.client.api.connected.ServerConfiguration;
+import org.sonarsource.sonarlint.core.util.ws.HttpConnector;
+import org.sonarsource.sonarlint.core.util.ws.WsConnector;
+
+/**
+ * Process-wide registry of the connectors of each {@link ServerConfiguration}. The configurations are compared by identity, since
+ * {@link ServerConfiguration#equals(Object)} ignores the SSL settings. A connector is dropped when its configuration is no longer
+ * referenced or when it has not been used for {@link #IDLE_EXPIRATION_MINUTES} minutes. Idle connections are evicted by the
+ * connection pool shared by all the connectors.
+ */
+class HttpConnectorRegistry {
+  static final long IDLE_EXPIRATION_MINUTES = 10;
+
+  private static final HttpConnectorRegistry INSTANCE = new HttpConnectorRegistry();
+
+  private final Cache<ServerConfiguration, WsConnector> connectors = CacheBuilder.newBuilder()
+    .weakKeys()
+    .expireAfterAccess(IDLE_EXPIRATION_MINUTES, TimeUnit.MINUTES)
+    .build();
+
+  static HttpConnectorRegistry get() {
+    return INSTANCE;
+  }
+
+  WsConnector connector(ServerConfiguration serverConfig) {
+    try {
+      return connectors.get(serverConfig, () -> buildConnector(serverConfig));
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Unable to create connector for " + serverConfig.getUrl(), e.getCause());
+    }
+  }
+
+  private static WsConnector buildConnector(ServerConfiguration serverConfig) {
+    return HttpConnector.newBuilder().url(serverConfig.getUrl())
+      .userAgent(serverConfig.getUserAgent())
+      .credentials(serverConfig.getLogin(), serverConfig.getPassword())
+      .proxy(serverConfig.getProxy())
+      .proxyCredentials(serverConfig.getProxyLogin(), serverConfig.getProxyPassword())
+      .readTimeoutMilliseconds(serverConfig.getReadTimeoutMs())
+      .connectTimeoutMilliseconds(serverConfig.getConnectTimeoutMs())
+      .setSSLSocketFactory(serverConfig.getSSLSocketFactory())
+      .setTrustManager(serverConfig.getTrustManager())
+      .build();
+  }
+}
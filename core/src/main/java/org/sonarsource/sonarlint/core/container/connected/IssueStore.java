@@ -19,10 +19,12 @@
  */
 package org.sonarsource.sonarlint.core.container.connected;
 
+import java.io.Closeable;
 import java.util.List;
 import org.sonarsource.sonarlint.core.proto.Sonarlint.ServerIssue;
+import org.sonarsource.sonarlint.core.util.ProgressWrapper;
 
-public interface IssueStore {
+public interface IssueStore extends Closeable {
 
   /**
    * Store issues per file.
@@ -33,6 +35,13 @@ public interface IssueStore {
    */
   void save(List<ServerIssue> issues);
 
+  /**
+   * Store issues of a whole project, collected in a spool, one file at a time.
+   */
+  default void save(ServerIssueSpool issues, ProgressWrapper progress) {
+    issues.forEachFile(progress, (sqFilePath, fileIssues) -> save(fileIssues));
+  }
+
   /**
    * Load issues stored for specified file.
    *
@@ -47,4 +56,12 @@ public interface IssueStore {
    * @param sqFilePath the relative path to the base of project, in SonarQube
    */
   void delete(String sqFilePath);
+
+  /**
+   * Release the resources held to read the store, such as file mappings. The store can still be used afterwards.
+   */
+  @Override
+  default void close() {
+    // nothing to release by default
+  }
 }
@@ -24,11 +24,12 @@ import java.util.function.Function;
 
 /**
  * Create a filesystem-backed issue store at specified base directory.
+ * Issues are packed in a single segment file, see {@link SegmentServerIssueStore}.
  */
 public class IssueStoreFactory implements Function<Path, IssueStore> {
 
   @Override
   public IssueStore apply(Path path) {
-    return new ServerIssueStore(path);
+    return new SegmentServerIssueStore(path);
   }
 }
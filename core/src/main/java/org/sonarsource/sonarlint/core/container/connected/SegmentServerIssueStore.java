@@ -0,0 +1,281 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.connected;
+
+import com.google.protobuf.CodedInputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonarsource.sonarlint.core.client.api.exceptions.StorageException;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.ServerIssue;
+import org.sonarsource.sonarlint.core.util.MappedBuffers;
+import org.sonarsource.sonarlint.core.util.ProgressWrapper;
+
+/**
+ * Issue store packing all the issues of a project into a single segment file (see {@link ServerIssueSegmentWriter}), read through
+ * a memory mapping: loading the issues of a file is a binary search in the table of paths, and the issues are parsed straight from
+ * the mapped bytes.
+ * <p>
+ * The segment is written when saving into a store that is still empty, which is the case of full downloads. Issues can then be
+ * supplied through a {@link ServerIssueSpool}, so that the whole project is never in memory. Other saves (updates
+ * of single files) and deletions are recorded per file with the layout of {@link ServerIssueStore}, and take precedence over the segment.
+ * Stores written in that layout by previous versions are thus read as they are, until the next full download replaces them by a segment.
+ * <p>
+ * The mapping is kept until the store is closed, which must happen before the segment is deleted or replaced: on Windows, mapped files
+ * can't be deleted.
+ */
+public class SegmentServerIssueStore implements IssueStore {
+  private static final Logger LOG = Loggers.get(SegmentServerIssueStore.class);
+  static final String SEGMENT_FILENAME = "issues.seg";
+
+  private final Path base;
+  private final Path segmentPath;
+  private final ServerIssueStore perFileStore;
+  private Segment segment;
+
+  public SegmentServerIssueStore(Path base) {
+    this.base = base;
+    this.segmentPath = base.resolve(SEGMENT_FILENAME);
+    this.perFileStore = new ServerIssueStore(base);
+  }
+
+  /**
+   * Write a segment if the store directory is empty, which is the case of full downloads: they are staged in a new directory.
+   * Otherwise, the issues are saved per file, on top of the segment.
+   */
+  @Override
+  public synchronized void save(List<ServerIssue> issues) {
+    if (!isEmpty()) {
+      perFileStore.save(issues);
+      return;
+    }
+    Map<String, List<ServerIssue>> issuesPerFile = issues.stream().collect(Collectors.groupingBy(ServerIssue::getPath));
+    try (ServerIssueSegmentWriter writer = new ServerIssueSegmentWriter(segmentPath)) {
+      issuesPerFile.forEach(writer::write);
+      writer.finish();
+    }
+  }
+
+  /**
+   * Same as {@link #save(List)}: a segment is only written if the store directory is empty.
+   */
+  @Override
+  public synchronized void save(ServerIssueSpool issues, ProgressWrapper progress) {
+    if (!isEmpty()) {
+      IssueStore.super.save(issues, progress);
+      return;
+    }
+    try (ServerIssueSegmentWriter writer = new ServerIssueSegmentWriter(segmentPath)) {
+      issues.forEachFile(progress, writer::write);
+      writer.finish();
+    }
+  }
+
+  @Override
+  public synchronized List<ServerIssue> load(String sqFilePath) {
+    Optional<List<ServerIssue>> updated = perFileStore.find(sqFilePath);
+    if (updated.isPresent()) {
+      return updated.get();
+    }
+    Segment s = segment();
+    return s != null ? s.load(sqFilePath) : Collections.emptyList();
+  }
+
+  @Override
+  public synchronized void delete(String sqFilePath) {
+    Segment s = segment();
+    if (s != null && s.find(sqFilePath) != null) {
+      // hide the issues of the segment
+      perFileStore.write(sqFilePath, Collections.emptyList());
+    } else {
+      perFileStore.delete(sqFilePath);
+    }
+  }
+
+  /**
+   * Unmap the segment. It is mapped again by the next read.
+   */
+  @Override
+  public synchronized void close() {
+    if (segment != null) {
+      segment.unmap();
+      segment = null;
+    }
+  }
+
+  /**
+   * Whether nothing was stored yet. Any file in the directory, such as per-file entries of a previous version, prevents writing a segment.
+   */
+  private boolean isEmpty() {
+    if (!base.toFile().exists()) {
+      return true;
+    }
+    try (Stream<Path> children = Files.list(base)) {
+      return !children.findAny().isPresent();
+    } catch (IOException e) {
+      throw new StorageException("failed to list issue store " + base, e);
+    }
+  }
+
+  @CheckForNull
+  private Segment segment() {
+    if (segment == null && segmentPath.toFile().exists()) {
+      segment = Segment.map(segmentPath);
+    }
+    return segment;
+  }
+
+  /**
+   * Compare as unsigned bytes, which gives the same order as code points for UTF-8 strings.
+   */
+  static int compare(byte[] left, byte[] right) {
+    int length = Math.min(left.length, right.length);
+    for (int i = 0; i < length; i++) {
+      int diff = (left[i] & 0xff) - (right[i] & 0xff);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return left.length - right.length;
+  }
+
+  private static class Segment {
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int pathsOffset;
+    private final int tableOffset;
+    private final int count;
+
+    private Segment(Path path, MappedByteBuffer buffer) {
+      this.path = path;
+      this.buffer = buffer;
+      int footer = buffer.limit() - ServerIssueSegmentWriter.FOOTER_SIZE;
+      if (footer < 0
+        || buffer.getInt(footer + 2 * Long.BYTES + 2 * Integer.BYTES) != ServerIssueSegmentWriter.MAGIC
+        || buffer.getInt(footer + 2 * Long.BYTES + Integer.BYTES) != ServerIssueSegmentWriter.VERSION) {
+        throw new StorageException("invalid issue segment " + path, null);
+      }
+      this.pathsOffset = (int) buffer.getLong(footer);
+      this.tableOffset = (int) buffer.getLong(footer + Long.BYTES);
+      this.count = buffer.getInt(footer + 2 * Long.BYTES);
+    }
+
+    static Segment map(Path path) {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+          throw new StorageException("issue segment too large " + path, null);
+        }
+        return new Segment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+      } catch (IOException e) {
+        throw new StorageException("failed to read issue segment " + path, e);
+      }
+    }
+
+    /**
+     * Release the mapping now rather than when the buffer is garbage collected. No view on the buffer must be used afterwards.
+     */
+    void unmap() {
+      try {
+        MappedBuffers.unmap(buffer);
+      } catch (Exception e) {
+        // the mapping will be released by the garbage collector
+        LOG.debug("Unable to unmap issue segment " + path, e);
+      }
+    }
+
+    List<ServerIssue> load(String sqFilePath) {
+      ByteBuffer data = find(sqFilePath);
+      if (data == null) {
+        return Collections.emptyList();
+      }
+      List<ServerIssue> issues = new ArrayList<>();
+      CodedInputStream input = CodedInputStream.newInstance(data);
+      try {
+        while (!input.isAtEnd()) {
+          int oldLimit = input.pushLimit(input.readRawVarint32());
+          issues.add(ServerIssue.parser().parseFrom(input));
+          input.popLimit(oldLimit);
+        }
+      } catch (IOException e) {
+        throw new StorageException("failed to load issues for fileKey = " + sqFilePath + " from " + path, e);
+      }
+      return issues;
+    }
+
+    /**
+     * @return a view on the issues of the file, or null if the file is not in the segment
+     */
+    @CheckForNull
+    ByteBuffer find(String sqFilePath) {
+      byte[] key = sqFilePath.getBytes(StandardCharsets.UTF_8);
+      int low = 0;
+      int high = count - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        int entry = tableOffset + middle * ServerIssueSegmentWriter.ENTRY_SIZE;
+        int cmp = comparePath(entry, key);
+        if (cmp < 0) {
+          low = middle + 1;
+        } else if (cmp > 0) {
+          high = middle - 1;
+        } else {
+          int dataOffset = (int) buffer.getLong(entry);
+          int dataLength = buffer.getInt(entry + Long.BYTES);
+          ByteBuffer data = buffer.duplicate();
+          // through Buffer, whose methods don't return ByteBuffer before Java 9
+          ((Buffer) data).position(dataOffset);
+          ((Buffer) data).limit(dataOffset + dataLength);
+          return data.slice();
+        }
+      }
+      return null;
+    }
+
+    private int comparePath(int entry, byte[] key) {
+      int pathOffset = pathsOffset + buffer.getInt(entry + Long.BYTES + Integer.BYTES);
+      int pathLength = buffer.getInt(entry + Long.BYTES + 2 * Integer.BYTES);
+      int length = Math.min(pathLength, key.length);
+      for (int i = 0; i < length; i++) {
+        int diff = (buffer.get(pathOffset + i) & 0xff) - (key[i] & 0xff);
+        if (diff != 0) {
+          return diff;
+        }
+      }
+      return pathLength - key.length;
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.connected;
+
+import com.google.protobuf.CodedOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.sonarsource.sonarlint.core.client.api.exceptions.StorageException;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.ServerIssue;
+
+/**
+ * Writes the issues of a project into a segment file, to be read by {@link SegmentServerIssueStore}.
+ * <p>
+ * Layout of the file:
+ * <pre>
+ * data     issues of each path, as delimited messages, in the order the paths were written
+ * paths    UTF-8 bytes of all paths
+ * table    one entry per path, sorted by path bytes: data offset (long), data length (int), path offset (int), path length (int)
+ * footer   paths offset (long), table offset (long), entry count (int), version (int), magic (int)
+ * </pre>
+ * Only the table is kept in memory while writing, so issues can be written in any order as long as all the issues of a given path
+ * are written at once. The file is written next to the target, and moved in place by {@link #finish()}.
+ */
+public class ServerIssueSegmentWriter implements AutoCloseable {
+  static final int MAGIC = 0x534c4953;
+  static final int VERSION = 1;
+  static final int ENTRY_SIZE = Long.BYTES + 3 * Integer.BYTES;
+  static final int FOOTER_SIZE = 2 * Long.BYTES + 3 * Integer.BYTES;
+
+  private final Path target;
+  private final Path temp;
+  private final DataOutputStream out;
+  private final List<Entry> entries = new ArrayList<>();
+  private final Set<String> writtenPaths = new HashSet<>();
+  private long position;
+  private boolean finished;
+
+  public ServerIssueSegmentWriter(Path target) {
+    this.target = target;
+    this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+    try {
+      Files.createDirectories(target.getParent());
+      this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)));
+    } catch (IOException e) {
+      throw new StorageException("failed to create issue segment " + target, e);
+    }
+  }
+
+  /**
+   * Write all the issues of a file. Must be called at most once per path.
+   */
+  public void write(String sqFilePath, Iterable<ServerIssue> issues) {
+    if (!writtenPaths.add(sqFilePath)) {
+      throw new IllegalStateException("Issues of " + sqFilePath + " already written");
+    }
+    long start = position;
+    try {
+      for (ServerIssue issue : issues) {
+        int size = issue.getSerializedSize();
+        issue.writeDelimitedTo(out);
+        position += CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+      }
+    } catch (IOException e) {
+      throw new StorageException("failed to save issues for fileKey = " + sqFilePath, e);
+    }
+    long length = position - start;
+    if (length > Integer.MAX_VALUE) {
+      throw new StorageException("too many issues for fileKey = " + sqFilePath, null);
+    }
+    entries.add(new Entry(sqFilePath.getBytes(StandardCharsets.UTF_8), start, (int) length));
+  }
+
+  public void finish() {
+    entries.sort((e1, e2) -> SegmentServerIssueStore.compare(e1.path, e2.path));
+    try {
+      long pathsOffset = position;
+      int pathOffset = 0;
+      for (Entry entry : entries) {
+        out.write(entry.path);
+        entry.pathOffset = pathOffset;
+        pathOffset += entry.path.length;
+      }
+      long tableOffset = pathsOffset + pathOffset;
+      for (Entry entry : entries) {
+        out.writeLong(entry.dataOffset);
+        out.writeInt(entry.dataLength);
+        out.writeInt(entry.pathOffset);
+        out.writeInt(entry.path.length);
+      }
+      out.writeLong(pathsOffset);
+      out.writeLong(tableOffset);
+      out.writeInt(entries.size());
+      out.writeInt(VERSION);
+      out.writeInt(MAGIC);
+      out.close();
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      finished = true;
+    } catch (IOException e) {
+      throw new StorageException("failed to write issue segment " + target, e);
+    }
+  }
+
+  /**
+   * Discard the segment if it was not finished.
+   */
+  @Override
+  public void close() {
+    if (finished) {
+      return;
+    }
+    try {
+      out.close();
+      Files.deleteIfExists(temp);
+    } catch (IOException e) {
+      throw new StorageException("failed to discard issue segment " + target, e);
+    }
+  }
+
+  private static class Entry {
+    private final byte[] path;
+    private final long dataOffset;
+    private final int dataLength;
+    private int pathOffset;
+
+    Entry(byte[] path, long dataOffset, int dataLength) {
+      this.path = path;
+      this.dataOffset = dataOffset;
+      this.dataLength = dataLength;
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.connected;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import org.sonarsource.sonarlint.core.client.api.exceptions.StorageException;
+import org.sonarsource.sonarlint.core.client.api.util.FileUtils;
+import org.sonarsource.sonarlint.core.container.storage.ProtobufUtil;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.ServerIssue;
+import org.sonarsource.sonarlint.core.util.ProgressWrapper;
+
+/**
+ * Collects the issues of a whole project on disk, so that they can be stored grouped by file without being all kept in memory.
+ * <p>
+ * Issues are appended to partition files chosen by a hash of their path. When reading back, a partition is grouped by path
+ * in memory, unless it is larger than {@link #maxPartitionBytes}: it is then split again with another hash. Only the issues
+ * of a single partition are thus in memory at once, whatever the size of the project.
+ */
+public class ServerIssueSpool implements AutoCloseable {
+  static final int PARTITIONS = 32;
+  static final long MAX_PARTITION_BYTES = 16L * 1024 * 1024;
+  private static final int MAX_DEPTH = 4;
+  private static final int BUFFER_SIZE = 8 * 1024;
+
+  private final Path dir;
+  private final long maxPartitionBytes;
+  private final OutputStream[] partitions = new OutputStream[PARTITIONS];
+  private int count;
+  private int fileCount;
+
+  public ServerIssueSpool(Path dir) {
+    this(dir, MAX_PARTITION_BYTES);
+  }
+
+  ServerIssueSpool(Path dir, long maxPartitionBytes) {
+    this.dir = dir;
+    this.maxPartitionBytes = maxPartitionBytes;
+    FileUtils.mkdirs(dir);
+  }
+
+  public void add(ServerIssue issue) {
+    int partition = partition(issue.getPath(), 0);
+    try {
+      if (partitions[partition] == null) {
+        partitions[partition] = new BufferedOutputStream(Files.newOutputStream(partitionPath("", partition)), BUFFER_SIZE);
+      }
+      issue.writeDelimitedTo(partitions[partition]);
+    } catch (IOException e) {
+      throw new StorageException("failed to spool issues in " + dir, e);
+    }
+    count++;
+  }
+
+  /**
+   * @return number of issues added
+   */
+  public int count() {
+    return count;
+  }
+
+  /**
+   * Pass the issues of each file to the consumer, exactly once per file. Issues of a file are in the order they were added.
+   * Partitions are deleted once read, so this can be called only once.
+   */
+  public void forEachFile(ProgressWrapper progress, BiConsumer<String, List<ServerIssue>> consumer) {
+    closePartitions();
+    for (int i = 0; i < PARTITIONS; i++) {
+      progress.setProgressAndCheckCancel(fileCount + " files", (float) i / PARTITIONS);
+      Path partition = partitionPath("", i);
+      if (partition.toFile().exists()) {
+        drain(partition, 1, consumer);
+      }
+    }
+  }
+
+  private void drain(Path partition, int depth, BiConsumer<String, List<ServerIssue>> consumer) {
+    try {
+      if (depth < MAX_DEPTH && Files.size(partition) > maxPartitionBytes) {
+        split(partition, depth, consumer);
+        return;
+      }
+      Map<String, List<ServerIssue>> issuesPerFile = new LinkedHashMap<>();
+      try (InputStream input = new BufferedInputStream(Files.newInputStream(partition), BUFFER_SIZE)) {
+        ProtobufUtil.readMessages(input, ServerIssue.parser(), issue -> issuesPerFile.computeIfAbsent(issue.getPath(), p -> new ArrayList<>()).add(issue));
+      }
+      Files.delete(partition);
+      fileCount += issuesPerFile.size();
+      issuesPerFile.forEach(consumer);
+    } catch (IOException e) {
+      throw new StorageException("failed to read spooled issues in " + dir, e);
+    }
+  }
+
+  private void split(Path partition, int depth, BiConsumer<String, List<ServerIssue>> consumer) throws IOException {
+    String prefix = partition.getFileName() + "-";
+    OutputStream[] subPartitions = new OutputStream[PARTITIONS];
+    try (InputStream input = new BufferedInputStream(Files.newInputStream(partition), BUFFER_SIZE)) {
+      ProtobufUtil.readMessages(input, ServerIssue.parser(), issue -> {
+        int subPartition = partition(issue.getPath(), depth);
+        try {
+          if (subPartitions[subPartition] == null) {
+            subPartitions[subPartition] = new BufferedOutputStream(Files.newOutputStream(partitionPath(prefix, subPartition)), BUFFER_SIZE);
+          }
+          issue.writeDelimitedTo(subPartitions[subPartition]);
+        } catch (IOException e) {
+          throw new StorageException("failed to spool issues in " + dir, e);
+        }
+      });
+    } finally {
+      close(subPartitions);
+    }
+    Files.delete(partition);
+    for (int i = 0; i < PARTITIONS; i++) {
+      Path subPartition = partitionPath(prefix, i);
+      if (subPartition.toFile().exists()) {
+        drain(subPartition, depth + 1, consumer);
+      }
+    }
+  }
+
+  private Path partitionPath(String prefix, int partition) {
+    return dir.resolve(prefix + partition);
+  }
+
+  /**
+   * A different hash at each depth, so that a large partition is spread again when split.
+   */
+  private static int partition(String path, int depth) {
+    int h = path.hashCode() ^ (depth * 0x9e3779b9);
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return Math.floorMod(h, PARTITIONS);
+  }
+
+  private void closePartitions() {
+    try {
+      close(partitions);
+    } catch (IOException e) {
+      throw new StorageException("failed to spool issues in " + dir, e);
+    }
+  }
+
+  private static void close(OutputStream[] streams) throws IOException {
+    IOException failure = null;
+    for (int i = 0; i < streams.length; i++) {
+      if (streams[i] != null) {
+        try {
+          streams[i].close();
+        } catch (IOException e) {
+          failure = e;
+        }
+        streams[i] = null;
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  @Override
+  public void close() {
+    closePartitions();
+    FileUtils.deleteRecursively(dir);
+  }
+}
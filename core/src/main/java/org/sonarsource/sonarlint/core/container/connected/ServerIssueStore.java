@@ -54,11 +54,7 @@ public class ServerIssueStore implements IssueStore {
     Map<String, List<ServerIssue>> issuesPerFile = issues.stream().collect(Collectors.groupingBy(ServerIssue::getPath));
 
     for (Map.Entry<String, List<ServerIssue>> entry : issuesPerFile.entrySet()) {
-      try {
-        store.write(entry.getKey(), entry.getValue());
-      } catch (IOException e) {
-        throw new StorageException("failed to save issues for fileKey = " + entry.getKey(), e);
-      }
+      write(entry.getKey(), entry.getValue());
     }
   }
 
@@ -73,11 +69,28 @@ public class ServerIssueStore implements IssueStore {
 
   @Override
   public synchronized List<ServerIssue> load(String fileKey) {
+    return find(fileKey).orElse(Collections.emptyList());
+  }
+
+  /**
+   * Unlike {@link #load(String)}, tells apart files without any stored entry from files stored without issues.
+   */
+  synchronized Optional<List<ServerIssue>> find(String fileKey) {
     try {
-      Optional<List<ServerIssue>> issues = store.read(fileKey);
-      return issues.orElse(Collections.emptyList());
+      return store.read(fileKey);
     } catch (IOException e) {
       throw new StorageException("failed to load issues for fileKey = " + fileKey, e);
     }
   }
+
+  /**
+   * Store the issues of a file, even if there are none.
+   */
+  synchronized void write(String fileKey, List<ServerIssue> issues) {
+    try {
+      store.write(fileKey, issues);
+    } catch (IOException e) {
+      throw new StorageException("failed to save issues for fileKey = " + fileKey, e);
+    }
+  }
 }
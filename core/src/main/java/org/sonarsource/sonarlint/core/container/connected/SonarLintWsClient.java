@@ -26,9 +26,15 @@ import com.google.gson.JsonParser;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -44,7 +50,6 @@ import org.sonarsource.sonarlint.core.client.api.connected.ServerConfiguration;
 import org.sonarsource.sonarlint.core.container.connected.exceptions.NotFoundException;
 import org.sonarsource.sonarlint.core.util.ProgressWrapper;
 import org.sonarsource.sonarlint.core.util.ws.GetRequest;
-import org.sonarsource.sonarlint.core.util.ws.HttpConnector;
 import org.sonarsource.sonarlint.core.util.ws.PostRequest;
 import org.sonarsource.sonarlint.core.util.ws.WsConnector;
 import org.sonarsource.sonarlint.core.util.ws.WsResponse;
@@ -57,6 +62,7 @@ public class SonarLintWsClient {
 
   public static final int PAGE_SIZE = 500;
   public static final int MAX_PAGES = 20;
+  public static final int CONCURRENT_PAGES = 4;
 
   private final WsConnector client;
   private final String userAgent;
@@ -65,20 +71,7 @@ public class SonarLintWsClient {
   public SonarLintWsClient(ServerConfiguration serverConfig) {
     this.userAgent = serverConfig.getUserAgent();
     this.organizationKey = serverConfig.getOrganizationKey();
-    client = buildClient(serverConfig);
-  }
-
-  private static WsConnector buildClient(ServerConfiguration serverConfig) {
-    return HttpConnector.newBuilder().url(serverConfig.getUrl())
-      .userAgent(serverConfig.getUserAgent())
-      .credentials(serverConfig.getLogin(), serverConfig.getPassword())
-      .proxy(serverConfig.getProxy())
-      .proxyCredentials(serverConfig.getProxyLogin(), serverConfig.getProxyPassword())
-      .readTimeoutMilliseconds(serverConfig.getReadTimeoutMs())
-      .connectTimeoutMilliseconds(serverConfig.getConnectTimeoutMs())
-      .setSSLSocketFactory(serverConfig.getSSLSocketFactory())
-      .setTrustManager(serverConfig.getTrustManager())
-      .build();
+    client = HttpConnectorRegistry.get().connector(serverConfig);
   }
 
   public WsResponse get(String path) {
@@ -111,12 +104,26 @@ public class SonarLintWsClient {
     return response;
   }
 
+  /**
+   * Execute GET, for example with additional headers, and check response
+   */
+  public WsResponse getWithHeaders(GetRequest request) {
+    WsResponse response = rawGet(request);
+    if (!response.isSuccessful()) {
+      throw handleError(response);
+    }
+    return response;
+  }
+
   /**
    * Execute GET and don't check response
    */
   public WsResponse rawGet(String path) {
+    return rawGet(new GetRequest(path));
+  }
+
+  private WsResponse rawGet(GetRequest request) {
     long startTime = System2.INSTANCE.now();
-    GetRequest request = new GetRequest(path);
     WsResponse response = client.call(request);
     long duration = System2.INSTANCE.now() - startTime;
     if (LOG.isDebugEnabled()) {
@@ -181,23 +188,87 @@ public class SonarLintWsClient {
    */
   public static <G, F> void getPaginated(SonarLintWsClient client, String baseUrl, CheckedFunction<InputStream, G> responseParser, Function<G, Paging> getPaging,
     Function<G, List<F>> itemExtractor, Consumer<F> itemConsumer, boolean limitToTwentyPages, ProgressWrapper progress) {
+    getPaginated(client, baseUrl, responseParser, getPaging, itemExtractor, itemConsumer, limitToTwentyPages, 1, progress);
+  }
+
+  /**
+   * Same as {@link #getPaginated(SonarLintWsClient, String, CheckedFunction, Function, Function, Consumer, boolean, ProgressWrapper)},
+   * but once the first page gave the total number of items, the following pages are downloaded by up to {@code concurrentPages}
+   * concurrent requests. Items are still given to the consumer in page order, from the calling thread.
+   * <p>
+   * If the first page has no total (SONAR-9150), pages are downloaded one after the other.
+   */
+  public static <G, F> void getPaginated(SonarLintWsClient client, String baseUrl, CheckedFunction<InputStream, G> responseParser, Function<G, Paging> getPaging,
+    Function<G, List<F>> itemExtractor, Consumer<F> itemConsumer, boolean limitToTwentyPages, int concurrentPages, ProgressWrapper progress) {
     AtomicInteger page = new AtomicInteger(0);
     AtomicBoolean stop = new AtomicBoolean(false);
     AtomicInteger loaded = new AtomicInteger(0);
     do {
       page.incrementAndGet();
-      String url = baseUrl + (baseUrl.contains("?") ? "&" : "?") + "ps=" + PAGE_SIZE + "&p=" + page;
-      SonarLintWsClient.consumeTimed(
-        () -> client.get(url),
-        response -> processPage(baseUrl, responseParser, getPaging, itemExtractor, itemConsumer, limitToTwentyPages, progress, page, stop, loaded, response),
-        duration -> LOG.debug("Page downloaded in {}ms", duration));
+      G protoBufResponse = fetchPage(client, baseUrl, page.get(), responseParser);
+      processPage(baseUrl, getPaging, itemExtractor, itemConsumer, limitToTwentyPages, progress, page, stop, loaded, protoBufResponse);
+      if (concurrentPages > 1 && !stop.get() && getPaging.apply(protoBufResponse).getTotal() > 0) {
+        prefetchPages(client, baseUrl, responseParser, getPaging, itemExtractor, itemConsumer, limitToTwentyPages, concurrentPages, progress, page, stop, loaded,
+          getPaging.apply(protoBufResponse).getTotal());
+      }
     } while (!stop.get());
   }
 
-  private static <F, G> void processPage(String baseUrl, CheckedFunction<InputStream, G> responseParser, Function<G, Paging> getPaging, Function<G, List<F>> itemExtractor,
-    Consumer<F> itemConsumer, boolean limitToTwentyPages, ProgressWrapper progress, AtomicInteger page, AtomicBoolean stop, AtomicInteger loaded, WsResponse response)
-    throws IOException {
-    G protoBufResponse = responseParser.apply(response.contentStream());
+  private static <G, F> void prefetchPages(SonarLintWsClient client, String baseUrl, CheckedFunction<InputStream, G> responseParser, Function<G, Paging> getPaging,
+    Function<G, List<F>> itemExtractor, Consumer<F> itemConsumer, boolean limitToTwentyPages, int concurrentPages, ProgressWrapper progress, AtomicInteger page,
+    AtomicBoolean stop, AtomicInteger loaded, int total) {
+    Deque<Future<G>> window = new ArrayDeque<>();
+    ExecutorService executor = Executors.newFixedThreadPool(concurrentPages);
+    int nextPage = page.get() + 1;
+    int lastPage = lastPage(total, limitToTwentyPages);
+    try {
+      while (!stop.get()) {
+        // the total can change between pages: always keep at least the next page in flight, processPage decides when to stop
+        while (window.size() < concurrentPages && (window.isEmpty() || nextPage <= lastPage)) {
+          int pageToFetch = nextPage++;
+          window.add(executor.submit(() -> fetchPage(client, baseUrl, pageToFetch, responseParser)));
+        }
+        page.incrementAndGet();
+        G protoBufResponse = awaitPage(window.remove());
+        processPage(baseUrl, getPaging, itemExtractor, itemConsumer, limitToTwentyPages, progress, page, stop, loaded, protoBufResponse);
+        lastPage = lastPage(getPaging.apply(protoBufResponse).getTotal(), limitToTwentyPages);
+      }
+    } finally {
+      window.forEach(f -> f.cancel(true));
+      executor.shutdownNow();
+    }
+  }
+
+  private static int lastPage(int total, boolean limitToTwentyPages) {
+    int lastPage = (total + PAGE_SIZE - 1) / PAGE_SIZE;
+    return limitToTwentyPages ? Math.min(lastPage, MAX_PAGES) : lastPage;
+  }
+
+  private static <G> G awaitPage(Future<G> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while downloading pages", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  private static <G> G fetchPage(SonarLintWsClient client, String baseUrl, int page, CheckedFunction<InputStream, G> responseParser) {
+    String url = baseUrl + (baseUrl.contains("?") ? "&" : "?") + "ps=" + PAGE_SIZE + "&p=" + page;
+    return SonarLintWsClient.processTimed(
+      () -> client.get(url),
+      response -> responseParser.apply(response.contentStream()),
+      duration -> LOG.debug("Page downloaded in {}ms", duration));
+  }
+
+  private static <F, G> void processPage(String baseUrl, Function<G, Paging> getPaging, Function<G, List<F>> itemExtractor, Consumer<F> itemConsumer,
+    boolean limitToTwentyPages, ProgressWrapper progress, AtomicInteger page, AtomicBoolean stop, AtomicInteger loaded, G protoBufResponse) {
     List<F> items = itemExtractor.apply(protoBufResponse);
     for (F item : items) {
       itemConsumer.accept(item);
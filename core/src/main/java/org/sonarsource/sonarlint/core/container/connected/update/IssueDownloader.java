@@ -20,8 +20,18 @@
 package org.sonarsource.sonarlint.core.container.connected.update;
 
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import org.sonar.scanner.protocol.input.ScannerInput;
+import org.sonarsource.sonarlint.core.util.ProgressWrapper;
 
 public interface IssueDownloader extends Function<String, List<ScannerInput.ServerIssue>> {
+
+  /**
+   * Pass the issues of the component with specified key to the consumer as they are downloaded,
+   * instead of collecting them in a list.
+   */
+  default void download(String key, ProgressWrapper progress, Consumer<ScannerInput.ServerIssue> consumer) {
+    apply(key).forEach(consumer);
+  }
 }
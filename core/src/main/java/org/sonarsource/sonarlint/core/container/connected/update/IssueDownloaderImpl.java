@@ -20,19 +20,22 @@
 package org.sonarsource.sonarlint.core.container.connected.update;
 
 import com.google.protobuf.Parser;
-import java.io.InputStream;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import org.apache.commons.io.input.CountingInputStream;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.protocol.input.ScannerInput;
 import org.sonarsource.sonarlint.core.container.connected.SonarLintWsClient;
 import org.sonarsource.sonarlint.core.container.storage.ProtobufUtil;
+import org.sonarsource.sonarlint.core.util.ProgressWrapper;
 import org.sonarsource.sonarlint.core.util.StringUtils;
 
 public class IssueDownloaderImpl implements IssueDownloader {
 
   private static final Logger LOG = Loggers.get(IssueDownloaderImpl.class);
+  private static final int PROGRESS_INTERVAL = 1000;
 
   private final SonarLintWsClient wsClient;
 
@@ -50,21 +53,50 @@ public class IssueDownloaderImpl implements IssueDownloader {
    */
   @Override
   public List<ScannerInput.ServerIssue> apply(String key) {
-    return SonarLintWsClient.processTimed(
+    List<ScannerInput.ServerIssue> issues = new ArrayList<>();
+    download(key, new ProgressWrapper(null), issues::add);
+    return issues;
+  }
+
+  /**
+   * Fetch all issues of the component with specified key, parsing them one at a time from the response.
+   * If the component doesn't exist or it exists but has no issues, the consumer is not called.
+   */
+  @Override
+  public void download(String key, ProgressWrapper progress, Consumer<ScannerInput.ServerIssue> consumer) {
+    SonarLintWsClient.consumeTimed(
       () -> wsClient.rawGet(getIssuesUrl(key)),
       response -> {
         if (response.code() == 403 || response.code() == 404) {
-          return Collections.emptyList();
+          return;
         } else if (response.code() != 200) {
           throw SonarLintWsClient.handleError(response);
         }
-        InputStream input = response.contentStream();
+        long contentLength = response.contentLength();
+        CountingInputStream input = new CountingInputStream(response.contentStream());
         Parser<ScannerInput.ServerIssue> parser = ScannerInput.ServerIssue.parser();
-        return ProtobufUtil.readMessages(input, parser);
+        int[] count = {0};
+        ProtobufUtil.readMessages(input, parser, issue -> {
+          consumer.accept(issue);
+          count[0]++;
+          if (count[0] % PROGRESS_INTERVAL == 0) {
+            reportProgress(progress, count[0], input.getByteCount(), contentLength);
+          }
+        });
       },
       duration -> LOG.debug("Downloaded issues in {}ms", duration));
   }
 
+  private static void reportProgress(ProgressWrapper progress, int issueCount, long bytesRead, long contentLength) {
+    String message = issueCount + " issues";
+    if (contentLength > 0) {
+      progress.setProgressAndCheckCancel(message, Math.min(1.0f, (float) bytesRead / contentLength));
+    } else {
+      // content is compressed or chunked, the fraction done is unknown
+      progress.setMessageAndCheckCancel(message);
+    }
+  }
+
   private static String getIssuesUrl(String key) {
     return "/batch/issues?key=" + StringUtils.urlEncode(key);
   }
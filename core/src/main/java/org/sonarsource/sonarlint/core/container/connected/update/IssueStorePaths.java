@@ -31,23 +31,35 @@ import org.sonarsource.sonarlint.core.proto.Sonarlint;
 public class IssueStorePaths {
 
   public String sqPathToFileKey(Sonarlint.ProjectConfiguration projectConfiguration, String projectKey, String sqFilePath) {
-    Map<String, String> modulePaths = projectConfiguration.getModulePathByKeyMap();
+    Map.Entry<String, String> module = findModule(projectConfiguration, sqFilePath);
+    if (module == null) {
+      return projectKey + ":" + sqFilePath;
+    }
+    return module.getKey() + ":" + sqFilePath.substring(module.getValue().length() + 1);
+  }
 
-    // find longest prefix match
-    String subModuleKey = projectKey;
-    int prefixLen = 0;
+  /**
+   * @return the key of the module of a file, which is the prefix of its file key. Unlike splitting the file key, this
+   * is correct when the path of the file contains ':'.
+   */
+  public String sqPathToModuleKey(Sonarlint.ProjectConfiguration projectConfiguration, String projectKey, String sqFilePath) {
+    Map.Entry<String, String> module = findModule(projectConfiguration, sqFilePath);
+    return module == null ? projectKey : module.getKey();
+  }
 
-    for (Map.Entry<String, String> entry : modulePaths.entrySet()) {
-      String entryModuleKey = entry.getKey();
+  /**
+   * @return the module with the longest path that is a prefix of the file path
+   */
+  @CheckForNull
+  private static Map.Entry<String, String> findModule(Sonarlint.ProjectConfiguration projectConfiguration, String sqFilePath) {
+    Map.Entry<String, String> module = null;
+    for (Map.Entry<String, String> entry : projectConfiguration.getModulePathByKeyMap().entrySet()) {
       String entryPath = entry.getValue();
-      if (!entryPath.isEmpty() && sqFilePath.startsWith(entryPath) && prefixLen <= entryPath.length()) {
-        subModuleKey = entryModuleKey;
-        prefixLen = entryPath.length() + 1;
+      if (!entryPath.isEmpty() && sqFilePath.startsWith(entryPath) && (module == null || module.getValue().length() < entryPath.length())) {
+        module = entry;
       }
     }
-
-    String relativeFilePath = sqFilePath.substring(prefixLen);
-    return subModuleKey + ":" + relativeFilePath;
+    return module;
   }
 
   @CheckForNull
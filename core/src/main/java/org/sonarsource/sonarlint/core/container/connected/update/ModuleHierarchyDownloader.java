@@ -19,15 +19,22 @@
  */
 package org.sonarsource.sonarlint.core.container.connected.update;
 
-import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import javax.annotation.CheckForNull;
 import org.sonarqube.ws.Components;
 import org.sonarqube.ws.Components.Component;
 import org.sonarsource.sonarlint.core.WsHelperImpl;
@@ -39,6 +46,9 @@ import static org.sonarsource.sonarlint.core.client.api.util.FileUtils.toSonarQu
 
 public class ModuleHierarchyDownloader {
   static final int PAGE_SIZE = 500;
+  static final int MAX_CONCURRENT_REQUESTS = 8;
+  private static final String NO_PARENT = "";
+
   private final SonarLintWsClient wsClient;
 
   public ModuleHierarchyDownloader(SonarLintWsClient wsClient) {
@@ -66,37 +76,102 @@ public class ModuleHierarchyDownloader {
     // doesn't include root
     Map<String, Component> modulesByKey = modules.stream().collect(Collectors.toMap(Component::getKey, Function.identity()));
 
-    // component -> ancestorComponent. Doesn't include root
-    Map<Component, Component> ancestors = new HashMap<>();
-    for (Component c : modules) {
-      ancestors.put(c, modulesByKey.get(fetchAncestorKey(c.getKey())));
-    }
+    // module key -> parent module key
+    Map<String, String> parentKeys = fetchParentKeys(modules, progress);
 
     // module key -> path from root project base directory
     Map<String, String> modulesWithPath = new HashMap<>();
     modulesWithPath.put(projectKey, "");
-    modules.forEach(c -> modulesWithPath.put(c.getKey(), findPathFromRoot(c, ancestors)));
+    modules.forEach(c -> findPathFromRoot(c, modulesByKey, parentKeys, modulesWithPath));
 
     return modulesWithPath;
   }
 
-  private static String findPathFromRoot(Component component, Map<Component, Component> ancestors) {
-    Component c = component;
-    Path path = Paths.get("");
+  /**
+   * The tree doesn't give the parent of the modules, but the ancestors of a module give the parents of all the modules up to the root.
+   * Modules with the longest keys, which are likely to be the deepest ones, are fetched first, and modules whose parent is already
+   * known are skipped.
+   */
+  private Map<String, String> fetchParentKeys(List<Component> modules, ProgressWrapper progress) {
+    Map<String, String> parentKeys = new ConcurrentHashMap<>();
+    List<String> moduleKeys = modules.stream()
+      .map(Component::getKey)
+      .sorted(Comparator.comparingInt(String::length).reversed())
+      .collect(Collectors.toList());
+    ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS);
+    Deque<Future<?>> inFlight = new ArrayDeque<>();
+    try {
+      for (String moduleKey : moduleKeys) {
+        if (parentKeys.containsKey(moduleKey)) {
+          continue;
+        }
+        if (inFlight.size() >= MAX_CONCURRENT_REQUESTS) {
+          await(inFlight.remove());
+          progress.checkCancel();
+          if (parentKeys.containsKey(moduleKey)) {
+            continue;
+          }
+        }
+        inFlight.add(executor.submit(() -> fetchAncestors(moduleKey, parentKeys)));
+      }
+      while (!inFlight.isEmpty()) {
+        await(inFlight.remove());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return parentKeys;
+  }
 
-    do {
-      path = Paths.get(c.getPath()).resolve(path);
-      c = ancestors.get(c);
-    } while (c != null);
+  private void fetchAncestors(String moduleKey, Map<String, String> parentKeys) {
+    List<String> ancestorKeys = WsHelperImpl
+      .fetchComponent(wsClient, moduleKey)
+      .map(r -> r.getAncestorsList().stream().map(Component::getKey).collect(Collectors.toList()))
+      .orElse(Collections.emptyList());
+    String key = moduleKey;
+    for (String ancestorKey : ancestorKeys) {
+      parentKeys.put(key, ancestorKey);
+      key = ancestorKey;
+    }
+    parentKeys.putIfAbsent(key, NO_PARENT);
+  }
 
-    return toSonarQubePath(path.toString());
+  private static void await(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while fetching module hierarchy", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
   }
 
-  @CheckForNull
-  private String fetchAncestorKey(String moduleKey) {
-    return WsHelperImpl
-      .fetchComponent(wsClient, moduleKey)
-      .flatMap(r -> r.getAncestorsList().stream().map(Component::getKey).findFirst())
-      .orElse(null);
+  /**
+   * Resolve the path of the ancestors not resolved yet, from the closest resolved one, so that each path is computed once.
+   */
+  private static String findPathFromRoot(Component component, Map<String, Component> modulesByKey, Map<String, String> parentKeys, Map<String, String> pathsByKey) {
+    Deque<Component> unresolved = new ArrayDeque<>();
+    Component c = component;
+    String path = "";
+    while (c != null) {
+      String resolved = pathsByKey.get(c.getKey());
+      if (resolved != null) {
+        path = resolved;
+        break;
+      }
+      unresolved.push(c);
+      c = modulesByKey.get(parentKeys.getOrDefault(c.getKey(), NO_PARENT));
+    }
+    while (!unresolved.isEmpty()) {
+      Component child = unresolved.pop();
+      path = toSonarQubePath(Paths.get(path).resolve(child.getPath()).toString());
+      pathsByKey.put(child.getKey(), path);
+    }
+    return path;
   }
 }
@@ -20,12 +20,20 @@
 package org.sonarsource.sonarlint.core.container.connected.update;
 
 import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
-import org.apache.commons.io.FileUtils;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonarsource.sonarlint.core.client.api.common.Version;
+import org.sonarsource.sonarlint.core.client.api.connected.ConnectedGlobalConfiguration;
 import org.sonarsource.sonarlint.core.client.api.connected.SonarAnalyzer;
 import org.sonarsource.sonarlint.core.container.connected.SonarLintWsClient;
 import org.sonarsource.sonarlint.core.container.storage.ProtobufUtil;
@@ -35,6 +43,8 @@ import org.sonarsource.sonarlint.core.proto.Sonarlint.PluginReferences;
 import org.sonarsource.sonarlint.core.proto.Sonarlint.PluginReferences.Builder;
 import org.sonarsource.sonarlint.core.proto.Sonarlint.PluginReferences.PluginReference;
 import org.sonarsource.sonarlint.core.util.ProgressWrapper;
+import org.sonarsource.sonarlint.core.util.ws.GetRequest;
+import org.sonarsource.sonarlint.core.util.ws.WsResponse;
 
 import static java.lang.String.format;
 
@@ -42,12 +52,29 @@ public class PluginReferencesDownloader {
 
   private static final Logger LOG = Loggers.get(PluginReferencesDownloader.class);
 
+  static final String DOWNLOAD_PARALLELISM_PROPERTY = "sonarlint.plugins.downloadParallelism";
+  static final int DEFAULT_DOWNLOAD_PARALLELISM = 4;
+
   private final PluginCache pluginCache;
   private final SonarLintWsClient wsClient;
+  private final int downloadParallelism;
 
-  public PluginReferencesDownloader(SonarLintWsClient wsClient, PluginCache pluginCache) {
+  public PluginReferencesDownloader(SonarLintWsClient wsClient, PluginCache pluginCache, ConnectedGlobalConfiguration globalConfig) {
     this.wsClient = wsClient;
     this.pluginCache = pluginCache;
+    this.downloadParallelism = downloadParallelism(globalConfig.extraProperties().get(DOWNLOAD_PARALLELISM_PROPERTY));
+  }
+
+  private static int downloadParallelism(@Nullable String value) {
+    if (value == null) {
+      return DEFAULT_DOWNLOAD_PARALLELISM;
+    }
+    try {
+      return Math.max(1, Integer.parseInt(value.trim()));
+    } catch (NumberFormatException e) {
+      LOG.warn("Invalid value for '{}': {}", DOWNLOAD_PARALLELISM_PROPERTY, value);
+      return DEFAULT_DOWNLOAD_PARALLELISM;
+    }
   }
 
   public PluginReferences toReferences(List<SonarAnalyzer> analyzers) {
@@ -77,19 +104,47 @@ public class PluginReferencesDownloader {
     return true;
   }
 
+  /**
+   * Plugins are downloaded by up to {@value #DEFAULT_DOWNLOAD_PARALLELISM} concurrent requests, which can be changed with the
+   * {@value #DOWNLOAD_PARALLELISM_PROPERTY} global extra property.
+   */
   public PluginReferences fetchPluginsTo(Version serverVersion, Path dest, List<SonarAnalyzer> analyzers, ProgressWrapper progress) {
     PluginReferences refs = toReferences(analyzers);
-    int i = 0;
-    float refCount = (float) refs.getReferenceList().size();
-    for (PluginReference ref : refs.getReferenceList()) {
-      progress.setProgressAndCheckCancel("Loading analyzer " + ref.getKey(), i / refCount);
-      pluginCache.get(ref.getFilename(), ref.getHash(), new SonarQubeServerPluginDownloader(serverVersion, ref.getKey()));
+    List<PluginReference> references = refs.getReferenceList();
+    float refCount = (float) references.size();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(downloadParallelism, references.size())));
+    try {
+      List<Future<Path>> downloads = new ArrayList<>();
+      for (PluginReference ref : references) {
+        downloads.add(executor.submit(() -> pluginCache.get(ref.getFilename(), ref.getHash(), new SonarQubeServerPluginDownloader(serverVersion, ref.getKey()))));
+      }
+      for (int i = 0; i < downloads.size(); i++) {
+        progress.setProgressAndCheckCancel("Loading analyzer " + references.get(i).getKey(), i / refCount);
+        await(downloads.get(i));
+      }
+    } finally {
+      executor.shutdownNow();
     }
     ProtobufUtil.writeToFile(refs, dest.resolve(StoragePaths.PLUGIN_REFERENCES_PB));
     return refs;
   }
 
-  private class SonarQubeServerPluginDownloader implements PluginCache.Copier {
+  private static void await(Future<Path> download) {
+    try {
+      download.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while downloading plugins", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException("Fail to download plugin", cause);
+    }
+  }
+
+  private class SonarQubeServerPluginDownloader implements PluginCache.Downloader {
     private final String key;
     private final Version serverVersion;
 
@@ -99,7 +154,7 @@ public class PluginReferencesDownloader {
     }
 
     @Override
-    public void copy(String filename, Path toFile) throws IOException {
+    public void download(String filename, long offset, PluginCache.ContentConsumer consumer) throws IOException {
       String url;
 
       if (serverVersion.compareTo(Version.create("7.2")) >= 0) {
@@ -108,16 +163,22 @@ public class PluginReferencesDownloader {
         url = format("/deploy/plugins/%s/%s", key, filename);
       }
 
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("Download plugin '{}' to '{}'...", filename, toFile);
+      GetRequest request = new GetRequest(url);
+      if (offset > 0) {
+        request.setHeader("Range", "bytes=" + offset + "-");
+        LOG.debug("Resume download of plugin '{}' from byte {}...", filename, offset);
+      } else if (LOG.isDebugEnabled()) {
+        LOG.debug("Download plugin '{}'...", filename);
       } else {
         LOG.info("Download '{}'...", filename);
       }
 
-      SonarLintWsClient.consumeTimed(
-        () -> wsClient.get(url),
-        response -> FileUtils.copyInputStreamToFile(response.contentStream(), toFile.toFile()),
-        duration -> LOG.info("Downloaded '{}' in {}ms", filename, duration));
+      long startTime = System2.INSTANCE.now();
+      // not using SonarLintWsClient.consumeTimed, so that an interrupted download is reported as an IOException and can be resumed
+      try (WsResponse response = wsClient.getWithHeaders(request)) {
+        consumer.accept(response.contentStream(), response.code() == HttpURLConnection.HTTP_PARTIAL);
+      }
+      LOG.info("Downloaded '{}' in {}ms", filename, System2.INSTANCE.now() - startTime);
     }
   }
 }
@@ -58,6 +58,7 @@ public class ProjectListDownloader {
           .build());
       },
       true,
+      SonarLintWsClient.CONCURRENT_PAGES,
       progress);
 
     ProtobufUtil.writeToFile(projectListBuilder.build(), dest.resolve(StoragePaths.PROJECT_LIST_PB));
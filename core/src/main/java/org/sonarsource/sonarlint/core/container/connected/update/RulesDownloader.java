@@ -22,10 +22,17 @@ package org.sonarsource.sonarlint.core.container.connected.update;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.CheckForNull;
 import org.sonar.api.batch.rule.Severity;
 import org.sonar.api.rule.RuleKey;
@@ -51,24 +58,54 @@ public class RulesDownloader {
   static final String RULES_SEARCH_URL = "/api/rules/search.protobuf?f=repo,name,severity,lang,htmlDesc,htmlNote,internalKey,isTemplate,templateKey,"
     + "actives&statuses=BETA,DEPRECATED,READY&types=CODE_SMELL,BUG,VULNERABILITY";
 
+  static final int PAGE_SIZE = 500;
+  private static final int MAX_CONCURRENT_REQUESTS = Severity.values().length;
+
   private final SonarLintWsClient wsClient;
 
   public RulesDownloader(SonarLintWsClient wsClient) {
     this.wsClient = wsClient;
   }
 
+  /**
+   * The pages of all the severities are downloaded concurrently, each one read into its own builders. They are then merged in
+   * severity and page order, so that the stored rules are the same as when downloading the pages one after the other.
+   */
   public void fetchRulesTo(Path destDir, ProgressWrapper progress) {
 
     Rules.Builder rulesBuilder = Rules.newBuilder();
     Map<String, ActiveRules.Builder> activeRulesBuildersByQProfile = new HashMap<>();
 
-    for (int i = 0; i < Severity.values().length; i++) {
-      Severity severity = Severity.values()[i];
-      progress.setProgressAndCheckCancel("Loading severity '" + severity.name().toLowerCase(Locale.US) + "'",
-        i / (float) Severity.values().length);
-      ProgressWrapper severityProgress = progress.subProgress(i / (float) Severity.values().length,
-        (i + 1) / (float) Severity.values().length, severity.name().toLowerCase(Locale.US));
-      fetchRulesAndActiveRules(rulesBuilder, severity.name(), activeRulesBuildersByQProfile, severityProgress);
+    Severity[] severities = Severity.values();
+    ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS);
+    try {
+      List<Future<Page>> firstPages = new ArrayList<>();
+      for (Severity severity : severities) {
+        firstPages.add(executor.submit(() -> fetchPage(severity.name(), 1)));
+      }
+      List<List<Future<Page>>> pagesBySeverity = new ArrayList<>();
+      for (int i = 0; i < severities.length; i++) {
+        Page firstPage = await(firstPages.get(i));
+        List<Future<Page>> pages = new ArrayList<>();
+        pages.add(CompletableFuture.completedFuture(firstPage));
+        String severity = severities[i].name();
+        for (int page = 2; page <= firstPage.pageCount(); page++) {
+          int pageToFetch = page;
+          pages.add(executor.submit(() -> fetchPage(severity, pageToFetch)));
+        }
+        pagesBySeverity.add(pages);
+      }
+
+      for (int i = 0; i < severities.length; i++) {
+        Severity severity = severities[i];
+        progress.setProgressAndCheckCancel("Loading severity '" + severity.name().toLowerCase(Locale.US) + "'",
+          i / (float) severities.length);
+        ProgressWrapper severityProgress = progress.subProgress(i / (float) severities.length,
+          (i + 1) / (float) severities.length, severity.name().toLowerCase(Locale.US));
+        mergePages(pagesBySeverity.get(i), rulesBuilder, activeRulesBuildersByQProfile, severityProgress);
+      }
+    } finally {
+      executor.shutdownNow();
     }
     Path activeRulesDir = destDir.resolve(StoragePaths.ACTIVE_RULES_FOLDER);
     FileUtils.mkdirs(activeRulesDir);
@@ -79,25 +116,46 @@ public class RulesDownloader {
     ProtobufUtil.writeToFile(rulesBuilder.build(), destDir.resolve(StoragePaths.RULES_PB));
   }
 
-  private void fetchRulesAndActiveRules(Rules.Builder rulesBuilder, String severity, Map<String, ActiveRules.Builder> activeRulesBuildersByQProfile, ProgressWrapper progress) {
-    int page = 0;
-    int pageSize = 500;
-    int loaded = 0;
-
-    while (true) {
-      page++;
-      SearchResponse response = loadFromStream(wsClient.get(getUrl(severity, page, pageSize)));
-      if (response.getTotal() > 10_000) {
-        throw new IllegalStateException(
-          String.format("Found more than 10000 rules for severity '%s' in the SonarQube server, which is not supported by SonarLint.", severity));
+  private static void mergePages(List<Future<Page>> pages, Rules.Builder rulesBuilder, Map<String, ActiveRules.Builder> activeRulesBuildersByQProfile,
+    ProgressWrapper progress) {
+    long loaded = 0;
+    for (int i = 0; i < pages.size(); i++) {
+      Page page = await(pages.get(i));
+      rulesBuilder.putAllRulesByKey(page.rulesBuilder.getRulesByKeyMap());
+      for (Map.Entry<String, ActiveRules.Builder> entry : page.activeRulesBuildersByQProfile.entrySet()) {
+        activeRulesBuildersByQProfile.computeIfAbsent(entry.getKey(), k -> ActiveRules.newBuilder())
+          .putAllActiveRulesByKey(entry.getValue().getActiveRulesByKeyMap());
+      }
+      loaded += page.pageSize;
+      if (i < pages.size() - 1) {
+        progress.setProgressAndCheckCancel("Loading page " + (i + 1), loaded / (float) page.total);
       }
-      readPage(rulesBuilder, activeRulesBuildersByQProfile, response);
-      loaded += response.getPs();
+    }
+  }
 
-      if (response.getTotal() <= loaded) {
-        break;
+  private Page fetchPage(String severity, int page) {
+    SearchResponse response = loadFromStream(wsClient.get(getUrl(severity, page, PAGE_SIZE)));
+    if (response.getTotal() > 10_000) {
+      throw new IllegalStateException(
+        String.format("Found more than 10000 rules for severity '%s' in the SonarQube server, which is not supported by SonarLint.", severity));
+    }
+    Page result = new Page(response.getTotal(), response.getPs());
+    readPage(result.rulesBuilder, result.activeRulesBuildersByQProfile, response);
+    return result;
+  }
+
+  private static Page await(Future<Page> page) {
+    try {
+      return page.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading rules", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
       }
-      progress.setProgressAndCheckCancel("Loading page " + page, loaded / (float) response.getTotal());
+      throw new IllegalStateException("Failed to load rules", cause);
     }
   }
 
@@ -120,7 +178,7 @@ public class RulesDownloader {
     }
   }
 
-  private static void readPage(Rules.Builder rulesBuilder, Map<String, ActiveRules.Builder> activeRulesBuildersByQProfile, SearchResponse response) {
+  static void readPage(Rules.Builder rulesBuilder, Map<String, ActiveRules.Builder> activeRulesBuildersByQProfile, SearchResponse response) {
     Builder ruleBuilder = Rules.Rule.newBuilder();
     for (Rule r : response.getRulesList()) {
       RuleKey ruleKey = RuleKey.parse(r.getKey());
@@ -184,4 +242,28 @@ public class RulesDownloader {
     }
   }
 
+  /**
+   * Rules and active rules of a single page, only accessed by the thread that downloaded it until they are merged.
+   */
+  private static class Page {
+    private final Rules.Builder rulesBuilder = Rules.newBuilder();
+    private final Map<String, ActiveRules.Builder> activeRulesBuildersByQProfile = new HashMap<>();
+    private final long total;
+    private final long pageSize;
+
+    private Page(long total, long pageSize) {
+      this.total = total;
+      this.pageSize = pageSize;
+    }
+
+    private int pageCount() {
+      if (total <= pageSize) {
+        return 1;
+      }
+      // a page size should always be returned, but don't loop forever if it is not
+      long size = pageSize > 0 ? pageSize : PAGE_SIZE;
+      return Math.toIntExact((total + size - 1) / size);
+    }
+  }
+
 }
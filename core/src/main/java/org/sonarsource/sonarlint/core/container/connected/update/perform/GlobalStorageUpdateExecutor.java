@@ -36,6 +36,7 @@ import org.sonarsource.sonarlint.core.container.connected.update.SettingsDownloa
 import org.sonarsource.sonarlint.core.container.connected.validate.ServerVersionAndStatusChecker;
 import org.sonarsource.sonarlint.core.container.storage.ProtobufUtil;
 import org.sonarsource.sonarlint.core.container.storage.StoragePaths;
+import org.sonarsource.sonarlint.core.container.storage.StorageSwap;
 import org.sonarsource.sonarlint.core.proto.Sonarlint.ServerInfos;
 import org.sonarsource.sonarlint.core.proto.Sonarlint.StorageStatus;
 import org.sonarsource.sonarlint.core.util.ProgressWrapper;
@@ -53,10 +54,12 @@ public class GlobalStorageUpdateExecutor {
   private final SonarLintWsClient wsClient;
   private final QualityProfilesDownloader qualityProfilesDownloader;
   private final PluginListDownloader pluginListDownloader;
+  private final StorageSwap storageSwap;
 
   public GlobalStorageUpdateExecutor(StoragePaths storageManager, SonarLintWsClient wsClient, ServerVersionAndStatusChecker statusChecker,
     PluginReferencesDownloader pluginReferenceDownloader, SettingsDownloader globalPropertiesDownloader, RulesDownloader rulesDownloader,
-    ProjectListDownloader projectListDownloader, QualityProfilesDownloader qualityProfilesDownloader, PluginListDownloader pluginListDownloader, TempFolder tempFolder) {
+    ProjectListDownloader projectListDownloader, QualityProfilesDownloader qualityProfilesDownloader, PluginListDownloader pluginListDownloader, TempFolder tempFolder,
+    StorageSwap storageSwap) {
     this.storageManager = storageManager;
     this.wsClient = wsClient;
     this.statusChecker = statusChecker;
@@ -67,6 +70,7 @@ public class GlobalStorageUpdateExecutor {
     this.qualityProfilesDownloader = qualityProfilesDownloader;
     this.pluginListDownloader = pluginListDownloader;
     this.tempFolder = tempFolder;
+    this.storageSwap = storageSwap;
   }
 
   public List<SonarAnalyzer> update(ProgressWrapper progress) {
@@ -98,20 +102,15 @@ public class GlobalStorageUpdateExecutor {
 
       progress.setProgressAndCheckCancel("Finalizing...", 1.0f);
 
-      progress.executeNonCancelableSection(() -> {
+      progress.executeNonCancelableSection(() -> storageSwap.replaceDir(work -> {
         StorageStatus storageStatus = StorageStatus.newBuilder()
           .setStorageVersion(StoragePaths.STORAGE_VERSION)
           .setClientUserAgent(wsClient.getUserAgent())
           .setSonarlintCoreVersion(VersionUtils.getLibraryVersion())
           .setUpdateTimestamp(new Date().getTime())
           .build();
-        ProtobufUtil.writeToFile(storageStatus, temp.resolve(StoragePaths.STORAGE_STATUS_PB));
-
-        Path dest = storageManager.getGlobalStorageRoot();
-        FileUtils.deleteRecursively(dest);
-        FileUtils.mkdirs(dest.getParent());
-        FileUtils.moveDir(temp, dest);
-      });
+        ProtobufUtil.writeToFile(storageStatus, work.resolve(StoragePaths.STORAGE_STATUS_PB));
+      }, storageManager.getGlobalStorageRoot(), temp));
       return analyzers;
     } catch (RuntimeException e) {
       try {
@@ -26,13 +26,13 @@ import java.util.Map;
 import java.util.Set;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.utils.TempFolder;
-import org.sonarsource.sonarlint.core.client.api.util.FileUtils;
 import org.sonarsource.sonarlint.core.container.connected.SonarLintWsClient;
 import org.sonarsource.sonarlint.core.container.connected.update.ProjectConfigurationDownloader;
 import org.sonarsource.sonarlint.core.container.connected.update.ProjectFileListDownloader;
 import org.sonarsource.sonarlint.core.container.storage.ProtobufUtil;
 import org.sonarsource.sonarlint.core.container.storage.StoragePaths;
 import org.sonarsource.sonarlint.core.container.storage.StorageReader;
+import org.sonarsource.sonarlint.core.container.storage.StorageSwap;
 import org.sonarsource.sonarlint.core.proto.Sonarlint;
 import org.sonarsource.sonarlint.core.proto.Sonarlint.GlobalProperties;
 import org.sonarsource.sonarlint.core.proto.Sonarlint.ProjectConfiguration;
@@ -49,9 +49,11 @@ public class ProjectStorageUpdateExecutor {
   private final ProjectFileListDownloader projectFileListDownloader;
   private final ServerIssueUpdater serverIssueUpdater;
   private final StoragePaths storagePaths;
+  private final StorageSwap storageSwap;
 
   public ProjectStorageUpdateExecutor(StorageReader storageReader, StoragePaths storagePaths, SonarLintWsClient wsClient, TempFolder tempFolder,
-    ProjectConfigurationDownloader projectConfigurationDownloader, ProjectFileListDownloader projectFileListDownloader, ServerIssueUpdater serverIssueUpdater) {
+    ProjectConfigurationDownloader projectConfigurationDownloader, ProjectFileListDownloader projectFileListDownloader, ServerIssueUpdater serverIssueUpdater,
+    StorageSwap storageSwap) {
     this.storageReader = storageReader;
     this.storagePaths = storagePaths;
     this.wsClient = wsClient;
@@ -59,14 +61,15 @@ public class ProjectStorageUpdateExecutor {
     this.projectConfigurationDownloader = projectConfigurationDownloader;
     this.projectFileListDownloader = projectFileListDownloader;
     this.serverIssueUpdater = serverIssueUpdater;
+    this.storageSwap = storageSwap;
   }
 
   public void update(String projectKey, ProgressWrapper progress) {
     GlobalProperties globalProps = storageReader.readGlobalProperties();
 
-    FileUtils.replaceDir(temp -> {
+    storageSwap.replaceDir(temp -> {
       ProjectConfiguration projectConfiguration = updateConfiguration(projectKey, globalProps, temp, progress);
-      updateServerIssues(projectKey, temp, projectConfiguration);
+      updateServerIssues(projectKey, temp, projectConfiguration, progress);
       updateComponents(projectKey, temp, projectConfiguration, progress);
       updateStatus(temp);
     }, storagePaths.getProjectStorageRoot(projectKey), tempFolder.newDir().toPath());
@@ -104,9 +107,9 @@ public class ProjectStorageUpdateExecutor {
     ProtobufUtil.writeToFile(componentsBuilder.build(), temp.resolve(StoragePaths.COMPONENT_LIST_PB));
   }
 
-  private void updateServerIssues(String projectKey, Path temp, ProjectConfiguration projectConfiguration) {
+  private void updateServerIssues(String projectKey, Path temp, ProjectConfiguration projectConfiguration, ProgressWrapper progress) {
     Path basedir = temp.resolve(StoragePaths.SERVER_ISSUES_DIR);
-    serverIssueUpdater.updateServerIssues(projectKey, projectConfiguration, basedir);
+    serverIssueUpdater.updateServerIssues(projectKey, projectConfiguration, basedir, progress);
   }
 
   private void updateStatus(Path temp) {
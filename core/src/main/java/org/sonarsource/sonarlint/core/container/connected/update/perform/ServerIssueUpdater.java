@@ -20,46 +20,55 @@
 package org.sonarsource.sonarlint.core.container.connected.update.perform;
 
 import java.nio.file.Path;
-import java.util.List;
-import java.util.stream.Collectors;
 import org.sonar.api.utils.TempFolder;
-import org.sonar.scanner.protocol.input.ScannerInput;
-import org.sonarsource.sonarlint.core.client.api.util.FileUtils;
 import org.sonarsource.sonarlint.core.container.connected.IssueStoreFactory;
+import org.sonarsource.sonarlint.core.container.connected.ServerIssueSpool;
 import org.sonarsource.sonarlint.core.container.connected.update.IssueDownloader;
 import org.sonarsource.sonarlint.core.container.connected.update.IssueStorePaths;
 import org.sonarsource.sonarlint.core.container.storage.StoragePaths;
+import org.sonarsource.sonarlint.core.container.storage.StorageSwap;
 import org.sonarsource.sonarlint.core.proto.Sonarlint;
+import org.sonarsource.sonarlint.core.util.ProgressWrapper;
 
 public class ServerIssueUpdater {
+  private static final float DOWNLOAD_FRACTION = 0.8f;
+
   private final StoragePaths storagePaths;
   private final IssueDownloader issueDownloader;
   private final IssueStoreFactory issueStoreFactory;
   private final IssueStorePaths issueStorePaths;
   private final TempFolder tempFolder;
+  private final StorageSwap storageSwap;
 
   public ServerIssueUpdater(StoragePaths storagePaths, IssueDownloader issueDownloader, IssueStoreFactory issueStoreFactory,
-    IssueStorePaths issueStorePaths, TempFolder tempFolder) {
+    IssueStorePaths issueStorePaths, TempFolder tempFolder, StorageSwap storageSwap) {
     this.storagePaths = storagePaths;
     this.issueDownloader = issueDownloader;
     this.issueStoreFactory = issueStoreFactory;
     this.issueStorePaths = issueStorePaths;
     this.tempFolder = tempFolder;
+    this.storageSwap = storageSwap;
   }
 
   public void update(String projectKey, Sonarlint.ProjectConfiguration projectConfiguration) {
     Path work = tempFolder.newDir().toPath();
     Path target = storagePaths.getServerIssuesPath(projectKey);
-    FileUtils.replaceDir(path -> updateServerIssues(projectKey, projectConfiguration, path), target, work);
+    storageSwap.replaceDir(path -> updateServerIssues(projectKey, projectConfiguration, path), target, work);
   }
 
   public void updateServerIssues(String projectKey, Sonarlint.ProjectConfiguration projectConfiguration, Path path) {
-    List<ScannerInput.ServerIssue> issues = issueDownloader.apply(projectKey);
-    List<Sonarlint.ServerIssue> storageIssues = issues.stream()
-      .map(issue -> issueStorePaths.toStorageIssue(issue, projectConfiguration))
-      .collect(Collectors.toList());
+    updateServerIssues(projectKey, projectConfiguration, path, new ProgressWrapper(null));
+  }
 
-    issueStoreFactory.apply(path).save(storageIssues);
+  /**
+   * Issues are converted as they are downloaded, and spooled on disk until they can be stored grouped by file.
+   */
+  public void updateServerIssues(String projectKey, Sonarlint.ProjectConfiguration projectConfiguration, Path path, ProgressWrapper progress) {
+    try (ServerIssueSpool spool = new ServerIssueSpool(tempFolder.newDir().toPath())) {
+      issueDownloader.download(projectKey, progress.subProgress(0.0f, DOWNLOAD_FRACTION, "Downloading issues"),
+        issue -> spool.add(issueStorePaths.toStorageIssue(issue, projectConfiguration)));
+      issueStoreFactory.apply(path).save(spool, progress.subProgress(DOWNLOAD_FRACTION, 1.0f, "Storing issues"));
+    }
   }
 
 }
@@ -19,7 +19,13 @@
  */
 package org.sonarsource.sonarlint.core.container.global;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
 import org.sonar.api.Plugin;
 import org.sonar.api.SonarRuntime;
 import org.sonar.api.batch.sensor.Sensor;
@@ -44,6 +50,7 @@ public class ExtensionInstaller {
   private final Configuration bootConfiguration;
   private final PluginVersionChecker pluginVersionChecker;
   private final Set<Language> enabledLanguages;
+  private final Map<Boolean, List<PluginExtensions>> templates = new HashMap<>();
 
   public ExtensionInstaller(SonarRuntime sonarRuntime, PluginRepository pluginRepository, Configuration bootConfiguration, PluginVersionChecker pluginVersionChecker,
     AbstractGlobalConfiguration globalConfig) {
@@ -54,39 +61,64 @@ public class ExtensionInstaller {
     this.enabledLanguages = globalConfig.getEnabledLanguages();
   }
 
+  /**
+   * Add the extensions of all plugins for the given scope. The extensions to add are selected on the first call for each scope,
+   * and reused by the next calls, so that plugins don't have to be defined again for each analysis.
+   */
   public ExtensionInstaller install(ComponentContainer container, boolean global) {
+    for (PluginExtensions pluginExtensions : template(global)) {
+      for (Object extension : pluginExtensions.get()) {
+        container.addExtension(pluginExtensions.pluginInfo, extension);
+      }
+    }
+    return this;
+  }
+
+  private synchronized List<PluginExtensions> template(boolean global) {
+    return templates.computeIfAbsent(global, this::createTemplate);
+  }
 
-    // plugin extensions
+  private List<PluginExtensions> createTemplate(boolean global) {
+    List<PluginExtensions> template = new ArrayList<>();
     for (PluginInfo pluginInfo : pluginRepository.getActivePluginInfos()) {
-      Plugin plugin = pluginRepository.getPluginInstance(pluginInfo.getKey());
-      Plugin.Context context = new PluginContextImpl.Builder()
-        .setSonarRuntime(sonarRuntime)
-        .setBootConfiguration(bootConfiguration)
-        .build();
-      plugin.define(context);
-      loadExtensions(container, pluginInfo, context, global);
+      List<Object> extensions = loadExtensions(pluginInfo, global);
+      // extensions provided as instances are not shared between containers, as they may not be thread-safe
+      boolean reusable = extensions.stream().allMatch(Class.class::isInstance);
+      template.add(reusable ? new PluginExtensions(pluginInfo, extensions, null, global) : new PluginExtensions(pluginInfo, null, extensions, global));
     }
-    return this;
+    return template;
   }
 
-  private void loadExtensions(ComponentContainer container, PluginInfo pluginInfo, Plugin.Context context, boolean global) {
+  private List<Object> loadExtensions(PluginInfo pluginInfo, boolean global) {
+    Plugin plugin = pluginRepository.getPluginInstance(pluginInfo.getKey());
+    Plugin.Context context = new PluginContextImpl.Builder()
+      .setSonarRuntime(sonarRuntime)
+      .setBootConfiguration(bootConfiguration)
+      .build();
+    plugin.define(context);
+    return loadExtensions(pluginInfo, context, global);
+  }
+
+  private List<Object> loadExtensions(PluginInfo pluginInfo, Plugin.Context context, boolean global) {
+    List<Object> extensions = new ArrayList<>();
     Boolean isSlPluginOrNull = pluginInfo.isSonarLintSupported();
     boolean isExplicitlySonarLintCompatible = isSlPluginOrNull != null && isSlPluginOrNull.booleanValue();
     if (global && !isExplicitlySonarLintCompatible) {
       // Don't support global extensions for old plugins
-      return;
+      return extensions;
     }
     for (Object extension : context.getExtensions()) {
       if (isExplicitlySonarLintCompatible) {
         // When plugin itself claim to be compatible with SonarLint, only load @SonarLintSide extensions
         // filter out non officially supported Sensors
         if (isSonarLintSide(extension) && (isGlobal(extension) == global) && onlySonarSourceSensor(pluginInfo, extension)) {
-          container.addExtension(pluginInfo, extension);
+          extensions.add(extension);
         }
       } else {
         LOG.debug("Extension {} was blacklisted as it is not used by SonarLint", className(extension));
       }
     }
+    return extensions;
   }
 
   private boolean onlySonarSourceSensor(PluginInfo pluginInfo, Object extension) {
@@ -118,4 +150,30 @@ public class ExtensionInstaller {
     return extension instanceof Class ? ((Class) extension).getName() : extension.getClass().getName();
   }
 
+  private class PluginExtensions {
+    private final PluginInfo pluginInfo;
+    @Nullable
+    private final List<Object> extensions;
+    /**
+     * Instances loaded while creating the template of a non-reusable plugin, handed to the first container only
+     */
+    private final AtomicReference<List<Object>> firstInstances;
+    private final boolean global;
+
+    PluginExtensions(PluginInfo pluginInfo, @Nullable List<Object> extensions, @Nullable List<Object> firstInstances, boolean global) {
+      this.pluginInfo = pluginInfo;
+      this.extensions = extensions;
+      this.firstInstances = new AtomicReference<>(firstInstances);
+      this.global = global;
+    }
+
+    List<Object> get() {
+      if (extensions != null) {
+        return extensions;
+      }
+      List<Object> instances = firstInstances.getAndSet(null);
+      return instances != null ? instances : loadExtensions(pluginInfo, global);
+    }
+  }
+
 }
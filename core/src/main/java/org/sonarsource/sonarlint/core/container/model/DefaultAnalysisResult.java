@@ -32,6 +32,7 @@ import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile
 public class DefaultAnalysisResult implements AnalysisResults {
   private Set<ClientInputFile> failedAnalysisFiles = new LinkedHashSet<>();
   private int indexedFileCount;
+  private int cachedFileCount;
   private Map<ClientInputFile, Language> languagePerFile = new LinkedHashMap<>();
 
   public DefaultAnalysisResult setIndexedFileCount(int indexedFileCount) {
@@ -39,6 +40,11 @@ public class DefaultAnalysisResult implements AnalysisResults {
     return this;
   }
 
+  public DefaultAnalysisResult setCachedFileCount(int cachedFileCount) {
+    this.cachedFileCount = cachedFileCount;
+    return this;
+  }
+
   public void addFailedAnalysisFile(ClientInputFile inputFile) {
     failedAnalysisFiles.add(inputFile);
   }
@@ -57,6 +63,11 @@ public class DefaultAnalysisResult implements AnalysisResults {
     return indexedFileCount;
   }
 
+  @Override
+  public int cachedFileCount() {
+    return cachedFileCount;
+  }
+
   @Override
   public Collection<ClientInputFile> failedAnalysisFiles() {
     return failedAnalysisFiles;
@@ -42,6 +42,7 @@ import org.sonarsource.sonarlint.core.client.api.standalone.StandaloneGlobalConf
 import org.sonarsource.sonarlint.core.client.api.standalone.StandaloneRuleDetails;
 import org.sonarsource.sonarlint.core.container.ComponentContainer;
 import org.sonarsource.sonarlint.core.container.analysis.AnalysisContainer;
+import org.sonarsource.sonarlint.core.container.analysis.issue.cache.IssueCache;
 import org.sonarsource.sonarlint.core.container.connected.validate.PluginVersionChecker;
 import org.sonarsource.sonarlint.core.container.global.ExtensionInstaller;
 import org.sonarsource.sonarlint.core.container.global.GlobalConfigurationProvider;
@@ -53,13 +54,14 @@ import org.sonarsource.sonarlint.core.container.global.SonarLintRuntimeImpl;
 import org.sonarsource.sonarlint.core.container.model.DefaultAnalysisResult;
 import org.sonarsource.sonarlint.core.container.standalone.rule.StandaloneActiveRules;
 import org.sonarsource.sonarlint.core.container.standalone.rule.StandaloneRuleRepositoryContainer;
-import org.sonarsource.sonarlint.core.plugin.DefaultPluginJarExploder;
+import org.sonarsource.sonarlint.core.plugin.NestedJarPluginExploder;
 import org.sonarsource.sonarlint.core.plugin.PluginClassloaderFactory;
 import org.sonarsource.sonarlint.core.plugin.PluginInfo;
 import org.sonarsource.sonarlint.core.plugin.PluginInfosLoader;
 import org.sonarsource.sonarlint.core.plugin.PluginInstancesLoader;
 import org.sonarsource.sonarlint.core.plugin.PluginRepository;
 import org.sonarsource.sonarlint.core.plugin.cache.PluginCacheProvider;
+import org.sonarsource.sonarlint.core.plugin.cache.PluginMetadataCache;
 import org.sonarsource.sonarlint.core.util.ProgressWrapper;
 
 public class StandaloneGlobalContainer extends ComponentContainer {
@@ -85,7 +87,7 @@ public class StandaloneGlobalContainer extends ComponentContainer {
       PluginInfosLoader.class,
       PluginInstancesLoader.class,
       PluginClassloaderFactory.class,
-      DefaultPluginJarExploder.class,
+      NestedJarPluginExploder.class,
       GlobalSettings.class,
       NodeJsHelper.class,
       new GlobalConfigurationProvider(),
@@ -96,6 +98,8 @@ public class StandaloneGlobalContainer extends ComponentContainer {
       new GlobalTempFolderProvider(),
       UriReader.class,
       new PluginCacheProvider(),
+      PluginMetadataCache.class,
+      IssueCache.class,
       System2.INSTANCE);
   }
 
@@ -22,7 +22,9 @@ package org.sonarsource.sonarlint.core.container.standalone;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -33,6 +35,7 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonarsource.sonarlint.core.client.api.exceptions.StorageException;
 import org.sonarsource.sonarlint.core.plugin.PluginIndex;
 import org.sonarsource.sonarlint.core.plugin.cache.PluginCache;
+import org.sonarsource.sonarlint.core.plugin.cache.PluginMetadataCache;
 
 /**
  * Provides the list of plugins provided by the client.
@@ -42,22 +45,26 @@ public class StandalonePluginIndex implements PluginIndex {
   private static final Logger LOG = Loggers.get(StandalonePluginIndex.class);
   private final StandalonePluginUrls pluginUrls;
   private final PluginCache fileCache;
+  private final PluginMetadataCache metadataCache;
 
-  public StandalonePluginIndex(StandalonePluginUrls pluginUrls, PluginCache fileCache) {
+  public StandalonePluginIndex(StandalonePluginUrls pluginUrls, PluginCache fileCache, PluginMetadataCache metadataCache) {
     this.pluginUrls = pluginUrls;
     this.fileCache = fileCache;
+    this.metadataCache = metadataCache;
   }
 
   @Override
   public List<PluginReference> references() {
-    return pluginUrls.urls().stream()
+    List<PluginReference> references = pluginUrls.urls().stream()
       .map(this::getFromCacheOrCopy)
       .collect(Collectors.toList());
+    metadataCache.save();
+    return references;
   }
 
   private PluginReference getFromCacheOrCopy(final URL pluginUrl) {
-    try (InputStream is = pluginUrl.openStream()) {
-      String hash = org.sonarsource.sonarlint.core.util.StringUtils.md5(is);
+    try {
+      String hash = hash(pluginUrl);
       String filename = StringUtils.substringAfterLast(pluginUrl.getFile(), "/");
       fileCache.get(filename, hash, new FileCopier(pluginUrl));
       return new PluginReference(hash, filename);
@@ -68,6 +75,24 @@ public class StandalonePluginIndex implements PluginIndex {
     }
   }
 
+  /**
+   * Plugins given as files are only hashed when they changed since the previous start.
+   */
+  private String hash(URL pluginUrl) throws Exception {
+    if ("file".equals(pluginUrl.getProtocol())) {
+      return metadataCache.hash(Paths.get(pluginUrl.toURI()), StandalonePluginIndex::md5);
+    }
+    try (InputStream is = pluginUrl.openStream()) {
+      return org.sonarsource.sonarlint.core.util.StringUtils.md5(is);
+    }
+  }
+
+  private static String md5(Path file) throws IOException {
+    try (InputStream is = Files.newInputStream(file)) {
+      return org.sonarsource.sonarlint.core.util.StringUtils.md5(is);
+    }
+  }
+
   private static class FileCopier implements PluginCache.Copier {
     private final URL url;
 
@@ -22,6 +22,8 @@ package org.sonarsource.sonarlint.core.container.storage;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import org.sonarsource.sonarlint.core.client.api.connected.ProjectBinding;
 import org.sonarsource.sonarlint.core.client.api.connected.ServerIssue;
@@ -35,6 +37,10 @@ public class IssueStoreReader {
   private final StoragePaths storagePaths;
   private final IssueStorePaths issueStorePaths;
   private final StorageReader storageReader;
+  /**
+   * Stores are kept open between reads, so that segments are not mapped again for each file
+   */
+  private final Map<Path, IssueStore> openStores = new ConcurrentHashMap<>();
 
   public IssueStoreReader(IssueStoreFactory issueStoreFactory, IssueStorePaths issueStorePaths, StoragePaths storagePaths, StorageReader storageReader) {
     this.issueStoreFactory = issueStoreFactory;
@@ -55,7 +61,7 @@ public class IssueStoreReader {
       return Collections.emptyList();
     }
     Path serverIssuesPath = storagePaths.getServerIssuesPath(projectBinding.projectKey());
-    IssueStore issueStore = issueStoreFactory.apply(serverIssuesPath);
+    IssueStore issueStore = openStores.computeIfAbsent(serverIssuesPath, issueStoreFactory);
 
     List<Sonarlint.ServerIssue> loadedIssues = issueStore.load(sqPath);
 
@@ -63,4 +69,17 @@ public class IssueStoreReader {
       .map(pbIssue -> IssueStorePaths.toApiIssue(pbIssue, ideFilePath))
       .collect(Collectors.toList());
   }
+
+  /**
+   * Close the stores read so far, before they are replaced. Must not be called concurrently with reads.
+   * Stores are opened again by the next reads.
+   */
+  public void closeStores() {
+    openStores.values().forEach(IssueStore::close);
+    openStores.clear();
+  }
+
+  public void stop() {
+    closeStores();
+  }
 }
@@ -43,38 +43,42 @@ public class SonarQubeActiveRulesProvider extends ProviderAdapter {
   private ActiveRules activeRules;
 
   public ActiveRules provide(Sonarlint.Rules storageRules, Sonarlint.QProfiles qProfiles, StorageReader storageReader, SonarLintRules rules,
-    ConnectedAnalysisConfiguration analysisConfiguration, Languages languages) {
+    ConnectedAnalysisConfiguration analysisConfiguration, Languages languages, StorageActiveRulesCache cache) {
     if (activeRules == null) {
+      activeRules = cache.get(analysisConfiguration.projectKey(), () -> loadActiveRules(storageRules, qProfiles, storageReader, analysisConfiguration, languages));
+    }
+    return activeRules;
+  }
 
-      Map<String, String> qProfilesByLanguage = loadQualityProfilesFromStorage(qProfiles, storageReader, analysisConfiguration);
+  private static ActiveRules loadActiveRules(Sonarlint.Rules storageRules, Sonarlint.QProfiles qProfiles, StorageReader storageReader,
+    ConnectedAnalysisConfiguration analysisConfiguration, Languages languages) {
+    Map<String, String> qProfilesByLanguage = loadQualityProfilesFromStorage(qProfiles, storageReader, analysisConfiguration);
 
-      Collection<org.sonar.api.batch.rule.ActiveRule> activeRulesList = new ArrayList<>();
-      for (Map.Entry<String, String> entry : qProfilesByLanguage.entrySet()) {
-        String language = entry.getKey();
-        if (languages.get(language) == null) {
-          continue;
-        }
+    Collection<org.sonar.api.batch.rule.ActiveRule> activeRulesList = new ArrayList<>();
+    for (Map.Entry<String, String> entry : qProfilesByLanguage.entrySet()) {
+      String language = entry.getKey();
+      if (languages.get(language) == null) {
+        continue;
+      }
 
-        String qProfileKey = entry.getValue();
-        QProfile qProfile = qProfiles.getQprofilesByKeyOrThrow(qProfileKey);
+      String qProfileKey = entry.getValue();
+      QProfile qProfile = qProfiles.getQprofilesByKeyOrThrow(qProfileKey);
 
-        if (qProfile.getActiveRuleCount() == 0) {
-          LOG.debug("  * {}: '{}' (0 rules)", language, qProfile.getName());
-          continue;
-        }
+      if (qProfile.getActiveRuleCount() == 0) {
+        LOG.debug("  * {}: '{}' (0 rules)", language, qProfile.getName());
+        continue;
+      }
 
-        Sonarlint.ActiveRules activeRulesFromStorage = storageReader.readActiveRules(qProfileKey);
+      Sonarlint.ActiveRules activeRulesFromStorage = storageReader.readActiveRules(qProfileKey);
 
-        LOG.debug("  * {}: '{}' ({} rules)", language, qProfile.getName(), activeRulesFromStorage.getActiveRulesByKeyMap().size());
+      LOG.debug("  * {}: '{}' ({} rules)", language, qProfile.getName(), activeRulesFromStorage.getActiveRulesByKeyMap().size());
 
-        for (ActiveRule activeRule : activeRulesFromStorage.getActiveRulesByKeyMap().values()) {
-          activeRulesList.add(createNewActiveRule(activeRule, storageRules));
-        }
+      for (ActiveRule activeRule : activeRulesFromStorage.getActiveRulesByKeyMap().values()) {
+        activeRulesList.add(createNewActiveRule(activeRule, storageRules));
       }
-
-      activeRules = new DefaultActiveRules(activeRulesList);
     }
-    return activeRules;
+
+    return new DefaultActiveRules(activeRulesList);
   }
 
   private static org.sonar.api.batch.rule.ActiveRule createNewActiveRule(ActiveRule activeRule, Sonarlint.Rules storageRules) {
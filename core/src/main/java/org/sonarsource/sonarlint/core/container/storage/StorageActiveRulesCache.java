@@ -0,0 +1,48 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.storage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.rule.ActiveRules;
+
+/**
+ * Active rules of each project, shared by all the analyses of the storage container. They only change when the storage is updated:
+ * a global update restarts the storage container, and {@link #invalidateProject(String)} is called after the update of a project.
+ */
+public class StorageActiveRulesCache {
+
+  private static final String DEFAULT_QPROFILES = "";
+
+  private final Map<String, ActiveRules> activeRulesByProject = new ConcurrentHashMap<>();
+
+  /**
+   * @param projectKey null for the default quality profiles of the server
+   */
+  public ActiveRules get(@Nullable String projectKey, Supplier<ActiveRules> loader) {
+    return activeRulesByProject.computeIfAbsent(projectKey != null ? projectKey : DEFAULT_QPROFILES, k -> loader.get());
+  }
+
+  public void invalidateProject(String projectKey) {
+    activeRulesByProject.remove(projectKey);
+  }
+}
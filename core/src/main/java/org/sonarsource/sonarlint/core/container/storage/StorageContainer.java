@@ -32,6 +32,7 @@ import org.sonarsource.sonarlint.core.NodeJsHelper;
 import org.sonarsource.sonarlint.core.client.api.connected.ConnectedGlobalConfiguration;
 import org.sonarsource.sonarlint.core.client.api.connected.GlobalStorageStatus;
 import org.sonarsource.sonarlint.core.container.ComponentContainer;
+import org.sonarsource.sonarlint.core.container.analysis.issue.cache.IssueCache;
 import org.sonarsource.sonarlint.core.container.connected.IssueStoreFactory;
 import org.sonarsource.sonarlint.core.container.connected.update.IssueStorePaths;
 import org.sonarsource.sonarlint.core.container.connected.validate.PluginVersionChecker;
@@ -43,21 +44,22 @@ import org.sonarsource.sonarlint.core.container.global.GlobalTempFolderProvider;
 import org.sonarsource.sonarlint.core.container.global.MetadataLoader;
 import org.sonarsource.sonarlint.core.container.global.SonarLintRuntimeImpl;
 import org.sonarsource.sonarlint.core.container.storage.partialupdate.PartialUpdaterFactory;
-import org.sonarsource.sonarlint.core.plugin.DefaultPluginJarExploder;
+import org.sonarsource.sonarlint.core.plugin.NestedJarPluginExploder;
 import org.sonarsource.sonarlint.core.plugin.PluginClassloaderFactory;
 import org.sonarsource.sonarlint.core.plugin.PluginInfo;
 import org.sonarsource.sonarlint.core.plugin.PluginInfosLoader;
 import org.sonarsource.sonarlint.core.plugin.PluginInstancesLoader;
 import org.sonarsource.sonarlint.core.plugin.PluginRepository;
 import org.sonarsource.sonarlint.core.plugin.cache.PluginCacheProvider;
+import org.sonarsource.sonarlint.core.plugin.cache.PluginMetadataCache;
 
 public class StorageContainer extends ComponentContainer {
   private static final Logger LOG = Loggers.get(StorageContainer.class);
   private static final DateFormat DATE_FORMAT = new SimpleDateFormat();
 
-  public static StorageContainer create(ConnectedGlobalConfiguration globalConfig) {
+  public static StorageContainer create(ConnectedGlobalConfiguration globalConfig, StorageSwap storageSwap) {
     StorageContainer container = new StorageContainer();
-    container.add(globalConfig);
+    container.add(globalConfig, storageSwap);
     return container;
   }
 
@@ -69,6 +71,8 @@ public class StorageContainer extends ComponentContainer {
     add(
       StorageContainerHandler.class,
       PartialUpdaterFactory.class,
+      StorageRuleIndex.class,
+      StorageActiveRulesCache.class,
 
       // storage directories and tmp
       StoragePaths.class,
@@ -82,9 +86,11 @@ public class StorageContainer extends ComponentContainer {
       PluginVersionChecker.class,
       PluginInstancesLoader.class,
       PluginClassloaderFactory.class,
-      DefaultPluginJarExploder.class,
+      NestedJarPluginExploder.class,
       StoragePluginIndexProvider.class,
       new PluginCacheProvider(),
+      PluginMetadataCache.class,
+      IssueCache.class,
 
       // storage readers
       AllProjectReader.class,
@@ -22,6 +22,7 @@ package org.sonarsource.sonarlint.core.container.storage;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -48,8 +49,6 @@ import org.sonarsource.sonarlint.core.container.storage.partialupdate.PartialUpd
 import org.sonarsource.sonarlint.core.container.storage.partialupdate.PartialUpdaterFactory;
 import org.sonarsource.sonarlint.core.plugin.PluginRepository;
 import org.sonarsource.sonarlint.core.proto.Sonarlint;
-import org.sonarsource.sonarlint.core.proto.Sonarlint.ActiveRules.ActiveRule;
-import org.sonarsource.sonarlint.core.proto.Sonarlint.QProfiles;
 import org.sonarsource.sonarlint.core.util.ProgressWrapper;
 import org.sonarsource.sonarlint.core.util.StringUtils;
 
@@ -64,10 +63,13 @@ public class StorageContainerHandler {
   private final StorageFileExclusions storageExclusions;
   private final IssueStoreReader issueStoreReader;
   private final PartialUpdaterFactory partialUpdaterFactory;
+  private final StorageRuleIndex ruleIndex;
+  private final StorageActiveRulesCache activeRulesCache;
 
   public StorageContainerHandler(StorageAnalyzer storageAnalyzer, GlobalUpdateStatusReader globalUpdateStatusReader,
     PluginRepository pluginRepository, ProjectStorageStatusReader projectStorageStatusReader, AllProjectReader allProjectReader, StoragePaths storagePaths,
-    StorageReader storageReader, StorageFileExclusions storageExclusions, IssueStoreReader issueStoreReader, PartialUpdaterFactory partialUpdaterFactory) {
+    StorageReader storageReader, StorageFileExclusions storageExclusions, IssueStoreReader issueStoreReader, PartialUpdaterFactory partialUpdaterFactory,
+    StorageRuleIndex ruleIndex, StorageActiveRulesCache activeRulesCache) {
     this.storageAnalyzer = storageAnalyzer;
     this.globalUpdateStatusReader = globalUpdateStatusReader;
     this.pluginRepository = pluginRepository;
@@ -78,6 +80,8 @@ public class StorageContainerHandler {
     this.storageExclusions = storageExclusions;
     this.issueStoreReader = issueStoreReader;
     this.partialUpdaterFactory = partialUpdaterFactory;
+    this.ruleIndex = ruleIndex;
+    this.activeRulesCache = activeRulesCache;
   }
 
   public AnalysisResults analyze(GlobalExtensionContainer globalExtensionContainer, ConnectedAnalysisConfiguration configuration, IssueListener issueListener,
@@ -94,14 +98,13 @@ public class StorageContainerHandler {
     String type = StringUtils.isEmpty(rule.getType()) ? null : rule.getType();
 
     Language language = Language.forKey(rule.getLang()).orElseThrow(() -> new IllegalArgumentException("Unknown language for rule " + ruleKeyStr + ": " + rule.getLang()));
-    return new DefaultRuleDetails(ruleKeyStr, rule.getName(), rule.getHtmlDesc(), overridenSeverity != null ? overridenSeverity : rule.getSeverity(), type, language,
+    return new DefaultRuleDetails(ruleKeyStr, rule.getName(), ruleIndex.getHtmlDescription(ruleKeyStr), overridenSeverity != null ? overridenSeverity : rule.getSeverity(), type, language,
       rule.getHtmlNote());
   }
 
   private Sonarlint.Rules.Rule readRule(String ruleKeyStr) {
-    Sonarlint.Rules rulesFromStorage = storageReader.readRules();
     RuleKey ruleKey = RuleKey.parse(ruleKeyStr);
-    Sonarlint.Rules.Rule rule = rulesFromStorage.getRulesByKeyMap().get(ruleKeyStr);
+    Sonarlint.Rules.Rule rule = ruleIndex.getRule(ruleKeyStr);
     if (rule == null) {
       throw new IllegalArgumentException("Unable to find rule with key " + ruleKey);
     }
@@ -109,21 +112,16 @@ public class StorageContainerHandler {
   }
 
   public ConnectedRuleDetails getRuleDetails(String ruleKeyStr, @Nullable String projectKey) {
-    QProfiles qProfiles = storageReader.readQProfiles();
-    Map<String, String> qProfilesByLanguage;
-    if (projectKey == null) {
-      qProfilesByLanguage = qProfiles.getDefaultQProfilesByLanguageMap();
-    } else {
-      qProfilesByLanguage = storageReader.readProjectConfig(projectKey).getQprofilePerLanguageMap();
+    String activeSeverity = ruleIndex.getActiveSeverity(ruleKeyStr, projectKey);
+    if (activeSeverity == null) {
+      throw new IllegalArgumentException("Unable to find active rule with key " + ruleKeyStr);
     }
-    for (String qProfileKey : qProfilesByLanguage.values()) {
-      Sonarlint.ActiveRules activeRulesFromStorage = storageReader.readActiveRules(qProfileKey);
-      if (activeRulesFromStorage.getActiveRulesByKeyMap().containsKey(ruleKeyStr)) {
-        ActiveRule ar = activeRulesFromStorage.getActiveRulesByKeyMap().get(ruleKeyStr);
-        return getRuleDetailsWithSeverity(ruleKeyStr, ar.getSeverity());
-      }
-    }
-    throw new IllegalArgumentException("Unable to find active rule with key " + ruleKeyStr);
+    return getRuleDetailsWithSeverity(ruleKeyStr, activeSeverity);
+  }
+
+  public void invalidateProjectRules(String projectKey) {
+    ruleIndex.invalidateProject(projectKey);
+    activeRulesCache.invalidateProject(projectKey);
   }
 
   public GlobalStorageStatus getGlobalStorageStatus() {
@@ -146,6 +144,13 @@ public class StorageContainerHandler {
     return issueStoreReader.getServerIssues(projectBinding, ideFilePath);
   }
 
+  /**
+   * Release the files of the storage held open by readers, so that they can be replaced.
+   */
+  public void releaseStorage() {
+    issueStoreReader.closeStores();
+  }
+
   public <G> List<G> getExcludedFiles(ProjectBinding projectBinding, Collection<G> files, Function<G, String> ideFilePathExtractor, Predicate<G> testFilePredicate) {
     return storageExclusions.getExcludedFiles(projectBinding, files, ideFilePathExtractor, testFilePredicate);
   }
@@ -157,6 +162,17 @@ public class StorageContainerHandler {
     return getServerIssues(projectBinding, ideFilePath);
   }
 
+  public Map<String, List<ServerIssue>> downloadServerIssues(ServerConfiguration serverConfig, ProjectBinding projectBinding, Collection<String> ideFilePaths) {
+    PartialUpdater updater = partialUpdaterFactory.create(serverConfig);
+    Sonarlint.ProjectConfiguration configuration = storageReader.readProjectConfig(projectBinding.projectKey());
+    updater.updateFileIssues(projectBinding, configuration, ideFilePaths);
+    Map<String, List<ServerIssue>> issuesByIdePath = new LinkedHashMap<>();
+    for (String ideFilePath : ideFilePaths) {
+      issuesByIdePath.put(ideFilePath, getServerIssues(projectBinding, ideFilePath));
+    }
+    return issuesByIdePath;
+  }
+
   public void downloadServerIssues(ServerConfiguration serverConfig, String projectKey) {
     PartialUpdater updater = partialUpdaterFactory.create(serverConfig);
     Sonarlint.ProjectConfiguration configuration = storageReader.readProjectConfig(projectKey);
@@ -19,36 +19,44 @@
  */
 package org.sonarsource.sonarlint.core.container.storage;
 
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import org.sonar.api.batch.fs.InputFile.Type;
 import org.sonarsource.sonarlint.core.client.api.connected.ProjectBinding;
+import org.sonarsource.sonarlint.core.client.api.exceptions.StorageException;
 import org.sonarsource.sonarlint.core.container.analysis.ExclusionFilters;
 import org.sonarsource.sonarlint.core.container.connected.update.IssueStorePaths;
 import org.sonarsource.sonarlint.core.container.global.MapSettings;
 import org.sonarsource.sonarlint.core.proto.Sonarlint.GlobalProperties;
 import org.sonarsource.sonarlint.core.proto.Sonarlint.ProjectConfiguration;
 
+/**
+ * Exclusion filters are prepared once per project, and kept as long as the global properties and the project configuration
+ * stored for the project have the same content. Their raw bytes are the generation of the filters: they are cheap to read compared to
+ * parsing them and compiling the patterns, and any change of the storage is seen, whoever writes it.
+ */
 public class StorageFileExclusions {
-  private final StorageReader storageReader;
+  private final StoragePaths storagePaths;
   private final IssueStorePaths issueStorePaths;
+  private final Map<String, PreparedFilters> filtersByProject = new ConcurrentHashMap<>();
 
   public StorageFileExclusions(StorageReader storageReader, IssueStorePaths issueStorePaths) {
-    this.storageReader = storageReader;
+    this.storagePaths = storageReader.getStoragePaths();
     this.issueStorePaths = issueStorePaths;
   }
 
   public <G> List<G> getExcludedFiles(ProjectBinding projectBinding, Collection<G> files, Function<G, String> fileIdePathExtractor, Predicate<G> testFilePredicate) {
-    GlobalProperties globalProps = storageReader.readGlobalProperties();
-    ProjectConfiguration projectConfig = storageReader.readProjectConfig(projectBinding.projectKey());
-    MapSettings settings = new MapSettings();
-    settings.addProperties(globalProps.getProperties());
-    settings.addProperties(projectConfig.getProperties());
-    ExclusionFilters exclusionFilters = new ExclusionFilters(settings.asConfig());
-    exclusionFilters.prepare();
+    ExclusionFilters exclusionFilters = getExclusionFilters(projectBinding.projectKey());
 
     List<G> excluded = new ArrayList<>();
 
@@ -69,4 +77,44 @@ public class StorageFileExclusions {
     }
     return excluded;
   }
+
+  private ExclusionFilters getExclusionFilters(String projectKey) {
+    byte[] globalProps = read(storagePaths.getGlobalPropertiesPath());
+    byte[] projectConfig = read(storagePaths.getProjectConfigurationPath(projectKey));
+    return filtersByProject.compute(projectKey, (k, prepared) -> prepared != null && prepared.isGeneration(globalProps, projectConfig)
+      ? prepared
+      : new PreparedFilters(globalProps, projectConfig)).filters;
+  }
+
+  private static byte[] read(Path file) {
+    try {
+      return Files.readAllBytes(file);
+    } catch (IOException e) {
+      throw new StorageException("Failed to read file: " + file, e);
+    }
+  }
+
+  private static class PreparedFilters {
+    private final byte[] globalProps;
+    private final byte[] projectConfig;
+    private final ExclusionFilters filters;
+
+    PreparedFilters(byte[] globalProps, byte[] projectConfig) {
+      this.globalProps = globalProps;
+      this.projectConfig = projectConfig;
+      MapSettings settings = new MapSettings();
+      try {
+        settings.addProperties(GlobalProperties.parseFrom(globalProps).getProperties());
+        settings.addProperties(ProjectConfiguration.parseFrom(projectConfig).getProperties());
+      } catch (InvalidProtocolBufferException e) {
+        throw new StorageException("Failed to parse the settings of the project", e);
+      }
+      this.filters = new ExclusionFilters(settings.asConfig());
+      filters.prepare();
+    }
+
+    boolean isGeneration(byte[] globalProps, byte[] projectConfig) {
+      return Arrays.equals(this.globalProps, globalProps) && Arrays.equals(this.projectConfig, projectConfig);
+    }
+  }
 }
@@ -41,6 +41,10 @@ public class StorageReader {
     this.storageStatus = initStorageStatus();
   }
 
+  StoragePaths getStoragePaths() {
+    return storagePaths;
+  }
+
   @CheckForNull
   public GlobalStorageStatus getGlobalStorageStatus() {
     return storageStatus;
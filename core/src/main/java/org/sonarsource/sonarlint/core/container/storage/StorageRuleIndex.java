@@ -0,0 +1,191 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.storage;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonarsource.sonarlint.core.client.api.exceptions.StorageException;
+import org.sonarsource.sonarlint.core.proto.Sonarlint;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.Rules.Rule;
+
+/**
+ * Index of the rules of the storage, to serve rule details without parsing the storage on each call.
+ * Rules are loaded once per storage container, without their HTML description: only the position of each rule in the rules file is kept,
+ * and the description is read from there when requested.
+ * Active severities are cached per project, until {@link #invalidateProject(String)} is called after an update of the project storage.
+ */
+public class StorageRuleIndex {
+
+  private static final int RULES_BY_KEY_FIELD = 1;
+  private static final int MAP_ENTRY_KEY_FIELD = 1;
+  private static final int MAP_ENTRY_VALUE_FIELD = 2;
+  private static final String DEFAULT_QPROFILES = "";
+
+  private final StoragePaths storagePaths;
+  private final StorageReader storageReader;
+  private Map<String, IndexedRule> rulesByKey;
+  private final Map<String, Map<String, String>> activeSeveritiesByQProfile = new ConcurrentHashMap<>();
+  private final Map<String, Map<String, String>> activeSeveritiesByProject = new ConcurrentHashMap<>();
+
+  public StorageRuleIndex(StoragePaths storagePaths, StorageReader storageReader) {
+    this.storagePaths = storagePaths;
+    this.storageReader = storageReader;
+  }
+
+  @CheckForNull
+  public Rule getRule(String ruleKey) {
+    IndexedRule indexedRule = rules().get(ruleKey);
+    return indexedRule != null ? indexedRule.rule : null;
+  }
+
+  public String getHtmlDescription(String ruleKey) {
+    IndexedRule indexedRule = rules().get(ruleKey);
+    if (indexedRule == null) {
+      throw new IllegalArgumentException("Unable to find rule with key " + ruleKey);
+    }
+    Path rulesPath = storagePaths.getRulesPath();
+    try (FileChannel channel = FileChannel.open(rulesPath, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(indexedRule.length);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, indexedRule.offset + buffer.position()) < 0) {
+          throw new IOException("Unexpected end of file");
+        }
+      }
+      return Rule.parseFrom(buffer.array()).getHtmlDesc();
+    } catch (IOException e) {
+      throw new StorageException("Failed to read file: " + rulesPath, e);
+    }
+  }
+
+  /**
+   * @param projectKey null for the default quality profiles of the server
+   * @return severity of the rule in the first quality profile of the project that activates it, or null if the rule is not active
+   */
+  @CheckForNull
+  public String getActiveSeverity(String ruleKey, @Nullable String projectKey) {
+    return activeSeveritiesByProject.computeIfAbsent(projectKey != null ? projectKey : DEFAULT_QPROFILES, this::loadActiveSeverities).get(ruleKey);
+  }
+
+  public void invalidateProject(String projectKey) {
+    activeSeveritiesByProject.remove(projectKey);
+  }
+
+  private Map<String, String> loadActiveSeverities(String projectKey) {
+    Map<String, String> qProfilesByLanguage;
+    if (DEFAULT_QPROFILES.equals(projectKey)) {
+      qProfilesByLanguage = storageReader.readQProfiles().getDefaultQProfilesByLanguageMap();
+    } else {
+      qProfilesByLanguage = storageReader.readProjectConfig(projectKey).getQprofilePerLanguageMap();
+    }
+    Map<String, String> severities = new HashMap<>();
+    for (String qProfileKey : qProfilesByLanguage.values()) {
+      activeSeveritiesByQProfile.computeIfAbsent(qProfileKey, this::loadQProfileSeverities).forEach(severities::putIfAbsent);
+    }
+    return severities;
+  }
+
+  private Map<String, String> loadQProfileSeverities(String qProfileKey) {
+    Map<String, String> severities = new HashMap<>();
+    storageReader.readActiveRules(qProfileKey).getActiveRulesByKeyMap().forEach((ruleKey, activeRule) -> severities.put(ruleKey, activeRule.getSeverity()));
+    return severities;
+  }
+
+  private synchronized Map<String, IndexedRule> rules() {
+    if (rulesByKey == null) {
+      rulesByKey = loadRules(storagePaths.getRulesPath());
+    }
+    return rulesByKey;
+  }
+
+  /**
+   * Walks the entries of the map of {@link Sonarlint.Rules}, to know where each rule starts in the file.
+   */
+  private static Map<String, IndexedRule> loadRules(Path rulesPath) {
+    Map<String, IndexedRule> rules = new HashMap<>();
+    try (InputStream stream = new BufferedInputStream(Files.newInputStream(rulesPath))) {
+      CodedInputStream input = CodedInputStream.newInstance(stream);
+      input.setSizeLimit(Integer.MAX_VALUE);
+      while (!input.isAtEnd()) {
+        int tag = input.readTag();
+        if (tag == lengthDelimitedTag(RULES_BY_KEY_FIELD)) {
+          int oldLimit = input.pushLimit(input.readRawVarint32());
+          readEntry(input, rules);
+          input.popLimit(oldLimit);
+        } else {
+          input.skipField(tag);
+        }
+      }
+    } catch (IOException e) {
+      throw new StorageException("Failed to read file: " + rulesPath, e);
+    }
+    return rules;
+  }
+
+  /**
+   * Same as WireFormat.makeTag, which is not public
+   */
+  private static int lengthDelimitedTag(int fieldNumber) {
+    return (fieldNumber << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+  }
+
+  private static void readEntry(CodedInputStream input, Map<String, IndexedRule> rules) throws IOException {
+    String key = "";
+    IndexedRule indexedRule = null;
+    while (!input.isAtEnd()) {
+      int tag = input.readTag();
+      if (tag == lengthDelimitedTag(MAP_ENTRY_KEY_FIELD)) {
+        key = input.readStringRequireUtf8();
+      } else if (tag == lengthDelimitedTag(MAP_ENTRY_VALUE_FIELD)) {
+        int length = input.readRawVarint32();
+        long offset = input.getTotalBytesRead();
+        Rule rule = Rule.parseFrom(input.readRawBytes(length));
+        indexedRule = new IndexedRule(rule.toBuilder().clearHtmlDesc().build(), offset, length);
+      } else {
+        input.skipField(tag);
+      }
+    }
+    rules.put(key, indexedRule != null ? indexedRule : new IndexedRule(Rule.getDefaultInstance(), 0, 0));
+  }
+
+  private static class IndexedRule {
+    private final Rule rule;
+    private final long offset;
+    private final int length;
+
+    IndexedRule(Rule rule, long offset, int length) {
+      this.rule = rule;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
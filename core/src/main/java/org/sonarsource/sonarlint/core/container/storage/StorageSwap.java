@@ -0,0 +1,73 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Consumer;
+import org.sonarsource.sonarlint.core.client.api.util.FileUtils;
+
+/**
+ * Publishes storage updates that were staged in a work directory. Only the final moves are given to the swapper, so that the engine
+ * can block readers of the storage for the time of the moves, rather than for the whole download.
+ */
+public class StorageSwap {
+
+  private final Consumer<Runnable> swapper;
+
+  public StorageSwap(Consumer<Runnable> swapper) {
+    this.swapper = swapper;
+  }
+
+  /**
+   * Moves are done immediately, for callers that already have exclusive access to the storage.
+   */
+  public static StorageSwap immediate() {
+    return new StorageSwap(Runnable::run);
+  }
+
+  public void swap(Runnable moves) {
+    swapper.accept(moves);
+  }
+
+  /**
+   * Same as {@link FileUtils#replaceDir(Consumer, Path, Path)}, but only the replacement of the target is done during the swap.
+   */
+  public void replaceDir(Consumer<Path> dirContentUpdater, Path target, Path work) {
+    dirContentUpdater.accept(work);
+    swap(() -> {
+      FileUtils.deleteRecursively(target);
+      FileUtils.mkdirs(target.getParent());
+      FileUtils.moveDir(work, target);
+    });
+  }
+
+  public void replaceFile(Path staged, Path target) {
+    swap(() -> {
+      try {
+        Files.move(staged, target, StandardCopyOption.REPLACE_EXISTING);
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to move " + staged + " to " + target, e);
+      }
+    });
+  }
+}
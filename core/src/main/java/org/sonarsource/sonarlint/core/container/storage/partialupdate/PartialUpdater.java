@@ -20,7 +20,17 @@
 package org.sonarsource.sonarlint.core.container.storage.partialupdate;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.sonar.api.utils.TempFolder;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
@@ -33,30 +43,39 @@ import org.sonarsource.sonarlint.core.container.connected.update.IssueStorePaths
 import org.sonarsource.sonarlint.core.container.connected.update.ProjectListDownloader;
 import org.sonarsource.sonarlint.core.container.connected.update.perform.ServerIssueUpdater;
 import org.sonarsource.sonarlint.core.container.storage.StoragePaths;
+import org.sonarsource.sonarlint.core.container.storage.StorageSwap;
 import org.sonarsource.sonarlint.core.proto.Sonarlint;
 import org.sonarsource.sonarlint.core.util.ProgressWrapper;
 
 public class PartialUpdater {
+  /**
+   * Number of requested files of a module from which all the issues of the module are downloaded at once, rather than file by file.
+   */
+  static final int MODULE_DOWNLOAD_THRESHOLD = 20;
+  static final int MAX_CONCURRENT_DOWNLOADS = 4;
+
   private final IssueStoreFactory issueStoreFactory;
   private final IssueDownloader downloader;
   private final ProjectListDownloader projectListDownloader;
   private final IssueStorePaths issueStorePaths;
   private final TempFolder tempFolder;
   private final StoragePaths storagePaths;
+  private final StorageSwap storageSwap;
 
   public PartialUpdater(IssueStoreFactory issueStoreFactory, IssueDownloader downloader,
-    StoragePaths storagePaths, ProjectListDownloader projectListDownloader, IssueStorePaths issueStorePaths, TempFolder tempFolder) {
+    StoragePaths storagePaths, ProjectListDownloader projectListDownloader, IssueStorePaths issueStorePaths, TempFolder tempFolder,
+    StorageSwap storageSwap) {
     this.issueStoreFactory = issueStoreFactory;
     this.downloader = downloader;
     this.storagePaths = storagePaths;
     this.projectListDownloader = projectListDownloader;
     this.issueStorePaths = issueStorePaths;
     this.tempFolder = tempFolder;
+    this.storageSwap = storageSwap;
   }
 
   public void updateFileIssues(ProjectBinding projectBinding, Sonarlint.ProjectConfiguration projectConfiguration, String ideFilePath) {
     Path serverIssuesPath = storagePaths.getServerIssuesPath(projectBinding.projectKey());
-    IssueStore issueStore = issueStoreFactory.apply(serverIssuesPath);
     String fileKey = issueStorePaths.idePathToFileKey(projectConfiguration, projectBinding, ideFilePath);
     if (fileKey == null) {
       return;
@@ -71,19 +90,120 @@ public class PartialUpdater {
     List<Sonarlint.ServerIssue> storageIssues = issues.stream()
       .map(issue -> issueStorePaths.toStorageIssue(issue, projectConfiguration))
       .collect(Collectors.toList());
-    issueStore.save(storageIssues);
+    storageSwap.swap(() -> {
+      try (IssueStore issueStore = issueStoreFactory.apply(serverIssuesPath)) {
+        issueStore.save(storageIssues);
+      }
+    });
+  }
+
+  /**
+   * Update the issues of several files in one go. Files of a module are downloaded together when enough of them are requested,
+   * otherwise one by one, with a bounded number of concurrent requests. Downloads are streamed, and only the issues of the requested
+   * files are kept. Issues are stored once all downloads succeeded.
+   */
+  public void updateFileIssues(ProjectBinding projectBinding, Sonarlint.ProjectConfiguration projectConfiguration, Collection<String> ideFilePaths) {
+    Map<String, String> sqPathByFileKey = new LinkedHashMap<>();
+    Map<String, String> moduleKeyByFileKey = new LinkedHashMap<>();
+    for (String ideFilePath : ideFilePaths) {
+      String fileKey = issueStorePaths.idePathToFileKey(projectConfiguration, projectBinding, ideFilePath);
+      if (fileKey != null) {
+        String sqPath = issueStorePaths.idePathToSqPath(projectBinding, ideFilePath);
+        sqPathByFileKey.put(fileKey, sqPath);
+        moduleKeyByFileKey.put(fileKey, issueStorePaths.sqPathToModuleKey(projectConfiguration, projectBinding.projectKey(), sqPath));
+      }
+    }
+    if (sqPathByFileKey.isEmpty()) {
+      return;
+    }
+
+    Map<String, List<Sonarlint.ServerIssue>> issuesBySqPath = new LinkedHashMap<>();
+    // filled concurrently by the downloads
+    sqPathByFileKey.values().forEach(sqPath -> issuesBySqPath.put(sqPath, Collections.synchronizedList(new ArrayList<>())));
+    downloadAll(componentKeysToDownload(moduleKeyByFileKey), issue -> {
+      Sonarlint.ServerIssue storageIssue = issueStorePaths.toStorageIssue(issue, projectConfiguration);
+      List<Sonarlint.ServerIssue> fileIssues = issuesBySqPath.get(storageIssue.getPath());
+      // issues of a whole module also contain files that were not requested, they are dropped as they are parsed
+      if (fileIssues != null) {
+        fileIssues.add(storageIssue);
+      }
+    });
+
+    Path serverIssuesPath = storagePaths.getServerIssuesPath(projectBinding.projectKey());
+    storageSwap.swap(() -> {
+      try (IssueStore issueStore = issueStoreFactory.apply(serverIssuesPath)) {
+        issuesBySqPath.forEach((sqPath, fileIssues) -> {
+          if (fileIssues.isEmpty()) {
+            issueStore.delete(sqPath);
+          } else {
+            issueStore.save(fileIssues);
+          }
+        });
+      }
+    });
+  }
+
+  private static Collection<String> componentKeysToDownload(Map<String, String> moduleKeyByFileKey) {
+    Map<String, List<String>> fileKeysByModule = moduleKeyByFileKey.keySet().stream()
+      .collect(Collectors.groupingBy(moduleKeyByFileKey::get, LinkedHashMap::new, Collectors.toList()));
+    List<String> componentKeys = new ArrayList<>();
+    fileKeysByModule.forEach((moduleKey, moduleFileKeys) -> {
+      if (moduleFileKeys.size() >= MODULE_DOWNLOAD_THRESHOLD) {
+        componentKeys.add(moduleKey);
+      } else {
+        componentKeys.addAll(moduleFileKeys);
+      }
+    });
+    return componentKeys;
+  }
+
+  private void downloadAll(Collection<String> componentKeys, Consumer<ServerIssue> consumer) {
+    if (componentKeys.size() == 1) {
+      download(componentKeys.iterator().next(), consumer);
+      return;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(componentKeys.size(), MAX_CONCURRENT_DOWNLOADS));
+    try {
+      List<Future<?>> futures = componentKeys.stream()
+        .map(key -> executor.submit(() -> download(key, consumer)))
+        .collect(Collectors.toList());
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DownloadException("Interrupted while updating file issues", null);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof DownloadException) {
+        throw (DownloadException) e.getCause();
+      }
+      throw new DownloadException("Failed to update file issues: " + e.getCause().getMessage(), null);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void download(String componentKey, Consumer<ServerIssue> consumer) {
+    try {
+      downloader.download(componentKey, new ProgressWrapper(null), consumer);
+    } catch (Exception e) {
+      // null as cause so that it doesn't get wrapped
+      throw new DownloadException("Failed to update file issues: " + e.getMessage(), null);
+    }
   }
 
   public void updateFileIssues(String projectKey, Sonarlint.ProjectConfiguration projectConfiguration) {
-    new ServerIssueUpdater(storagePaths, downloader, issueStoreFactory, issueStorePaths, tempFolder).update(projectKey, projectConfiguration);
+    new ServerIssueUpdater(storagePaths, downloader, issueStoreFactory, issueStorePaths, tempFolder, storageSwap).update(projectKey, projectConfiguration);
   }
 
   public void updateProjectList(ProgressWrapper progress) {
+    Path work = tempFolder.newDir().toPath();
     try {
-      projectListDownloader.fetchTo(storagePaths.getGlobalStorageRoot(), progress);
+      projectListDownloader.fetchTo(work, progress);
     } catch (Exception e) {
       // null as cause so that it doesn't get wrapped
       throw new DownloadException("Failed to update module list: " + e.getMessage(), null);
     }
+    storageSwap.replaceFile(work.resolve(StoragePaths.PROJECT_LIST_PB), storagePaths.getGlobalStorageRoot().resolve(StoragePaths.PROJECT_LIST_PB));
   }
 }
@@ -28,16 +28,19 @@ import org.sonarsource.sonarlint.core.container.connected.update.IssueDownloader
 import org.sonarsource.sonarlint.core.container.connected.update.IssueStorePaths;
 import org.sonarsource.sonarlint.core.container.connected.update.ProjectListDownloader;
 import org.sonarsource.sonarlint.core.container.storage.StoragePaths;
+import org.sonarsource.sonarlint.core.container.storage.StorageSwap;
 
 public class PartialUpdaterFactory {
   private final StoragePaths storagePaths;
   private final IssueStorePaths issueStorePaths;
   private final TempFolder tempFolder;
+  private final StorageSwap storageSwap;
 
-  public PartialUpdaterFactory(StoragePaths storagePaths, IssueStorePaths issueStorePaths, TempFolder tempFolder) {
+  public PartialUpdaterFactory(StoragePaths storagePaths, IssueStorePaths issueStorePaths, TempFolder tempFolder, StorageSwap storageSwap) {
     this.storagePaths = storagePaths;
     this.issueStorePaths = issueStorePaths;
     this.tempFolder = tempFolder;
+    this.storageSwap = storageSwap;
   }
 
   public PartialUpdater create(ServerConfiguration serverConfig) {
@@ -46,6 +49,6 @@ public class PartialUpdaterFactory {
     IssueDownloader downloader = new IssueDownloaderImpl(client);
     ProjectListDownloader projectListDownloader = new ProjectListDownloader(client);
     return new PartialUpdater(issueStoreFactory, downloader, storagePaths, projectListDownloader,
-      issueStorePaths, tempFolder);
+      issueStorePaths, tempFolder, storageSwap);
   }
 }
@@ -21,6 +21,7 @@ package org.sonarsource.sonarlint.core.log;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonarsource.sonarlint.core.client.api.common.LogOutput;
 import org.sonarsource.sonarlint.core.client.api.common.LogOutput.Level;
@@ -47,4 +48,12 @@ public class LogOutputDelegator {
   public void setTarget(@Nullable LogOutput target) {
     this.target.set(target);
   }
+
+  /**
+   * The target is per thread (and inherited by the threads it creates), so that concurrent analyses log to their own output.
+   */
+  @CheckForNull
+  public LogOutput getTarget() {
+    return target.get();
+  }
 }
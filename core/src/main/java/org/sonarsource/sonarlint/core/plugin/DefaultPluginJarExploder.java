@@ -24,6 +24,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.channels.FileLock;
 import java.nio.file.Path;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
 import org.apache.commons.io.FileUtils;
 import org.sonar.api.utils.ZipUtils;
 import org.sonarsource.api.sonarlint.SonarLintSide;
@@ -41,24 +43,27 @@ public class DefaultPluginJarExploder extends PluginJarExploder {
   @Override
   public ExplodedPlugin explode(PluginInfo info) {
     try {
-      File dir = unzipFile(info.getNonNullJarFile());
+      File dir = unzipFile(info.getNonNullJarFile(), "_unzip", newLibFilter());
       return explodeFromUnzippedDir(info.getKey(), info.getNonNullJarFile(), dir);
     } catch (Exception e) {
       throw new IllegalStateException(String.format("Fail to open plugin [%s]: %s", info.getKey(), info.getNonNullJarFile().getAbsolutePath()), e);
     }
   }
 
-  private File unzipFile(File cachedFile) throws IOException {
+  /**
+   * Extract the entries of a cached jar to a directory beside it, unless it already exists.
+   */
+  File unzipFile(File cachedFile, String dirSuffix, Predicate<ZipEntry> filter) throws IOException {
     String filename = cachedFile.getName();
-    File destDir = new File(cachedFile.getParentFile(), filename + "_unzip");
+    File destDir = new File(cachedFile.getParentFile(), filename + dirSuffix);
     if (!destDir.exists()) {
-      File lockFile = new File(cachedFile.getParentFile(), filename + "_unzip.lock");
+      File lockFile = new File(cachedFile.getParentFile(), filename + dirSuffix + ".lock");
       FileOutputStream out = new FileOutputStream(lockFile);
       try (FileLock lock = out.getChannel().lock()) {
         // Recheck in case of concurrent processes
         if (!destDir.exists()) {
           Path tempDir = fileCache.createTempDir();
-          ZipUtils.unzip(cachedFile, tempDir.toFile(), newLibFilter());
+          ZipUtils.unzip(cachedFile, tempDir.toFile(), filter);
           FileUtils.moveDirectory(tempDir.toFile(), destDir);
         }
       } finally {
@@ -20,18 +20,29 @@
 package org.sonarsource.sonarlint.core.plugin;
 
 import java.io.File;
+import java.net.URL;
 import java.util.Collection;
+import java.util.Collections;
 
 public class ExplodedPlugin {
 
   private final String key;
   private final File main;
   private final Collection<File> libs;
+  private final Collection<URL> nestedLibs;
 
   public ExplodedPlugin(String key, File main, Collection<File> libs) {
+    this(key, main, libs, Collections.emptyList());
+  }
+
+  /**
+   * @param nestedLibs URLs of the libraries that are read from the plugin jar without being extracted
+   */
+  public ExplodedPlugin(String key, File main, Collection<File> libs, Collection<URL> nestedLibs) {
     this.key = key;
     this.main = main;
     this.libs = libs;
+    this.nestedLibs = nestedLibs;
   }
 
   public String getKey() {
@@ -45,4 +56,8 @@ public class ExplodedPlugin {
   public Collection<File> getLibs() {
     return libs;
   }
+
+  public Collection<URL> getNestedLibs() {
+    return nestedLibs;
+  }
 }
@@ -0,0 +1,233 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonarsource.api.sonarlint.SonarLintSide;
+import org.sonarsource.sonarlint.core.client.api.common.AbstractGlobalConfiguration;
+import org.sonarsource.sonarlint.core.plugin.cache.PluginCache;
+
+/**
+ * Optionally loads the plugins from the jars of the plugin cache as they are, when the extra property {@link #IN_PLACE_PROPERTY}
+ * is "true". Otherwise, and for the plugins whose jar can't be indexed, the libraries are extracted by {@link DefaultPluginJarExploder}.
+ * <p>
+ * In place, the libraries bundled in META-INF/lib without compression are read from a memory mapping of the plugin jar, and served
+ * to the plugin classloader through URLs handled by {@link NestedJarHandler}. The compressed libraries are extracted beside the jar,
+ * like all the libraries are by default, rather than being held inflated in memory.
+ * <p>
+ * The libraries served from the mapping have "sonarlint-nested:" URLs: code that expects the location of its {@link java.security.CodeSource}
+ * to be a file, or its resources to have "jar:" URLs, doesn't work with them, and their packages don't get the attributes of
+ * the manifest (such as Implementation-Version).
+ * <p>
+ * The mappings are released when this component is stopped, after the plugin classloaders are closed by {@link PluginRepository}.
+ */
+@SonarLintSide
+public class NestedJarPluginExploder extends PluginJarExploder {
+
+  private static final Logger LOG = Loggers.get(NestedJarPluginExploder.class);
+
+  static final String IN_PLACE_PROPERTY = "sonarlint.plugins.loadInPlace";
+  private static final String PROTOCOL = "sonarlint-nested";
+  private static final String SEPARATOR = "!/";
+  private static final String DEFLATED_LIBS_DIR_SUFFIX = "_deflated_libs";
+
+  private final DefaultPluginJarExploder defaultExploder;
+  private final boolean inPlace;
+  private final List<ZipIndex> mappedJars = new CopyOnWriteArrayList<>();
+
+  public NestedJarPluginExploder(PluginCache fileCache, AbstractGlobalConfiguration globalConfiguration) {
+    this.defaultExploder = new DefaultPluginJarExploder(fileCache);
+    this.inPlace = Boolean.parseBoolean(globalConfiguration.extraProperties().get(IN_PLACE_PROPERTY));
+  }
+
+  @Override
+  public ExplodedPlugin explode(PluginInfo info) {
+    if (!inPlace) {
+      return defaultExploder.explode(info);
+    }
+    File jarFile = info.getNonNullJarFile();
+    try {
+      return explodeInPlace(info.getKey(), jarFile);
+    } catch (ZipException e) {
+      LOG.debug("Unable to read the libraries of plugin '{}' in place, extracting them: {}", info.getKey(), e.getMessage());
+      return defaultExploder.explode(info);
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to open plugin [%s]: %s", info.getKey(), jarFile.getAbsolutePath()), e);
+    }
+  }
+
+  public void stop() {
+    for (ZipIndex jar : mappedJars) {
+      jar.close();
+    }
+    mappedJars.clear();
+  }
+
+  private ExplodedPlugin explodeInPlace(String pluginKey, File jarFile) throws IOException {
+    ZipIndex jar = ZipIndex.map(jarFile.toPath());
+    String jarPath = "/" + jarFile.getAbsolutePath().replace('\\', '/');
+    List<URL> nestedLibs = new ArrayList<>();
+    boolean hasDeflatedLibs = false;
+    try {
+      for (ZipIndex.Entry entry : jar.entries()) {
+        if (!isLib(entry.name())) {
+          continue;
+        }
+        if (entry.method() == ZipIndex.STORED) {
+          nestedLibs.add(new NestedJarHandler(jar.nested(entry), jarPath + SEPARATOR + entry.name() + SEPARATOR).baseUrl());
+        } else {
+          hasDeflatedLibs = true;
+        }
+      }
+    } catch (IOException e) {
+      jar.close();
+      throw e;
+    }
+    if (nestedLibs.isEmpty()) {
+      jar.close();
+    } else {
+      mappedJars.add(jar);
+    }
+    Collection<File> libs = Collections.emptyList();
+    if (hasDeflatedLibs) {
+      File dir = defaultExploder.unzipFile(jarFile, DEFLATED_LIBS_DIR_SUFFIX, ze -> isLib(ze.getName()) && ze.getMethod() != ZipEntry.STORED);
+      libs = explodeFromUnzippedDir(pluginKey, jarFile, dir).getLibs();
+    }
+    return new ExplodedPlugin(pluginKey, jarFile, libs, nestedLibs);
+  }
+
+  private static boolean isLib(String entryName) {
+    // same as the files listed after extraction: the jars directly in the lib directory
+    return entryName.startsWith(LIB_RELATIVE_PATH_IN_JAR + "/") && entryName.endsWith(".jar")
+      && entryName.indexOf('/', LIB_RELATIVE_PATH_IN_JAR.length() + 1) < 0;
+  }
+
+  /**
+   * Serves the entries of a nested jar. The base URL is a "directory", so that {@link java.net.URLClassLoader} resolves each
+   * resource against it and opens it through this handler, instead of opening the base URL as a jar file.
+   */
+  static class NestedJarHandler extends URLStreamHandler {
+    private final ZipIndex jar;
+    private final String basePath;
+
+    NestedJarHandler(ZipIndex jar, String basePath) {
+      this.jar = jar;
+      this.basePath = basePath;
+    }
+
+    URL baseUrl() throws MalformedURLException {
+      return new URL(PROTOCOL, null, -1, basePath, this);
+    }
+
+    @Override
+    protected URLConnection openConnection(URL url) throws IOException {
+      String path = url.getPath();
+      if (!path.startsWith(basePath)) {
+        throw new FileNotFoundException(url.toString());
+      }
+      String name = path.substring(basePath.length());
+      if (name.indexOf('%') >= 0) {
+        // the classloader escapes resource names
+        name = URI.create(name).getPath();
+      }
+      ZipIndex.Entry entry = jar.get(name);
+      if (entry == null) {
+        throw new FileNotFoundException(url.toString());
+      }
+      return new EntryConnection(url, jar, entry);
+    }
+  }
+
+  private static class EntryConnection extends URLConnection {
+    private final ZipIndex jar;
+    private final ZipIndex.Entry entry;
+
+    EntryConnection(URL url, ZipIndex jar, ZipIndex.Entry entry) {
+      super(url);
+      this.jar = jar;
+      this.entry = entry;
+    }
+
+    @Override
+    public void connect() {
+      connected = true;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+      return entry.size();
+    }
+
+    @Override
+    public int getContentLength() {
+      return entry.size();
+    }
+
+    /**
+     * The classloader opens resources once to check that they exist: the content is only read when the stream is.
+     */
+    @Override
+    public InputStream getInputStream() {
+      return new InputStream() {
+        private InputStream content;
+
+        private InputStream content() throws IOException {
+          if (content == null) {
+            content = new ByteArrayInputStream(jar.read(entry));
+          }
+          return content;
+        }
+
+        @Override
+        public int read() throws IOException {
+          return content().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+          return content().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+          return content == null ? entry.size() : content.available();
+        }
+      };
+    }
+  }
+}
@@ -21,9 +21,11 @@ package org.sonarsource.sonarlint.core.plugin;
 
 import com.google.common.base.Preconditions;
 import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -37,8 +39,9 @@ import static org.apache.commons.lang.StringUtils.isNotEmpty;
 class PluginClassLoaderDef {
 
   private final String basePluginKey;
-  private final Map<String, String> mainClassesByPluginKey = new HashMap<>();
+  private final Map<String, String> mainClassesByPluginKey = new LinkedHashMap<>();
   private final List<File> files = new ArrayList<>();
+  private final List<URL> urls = new ArrayList<>();
   private final Mask mask = new Mask();
   private boolean selfFirstStrategy = false;
 
@@ -57,6 +60,23 @@ class PluginClassLoaderDef {
 
   void addFiles(Collection<File> f) {
     this.files.addAll(f);
+    for (File file : f) {
+      this.urls.add(fileToUrl(file));
+    }
+  }
+
+  /**
+   * Add classpath entries that are not files, in the same order as files
+   */
+  void addUrls(Collection<URL> u) {
+    this.urls.addAll(u);
+  }
+
+  /**
+   * @return the classpath, files included
+   */
+  List<URL> getUrls() {
+    return urls;
   }
 
   Mask getExportMask() {
@@ -81,6 +101,14 @@ class PluginClassLoaderDef {
     }
   }
 
+  private static URL fileToUrl(File file) {
+    try {
+      return file.toURI().toURL();
+    } catch (MalformedURLException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
   @Override
   public boolean equals(@Nullable Object o) {
     if (this == o) {
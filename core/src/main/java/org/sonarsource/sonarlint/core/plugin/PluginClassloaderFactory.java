@@ -19,11 +19,9 @@
  */
 package org.sonarsource.sonarlint.core.plugin;
 
-import java.io.File;
-import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import org.sonar.classloader.ClassloaderBuilder;
 import org.sonar.classloader.Mask;
@@ -62,8 +60,8 @@ public class PluginClassloaderFactory {
       builder.newClassloader(def.getBasePluginKey());
       builder.setParent(def.getBasePluginKey(), API_CLASSLOADER_KEY, new Mask());
       builder.setLoadingOrder(def.getBasePluginKey(), def.isSelfFirstStrategy() ? SELF_FIRST : PARENT_FIRST);
-      for (File jar : def.getFiles()) {
-        builder.addURL(def.getBasePluginKey(), fileToUrl(jar));
+      for (URL url : def.getUrls()) {
+        builder.addURL(def.getBasePluginKey(), url);
       }
       exportResources(def, builder, defs);
     }
@@ -88,7 +86,7 @@ public class PluginClassloaderFactory {
    * Builds classloaders and verifies that all of them are correctly defined
    */
   private static Map<PluginClassLoaderDef, ClassLoader> build(Collection<PluginClassLoaderDef> defs, ClassloaderBuilder builder) {
-    Map<PluginClassLoaderDef, ClassLoader> result = new HashMap<>();
+    Map<PluginClassLoaderDef, ClassLoader> result = new LinkedHashMap<>();
     Map<String, ClassLoader> classloadersByBasePluginKey = builder.build();
     for (PluginClassLoaderDef def : defs) {
       ClassLoader classloader = classloadersByBasePluginKey.get(def.getBasePluginKey());
@@ -104,14 +102,6 @@ public class PluginClassloaderFactory {
     return getClass().getClassLoader();
   }
 
-  private static URL fileToUrl(File file) {
-    try {
-      return file.toURI().toURL();
-    } catch (MalformedURLException e) {
-      throw new IllegalArgumentException(e);
-    }
-  }
-
   /**
    * The resources (packages) that API exposes to plugins. Other core classes (SonarQube, MyBatis, ...)
    * can't be accessed.
@@ -19,8 +19,10 @@
  */
 package org.sonarsource.sonarlint.core.plugin;
 
+import java.io.IOException;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -40,6 +42,7 @@ import org.sonarsource.sonarlint.core.container.connected.validate.PluginVersion
 import org.sonarsource.sonarlint.core.plugin.PluginIndex.PluginReference;
 import org.sonarsource.sonarlint.core.plugin.PluginInfo.RequiredPlugin;
 import org.sonarsource.sonarlint.core.plugin.cache.PluginCache;
+import org.sonarsource.sonarlint.core.plugin.cache.PluginMetadataCache;
 
 public class PluginInfosLoader {
 
@@ -50,32 +53,38 @@ public class PluginInfosLoader {
   private static final Logger LOG = Loggers.get(PluginInfosLoader.class);
 
   private final PluginCache pluginCache;
+  private final PluginMetadataCache pluginMetadataCache;
   private final PluginIndex pluginIndex;
   private final PluginVersionChecker pluginVersionChecker;
   private final System2 system2;
   private final AbstractGlobalConfiguration globalConfiguration;
+  private final PluginTasks tasks;
 
-  public PluginInfosLoader(PluginVersionChecker pluginVersionChecker, PluginCache pluginCache, PluginIndex pluginIndex, AbstractGlobalConfiguration globalConfiguration,
-    System2 system2) {
+  public PluginInfosLoader(PluginVersionChecker pluginVersionChecker, PluginCache pluginCache, PluginMetadataCache pluginMetadataCache, PluginIndex pluginIndex,
+    AbstractGlobalConfiguration globalConfiguration, System2 system2) {
     this.pluginVersionChecker = pluginVersionChecker;
     this.pluginCache = pluginCache;
+    this.pluginMetadataCache = pluginMetadataCache;
     this.pluginIndex = pluginIndex;
     this.globalConfiguration = globalConfiguration;
     this.system2 = system2;
+    this.tasks = PluginTasks.create(globalConfiguration);
   }
 
   public Map<String, PluginInfo> load() {
     return loadPlugins(pluginIndex.references());
   }
 
+  /**
+   * The manifests are read concurrently, then the plugins are checked in the order of the references.
+   */
   private Map<String, PluginInfo> loadPlugins(List<PluginReference> pluginReferences) {
-    Map<String, PluginInfo> infosByKey = new HashMap<>();
+    Map<String, PluginInfo> infosByKey = new LinkedHashMap<>();
 
     Profiler profiler = Profiler.create(LOG).startDebug("Load plugins");
 
-    for (PluginReference ref : pluginReferences) {
-      Path jarFilePath = getFromCache(ref);
-      PluginInfo info = PluginInfo.create(jarFilePath);
+    List<PluginInfo> infos = tasks.map(pluginReferences, ref -> createPluginInfo(getFromCache(ref)));
+    for (PluginInfo info : infos) {
       Boolean sonarLintSupported = info.isSonarLintSupported();
       if (sonarLintSupported == null || !sonarLintSupported.booleanValue()) {
         LOG.debug("Plugin '{}' is not compatible with SonarLint. Skip loading it.", info.getName());
@@ -84,16 +93,24 @@ public class PluginInfosLoader {
       checkIfSkippedAndPopulateReason(info);
       infosByKey.put(info.getKey(), info);
     }
+    Set<String> checked = new HashSet<>();
     for (PluginInfo info : infosByKey.values()) {
-      if (!info.isSkipped()) {
-        checkUnsatisfiedPluginDependency(info, infosByKey);
-      }
+      checkDependencies(info, infosByKey, checked);
     }
 
+    pluginMetadataCache.save();
     profiler.stopDebug();
     return infosByKey;
   }
 
+  private PluginInfo createPluginInfo(Path jarFilePath) {
+    try {
+      return PluginInfo.create(jarFilePath, pluginMetadataCache.manifest(jarFilePath));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to extract plugin metadata from file: " + jarFilePath, e);
+    }
+  }
+
   private void checkIfSkippedAndPopulateReason(PluginInfo info) {
     String pluginKey = info.getKey();
     Set<Language> languages = Language.getLanguagesByPluginKey(pluginKey);
@@ -142,6 +159,29 @@ public class PluginInfosLoader {
     }
   }
 
+  /**
+   * Check the plugins a plugin depends on before the plugin itself, so that a plugin depending on a skipped plugin is skipped,
+   * and so on transitively.
+   */
+  private static void checkDependencies(PluginInfo info, Map<String, PluginInfo> infosByKey, Set<String> checked) {
+    if (!checked.add(info.getKey())) {
+      return;
+    }
+    for (RequiredPlugin required : info.getRequiredPlugins()) {
+      PluginInfo depInfo = infosByKey.get(required.getKey());
+      if (depInfo != null) {
+        checkDependencies(depInfo, infosByKey, checked);
+      }
+    }
+    PluginInfo baseInfo = info.getBasePlugin() != null ? infosByKey.get(info.getBasePlugin()) : null;
+    if (baseInfo != null) {
+      checkDependencies(baseInfo, infosByKey, checked);
+    }
+    if (!info.isSkipped()) {
+      checkUnsatisfiedPluginDependency(info, infosByKey);
+    }
+  }
+
   private static void checkUnsatisfiedPluginDependency(PluginInfo info, Map<String, PluginInfo> infosByKey) {
     for (RequiredPlugin required : info.getRequiredPlugins()) {
       if ("license".equals(required.getKey())) {
@@ -155,11 +195,6 @@ public class PluginInfosLoader {
         continue;
       }
       PluginInfo depInfo = infosByKey.get(required.getKey());
-      // We could possibly have a problem with transitive dependencies, since we evaluate in no specific order.
-      // A -> B -> C
-      // If C is skipped, then B should be skipped, then A should be skipped
-      // If we evaluate A before B, then A might be wrongly included
-      // But I'm not aware of such case in real life.
       if (depInfo == null || depInfo.isSkipped()) {
         LOG.debug("Plugin '{}' dependency on '{}' is unsatisfied. Skip loading it.", info.getName(), required.getKey());
         info.setSkipReason(new SkipReason.UnsatisfiedDependency(required.getKey()));
@@ -20,20 +20,28 @@
 package org.sonarsource.sonarlint.core.plugin;
 
 import com.google.common.base.Strings;
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.CheckForNull;
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.SystemUtils;
 import org.sonar.api.Plugin;
-import org.sonar.api.utils.TempFolder;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonarsource.sonarlint.core.client.api.common.AbstractGlobalConfiguration;
+import org.sonarsource.sonarlint.core.plugin.cache.PluginCache;
+import org.sonarsource.sonarlint.core.plugin.cache.PluginHashes;
 
 import static org.apache.commons.lang.StringUtils.isNotEmpty;
 
@@ -49,6 +57,11 @@ import static org.apache.commons.lang.StringUtils.isNotEmpty;
  * Plugins have their own isolated classloader, inheriting only from API classes.
  * Some plugins can extend a "base" plugin, sharing the same classloader.
  * </p>
+ * <p>
+ * The jars of the plugins are prepared concurrently, see {@link PluginTasks}. The entry points are then instantiated in the
+ * calling thread, since the classloaders of the plugins delegate to each other: loading classes in several of them at the
+ * same time could deadlock. Base plugins always come before the plugins extending them, and the time spent on each plugin is logged.
+ * </p>
  * This class is stateless. It does not keep pointers to classloaders and {@link org.sonar.api.Plugin}.
  */
 public class PluginInstancesLoader {
@@ -60,12 +73,19 @@ public class PluginInstancesLoader {
 
   private final PluginJarExploder jarExploder;
   private final PluginClassloaderFactory classloaderFactory;
-  private final TempFolder tempFolder;
+  private final PluginCache pluginCache;
+  private final PluginTasks tasks;
 
-  public PluginInstancesLoader(PluginJarExploder jarExploder, PluginClassloaderFactory classloaderFactory, TempFolder tempFolder) {
+  public PluginInstancesLoader(PluginJarExploder jarExploder, PluginClassloaderFactory classloaderFactory, PluginCache pluginCache,
+    AbstractGlobalConfiguration globalConfiguration) {
+    this(jarExploder, classloaderFactory, pluginCache, PluginTasks.create(globalConfiguration));
+  }
+
+  PluginInstancesLoader(PluginJarExploder jarExploder, PluginClassloaderFactory classloaderFactory, PluginCache pluginCache, PluginTasks tasks) {
     this.jarExploder = jarExploder;
     this.classloaderFactory = classloaderFactory;
-    this.tempFolder = tempFolder;
+    this.pluginCache = pluginCache;
+    this.tasks = tasks;
   }
 
   public Map<String, Plugin> load(Map<String, PluginInfo> infoByKeys) {
@@ -80,22 +100,25 @@ public class PluginInstancesLoader {
    * different than number of plugins.
    */
   Collection<PluginClassLoaderDef> defineClassloaders(Map<String, PluginInfo> infoByKeys, File slf4jAdapter) {
-    Map<String, PluginClassLoaderDef> classloadersByBasePlugin = new HashMap<>();
+    Map<String, PluginClassLoaderDef> classloadersByBasePlugin = new LinkedHashMap<>();
 
+    List<PluginInfo> plugins = new ArrayList<>();
     for (PluginInfo info : infoByKeys.values()) {
-      String baseKey = basePluginKey(info, infoByKeys);
-      if (baseKey == null) {
-        continue;
-      }
-      PluginClassLoaderDef def = classloadersByBasePlugin.get(baseKey);
-      if (def == null) {
-        def = new PluginClassLoaderDef(baseKey);
-        classloadersByBasePlugin.put(baseKey, def);
+      if (basePluginKey(info, infoByKeys) != null) {
+        plugins.add(info);
       }
-      ExplodedPlugin explodedPlugin = jarExploder.explode(info);
+    }
+    plugins.sort(Comparator.<PluginInfo>comparingInt(info -> depth(info, infoByKeys)).thenComparing(PluginInfo::getKey));
+    List<ExplodedPlugin> explodedPlugins = tasks.map(plugins, this::explode);
+
+    for (int i = 0; i < plugins.size(); i++) {
+      PluginInfo info = plugins.get(i);
+      PluginClassLoaderDef def = classloadersByBasePlugin.computeIfAbsent(basePluginKey(info, infoByKeys), PluginClassLoaderDef::new);
+      ExplodedPlugin explodedPlugin = explodedPlugins.get(i);
       def.addFiles(Collections.singletonList(slf4jAdapter));
       def.addFiles(Collections.singletonList(explodedPlugin.getMain()));
       def.addFiles(explodedPlugin.getLibs());
+      def.addUrls(explodedPlugin.getNestedLibs());
       def.addMainClass(info.getKey(), info.getMainClass());
 
       for (String defaultSharedResource : DEFAULT_SHARED_RESOURCES) {
@@ -111,12 +134,39 @@ public class PluginInstancesLoader {
     return classloadersByBasePlugin.values();
   }
 
-  private File extractSlf4jAdapterJar() {
-    InputStream jarInputStream = PluginInstancesLoader.class.getResourceAsStream("/" + SLF4J_ADAPTER_JAR_NAME + ".jar");
-    try {
-      File extractedJar = tempFolder.newFile(SLF4J_ADAPTER_JAR_NAME, ".jar");
-      FileUtils.copyInputStreamToFile(jarInputStream, extractedJar);
-      return extractedJar;
+  private ExplodedPlugin explode(PluginInfo info) {
+    long start = System.nanoTime();
+    ExplodedPlugin explodedPlugin = jarExploder.explode(info);
+    LOG.debug("Prepared jar of plugin '{}' in {}ms", info.getKey(), elapsedMillis(start));
+    return explodedPlugin;
+  }
+
+  /**
+   * Number of base plugins above the plugin, so that base plugins are defined before the plugins extending them.
+   */
+  private static int depth(PluginInfo plugin, Map<String, PluginInfo> allPluginsPerKey) {
+    int depth = 0;
+    String parentKey = plugin.getBasePlugin();
+    while (isNotEmpty(parentKey)) {
+      depth++;
+      parentKey = allPluginsPerKey.get(parentKey).getBasePlugin();
+    }
+    return depth;
+  }
+
+  private static long elapsedMillis(long startNanos) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * The adapter is stored in the plugin cache under the hash of its content, so that all the engines of all the versions share
+   * the same copies, written once.
+   */
+  File extractSlf4jAdapterJar() {
+    try (InputStream jarInputStream = PluginInstancesLoader.class.getResourceAsStream("/" + SLF4J_ADAPTER_JAR_NAME + ".jar")) {
+      byte[] content = IOUtils.toByteArray(jarInputStream);
+      String hash = new PluginHashes().of(new ByteArrayInputStream(content));
+      return pluginCache.get(SLF4J_ADAPTER_JAR_NAME + ".jar", hash, (filename, toFile) -> Files.write(toFile, content)).toFile();
     } catch (Exception e) {
       throw new IllegalStateException("Failed to extract the jar '" + SLF4J_ADAPTER_JAR_NAME + ".jar'");
     }
@@ -130,7 +180,7 @@ public class PluginInstancesLoader {
    */
   Map<String, Plugin> instantiatePluginClasses(Map<PluginClassLoaderDef, ClassLoader> classloaders) {
     // instantiate plugins
-    Map<String, Plugin> instancesByPluginKey = new HashMap<>();
+    Map<String, Plugin> instancesByPluginKey = new LinkedHashMap<>();
     for (Map.Entry<PluginClassLoaderDef, ClassLoader> entry : classloaders.entrySet()) {
       PluginClassLoaderDef def = entry.getKey();
       ClassLoader classLoader = entry.getValue();
@@ -139,6 +189,7 @@ public class PluginInstancesLoader {
       for (Map.Entry<String, String> mainClassEntry : def.getMainClassesByPluginKey().entrySet()) {
         String pluginKey = mainClassEntry.getKey();
         String mainClass = mainClassEntry.getValue();
+        long start = System.nanoTime();
         try {
           instancesByPluginKey.put(pluginKey, (Plugin) classLoader.loadClass(mainClass).newInstance());
         } catch (UnsupportedClassVersionError e) {
@@ -148,6 +199,7 @@ public class PluginInstancesLoader {
           throw new IllegalStateException(String.format(
             "Fail to instantiate class [%s] of plugin [%s]", mainClass, pluginKey), e);
         }
+        LOG.debug("Instantiated plugin '{}' in {}ms", pluginKey, elapsedMillis(start));
       }
     }
     return instancesByPluginKey;
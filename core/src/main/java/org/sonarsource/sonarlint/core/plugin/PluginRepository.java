@@ -20,7 +20,7 @@
 package org.sonarsource.sonarlint.core.plugin;
 
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 import org.picocontainer.Startable;
@@ -51,10 +51,11 @@ public class PluginRepository implements Startable {
 
   @Override
   public void start() {
-    infosByKeys = new HashMap<>(pluginInfosLoader.load());
+    // keep the order of the loaders, so that plugins are always listed and installed in the same order
+    infosByKeys = new LinkedHashMap<>(pluginInfosLoader.load());
     Map<String, PluginInfo> nonSkippedPlugins = infosByKeys.entrySet().stream().filter(e -> !e.getValue().isSkipped())
-      .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-    pluginInstancesByKeys = new HashMap<>(pluginInstancesLoader.load(nonSkippedPlugins));
+      .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    pluginInstancesByKeys = new LinkedHashMap<>(pluginInstancesLoader.load(nonSkippedPlugins));
 
     logPlugins(nonSkippedPlugins);
   }
@@ -0,0 +1,120 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonarsource.sonarlint.core.client.api.common.AbstractGlobalConfiguration;
+
+/**
+ * Runs the steps of plugin loading that don't depend on other plugins (reading manifests, preparing jars) on a bounded pool of
+ * threads. Results are returned in the order of the input, so that loading stays deterministic whatever the order in which the
+ * tasks complete.
+ * <p>
+ * Up to {@value #DEFAULT_LOAD_PARALLELISM} tasks run concurrently (bounded by the number of processors), which can be changed with
+ * the {@value #LOAD_PARALLELISM_PROPERTY} global extra property. A value of 1 runs all the tasks in the calling thread.
+ */
+final class PluginTasks {
+
+  private static final Logger LOG = Loggers.get(PluginTasks.class);
+
+  static final String LOAD_PARALLELISM_PROPERTY = "sonarlint.plugins.loadParallelism";
+  static final int DEFAULT_LOAD_PARALLELISM = 4;
+
+  private final int parallelism;
+
+  PluginTasks(int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+  }
+
+  static PluginTasks create(AbstractGlobalConfiguration globalConfiguration) {
+    return new PluginTasks(parallelism(globalConfiguration.extraProperties().get(LOAD_PARALLELISM_PROPERTY)));
+  }
+
+  private static int parallelism(@Nullable String value) {
+    int defaultParallelism = Math.min(DEFAULT_LOAD_PARALLELISM, Runtime.getRuntime().availableProcessors());
+    if (value == null) {
+      return defaultParallelism;
+    }
+    try {
+      return Math.max(1, Integer.parseInt(value.trim()));
+    } catch (NumberFormatException e) {
+      LOG.warn("Invalid value for '{}': {}", LOAD_PARALLELISM_PROPERTY, value);
+      return defaultParallelism;
+    }
+  }
+
+  int parallelism() {
+    return parallelism;
+  }
+
+  /**
+   * @return the results of the task applied to each item, in the order of the items
+   * @throws RuntimeException the exception thrown by the task for the first failing item
+   */
+  <T, R> List<R> map(List<T> items, Function<T, R> task) {
+    List<R> results = new ArrayList<>(items.size());
+    if (parallelism == 1 || items.size() <= 1) {
+      for (T item : items) {
+        results.add(task.apply(item));
+      }
+      return results;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, items.size()));
+    try {
+      List<Future<R>> futures = new ArrayList<>(items.size());
+      for (T item : items) {
+        futures.add(executor.submit(() -> task.apply(item)));
+      }
+      for (Future<R> future : futures) {
+        results.add(await(future));
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static <R> R await(Future<R> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading plugins", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException("Fail to load plugins", cause);
+    }
+  }
+}
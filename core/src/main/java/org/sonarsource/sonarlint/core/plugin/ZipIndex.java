@@ -0,0 +1,297 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.plugin;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonarsource.sonarlint.core.util.MappedBuffers;
+
+/**
+ * Entries of a zip file held in a buffer (a memory mapping of a file, or bytes in memory), indexed from its central directory.
+ * The content of the entries is read straight from the buffer: this allows to read a jar nested in another jar without
+ * extracting it. Only the features used by jars are supported (no Zip64, no encryption, stored or deflated entries).
+ * <p>
+ * A mapped file stays mapped until the index is closed, which also closes the indexes of the jars nested in it.
+ */
+final class ZipIndex implements Closeable {
+
+  private static final Logger LOG = Loggers.get(ZipIndex.class);
+
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int CENTRAL_SIGNATURE = 0x02014b50;
+  private static final int LOCAL_SIGNATURE = 0x04034b50;
+  private static final int END_SIZE = 22;
+  private static final int CENTRAL_SIZE = 46;
+  private static final int LOCAL_SIZE = 30;
+  private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+  private static final long ZIP64_MARKER = 0xFFFFFFFFL;
+
+  static final int STORED = 0;
+  static final int DEFLATED = 8;
+
+  private final ByteBuffer buffer;
+  @Nullable
+  private final MappedByteBuffer mapping;
+  @Nullable
+  private final ZipIndex parent;
+  private final Map<String, Entry> entries = new LinkedHashMap<>();
+  private volatile boolean closed;
+
+  ZipIndex(ByteBuffer buffer) throws ZipException {
+    this(buffer, null, null);
+  }
+
+  private ZipIndex(ByteBuffer buffer, @Nullable MappedByteBuffer mapping, @Nullable ZipIndex parent) throws ZipException {
+    this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    this.mapping = mapping;
+    this.parent = parent;
+    int end = findEnd();
+    int count = u16(end + 10);
+    long offset = u32(end + 16);
+    if (count == 0xFFFF || offset == ZIP64_MARKER) {
+      throw new ZipException("Zip64 is not supported");
+    }
+    int position = (int) offset;
+    for (int i = 0; i < count; i++) {
+      checkBounds(position, CENTRAL_SIZE);
+      if (this.buffer.getInt(position) != CENTRAL_SIGNATURE) {
+        throw new ZipException("Invalid central directory entry at " + position);
+      }
+      long compressedSize = u32(position + 20);
+      long size = u32(position + 24);
+      int nameLength = u16(position + 28);
+      long localOffset = u32(position + 42);
+      if (compressedSize == ZIP64_MARKER || size == ZIP64_MARKER || localOffset == ZIP64_MARKER) {
+        throw new ZipException("Zip64 is not supported");
+      }
+      String name = string(position + CENTRAL_SIZE, nameLength);
+      entries.put(name, new Entry(name, u16(position + 10), (int) compressedSize, (int) size, (int) localOffset));
+      position += CENTRAL_SIZE + nameLength + u16(position + 30) + u16(position + 32);
+    }
+  }
+
+  /**
+   * Index a zip file through a memory mapping, that stays valid after the file is closed, until {@link #close()}.
+   */
+  static ZipIndex map(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new ZipException("Zip file too large: " + file);
+      }
+      MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      return new ZipIndex(mapping, mapping, null);
+    }
+  }
+
+  /**
+   * @return the index of a zip stored without compression in this one, read from the same buffer
+   */
+  ZipIndex nested(Entry entry) throws ZipException {
+    return new ZipIndex(slice(entry), null, this);
+  }
+
+  /**
+   * Release the mapping of the file, if any. Reading entries of this index, or of the indexes nested in it, fails afterwards.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (mapping != null) {
+      try {
+        MappedBuffers.unmap(mapping);
+      } catch (Exception e) {
+        // the mapping will be released by the garbage collector
+        LOG.debug("Unable to unmap zip file", e);
+      }
+    }
+  }
+
+  private boolean isClosed() {
+    return closed || (parent != null && parent.isClosed());
+  }
+
+  Collection<Entry> entries() {
+    return Collections.unmodifiableCollection(entries.values());
+  }
+
+  @CheckForNull
+  Entry get(String name) {
+    return entries.get(name);
+  }
+
+  /**
+   * @return a view on the content of an entry that is stored without compression
+   */
+  ByteBuffer slice(Entry entry) throws ZipException {
+    if (entry.method != STORED) {
+      throw new ZipException("Entry is compressed: " + entry.name);
+    }
+    return data(entry);
+  }
+
+  /**
+   * @return the uncompressed content of the entry
+   */
+  byte[] read(Entry entry) throws ZipException {
+    ByteBuffer data = data(entry);
+    byte[] compressed = new byte[entry.compressedSize];
+    data.get(compressed);
+    if (entry.method == STORED) {
+      return compressed;
+    }
+    if (entry.method != DEFLATED) {
+      throw new ZipException("Unsupported compression method " + entry.method + " for entry " + entry.name);
+    }
+    return inflate(entry, compressed);
+  }
+
+  private static byte[] inflate(Entry entry, byte[] compressed) throws ZipException {
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(compressed);
+      byte[] result = new byte[entry.size];
+      int length = 0;
+      boolean padded = false;
+      while (length < result.length && !inflater.finished()) {
+        int inflated = inflater.inflate(result, length, result.length - length);
+        if (inflated == 0 && inflater.needsInput()) {
+          if (padded) {
+            break;
+          }
+          // the raw inflater may need an extra byte to complete, see Inflater(boolean)
+          inflater.setInput(new byte[1]);
+          padded = true;
+        }
+        length += inflated;
+      }
+      if (length != result.length) {
+        throw new ZipException("Invalid size of entry " + entry.name);
+      }
+      return result;
+    } catch (DataFormatException e) {
+      throw new ZipException("Invalid compressed data for entry " + entry.name + ": " + e.getMessage());
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private ByteBuffer data(Entry entry) throws ZipException {
+    if (isClosed()) {
+      throw new ZipException("Zip file is closed");
+    }
+    int local = entry.localOffset;
+    checkBounds(local, LOCAL_SIZE);
+    if (buffer.getInt(local) != LOCAL_SIGNATURE) {
+      throw new ZipException("Invalid local header for entry " + entry.name);
+    }
+    int start = local + LOCAL_SIZE + u16(local + 26) + u16(local + 28);
+    checkBounds(start, entry.compressedSize);
+    ByteBuffer data = buffer.duplicate();
+    // through Buffer, whose methods don't return ByteBuffer before Java 9
+    ((Buffer) data).position(start);
+    ((Buffer) data).limit(start + entry.compressedSize);
+    return data.slice();
+  }
+
+  private int findEnd() throws ZipException {
+    int last = buffer.limit() - END_SIZE;
+    int first = Math.max(0, last - MAX_COMMENT_LENGTH);
+    for (int position = last; position >= first; position--) {
+      if (buffer.getInt(position) == END_SIGNATURE) {
+        return position;
+      }
+    }
+    throw new ZipException("Not a zip file");
+  }
+
+  private void checkBounds(int position, int length) throws ZipException {
+    if (position < 0 || length < 0 || position > buffer.limit() - length) {
+      throw new ZipException("Truncated zip file");
+    }
+  }
+
+  private int u16(int position) {
+    return buffer.getShort(position) & 0xFFFF;
+  }
+
+  private long u32(int position) {
+    return buffer.getInt(position) & ZIP64_MARKER;
+  }
+
+  private String string(int position, int length) throws ZipException {
+    checkBounds(position, length);
+    byte[] bytes = new byte[length];
+    ByteBuffer view = buffer.duplicate();
+    ((Buffer) view).position(position);
+    view.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  static final class Entry {
+    private final String name;
+    private final int method;
+    private final int compressedSize;
+    private final int size;
+    private final int localOffset;
+
+    private Entry(String name, int method, int compressedSize, int size, int localOffset) {
+      this.name = name;
+      this.method = method;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.localOffset = localOffset;
+    }
+
+    String name() {
+      return name;
+    }
+
+    int method() {
+      return method;
+    }
+
+    int size() {
+      return size;
+    }
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.plugin.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * File being downloaded to the cache, with the MD5 hash of the bytes written so far. A resumable download holds a lock on its file,
+ * so that a single download writes to it at a time. It is kept on disk when closed before being complete, to be resumed later.
+ */
+class PartialDownload implements Closeable {
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Path path;
+  private final FileChannel channel;
+  @Nullable
+  private final FileLock lock;
+  private final MessageDigest digest;
+  private final boolean resumable;
+  private boolean complete;
+  private boolean closed;
+
+  private PartialDownload(Path path, FileChannel channel, @Nullable FileLock lock, boolean resumable) {
+    this.path = path;
+    this.channel = channel;
+    this.lock = lock;
+    this.resumable = resumable;
+    try {
+      this.digest = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Fail to compute hash", e);
+    }
+  }
+
+  /**
+   * @return the download, starting after the bytes already written to the file, or null if the file is locked by another download
+   */
+  @CheckForNull
+  static PartialDownload resume(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    FileLock lock;
+    try {
+      lock = channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      // locked by this JVM
+      lock = null;
+    }
+    if (lock == null) {
+      channel.close();
+      return null;
+    }
+    PartialDownload download = new PartialDownload(path, channel, lock, true);
+    try {
+      download.digestWrittenBytes();
+    } catch (IOException e) {
+      download.close();
+      throw e;
+    }
+    return download;
+  }
+
+  /**
+   * @return a download that is not resumed, and whose file is deleted when not complete
+   */
+  static PartialDownload create(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    return new PartialDownload(path, channel, null, false);
+  }
+
+  Path path() {
+    return path;
+  }
+
+  long size() throws IOException {
+    return channel.position();
+  }
+
+  /**
+   * @param fromOffset true if the content follows the bytes already written, false if it is the whole file
+   */
+  void write(InputStream content, boolean fromOffset) throws IOException {
+    if (!fromOffset) {
+      channel.truncate(0);
+      channel.position(0);
+      digest.reset();
+    }
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int read;
+    while ((read = content.read(buffer)) != -1) {
+      ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+      digest.update(buffer, 0, read);
+    }
+  }
+
+  /**
+   * @return the hash of the bytes written so far
+   */
+  String hash() {
+    try {
+      return PluginHashes.toHex(((MessageDigest) digest.clone()).digest());
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException("Fail to compute hash", e);
+    }
+  }
+
+  void complete() {
+    complete = true;
+  }
+
+  /**
+   * The content is invalid, delete the file instead of resuming from it.
+   */
+  void discard() throws IOException {
+    close();
+    Files.deleteIfExists(path);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (lock != null) {
+        releaseLock();
+      }
+    } finally {
+      channel.close();
+    }
+    if (!complete && !resumable) {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  private void releaseLock() throws IOException {
+    try {
+      lock.release();
+    } catch (ClosedChannelException e) {
+      // the channel was closed by an interruption of the download, which released the lock
+    }
+  }
+
+  private void digestWrittenBytes() throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    channel.position(0);
+    while (channel.read(buffer) != -1) {
+      // through Buffer, whose methods don't return ByteBuffer before Java 9
+      ((Buffer) buffer).flip();
+      digest.update(buffer);
+      ((Buffer) buffer).clear();
+    }
+  }
+}
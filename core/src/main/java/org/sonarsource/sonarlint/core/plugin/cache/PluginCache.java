@@ -20,6 +20,7 @@
 package org.sonarsource.sonarlint.core.plugin.cache;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -36,6 +37,8 @@ import org.sonar.api.utils.log.Loggers;
 public class PluginCache {
 
   private static final Logger LOG = Loggers.get(PluginCache.class);
+  static final int MAX_DOWNLOAD_ATTEMPTS = 3;
+  static final String PART_FILE_SUFFIX = ".part";
 
   private final Path cacheDir;
   private final Path tmpDirInCacheDir;
@@ -95,6 +98,92 @@ public class PluginCache {
     return targetFile;
   }
 
+  /**
+   * Source of a file that is streamed to the cache, and that can be resumed from an offset.
+   */
+  @FunctionalInterface
+  public interface Downloader {
+    /**
+     * Give the content of the file to the consumer. If {@code offset} is positive, the content can start at this offset (for example
+     * using an HTTP range request), or at the beginning of the file if resuming is not possible.
+     */
+    void download(String filename, long offset, ContentConsumer consumer) throws IOException;
+  }
+
+  @FunctionalInterface
+  public interface ContentConsumer {
+    /**
+     * @param fromOffset true if the content starts at the requested offset, false if it starts at the beginning of the file
+     */
+    void accept(InputStream content, boolean fromOffset) throws IOException;
+  }
+
+  /**
+   * Same as {@link #get(String, String, Copier)}, but the hash is computed while the content is written to disk. The content is
+   * written to a partial file named after the hash: if the download is interrupted, it is resumed from the last written byte, either
+   * by retrying up to {@link #MAX_DOWNLOAD_ATTEMPTS} times or by the next download of the same file.
+   */
+  public Path get(String filename, String hash, Downloader downloader) {
+    Path hashDir = hashDir(hash);
+    Path targetFile = hashDir.resolve(filename);
+    if (Files.notExists(targetFile)) {
+      Path partialFile = tmpDirInCacheDir.resolve(hash + PART_FILE_SUFFIX);
+      Path downloadedFile;
+      try {
+        downloadedFile = download(downloader, filename, hash, partialFile, true);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to download " + filename + " to " + partialFile, e);
+      }
+      createDirIfNeeded(hashDir, "target directory in cache");
+      renameQuietly(downloadedFile, targetFile);
+    }
+    return targetFile;
+  }
+
+  /**
+   * @param canRestart true if the partial file can be discarded and the whole file downloaded again when resuming is rejected
+   * @return the downloaded file
+   */
+  private Path download(Downloader downloader, String filename, String hash, Path partialFile, boolean canRestart) throws IOException {
+    PartialDownload partial = PartialDownload.resume(partialFile);
+    if (partial == null) {
+      // the same file is being downloaded by someone else, don't share the partial file
+      partial = PartialDownload.create(newTempFile());
+    }
+    try (PartialDownload download = partial) {
+      // a previous download may have been complete but not moved to the cache
+      boolean downloaded = download.size() > 0 && hash.equals(download.hash());
+      for (int attempt = 1; !downloaded; attempt++) {
+        long offset = download.size();
+        try {
+          downloader.download(filename, offset, download::write);
+          downloaded = true;
+        } catch (IOException e) {
+          if (attempt >= MAX_DOWNLOAD_ATTEMPTS) {
+            throw e;
+          }
+          LOG.debug("Download of '{}' interrupted after {} bytes, resuming", filename, download.size(), e);
+        } catch (RuntimeException e) {
+          if (offset == 0 || !canRestart) {
+            throw e;
+          }
+          // for example 416 (range not satisfiable) if the partial file is not shorter than the file: it can't be resumed
+          LOG.debug("Unable to resume download of '{}' from {} bytes, downloading the whole file", filename, offset, e);
+          download.discard();
+          return download(downloader, filename, hash, partialFile, false);
+        }
+      }
+      String downloadedHash = download.hash();
+      if (!hash.equals(downloadedHash)) {
+        download.discard();
+        throw new IllegalStateException("INVALID HASH: File " + download.path() + " was expected to have hash " + hash
+          + " but was copied with hash " + downloadedHash);
+      }
+      download.complete();
+      return download.path();
+    }
+  }
+
   private static void copy(Copier copier, String filename, Path tempFile) {
     try {
       copier.copy(filename, tempFile);
@@ -0,0 +1,199 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.plugin.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.FileUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonarsource.sonarlint.core.plugin.PluginManifest;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.PluginMetadata;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.PluginMetadata.Jar;
+
+/**
+ * Hashes and manifests of the plugin jars, persisted in the plugin cache directory so that the jars that did not change since the
+ * previous start are neither hashed nor opened again. A jar is considered unchanged as long as its path, size and last modification
+ * time are the same.
+ * <p>
+ * The file is read on first use, and written by {@link #save()} if something was added. It is only an optimization: it can be
+ * deleted at any time, and it is ignored if it can't be read.
+ * <p>
+ * Jars can be hashed and read concurrently: only the access to the metadata is synchronized.
+ */
+public class PluginMetadataCache {
+
+  private static final Logger LOG = Loggers.get(PluginMetadataCache.class);
+  static final String FILENAME = "plugin-metadata.pb";
+
+  private final Path file;
+  private Map<String, Jar> jarByPath;
+  private boolean modified;
+
+  public PluginMetadataCache(PluginCache pluginCache) {
+    this.file = pluginCache.getCacheDir().resolve(FILENAME);
+  }
+
+  @FunctionalInterface
+  public interface Hasher {
+    String hash(Path jar) throws IOException;
+  }
+
+  /**
+   * Hash of the jar, computed by the hasher only if the jar changed since it was last hashed.
+   */
+  public String hash(Path jar, Hasher hasher) throws IOException {
+    Jar.Builder entry = entry(jar);
+    if (entry == null) {
+      return hasher.hash(jar);
+    }
+    if (entry.getHash().isEmpty()) {
+      entry.setHash(hasher.hash(jar));
+      put(jar, entry);
+    }
+    return entry.getHash();
+  }
+
+  /**
+   * Manifest of the jar, read from the jar only if it changed since its manifest was last read.
+   */
+  public PluginManifest manifest(Path jar) throws IOException {
+    Jar.Builder entry = entry(jar);
+    if (entry == null) {
+      return new PluginManifest(jar);
+    }
+    if (!entry.getHasManifest()) {
+      entry.putAllManifestAttributes(readManifestAttributes(jar)).setHasManifest(true);
+      put(jar, entry);
+    }
+    Manifest manifest = new Manifest();
+    entry.getManifestAttributesMap().forEach(manifest.getMainAttributes()::putValue);
+    return new PluginManifest(manifest);
+  }
+
+  /**
+   * Write the metadata if some was added since the last save, forgetting the jars that were deleted in the meantime.
+   */
+  public synchronized void save() {
+    if (!modified) {
+      return;
+    }
+    jarByPath.keySet().removeIf(path -> !Files.exists(Paths.get(path)));
+    Path tempFile = null;
+    try {
+      // concurrent saves by other processes are not merged, the last one wins
+      tempFile = Files.createTempFile(file.getParent(), FILENAME, null);
+      try (OutputStream out = Files.newOutputStream(tempFile)) {
+        PluginMetadata.newBuilder().putAllJarByPath(jarByPath).build().writeTo(out);
+      }
+      move(tempFile, file);
+      modified = false;
+    } catch (IOException e) {
+      LOG.debug("Unable to write plugin metadata to {}", file, e);
+      if (tempFile != null) {
+        FileUtils.deleteQuietly(tempFile.toFile());
+      }
+    }
+  }
+
+  /**
+   * @return the metadata known for the jar if it did not change, an empty entry if the jar is new or changed, or null if the jar
+   * can't be read (it is then left to the caller to fail)
+   */
+  @CheckForNull
+  private synchronized Jar.Builder entry(Path jar) {
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+    } catch (IOException e) {
+      return null;
+    }
+    long size = attributes.size();
+    long lastModified = attributes.lastModifiedTime().toMillis();
+    Jar known = jars().get(key(jar));
+    if (known != null && known.getSize() == size && known.getLastModified() == lastModified) {
+      return known.toBuilder();
+    }
+    return Jar.newBuilder().setSize(size).setLastModified(lastModified);
+  }
+
+  private synchronized void put(Path jar, Jar.Builder entry) {
+    jars().put(key(jar), entry.build());
+    modified = true;
+  }
+
+  private static String key(Path jar) {
+    return jar.toAbsolutePath().normalize().toString();
+  }
+
+  private Map<String, Jar> jars() {
+    if (jarByPath == null) {
+      jarByPath = new HashMap<>(load());
+    }
+    return jarByPath;
+  }
+
+  private Map<String, Jar> load() {
+    if (!Files.exists(file)) {
+      return Collections.emptyMap();
+    }
+    try (InputStream in = Files.newInputStream(file)) {
+      return PluginMetadata.parseFrom(in).getJarByPathMap();
+    } catch (IOException e) {
+      LOG.debug("Ignoring unreadable plugin metadata {}", file, e);
+      return Collections.emptyMap();
+    }
+  }
+
+  private static Map<String, String> readManifestAttributes(Path jar) {
+    Map<String, String> result = new HashMap<>();
+    try (JarFile jarFile = new JarFile(jar.toFile())) {
+      Manifest manifest = jarFile.getManifest();
+      if (manifest != null) {
+        manifest.getMainAttributes().forEach((name, value) -> result.put(((Attributes.Name) name).toString(), (String) value));
+      }
+    } catch (Exception e) {
+      throw new IllegalStateException("Unable to read plugin manifest from jar : " + jar.toAbsolutePath(), e);
+    }
+    return result;
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
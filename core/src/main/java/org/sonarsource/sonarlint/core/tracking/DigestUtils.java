@@ -19,35 +19,19 @@
  */
 package org.sonarsource.sonarlint.core.tracking;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 public class DigestUtils {
 
   private static final char[] DIGITS = "0123456789abcdef".toCharArray();
 
-  private static final MessageDigest MD5_DIGEST = DigestUtils.getMd5Digest();
-
   private DigestUtils() {
     // utility class, forbidden constructor
   }
 
+  /**
+   * Hexadecimal MD5 of the content, whitespaces excluded. To track issues, prefer {@link TextHasher#hash(String)}, which doesn't create the string.
+   */
   public static String digest(String content) {
-    return encodeHexString(MD5_DIGEST.digest(content.replaceAll("[\\s]", "").getBytes(UTF_8)));
-  }
-
-  private static MessageDigest getMd5Digest() {
-    return getDigest("MD5");
-  }
-
-  private static MessageDigest getDigest(String algorithm) {
-    try {
-      return MessageDigest.getInstance(algorithm);
-    } catch (NoSuchAlgorithmException e) {
-      throw new IllegalArgumentException(e);
-    }
+    return encodeHexString(TextHasher.md5(content));
   }
 
   public static String encodeHexString(byte[] data) {
@@ -36,12 +36,13 @@ import org.sonarsource.sonarlint.core.proto.Sonarlint;
 public class IssueStore {
 
   private Path basePath;
+  private StoreIndex<String> index;
   private IndexedObjectStore<String, Sonarlint.Issues> store;
 
   public IssueStore(Path storeBasePath, Path projectBasePath) {
     this.basePath = storeBasePath;
     FileUtils.mkdirs(storeBasePath);
-    StoreIndex<String> index = new StringStoreIndex(storeBasePath);
+    index = new JournaledStoreIndex(storeBasePath);
     PathMapper<String> mapper = new HashingPathMapper(storeBasePath, 2);
     StoreKeyValidator<String> validator = new PathStoreKeyValidator(projectBasePath);
     Reader<Sonarlint.Issues> reader = is -> {
@@ -83,6 +84,7 @@ public class IssueStore {
   public void clear() {
     FileUtils.deleteRecursively(basePath);
     FileUtils.mkdirs(basePath);
+    index.clear();
   }
 
   private static Collection<Trackable> transform(Sonarlint.Issues protoIssues) {
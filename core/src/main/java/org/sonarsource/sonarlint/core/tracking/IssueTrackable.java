@@ -24,8 +24,6 @@ import javax.annotation.Nullable;
 import org.sonarsource.sonarlint.core.client.api.common.TextRange;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
 
-import static org.sonarsource.sonarlint.core.tracking.DigestUtils.digest;
-
 public class IssueTrackable implements Trackable {
 
   private final Issue issue;
@@ -45,7 +43,7 @@ public class IssueTrackable implements Trackable {
   }
 
   private static Integer hashOrNull(@Nullable String content) {
-    return content != null ? digest(content).hashCode() : null;
+    return content != null ? TextHasher.hash(content) : null;
   }
 
   @Override
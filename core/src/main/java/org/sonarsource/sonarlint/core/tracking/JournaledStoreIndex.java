@@ -0,0 +1,244 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.tracking;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import javax.annotation.CheckForNull;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonarsource.sonarlint.core.proto.Sonarlint;
+
+/**
+ * A store index kept in memory once loaded, and persisted as a snapshot (same format as the former index file)
+ * plus an append-only journal of the changes made since the snapshot. Saving or deleting a key appends a single record,
+ * and the journal is folded into a new snapshot once it holds more records than the index has keys.
+ * <p>
+ * Each record is framed with its length and CRC32, so that a torn tail left by a crash is detected and truncated on load.
+ */
+class JournaledStoreIndex implements StoreIndex<String> {
+  private static final Logger LOGGER = Loggers.get(JournaledStoreIndex.class);
+
+  private static final String DEFAULT_INDEX_FILENAME = "index.pb";
+  private static final String JOURNAL_SUFFIX = ".journal";
+  private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+  private static final int MAX_RECORD_SIZE = 1024 * 1024;
+  static final int MIN_RECORDS_BEFORE_COMPACTION = 1000;
+
+  private final Path storeBasePath;
+  private final Path snapshotPath;
+  private final Path journalPath;
+  private final int minRecordsBeforeCompaction;
+
+  private Map<String, String> mappedPathByKey;
+  private int journalRecords;
+
+  JournaledStoreIndex(Path storeBasePath) {
+    this(storeBasePath, DEFAULT_INDEX_FILENAME, MIN_RECORDS_BEFORE_COMPACTION);
+  }
+
+  JournaledStoreIndex(Path storeBasePath, String indexFileName, int minRecordsBeforeCompaction) {
+    this.storeBasePath = storeBasePath;
+    this.snapshotPath = storeBasePath.resolve(indexFileName);
+    this.journalPath = storeBasePath.resolve(indexFileName + JOURNAL_SUFFIX);
+    this.minRecordsBeforeCompaction = minRecordsBeforeCompaction;
+  }
+
+  @Override
+  public synchronized Collection<String> keys() {
+    return new ArrayList<>(load().keySet());
+  }
+
+  @Override
+  public synchronized void save(String storageKey, Path path) {
+    String relativeMappedPath = storeBasePath.relativize(path).toString();
+    if (relativeMappedPath.equals(load().get(storageKey))) {
+      return;
+    }
+    append(storageKey, relativeMappedPath);
+    mappedPathByKey.put(storageKey, relativeMappedPath);
+    compactIfNeeded();
+  }
+
+  @Override
+  public synchronized void delete(String storageKey) {
+    if (!load().containsKey(storageKey)) {
+      return;
+    }
+    append(storageKey, "");
+    mappedPathByKey.remove(storageKey);
+    compactIfNeeded();
+  }
+
+  @Override
+  public synchronized void clear() {
+    try {
+      Files.deleteIfExists(journalPath);
+      Files.deleteIfExists(snapshotPath);
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to clear local issue store index", e);
+    }
+    mappedPathByKey = new HashMap<>();
+    journalRecords = 0;
+  }
+
+  private Map<String, String> load() {
+    if (mappedPathByKey == null) {
+      Map<String, String> loaded = new HashMap<>(readSnapshot());
+      journalRecords = replayJournal(loaded);
+      mappedPathByKey = loaded;
+    }
+    return mappedPathByKey;
+  }
+
+  private Map<String, String> readSnapshot() {
+    if (!snapshotPath.toFile().exists()) {
+      return new HashMap<>();
+    }
+    try (InputStream stream = Files.newInputStream(snapshotPath)) {
+      return Sonarlint.StorageIndex.parseFrom(stream).getMappedPathByKeyMap();
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to read local issue store index", e);
+    }
+  }
+
+  private int replayJournal(Map<String, String> index) {
+    if (!journalPath.toFile().exists()) {
+      return 0;
+    }
+    int records = 0;
+    long validLength = 0;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalPath)))) {
+      byte[] payload;
+      Sonarlint.StorageIndexJournalEntry entry;
+      while ((payload = readRecord(in)) != null && (entry = parseEntry(payload)) != null) {
+        if (entry.getMappedPath().isEmpty()) {
+          index.remove(entry.getKey());
+        } else {
+          index.put(entry.getKey(), entry.getMappedPath());
+        }
+        records++;
+        validLength += RECORD_HEADER_SIZE + payload.length;
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to read local issue store index journal", e);
+    }
+    truncateTornTail(validLength);
+    return records;
+  }
+
+  /**
+   * @return the payload of the next record, or null at the end of the journal or when the record is incomplete or corrupted
+   */
+  @CheckForNull
+  private static byte[] readRecord(DataInputStream in) throws IOException {
+    try {
+      int length = in.readInt();
+      int checksum = in.readInt();
+      if (length < 0 || length > MAX_RECORD_SIZE) {
+        return null;
+      }
+      byte[] payload = new byte[length];
+      in.readFully(payload);
+      return checksum == checksum(payload) ? payload : null;
+    } catch (EOFException e) {
+      return null;
+    }
+  }
+
+  @CheckForNull
+  private static Sonarlint.StorageIndexJournalEntry parseEntry(byte[] payload) {
+    try {
+      Sonarlint.StorageIndexJournalEntry entry = Sonarlint.StorageIndexJournalEntry.parseFrom(payload);
+      return entry.getKey().isEmpty() ? null : entry;
+    } catch (InvalidProtocolBufferException e) {
+      return null;
+    }
+  }
+
+  private void truncateTornTail(long validLength) {
+    try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.WRITE)) {
+      if (channel.size() > validLength) {
+        LOGGER.warn("Discarding incomplete records at the end of the local issue store index journal");
+        channel.truncate(validLength);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to repair local issue store index journal", e);
+    }
+  }
+
+  private void append(String storageKey, String relativeMappedPath) {
+    byte[] payload = Sonarlint.StorageIndexJournalEntry.newBuilder()
+      .setKey(storageKey)
+      .setMappedPath(relativeMappedPath)
+      .build()
+      .toByteArray();
+    ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length)
+      .putInt(payload.length)
+      .putInt(checksum(payload))
+      .put(payload);
+    try (OutputStream stream = Files.newOutputStream(journalPath, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      stream.write(record.array());
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to write local issue store index", e);
+    }
+    journalRecords++;
+  }
+
+  private void compactIfNeeded() {
+    if (journalRecords < minRecordsBeforeCompaction || journalRecords <= mappedPathByKey.size()) {
+      return;
+    }
+    Path tempSnapshot = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+    try {
+      try (OutputStream stream = Files.newOutputStream(tempSnapshot)) {
+        Sonarlint.StorageIndex.newBuilder().putAllMappedPathByKey(mappedPathByKey).build().writeTo(stream);
+      }
+      Files.move(tempSnapshot, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      // a crash before this point leaves a journal that can safely be replayed again over the new snapshot
+      Files.deleteIfExists(journalPath);
+      journalRecords = 0;
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to write local issue store index", e);
+    }
+  }
+
+  private static int checksum(byte[] payload) {
+    CRC32 crc = new CRC32();
+    crc.update(payload, 0, payload.length);
+    return (int) crc.getValue();
+  }
+}
@@ -22,8 +22,11 @@ package org.sonarsource.sonarlint.core.tracking;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
@@ -32,44 +35,53 @@ public class PersistentIssueTrackerCache implements IssueTrackerCache {
   private static final Logger LOGGER = Loggers.get(PersistentIssueTrackerCache.class);
 
   static final int MAX_ENTRIES = 100;
+  static final int MAX_PENDING_WRITES = 1000;
+  /**
+   * System property enabling the write-behind mode (see {@link Builder#writeBehind(boolean)}) for the caches that don't set it,
+   * including the ones created with {@link #PersistentIssueTrackerCache(IssueStore)}
+   */
+  public static final String WRITE_BEHIND_PROPERTY = "sonarlint.issueTracker.writeBehind";
 
-  private final IssueStore store;
-  private final Map<String, Collection<Trackable>> cache;
+  // rough figures, only meant to bound the memory used by the cache
+  private static final long ENTRY_OVERHEAD_BYTES = 100;
+  private static final long TRACKABLE_OVERHEAD_BYTES = 300;
 
-  public PersistentIssueTrackerCache(IssueStore store) {
-    this.store = store;
-    this.cache = new LimitedSizeLinkedHashMap();
-  }
+  private final IssueStore store;
+  private final int maxEntries;
+  private final long maxEstimatedBytes;
+  @Nullable
+  private final WriteBehindIssueStoreWriter writer;
 
   /**
-   * Keeps a maximum number of entries in the map. On insertion, if the limit is passed, the entry accessed the longest time ago
-   * is flushed into cache and removed from the map.
+   * The entries accessed the longest time ago come first
    */
-  private class LimitedSizeLinkedHashMap extends LinkedHashMap<String, Collection<Trackable>> {
-    LimitedSizeLinkedHashMap() {
-      super(MAX_ENTRIES, 0.75f, true);
-    }
+  private final LinkedHashMap<String, Collection<Trackable>> cache = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, Long> estimatedBytesByFile = new HashMap<>();
+  private long estimatedBytes;
 
-    @Override
-    protected boolean removeEldestEntry(Map.Entry<String, Collection<Trackable>> eldest) {
-      if (size() <= MAX_ENTRIES) {
-        return false;
-      }
+  public PersistentIssueTrackerCache(IssueStore store) {
+    this(builder(store));
+  }
 
-      String key = eldest.getKey();
-      try {
-        LOGGER.debug("Persisting issues for " + key);
-        store.save(key, eldest.getValue());
-      } catch (IOException e) {
-        throw new IllegalStateException(String.format("Error persisting issues for %s", key), e);
-      }
-      return true;
+  private PersistentIssueTrackerCache(Builder builder) {
+    this.store = builder.store;
+    this.maxEntries = builder.maxEntries;
+    this.maxEstimatedBytes = builder.maxEstimatedBytes;
+    if (builder.writeBehind) {
+      this.writer = new WriteBehindIssueStoreWriter(store, builder.maxPendingWrites);
+      writer.start();
+    } else {
+      this.writer = null;
     }
   }
 
+  public static Builder builder(IssueStore store) {
+    return new Builder(store);
+  }
+
   @Override
-  public boolean isFirstAnalysis(String file) {
-    return !cache.containsKey(file) && !store.contains(file);
+  public synchronized boolean isFirstAnalysis(String file) {
+    return !cache.containsKey(file) && (writer == null || !writer.isPending(file)) && !store.contains(file);
   }
 
   @Override
@@ -92,6 +104,13 @@ public class PersistentIssueTrackerCache implements IssueTrackerCache {
       return liveTrackables;
     }
 
+    if (writer != null) {
+      Collection<Trackable> pendingTrackables = writer.getPending(file);
+      if (pendingTrackables != null) {
+        return Collections.unmodifiableCollection(pendingTrackables);
+      }
+    }
+
     try {
       Collection<Trackable> storedTrackables = store.read(file);
       if (storedTrackables != null) {
@@ -106,20 +125,73 @@ public class PersistentIssueTrackerCache implements IssueTrackerCache {
   @Override
   public synchronized void put(String file, Collection<Trackable> trackables) {
     cache.put(file, trackables);
+    long size = estimateSize(trackables);
+    Long previousSize = estimatedBytesByFile.put(file, size);
+    estimatedBytes += size - (previousSize != null ? previousSize : 0);
+    evictIfNeeded();
+  }
+
+  /**
+   * Keeps a maximum number of entries and estimated bytes in the map. When a limit is passed, the entries accessed the longest time ago
+   * are flushed into the store and removed from the map. The most recent entry is always kept.
+   */
+  private void evictIfNeeded() {
+    Iterator<Map.Entry<String, Collection<Trackable>>> eldestFirst = cache.entrySet().iterator();
+    while (cache.size() > maxEntries || (estimatedBytes > maxEstimatedBytes && cache.size() > 1)) {
+      Map.Entry<String, Collection<Trackable>> eldest = eldestFirst.next();
+      String key = eldest.getKey();
+      persist(key, eldest.getValue());
+      eldestFirst.remove();
+      estimatedBytes -= estimatedBytesByFile.remove(key);
+    }
+  }
+
+  private void persist(String key, Collection<Trackable> trackables) {
+    if (writer != null) {
+      writer.enqueue(key, trackables);
+      return;
+    }
+    try {
+      LOGGER.debug("Persisting issues for " + key);
+      store.save(key, trackables);
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Error persisting issues for %s", key), e);
+    }
+  }
+
+  static long estimateSize(Collection<Trackable> trackables) {
+    long size = ENTRY_OVERHEAD_BYTES;
+    for (Trackable trackable : trackables) {
+      size += TRACKABLE_OVERHEAD_BYTES + 2L * (length(trackable.getMessage()) + length(trackable.getRuleKey()));
+    }
+    return size;
+  }
+
+  private static int length(@Nullable String s) {
+    return s != null ? s.length() : 0;
   }
 
   @Override
   public synchronized void clear() {
-    store.clear();
+    if (writer != null) {
+      writer.clear();
+    } else {
+      store.clear();
+    }
     cache.clear();
+    estimatedBytesByFile.clear();
+    estimatedBytes = 0;
   }
 
   /**
-   * Flushes all cached entries to disk.
+   * Flushes all cached entries to disk, after the entries still waiting to be written in write-behind mode.
    * It does not clear the cache.
    */
   public synchronized void flushAll() {
     LOGGER.debug("Persisting all issues");
+    if (writer != null) {
+      writer.drain();
+    }
     cache.forEach((path, trackables) -> {
       try {
         store.save(path, trackables);
@@ -131,6 +203,59 @@ public class PersistentIssueTrackerCache implements IssueTrackerCache {
 
   @Override
   public synchronized void shutdown() {
+    if (writer != null) {
+      writer.shutdown();
+    }
     flushAll();
   }
+
+  public static class Builder {
+    private final IssueStore store;
+    private int maxEntries = MAX_ENTRIES;
+    private long maxEstimatedBytes = Long.MAX_VALUE;
+    private boolean writeBehind = Boolean.getBoolean(WRITE_BEHIND_PROPERTY);
+    private int maxPendingWrites = MAX_PENDING_WRITES;
+
+    private Builder(IssueStore store) {
+      this.store = store;
+    }
+
+    /**
+     * Maximum number of files for which issues are kept in memory. Default is {@value PersistentIssueTrackerCache#MAX_ENTRIES}.
+     */
+    public Builder maxEntries(int maxEntries) {
+      this.maxEntries = maxEntries;
+      return this;
+    }
+
+    /**
+     * Maximum estimated size of the issues kept in memory. Unbounded by default.
+     */
+    public Builder maxEstimatedBytes(long maxEstimatedBytes) {
+      this.maxEstimatedBytes = maxEstimatedBytes;
+      return this;
+    }
+
+    /**
+     * Persist evicted entries from a background thread instead of the thread putting new entries. Disabled by default,
+     * unless the system property {@value PersistentIssueTrackerCache#WRITE_BEHIND_PROPERTY} is "true".
+     */
+    public Builder writeBehind(boolean writeBehind) {
+      this.writeBehind = writeBehind;
+      return this;
+    }
+
+    /**
+     * In write-behind mode, maximum number of evicted entries waiting to be persisted before eviction blocks.
+     * Default is {@value PersistentIssueTrackerCache#MAX_PENDING_WRITES}.
+     */
+    public Builder maxPendingWrites(int maxPendingWrites) {
+      this.maxPendingWrites = maxPendingWrites;
+      return this;
+    }
+
+    public PersistentIssueTrackerCache build() {
+      return new PersistentIssueTrackerCache(this);
+    }
+  }
 }
@@ -20,9 +20,12 @@
 package org.sonarsource.sonarlint.core.tracking;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonarsource.sonarlint.core.client.api.connected.ConnectedSonarLintEngine;
@@ -42,7 +45,12 @@ public class ServerIssueTracker {
   }
 
   public void update(ServerConfiguration serverConfiguration, ConnectedSonarLintEngine engine, ProjectBinding projectBinding, Collection<String> fileKeys) {
-    update(fileKeys, fileKey -> fetchServerIssues(serverConfiguration, engine, projectBinding, fileKey));
+    Map<String, List<ServerIssue>> serverIssuesByFileKey = fetchServerIssues(serverConfiguration, engine, projectBinding, fileKeys);
+    if (serverIssuesByFileKey != null) {
+      update(fileKeys, fileKey -> serverIssuesByFileKey.getOrDefault(fileKey, Collections.emptyList()));
+    } else {
+      update(engine, projectBinding, fileKeys);
+    }
   }
 
   public void update(ConnectedSonarLintEngine engine, ProjectBinding projectBinding, Collection<String> fileKeys) {
@@ -62,14 +70,21 @@ public class ServerIssueTracker {
     }
   }
 
-  private static List<ServerIssue> fetchServerIssues(ServerConfiguration serverConfiguration, ConnectedSonarLintEngine engine,
-    ProjectBinding projectBinding, String ideFilePath) {
+  /**
+   * @return server issues of all the files, downloaded together, or null if the download failed
+   */
+  @CheckForNull
+  private static Map<String, List<ServerIssue>> fetchServerIssues(ServerConfiguration serverConfiguration, ConnectedSonarLintEngine engine,
+    ProjectBinding projectBinding, Collection<String> ideFilePaths) {
     try {
-      LOGGER.debug("fetchServerIssues projectKey=" + projectBinding.projectKey() + ", ideFilePath=" + ideFilePath);
-      return engine.downloadServerIssues(serverConfiguration, projectBinding, ideFilePath);
+      LOGGER.debug("fetchServerIssues projectKey=" + projectBinding.projectKey() + ", files=" + ideFilePaths.size());
+      return engine.downloadServerIssues(serverConfiguration, projectBinding, ideFilePaths);
     } catch (DownloadException e) {
       LOGGER.debug("Failed to download server issues", e);
-      return engine.getServerIssues(projectBinding, ideFilePath);
+      return null;
+    } catch (Exception e) {
+      LOGGER.error("error while fetching and matching server issues", e);
+      return null;
     }
   }
 }
@@ -28,4 +28,6 @@ interface StoreIndex<T> {
   void save(T key, Path path);
 
   void delete(T key);
+
+  void clear();
 }
@@ -0,0 +1,135 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.tracking;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hashes of line and text range contents, as used to track issues. The hash of a content is the {@link String#hashCode()} of the hexadecimal
+ * MD5 of its UTF-8 bytes, whitespaces excluded, which is also how SonarQube computes the checksums of server issues.
+ * The content is encoded and digested without intermediate strings, and each thread uses its own {@link MessageDigest}.
+ */
+public final class TextHasher {
+
+  private static final ThreadLocal<TextHasher> HASHERS = ThreadLocal.withInitial(TextHasher::new);
+  private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+  private static final int MD5_LENGTH = 16;
+  private static final int BUFFER_SIZE = 1024;
+  // what String#getBytes(UTF_8) produces for unpaired surrogates
+  private static final byte REPLACEMENT = '?';
+
+  private final MessageDigest md5;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private final byte[] result = new byte[MD5_LENGTH];
+
+  private TextHasher() {
+    try {
+      md5 = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  public static int hash(String content) {
+    TextHasher hasher = HASHERS.get();
+    byte[] digest = hasher.digest(content);
+    int hash = 0;
+    for (int i = 0; i < MD5_LENGTH; i++) {
+      hash = 31 * hash + DIGITS[(digest[i] >> 4) & 0xF];
+      hash = 31 * hash + DIGITS[digest[i] & 0xF];
+    }
+    return hash;
+  }
+
+  /**
+   * @return a new array with the MD5 of the content, whitespaces excluded
+   */
+  static byte[] md5(String content) {
+    return HASHERS.get().digest(content).clone();
+  }
+
+  /**
+   * Same as <code>md5.digest(content.replaceAll("[\\s]", "").getBytes(UTF_8))</code>.
+   */
+  private byte[] digest(String content) {
+    int pos = 0;
+    char pendingHighSurrogate = 0;
+    for (int i = 0; i < content.length(); i++) {
+      char c = content.charAt(i);
+      if (isWhitespace(c)) {
+        continue;
+      }
+      if (pos > BUFFER_SIZE - 4) {
+        md5.update(buffer, 0, pos);
+        pos = 0;
+      }
+      if (pendingHighSurrogate != 0) {
+        if (Character.isLowSurrogate(c)) {
+          pos = encodeSupplementary(Character.toCodePoint(pendingHighSurrogate, c), pos);
+          pendingHighSurrogate = 0;
+          continue;
+        }
+        buffer[pos++] = REPLACEMENT;
+        pendingHighSurrogate = 0;
+      }
+      if (c < 0x80) {
+        buffer[pos++] = (byte) c;
+      } else if (c < 0x800) {
+        buffer[pos++] = (byte) (0xC0 | (c >> 6));
+        buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c)) {
+        pendingHighSurrogate = c;
+      } else if (Character.isLowSurrogate(c)) {
+        buffer[pos++] = REPLACEMENT;
+      } else {
+        buffer[pos++] = (byte) (0xE0 | (c >> 12));
+        buffer[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+    md5.update(buffer, 0, pos);
+    if (pendingHighSurrogate != 0) {
+      md5.update(REPLACEMENT);
+    }
+    try {
+      md5.digest(result, 0, MD5_LENGTH);
+    } catch (DigestException e) {
+      throw new IllegalStateException(e);
+    }
+    return result;
+  }
+
+  private int encodeSupplementary(int codePoint, int pos) {
+    buffer[pos] = (byte) (0xF0 | (codePoint >> 18));
+    buffer[pos + 1] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+    buffer[pos + 2] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+    buffer[pos + 3] = (byte) (0x80 | (codePoint & 0x3F));
+    return pos + 4;
+  }
+
+  /**
+   * Characters of the <code>\s</code> regular expression class.
+   */
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+}
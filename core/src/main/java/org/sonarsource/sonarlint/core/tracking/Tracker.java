@@ -20,15 +20,17 @@
 package org.sonarsource.sonarlint.core.tracking;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.function.Function;
+import javax.annotation.Nullable;
 
 /**
  * Match and track a collection of issues.
+ * <p>
+ * The attributes used for matching are extracted once from every trackable into primitive arrays (strings are interned to ints),
+ * and the bases are indexed for all the matching strategies in a single pass. Each strategy then only costs a lookup per unmatched raw.
  *
  * @param <R> type of the "raw" trackables that are in the incoming collection
  * @param <B> type of the base trackables that are in the current collection
@@ -37,324 +39,268 @@ public class Tracker<R extends Trackable, B extends Trackable> {
 
   public Tracking<R, B> track(TrackableSupplier<R> rawTrackableSupplier, TrackableSupplier<B> baseTrackableSupplier) {
     Tracking<R, B> tracking = new Tracking<>(rawTrackableSupplier, baseTrackableSupplier);
-
-    // 1. match issues with same server issue key
-    match(tracking, ServerIssueSearchKeyFactory.INSTANCE);
-
-    // 2. match issues with same rule, same line and same text range hash, but not necessarily with same message
-    match(tracking, LineAndTextRangeHashKeyFactory.INSTANCE);
-
-    // 3. match issues with same rule, same message and same text range hash
-    match(tracking, TextRangeHashAndMessageKeyFactory.INSTANCE);
-
-    // 4. match issues with same rule, same line and same message
-    match(tracking, LineAndMessageKeyFactory.INSTANCE);
-
-    // 5. match issues with same rule and same text range hash but different line and different message.
-    // See SONAR-2812
-    match(tracking, TextRangeHashKeyFactory.INSTANCE);
-
-    // 6. match issues with same rule, same line and same line hash
-    match(tracking, LineAndLineHashKeyFactory.INSTANCE);
-
-    // 7. match issues with same rule and same same line hash
-    match(tracking, LineHashKeyFactory.INSTANCE);
-
-    return tracking;
-  }
-
-  private void match(Tracking<R, B> tracking, SearchKeyFactory factory) {
     if (tracking.isComplete()) {
-      return;
+      return tracking;
     }
 
-    Map<SearchKey, List<B>> baseSearch = new HashMap<>();
-    for (B base : tracking.getUnmatchedBases()) {
-      SearchKey searchKey = factory.apply(base);
-      if (!baseSearch.containsKey(searchKey)) {
-        baseSearch.put(searchKey, new ArrayList<>());
-      }
-      baseSearch.get(searchKey).add(base);
+    Interner interner = new Interner();
+    Attributes<B> bases = new Attributes<>(tracking.getUnmatchedBases(), interner);
+    if (bases.size() == 0) {
+      return tracking;
     }
+    Attributes<R> raws = new Attributes<>(tracking.getUnmatchedRaws(), interner);
+    BaseIndex index = new BaseIndex(bases);
 
-    for (R raw : tracking.getUnmatchedRaws()) {
-      SearchKey rawKey = factory.apply(raw);
-      Collection<B> bases = baseSearch.get(rawKey);
-      if (bases != null && !bases.isEmpty()) {
-        // TODO taking the first one. Could be improved if there are more than 2 issues on the same line.
-        // Message could be checked to take the best one.
-        B match = bases.iterator().next();
-        tracking.match(raw, match);
-        baseSearch.get(rawKey).remove(match);
+    // strategies are declared in matching order
+    for (MatchingStrategy strategy : MatchingStrategy.values()) {
+      if (tracking.isComplete()) {
+        break;
       }
-    }
-  }
-
-  private interface SearchKey {
-  }
-
-  @FunctionalInterface
-  private interface SearchKeyFactory extends Function<Trackable, SearchKey> {
-    @Override
-    SearchKey apply(Trackable trackable);
-  }
-
-  private static class LineAndTextRangeHashKey implements SearchKey {
-    private final String ruleKey;
-    private final Integer textRangeHash;
-    private final Integer line;
-
-    LineAndTextRangeHashKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.line = trackable.getLine();
-      this.textRangeHash = trackable.getTextRangeHash();
-    }
-
-    // note: the design of the enclosing caller ensures that 'o' is of the correct class and not null
-    @Override
-    public boolean equals(Object o) {
-      LineAndTextRangeHashKey that = (LineAndTextRangeHashKey) o;
-      // start with most discriminant field
-      return Objects.equals(line, that.line)
-        && Objects.equals(textRangeHash, that.textRangeHash)
-        && ruleKey.equals(that.ruleKey);
+      match(tracking, strategy, raws, bases, index);
     }
 
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + (textRangeHash != null ? textRangeHash.hashCode() : 0);
-      result = 31 * result + (line != null ? line.hashCode() : 0);
-      return result;
-    }
+    return tracking;
   }
 
-  private enum LineAndTextRangeHashKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-
-    @Override
-    public SearchKey apply(Trackable t) {
-      return new LineAndTextRangeHashKey(t);
+  private void match(Tracking<R, B> tracking, MatchingStrategy strategy, Attributes<R> raws, Attributes<B> bases, BaseIndex index) {
+    for (int raw = 0; raw < raws.size(); raw++) {
+      if (raws.matched[raw] || !strategy.accepts(raws, raw)) {
+        continue;
+      }
+      int base = index.pollFirstMatch(strategy, raws, raw);
+      if (base >= 0) {
+        raws.matched[raw] = true;
+        tracking.match(raws.get(raw), bases.get(base));
+      }
     }
   }
 
-  private static class LineAndLineHashKey implements SearchKey {
-    private final String ruleKey;
-    private final Integer line;
-    private final Integer lineHash;
-
-    LineAndLineHashKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.line = trackable.getLine();
-      this.lineHash = trackable.getLineHash();
-    }
+  /**
+   * Attributes of trackables that take part in matching.
+   */
+  private enum Field {
+    RULE_KEY, MESSAGE, LINE, LINE_HASH, TEXT_RANGE_HASH, SERVER_ISSUE_KEY;
 
-    // note: the design of the enclosing caller ensures that 'o' is of the correct class and not null
-    @Override
-    public boolean equals(Object o) {
-      LineAndLineHashKey that = (LineAndLineHashKey) o;
-      // start with most discriminant field
-      return Objects.equals(line, that.line)
-        && Objects.equals(lineHash, that.lineHash)
-        && ruleKey.equals(that.ruleKey);
-    }
+    private static final int COUNT = values().length;
 
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + (lineHash != null ? lineHash.hashCode() : 0);
-      result = 31 * result + (line != null ? line.hashCode() : 0);
-      return result;
+    private int bit() {
+      return 1 << ordinal();
     }
   }
 
-  private enum LineAndLineHashKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-
-    @Override
-    public SearchKey apply(Trackable t) {
-      return new LineAndLineHashKey(t);
-    }
-  }
+  private enum MatchingStrategy {
+    // 1. match issues with same server issue key
+    SERVER_ISSUE_KEY(false, Field.SERVER_ISSUE_KEY),
 
-  private static class LineHashKey implements SearchKey {
-    private final String ruleKey;
-    private final Integer lineHash;
+    // 2. match issues with same rule, same line and same text range hash, but not necessarily with same message
+    LINE_AND_TEXT_RANGE_HASH(true, Field.RULE_KEY, Field.LINE, Field.TEXT_RANGE_HASH),
 
-    LineHashKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.lineHash = trackable.getLineHash();
-    }
+    // 3. match issues with same rule, same message and same text range hash
+    TEXT_RANGE_HASH_AND_MESSAGE(true, Field.RULE_KEY, Field.MESSAGE, Field.TEXT_RANGE_HASH),
 
-    // note: the design of the enclosing caller ensures that 'o' is of the correct class and not null
-    @Override
-    public boolean equals(Object o) {
-      LineHashKey that = (LineHashKey) o;
-      // start with most discriminant field
-      return Objects.equals(lineHash, that.lineHash)
-        && ruleKey.equals(that.ruleKey);
-    }
+    // 4. match issues with same rule, same line and same message
+    LINE_AND_MESSAGE(true, Field.RULE_KEY, Field.MESSAGE, Field.LINE),
 
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + (lineHash != null ? lineHash.hashCode() : 0);
-      return result;
-    }
-  }
+    // 5. match issues with same rule and same text range hash but different line and different message.
+    // See SONAR-2812
+    TEXT_RANGE_HASH(true, Field.RULE_KEY, Field.TEXT_RANGE_HASH),
 
-  private enum LineHashKeyFactory implements SearchKeyFactory {
-    INSTANCE;
+    // 6. match issues with same rule, same line and same line hash
+    LINE_AND_LINE_HASH(true, Field.RULE_KEY, Field.LINE, Field.LINE_HASH),
 
-    @Override
-    public SearchKey apply(Trackable t) {
-      return new LineHashKey(t);
-    }
-  }
+    // 7. match issues with same rule and same same line hash
+    LINE_HASH(true, Field.RULE_KEY, Field.LINE_HASH);
 
-  private static class TextRangeHashAndMessageKey implements SearchKey {
-    private final String ruleKey;
-    private final String message;
-    private final Integer textRangeHash;
+    /**
+     * When false, a trackable with a missing value for one of the fields never matches (blank server issue keys)
+     */
+    private final boolean nullsMatch;
+    private final int[] fields;
+    private final int mask;
 
-    TextRangeHashAndMessageKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.message = trackable.getMessage();
-      this.textRangeHash = trackable.getTextRangeHash();
+    MatchingStrategy(boolean nullsMatch, Field... fields) {
+      this.nullsMatch = nullsMatch;
+      this.fields = Arrays.stream(fields).mapToInt(Field::ordinal).toArray();
+      this.mask = Arrays.stream(fields).mapToInt(Field::bit).reduce(0, (a, b) -> a | b);
     }
 
-    // note: the design of the enclosing caller ensures that 'o' is of the correct class and not null
-    @Override
-    public boolean equals(Object o) {
-      TextRangeHashAndMessageKey that = (TextRangeHashAndMessageKey) o;
-      // start with most discriminant field
-      return Objects.equals(textRangeHash, that.textRangeHash)
-        && message.equals(that.message)
-        && ruleKey.equals(that.ruleKey);
+    boolean accepts(Attributes<?> attributes, int i) {
+      return nullsMatch || (attributes.nulls[i] & mask) == 0;
     }
 
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + message.hashCode();
-      result = 31 * result + (textRangeHash != null ? textRangeHash.hashCode() : 0);
-      return result;
+    int hash(Attributes<?> attributes, int i) {
+      int offset = i * Field.COUNT;
+      int h = attributes.nulls[i] & mask;
+      for (int field : fields) {
+        h = 31 * h + attributes.values[offset + field];
+      }
+      // spread the bits, as the index is addressed with the lowest ones
+      h ^= h >>> 16;
+      h *= 0x85ebca6b;
+      h ^= h >>> 13;
+      return h;
     }
-  }
-
-  private enum TextRangeHashAndMessageKeyFactory implements SearchKeyFactory {
-    INSTANCE;
 
-    @Override
-    public SearchKey apply(Trackable t) {
-      return new TextRangeHashAndMessageKey(t);
+    boolean matches(Attributes<?> left, int l, Attributes<?> right, int r) {
+      if ((left.nulls[l] & mask) != (right.nulls[r] & mask)) {
+        return false;
+      }
+      int leftOffset = l * Field.COUNT;
+      int rightOffset = r * Field.COUNT;
+      for (int field : fields) {
+        if (left.values[leftOffset + field] != right.values[rightOffset + field]) {
+          return false;
+        }
+      }
+      return true;
     }
   }
 
-  private static class LineAndMessageKey implements SearchKey {
-    private final String ruleKey;
-    private final String message;
-    private final Integer line;
+  /**
+   * Gives the same int to equal strings, for all the trackables of a single tracking.
+   */
+  private static class Interner {
+    private final Map<String, Integer> ids = new HashMap<>();
 
-    LineAndMessageKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.message = trackable.getMessage();
-      this.line = trackable.getLine();
-    }
-
-    // note: the design of the enclosing caller ensures that 'o' is of the correct class and not null
-    @Override
-    public boolean equals(Object o) {
-      LineAndMessageKey that = (LineAndMessageKey) o;
-      // start with most discriminant field
-      return Objects.equals(line, that.line)
-        && message.equals(that.message)
-        && ruleKey.equals(that.ruleKey);
-    }
-
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + message.hashCode();
-      result = 31 * result + (line != null ? line.hashCode() : 0);
-      return result;
+    int intern(String s) {
+      return ids.computeIfAbsent(s, k -> ids.size());
     }
   }
 
-  private enum LineAndMessageKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-
-    @Override
-    public SearchKey apply(Trackable t) {
-      return new LineAndMessageKey(t);
+  /**
+   * Matching attributes of a list of trackables, one row of {@link Field#COUNT} ints per trackable.
+   * Missing values are stored as 0 and flagged in {@link #nulls}.
+   */
+  private static class Attributes<T extends Trackable> {
+    private final List<T> trackables = new ArrayList<>();
+    private final int[] values;
+    private final int[] nulls;
+    private final boolean[] matched;
+
+    Attributes(Iterable<T> source, Interner interner) {
+      source.forEach(trackables::add);
+      int size = trackables.size();
+      values = new int[size * Field.COUNT];
+      nulls = new int[size];
+      matched = new boolean[size];
+      for (int i = 0; i < size; i++) {
+        Trackable trackable = trackables.get(i);
+        int offset = i * Field.COUNT;
+        int nullFlags = 0;
+        nullFlags |= setString(offset, Field.RULE_KEY, trackable.getRuleKey(), interner);
+        nullFlags |= setString(offset, Field.MESSAGE, trackable.getMessage(), interner);
+        nullFlags |= setInt(offset, Field.LINE, trackable.getLine());
+        nullFlags |= setInt(offset, Field.LINE_HASH, trackable.getLineHash());
+        nullFlags |= setInt(offset, Field.TEXT_RANGE_HASH, trackable.getTextRangeHash());
+        String serverIssueKey = trackable.getServerIssueKey();
+        nullFlags |= setString(offset, Field.SERVER_ISSUE_KEY, serverIssueKey == null || serverIssueKey.isEmpty() ? null : serverIssueKey, interner);
+        nulls[i] = nullFlags;
+      }
     }
-  }
-
-  private static class TextRangeHashKey implements SearchKey {
-    private final String ruleKey;
-    private final Integer textRangeHash;
 
-    TextRangeHashKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.textRangeHash = trackable.getTextRangeHash();
+    private int setString(int offset, Field field, @Nullable String value, Interner interner) {
+      if (value == null) {
+        return field.bit();
+      }
+      values[offset + field.ordinal()] = interner.intern(value);
+      return 0;
     }
 
-    // note: the design of the enclosing caller ensures that 'o' is of the correct class and not null
-    @Override
-    public boolean equals(Object o) {
-      TextRangeHashKey that = (TextRangeHashKey) o;
-      // start with most discriminant field
-      return Objects.equals(textRangeHash, that.textRangeHash)
-        && ruleKey.equals(that.ruleKey);
+    private int setInt(int offset, Field field, @Nullable Integer value) {
+      if (value == null) {
+        return field.bit();
+      }
+      values[offset + field.ordinal()] = value;
+      return 0;
     }
 
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + (textRangeHash != null ? textRangeHash.hashCode() : 0);
-      return result;
+    int size() {
+      return trackables.size();
     }
-  }
 
-  private enum TextRangeHashKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-
-    @Override
-    public SearchKey apply(Trackable t) {
-      return new TextRangeHashKey(t);
+    T get(int i) {
+      return trackables.get(i);
     }
   }
 
-  private static class ServerIssueSearchKey implements SearchKey {
-    private final String serverIssueKey;
-
-    ServerIssueSearchKey(Trackable trackable) {
-      serverIssueKey = trackable.getServerIssueKey();
-    }
-
-    // note: the design of the enclosing caller ensures that 'o' is of the correct class and not null
-    @Override
-    public boolean equals(Object o) {
-      ServerIssueSearchKey that = (ServerIssueSearchKey) o;
-      return !isBlank(serverIssueKey) && !isBlank(that.serverIssueKey) && serverIssueKey.equals(that.serverIssueKey);
-    }
-
-    private static boolean isBlank(String s) {
-      return s == null || s.isEmpty();
+  /**
+   * For each strategy, an open hash table of the bases, chained through int arrays.
+   * Chains preserve the order of the bases, so that the first unmatched base of a chain is the same one
+   * as the first unmatched base of the original collection.
+   */
+  private static class BaseIndex {
+    private static final int NONE = -1;
+
+    private final Attributes<?> bases;
+    private final int bucketMask;
+    private final int[][] heads;
+    private final int[][] next;
+    private final int[][] hashes;
+
+    BaseIndex(Attributes<?> bases) {
+      this.bases = bases;
+      int size = bases.size();
+      int capacity = Integer.highestOneBit(Math.max(1, size)) << 2;
+      bucketMask = capacity - 1;
+      int strategyCount = MatchingStrategy.values().length;
+      heads = new int[strategyCount][capacity];
+      next = new int[strategyCount][size];
+      hashes = new int[strategyCount][size];
+      for (int[] h : heads) {
+        Arrays.fill(h, NONE);
+      }
+      // single pass over the bases for all strategies, backwards so that prepending keeps the original order
+      for (int base = size - 1; base >= 0; base--) {
+        for (MatchingStrategy strategy : MatchingStrategy.values()) {
+          int s = strategy.ordinal();
+          if (!strategy.accepts(bases, base)) {
+            next[s][base] = NONE;
+            continue;
+          }
+          int hash = strategy.hash(bases, base);
+          int bucket = hash & bucketMask;
+          hashes[s][base] = hash;
+          next[s][base] = heads[s][bucket];
+          heads[s][bucket] = base;
+        }
+      }
     }
 
-    @Override
-    public int hashCode() {
-      return serverIssueKey != null ? serverIssueKey.hashCode() : 0;
+    /**
+     * Find the first unmatched base that matches the raw according to the strategy, and mark it as matched.
+     * Bases matched by a previous lookup are unlinked from the chain when encountered.
+     *
+     * @return index of the base, or -1 if none
+     */
+    int pollFirstMatch(MatchingStrategy strategy, Attributes<?> raws, int raw) {
+      int s = strategy.ordinal();
+      int hash = strategy.hash(raws, raw);
+      int bucket = hash & bucketMask;
+      int[] chain = next[s];
+      int previous = NONE;
+      int base = heads[s][bucket];
+      while (base != NONE) {
+        int following = chain[base];
+        if (bases.matched[base]) {
+          unlink(s, bucket, previous, following);
+        } else if (hashes[s][base] == hash && strategy.matches(raws, raw, bases, base)) {
+          bases.matched[base] = true;
+          unlink(s, bucket, previous, following);
+          return base;
+        } else {
+          previous = base;
+        }
+        base = following;
+      }
+      return NONE;
     }
-  }
 
-  private enum ServerIssueSearchKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-
-    @Override
-    public SearchKey apply(Trackable trackable) {
-      return new ServerIssueSearchKey(trackable);
+    private void unlink(int s, int bucket, int previous, int following) {
+      if (previous == NONE) {
+        heads[s][bucket] = following;
+      } else {
+        next[s][previous] = following;
+      }
     }
   }
 }
@@ -0,0 +1,201 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.tracking;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Persists issues into an {@link IssueStore} from a background thread.
+ * <p>
+ * Entries waiting to be written are kept in a bounded map: writing again a key that is still pending replaces its value,
+ * and pending values can be read back before they reach the disk. When the map is full, {@link #enqueue(String, Collection)} blocks
+ * until the writer catches up.
+ * <p>
+ * Lock ordering: {@link #storeLock} is always acquired before {@link #pending}.
+ */
+class WriteBehindIssueStoreWriter implements Runnable {
+
+  private static final Logger LOGGER = Loggers.get(WriteBehindIssueStoreWriter.class);
+
+  private final IssueStore store;
+  private final int capacity;
+  private final Object storeLock = new Object();
+  private final LinkedHashMap<String, Collection<Trackable>> pending = new LinkedHashMap<>();
+  private final Thread thread;
+  private boolean stopped;
+
+  WriteBehindIssueStoreWriter(IssueStore store, int capacity) {
+    this.store = store;
+    this.capacity = capacity;
+    this.thread = new Thread(this, "sonarlint-issue-store-writer");
+    thread.setDaemon(true);
+  }
+
+  void start() {
+    thread.start();
+  }
+
+  void enqueue(String key, Collection<Trackable> trackables) {
+    synchronized (pending) {
+      while (!stopped && pending.size() >= capacity && !pending.containsKey(key)) {
+        try {
+          pending.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+      pending.put(key, trackables);
+      pending.notifyAll();
+      if (!stopped) {
+        return;
+      }
+    }
+    // no more background writer, or caller interrupted
+    drain();
+  }
+
+  @CheckForNull
+  Collection<Trackable> getPending(String key) {
+    synchronized (pending) {
+      return pending.get(key);
+    }
+  }
+
+  boolean isPending(String key) {
+    synchronized (pending) {
+      return pending.containsKey(key);
+    }
+  }
+
+  @Override
+  public void run() {
+    while (true) {
+      List<Map.Entry<String, Collection<Trackable>>> batch;
+      synchronized (pending) {
+        while (pending.isEmpty() && !stopped) {
+          try {
+            pending.wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+        }
+        if (pending.isEmpty()) {
+          return;
+        }
+        batch = snapshot();
+      }
+      try {
+        write(batch);
+      } catch (IOException | RuntimeException e) {
+        LOGGER.error("Failed to persist issues", e);
+      }
+    }
+  }
+
+  /**
+   * Synchronously write all the pending entries.
+   */
+  void drain() {
+    while (true) {
+      List<Map.Entry<String, Collection<Trackable>>> batch;
+      synchronized (pending) {
+        if (pending.isEmpty()) {
+          return;
+        }
+        batch = snapshot();
+      }
+      try {
+        write(batch);
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to flush pending issues", e);
+      }
+    }
+  }
+
+  /**
+   * Discard the pending entries, and clear the store once no write is in progress.
+   */
+  void clear() {
+    synchronized (storeLock) {
+      synchronized (pending) {
+        pending.clear();
+        pending.notifyAll();
+      }
+      store.clear();
+    }
+  }
+
+  /**
+   * Stop the background writer once all the pending entries are written.
+   */
+  void shutdown() {
+    synchronized (pending) {
+      stopped = true;
+      pending.notifyAll();
+    }
+    if (thread.isAlive()) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    drain();
+  }
+
+  private List<Map.Entry<String, Collection<Trackable>>> snapshot() {
+    List<Map.Entry<String, Collection<Trackable>>> batch = new ArrayList<>(pending.size());
+    pending.forEach((key, value) -> batch.add(new AbstractMap.SimpleImmutableEntry<>(key, value)));
+    return batch;
+  }
+
+  private void write(List<Map.Entry<String, Collection<Trackable>>> batch) throws IOException {
+    synchronized (storeLock) {
+      for (Map.Entry<String, Collection<Trackable>> entry : batch) {
+        String key = entry.getKey();
+        Collection<Trackable> trackables = entry.getValue();
+        if (getPending(key) != trackables) {
+          // cleared, replaced by a more recent value, or already written by a concurrent batch
+          continue;
+        }
+        LOGGER.debug("Persisting issues for " + key);
+        try {
+          store.save(key, trackables);
+        } finally {
+          synchronized (pending) {
+            pending.remove(key, trackables);
+            pending.notifyAll();
+          }
+        }
+      }
+    }
+  }
+}
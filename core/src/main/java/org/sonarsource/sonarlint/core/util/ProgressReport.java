@@ -28,7 +28,7 @@ public class ProgressReport implements Runnable {
 
   private static final Logger LOG = Loggers.get(ProgressReport.class);
   private final long period;
-  private Supplier<String> messageSupplier = () -> "";
+  private volatile Supplier<String> messageSupplier = () -> "";
   private final Thread thread;
   private String stopMessage = null;
 
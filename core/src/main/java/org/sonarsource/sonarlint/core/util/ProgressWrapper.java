@@ -74,6 +74,14 @@ public class ProgressWrapper {
     setProgress(msg, fraction);
   }
 
+  /**
+   * Update the message only, for steps of which the fraction done is unknown
+   */
+  public void setMessageAndCheckCancel(String msg) {
+    checkCancel();
+    handler.setMessage(prependPrefix(msg));
+  }
+
   private void setFraction(float fraction) {
     handler.setFraction(offset + fraction * factor);
   }
@@ -22,7 +22,10 @@ package org.sonarsource.sonarlint.core.util.ws;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -44,6 +47,8 @@ abstract class BaseRequest<SELF extends BaseRequest> implements WsRequest {
 
   private final DefaultParameters parameters = new DefaultParameters();
 
+  private final Map<String, String> headers = new LinkedHashMap<>();
+
   BaseRequest(String path) {
     this.path = path;
   }
@@ -112,6 +117,16 @@ abstract class BaseRequest<SELF extends BaseRequest> implements WsRequest {
     return (SELF) this;
   }
 
+  public SELF setHeader(String name, String value) {
+    headers.put(name, value);
+    return (SELF) this;
+  }
+
+  @Override
+  public Map<String, String> getHeaders() {
+    return Collections.unmodifiableMap(headers);
+  }
+
   @Override
   public Parameters getParameters() {
     return parameters;
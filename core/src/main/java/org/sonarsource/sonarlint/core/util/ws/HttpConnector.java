@@ -182,10 +182,12 @@ public class HttpConnector implements WsConnector {
   }
 
   private static Request.Builder prepareOkRequestBuilder(WsRequest getRequest, HttpUrl.Builder urlBuilder) {
-    return new Request.Builder()
+    Request.Builder okRequestBuilder = new Request.Builder()
       .url(urlBuilder.build())
       .addHeader("Accept", getRequest.getMediaType())
       .addHeader("Accept-Charset", "UTF-8");
+    getRequest.getHeaders().forEach(okRequestBuilder::header);
+    return okRequestBuilder;
   }
 
   private static Response doCall(OkHttpClient client, Request okRequest) {
@@ -53,6 +53,10 @@ import static org.apache.commons.lang.StringUtils.defaultString;
  * Helper to build an instance of {@link okhttp3.OkHttpClient} that
  * correctly supports HTTPS and proxy authentication. It also handles
  * sending of User-Agent header.
+ * <p>
+ * All the built clients share the connection pool and the dispatcher of a single base client, so that connections (including
+ * HTTP/2 ones, negotiated through ALPN) are reused between clients targeting the same address. The default SSL context is
+ * created once, and only created again when the system properties defining the default key store change.
  */
 public class OkHttpClientBuilder {
 
@@ -60,6 +64,9 @@ public class OkHttpClientBuilder {
   private static final String NONE = "NONE";
   private static final String P11KEYSTORE = "PKCS11";
 
+  private static final OkHttpClient BASE_CLIENT = new OkHttpClient();
+  private static DefaultSsl defaultSsl;
+
   private String userAgent;
   private Proxy proxy;
   private String credentials;
@@ -157,7 +164,7 @@ public class OkHttpClientBuilder {
   }
 
   public OkHttpClient build() {
-    OkHttpClient.Builder builder = new OkHttpClient.Builder();
+    OkHttpClient.Builder builder = BASE_CLIENT.newBuilder();
     builder.proxy(proxy);
     if (connectTimeoutMs >= 0) {
       builder.connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS);
@@ -186,9 +193,14 @@ public class OkHttpClientBuilder {
       .build();
     builder.connectionSpecs(asList(tls, ConnectionSpec.CLEARTEXT));
 
-    X509TrustManager trustManager = sslTrustManager != null ? sslTrustManager : systemDefaultTrustManager();
-    SSLSocketFactory sslFactory = sslSocketFactory != null ? sslSocketFactory : systemDefaultSslSocketFactory(trustManager);
-    builder.sslSocketFactory(sslFactory, trustManager);
+    if (sslTrustManager == null && sslSocketFactory == null) {
+      DefaultSsl ssl = defaultSsl();
+      builder.sslSocketFactory(ssl.socketFactory, ssl.trustManager);
+    } else {
+      X509TrustManager trustManager = sslTrustManager != null ? sslTrustManager : systemDefaultTrustManager();
+      SSLSocketFactory sslFactory = sslSocketFactory != null ? sslSocketFactory : systemDefaultSslSocketFactory(trustManager);
+      builder.sslSocketFactory(sslFactory, trustManager);
+    }
 
     return builder.build();
   }
@@ -204,6 +216,30 @@ public class OkHttpClientBuilder {
     return chain.proceed(newRequest.build());
   }
 
+  private static synchronized DefaultSsl defaultSsl() {
+    String sslProperties = defaultSslProperties();
+    if (defaultSsl == null || !defaultSsl.sslProperties.equals(sslProperties)) {
+      X509TrustManager trustManager = systemDefaultTrustManager();
+      defaultSsl = new DefaultSsl(sslProperties, systemDefaultSslSocketFactory(trustManager), trustManager);
+    }
+    return defaultSsl;
+  }
+
+  /**
+   * The system properties read by the default key and trust managers, so that they are created again when the properties change
+   */
+  private static String defaultSslProperties() {
+    return String.join("|",
+      System.getProperty("javax.net.ssl.keyStore", ""),
+      System.getProperty("javax.net.ssl.keyStoreType", KeyStore.getDefaultType()),
+      System.getProperty("javax.net.ssl.keyStoreProvider", ""),
+      System.getProperty("javax.net.ssl.keyStorePassword", ""),
+      System.getProperty("javax.net.ssl.trustStore", ""),
+      System.getProperty("javax.net.ssl.trustStoreType", KeyStore.getDefaultType()),
+      System.getProperty("javax.net.ssl.trustStoreProvider", ""),
+      System.getProperty("javax.net.ssl.trustStorePassword", ""));
+  }
+
   private static X509TrustManager systemDefaultTrustManager() {
     try {
       TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
@@ -294,4 +330,16 @@ public class OkHttpClientBuilder {
 
     return kmf.getKeyManagers();
   }
+
+  private static class DefaultSsl {
+    private final String sslProperties;
+    private final SSLSocketFactory socketFactory;
+    private final X509TrustManager trustManager;
+
+    private DefaultSsl(String sslProperties, SSLSocketFactory socketFactory, X509TrustManager trustManager) {
+      this.sslProperties = sslProperties;
+      this.socketFactory = socketFactory;
+      this.trustManager = trustManager;
+    }
+  }
 }
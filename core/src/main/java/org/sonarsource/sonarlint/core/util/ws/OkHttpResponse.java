@@ -49,6 +49,11 @@ class OkHttpResponse extends BaseResponse {
     return okResponse.header("Content-Type");
   }
 
+  @Override
+  public long contentLength() {
+    return okResponse.body().contentLength();
+  }
+
   /**
    * Get stream of bytes
    */
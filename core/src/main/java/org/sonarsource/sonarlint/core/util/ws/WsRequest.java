@@ -19,6 +19,8 @@
  */
 package org.sonarsource.sonarlint.core.util.ws;
 
+import java.util.Map;
+
 /**
  * @since 5.3
  */
@@ -32,6 +34,11 @@ public interface WsRequest {
 
   Parameters getParameters();
 
+  /**
+   * Headers added to the request, for example "Range"
+   */
+  Map<String, String> getHeaders();
+
   enum Method {
     GET, POST, DELETE
   }
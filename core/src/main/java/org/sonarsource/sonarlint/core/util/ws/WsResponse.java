@@ -53,6 +53,11 @@ public interface WsResponse extends Closeable {
 
   boolean hasContent();
 
+  /**
+   * Length of the content in bytes, or -1 if unknown
+   */
+  long contentLength();
+
   InputStream contentStream();
 
   Reader contentReader();
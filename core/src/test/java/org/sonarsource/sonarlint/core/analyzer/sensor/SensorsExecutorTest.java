@@ -0,0 +1,224 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.analyzer.sensor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.sonar.api.batch.DependedUpon;
+import org.sonar.api.batch.DependsUpon;
+import org.sonar.api.batch.Phase;
+import org.sonar.api.batch.sensor.Sensor;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.container.analysis.filesystem.FileMetadata.Metadata;
+import org.sonarsource.sonarlint.core.container.analysis.filesystem.SonarLintInputFile;
+import org.sonarsource.sonarlint.core.container.global.MapSettings;
+import org.sonarsource.sonarlint.core.util.ProgressWrapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SensorsExecutorTest {
+
+  private static final long SENSOR_DURATION_MS = 200;
+
+  private final SensorOptimizer sensorOptimizer = mock(SensorOptimizer.class);
+  private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+  @Test
+  public void should_reduce_wall_clock_time_of_independent_sensors_in_parallel() {
+    when(sensorOptimizer.shouldExecute(any())).thenReturn(true);
+    Sensor[] sensors = {
+      new SlowSensor("java", SENSOR_DURATION_MS),
+      new SlowSensor("js", SENSOR_DURATION_MS),
+      new SlowSensor("python", SENSOR_DURATION_MS),
+      new SlowSensor("xml", SENSOR_DURATION_MS)};
+
+    long serial = time(() -> executor(1, sensors).execute());
+    long parallel = time(() -> executor(4, sensors).execute());
+
+    assertThat(executed).hasSize(8).containsOnly("java", "js", "python", "xml");
+    assertThat(serial).isGreaterThanOrEqualTo(4 * SENSOR_DURATION_MS);
+    // relative to the measured serial time, which is slowed down as much by a loaded machine
+    assertThat(parallel).isLessThan(serial / 2);
+  }
+
+  @Test
+  public void should_generate_metadata_once_for_sensors_reading_the_same_file() {
+    when(sensorOptimizer.shouldExecute(any())).thenReturn(true);
+    AtomicInteger generations = new AtomicInteger();
+    ClientInputFile clientInputFile = mock(ClientInputFile.class);
+    when(clientInputFile.relativePath()).thenReturn("index.html");
+    SonarLintInputFile inputFile = new SonarLintInputFile(clientInputFile, f -> {
+      generations.incrementAndGet();
+      sleep(SENSOR_DURATION_MS);
+      f.setIgnoreAllIssues(true);
+      return new Metadata(1, new int[] {0}, 0);
+    });
+    List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+    Sensor[] sensors = {new FileSensor("text", inputFile, threads), new FileSensor("html", inputFile, threads)};
+
+    executor(2, sensors).execute();
+
+    assertThat(generations).hasValue(1);
+    assertThat(executed).containsOnly("text:1:true", "html:1:true");
+    assertThat(threads).hasSize(2).allMatch(Thread::isDaemon).allMatch(t -> t.getName().startsWith("sonarlint-sensor-"));
+  }
+
+  @Test
+  public void should_execute_dependent_sensors_in_order() {
+    when(sensorOptimizer.shouldExecute(any())).thenReturn(true);
+    Sensor[] sensors = {
+      new PostSensor("post", 0),
+      new Consumer("consumer", 0),
+      new Producer("producer", SENSOR_DURATION_MS),
+      new SlowSensor("independent", 0)};
+
+    executor(4, sensors).execute();
+
+    assertThat(executed).containsOnly("post", "consumer", "producer", "independent");
+    assertThat(executed.indexOf("producer")).isLessThan(executed.indexOf("consumer"));
+    assertThat(executed.get(executed.size() - 1)).isEqualTo("post");
+  }
+
+  @Test
+  public void should_not_execute_sensors_excluded_by_optimizer() {
+    Sensor excluded = new SlowSensor("excluded", 0);
+    when(sensorOptimizer.shouldExecute(any())).thenAnswer(invocation -> !"excluded".equals(((DefaultSensorDescriptor) invocation.getArgument(0)).name()));
+
+    executor(4, new Sensor[] {new SlowSensor("java", 0), excluded}).execute();
+
+    assertThat(executed).containsOnly("java");
+  }
+
+  @Test
+  public void should_propagate_sensor_failure() {
+    when(sensorOptimizer.shouldExecute(any())).thenReturn(true);
+    IllegalStateException failure = new IllegalStateException("failure");
+    Sensor failing = new SlowSensor("failing", 0) {
+      @Override
+      public void execute(SensorContext context) {
+        throw failure;
+      }
+    };
+
+    assertThatThrownBy(() -> executor(4, new Sensor[] {new SlowSensor("java", 0), failing}).execute()).isSameAs(failure);
+  }
+
+  @Test
+  public void should_group_sensors_sharing_dependencies() {
+    Producer producer = new Producer("producer", 0);
+    Consumer consumer = new Consumer("consumer", 0);
+    SlowSensor independent = new SlowSensor("independent", 0);
+
+    assertThat(SensorsExecutor.partition(Arrays.asList(producer, independent, consumer)))
+      .containsExactly(Arrays.asList(producer, consumer), Collections.singletonList(independent));
+  }
+
+  private SensorsExecutor executor(int parallelism, Sensor[] sensors) {
+    MapSettings settings = new MapSettings();
+    settings.setProperty(SensorsExecutor.PARALLELISM_PROPERTY, String.valueOf(parallelism));
+    return new SensorsExecutor(mock(DefaultSensorContext.class), sensorOptimizer, new ProgressWrapper(null), settings.asConfig(), sensors);
+  }
+
+  private static void sleep(long durationMs) {
+    try {
+      Thread.sleep(durationMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static long time(Runnable runnable) {
+    long start = System.nanoTime();
+    runnable.run();
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+
+  private class SlowSensor implements Sensor {
+    private final String name;
+    private final long durationMs;
+
+    SlowSensor(String name, long durationMs) {
+      this.name = name;
+      this.durationMs = durationMs;
+    }
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+      descriptor.name(name);
+    }
+
+    @Override
+    public void execute(SensorContext context) {
+      sleep(durationMs);
+      executed.add(name);
+    }
+  }
+
+  private class FileSensor extends SlowSensor {
+    private final String name;
+    private final SonarLintInputFile inputFile;
+    private final List<Thread> threads;
+
+    FileSensor(String name, SonarLintInputFile inputFile, List<Thread> threads) {
+      super(name, 0);
+      this.name = name;
+      this.inputFile = inputFile;
+      this.threads = threads;
+    }
+
+    @Override
+    public void execute(SensorContext context) {
+      threads.add(Thread.currentThread());
+      executed.add(name + ":" + inputFile.lines() + ":" + inputFile.isIgnoreAllIssues());
+    }
+  }
+
+  @DependedUpon("ast")
+  private class Producer extends SlowSensor {
+    Producer(String name, long durationMs) {
+      super(name, durationMs);
+    }
+  }
+
+  @DependsUpon("ast")
+  private class Consumer extends SlowSensor {
+    Consumer(String name, long durationMs) {
+      super(name, durationMs);
+    }
+  }
+
+  @Phase(name = Phase.Name.POST)
+  private class PostSensor extends SlowSensor {
+    PostSensor(String name, long durationMs) {
+      super(name, durationMs);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.analysis;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Matches 100k synthetic paths against 50 patterns, with the merged {@link PathPatternMatcher} and with each {@link SonarLintPathPattern}.
+ * Run with {@link #main(String[])} from the IDE, or through the JMH runner with the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathPatternMatcherBenchmark {
+
+  private static final int PATH_COUNT = 100_000;
+  private static final int PATTERN_COUNT = 50;
+
+  private static final String[] DIRECTORIES = {"src", "main", "test", "java", "org", "sonarsource", "generated", "node_modules", "target",
+    "resources", "web", "api", "impl", "util", "model"};
+  private static final String[] EXTENSIONS = {"java", "js", "ts", "xml", "py", "php", "html", "properties"};
+
+  private SonarLintPathPattern[] patterns;
+  private PathPatternMatcher matcher;
+  private String[] paths;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(42);
+    patterns = SonarLintPathPattern.create(generatePatterns(PATTERN_COUNT, random));
+    matcher = new PathPatternMatcher(patterns);
+    paths = generatePaths(PATH_COUNT, random);
+  }
+
+  @Benchmark
+  public int matcher() {
+    int result = 0;
+    for (String path : paths) {
+      result += matcher.match(path, 1);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public int eachPattern() {
+    int result = 0;
+    for (String path : paths) {
+      for (SonarLintPathPattern pattern : patterns) {
+        if (pattern.match(path)) {
+          result++;
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * The usual shapes of exclusions: extensions, directories anywhere or at the root, and file name globs.
+   */
+  static String[] generatePatterns(int count, Random random) {
+    String[] result = new String[count];
+    for (int i = 0; i < count; i++) {
+      String directory = DIRECTORIES[random.nextInt(DIRECTORIES.length)];
+      String extension = EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+      switch (i % 5) {
+        case 0:
+          result[i] = "**/" + directory + i + "/**";
+          break;
+        case 1:
+          result[i] = directory + "/" + DIRECTORIES[random.nextInt(DIRECTORIES.length)] + "/**/*." + extension;
+          break;
+        case 2:
+          result[i] = "**/*" + i + "Test." + extension;
+          break;
+        case 3:
+          result[i] = "**/" + directory + "/**/File" + i + "?." + extension;
+          break;
+        default:
+          result[i] = "**/*." + extension + i;
+          break;
+      }
+    }
+    return result;
+  }
+
+  static String[] generatePaths(int count, Random random) {
+    String[] result = new String[count];
+    for (int i = 0; i < count; i++) {
+      StringBuilder sb = new StringBuilder();
+      int depth = 1 + random.nextInt(8);
+      for (int j = 0; j < depth; j++) {
+        sb.append(DIRECTORIES[random.nextInt(DIRECTORIES.length)]);
+        if (random.nextInt(4) == 0) {
+          sb.append(random.nextInt(PATTERN_COUNT));
+        }
+        sb.append('/');
+      }
+      sb.append("File").append(random.nextInt(1000)).append('.').append(EXTENSIONS[random.nextInt(EXTENSIONS.length)]);
+      result[i] = sb.toString();
+    }
+    return result;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(PathPatternMatcherBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.analysis;
+
+import java.util.Random;
+import org.junit.Test;
+import org.sonar.api.utils.PathUtils;
+import org.sonar.api.utils.WildcardPattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PathPatternMatcherTest {
+
+  @Test
+  public void should_match_like_each_pattern() {
+    SonarLintPathPattern[] patterns = SonarLintPathPattern.create(new String[] {"**/*.java", "src/main/**", "**/generated/**/*Dto.java",
+      "foo/Bar?.js", "**/test/**", "**/*Test*", "file:/root/**/*.xml", "**/node_modules/**", "a**b/*.ts", "**/.git/**"});
+    String[] paths = {"Foo.java", "src/main/Foo.java", "src/main", "src/main/", "/src/main/js/foo.js", "module/generated/a/b/UserDto.java",
+      "generated/UserDto.java", "foo/Bar1.js", "foo/Bar12.js", "module/foo/Bar1.js", "test/foo.c", "src/test", "FooTest.c", "root/x.xml",
+      "a/node_modules/b", "axyzb/c.ts", "ab/c.ts", ".git/config", "src/../Foo.c", "../Foo.c", "", "src/main/../../x.c"};
+
+    for (int i = 0; i < patterns.length; i++) {
+      PathPatternMatcher underTest = new PathPatternMatcher(new SonarLintPathPattern[] {patterns[i]});
+      for (String path : paths) {
+        assertThat(underTest.match(path, 1) == 1).as(patterns[i] + " on " + path).isEqualTo(patterns[i].match(path));
+      }
+    }
+  }
+
+  @Test
+  public void should_return_categories_with_a_matching_pattern() {
+    PathPatternMatcher underTest = new PathPatternMatcher(
+      SonarLintPathPattern.create(new String[] {"src/**"}),
+      SonarLintPathPattern.create(new String[] {"**/*.java", "**/*.js"}),
+      SonarLintPathPattern.create(new String[0]),
+      SonarLintPathPattern.create(new String[] {"**/*.js"}));
+
+    assertThat(underTest.match("src/Foo.java", 0b1111)).isEqualTo(0b0011);
+    assertThat(underTest.match("src/Foo.js", 0b1111)).isEqualTo(0b1011);
+    assertThat(underTest.match("src/Foo.js", 0b0100)).isZero();
+    assertThat(underTest.match("Foo.c", 0b1111)).isZero();
+    assertThat(underTest.match(null, 0b1111)).isZero();
+  }
+
+  @Test
+  public void should_match_random_patterns_like_each_pattern() {
+    Random random = new Random(42);
+    String[] patternParts = {"a", "b", "ab", "*", "?", "**", "/", "/", ".java", "*.java", "x*y", "a?", "**/", "/**"};
+    String[] pathParts = {"a", "b", "ab", "x", "xy", "a.java", "b.java", ".java", "ayb"};
+    for (int i = 0; i < 1000; i++) {
+      SonarLintPathPattern[] patterns = new SonarLintPathPattern[1 + random.nextInt(3)];
+      for (int j = 0; j < patterns.length; j++) {
+        patterns[j] = new SonarLintPathPattern(join(random, patternParts, 1 + random.nextInt(5), ""));
+      }
+      PathPatternMatcher underTest = new PathPatternMatcher(patterns);
+      for (int j = 0; j < 20; j++) {
+        String path = join(random, pathParts, random.nextInt(5), "/");
+        boolean expected = false;
+        for (SonarLintPathPattern pattern : patterns) {
+          expected |= pattern.match(path);
+        }
+        assertThat(underTest.match(path, 1) == 1).as(path).isEqualTo(expected);
+      }
+    }
+  }
+
+  /**
+   * Differential test against {@link WildcardPattern} itself, on the patterns the trie handles specially or hands over to it.
+   */
+  @Test
+  public void should_match_like_wildcard_pattern() {
+    String[] patterns = {"src/**", "**", "src/**/", "a/**/**", "a**", "**b", "a**/b", "a/b**c/d", "src\\**", "src\\Foo.java", "a\\*.js",
+      "**/*.java/**", "*/", "?/**"};
+    String[] paths = {"src", "src/", "src/a", "src/a/b.java", "a", "ab", "axb/b", "a/bxc/d", "a/b/c/d", "src\\Foo.java", "src\\a\\b",
+      "a\\x.js", "x/Foo.java/y", "Foo.java", "x/y", "", "/", "a/"};
+    assertMatchLikeWildcardPattern(patterns, paths);
+
+    Random random = new Random(42);
+    String[] patternParts = {"a", "b", "*", "?", "**", "/", "\\", "**/", "/**", "x**", "**x", ".java"};
+    String[] pathParts = {"a", "b", "ab", "x", "xa", "bx", "a.java", "", "\\"};
+    for (int i = 0; i < 1000; i++) {
+      String pattern = join(random, patternParts, 1 + random.nextInt(5), "");
+      String[] randomPaths = new String[20];
+      for (int j = 0; j < randomPaths.length; j++) {
+        randomPaths[j] = join(random, pathParts, random.nextInt(5), random.nextBoolean() ? "/" : "\\");
+      }
+      assertMatchLikeWildcardPattern(new String[] {pattern}, randomPaths);
+    }
+  }
+
+  private static void assertMatchLikeWildcardPattern(String[] patterns, String[] paths) {
+    for (String pattern : patterns) {
+      PathPatternMatcher underTest = new PathPatternMatcher(SonarLintPathPattern.create(new String[] {pattern}));
+      // as prepared by SonarLintPathPattern
+      WildcardPattern expected = WildcardPattern.create(pattern.startsWith("**/") ? pattern : ("**/" + pattern));
+      for (String path : paths) {
+        String sanitized = PathUtils.sanitize(path);
+        assertThat(underTest.match(path, 1) == 1).as(pattern + " on " + path).isEqualTo(sanitized != null && expected.match(sanitized));
+      }
+    }
+  }
+
+  @Test
+  public void should_match_segment_globs() {
+    assertThat(PathPatternMatcher.matchSegment("*", "")).isTrue();
+    assertThat(PathPatternMatcher.matchSegment("*.java", "Foo.java")).isTrue();
+    assertThat(PathPatternMatcher.matchSegment("*.java", "Foo.javax")).isFalse();
+    assertThat(PathPatternMatcher.matchSegment("F*o*.j?va", "Foo.java")).isTrue();
+    assertThat(PathPatternMatcher.matchSegment("?", "")).isFalse();
+    assertThat(PathPatternMatcher.matchSegment("a*b*c", "aXbXbXc")).isTrue();
+    assertThat(PathPatternMatcher.matchSegment("a*b*c", "aXbXbX")).isFalse();
+  }
+
+  private static String join(Random random, String[] parts, int count, String separator) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        sb.append(separator);
+      }
+      sb.append(parts[random.nextInt(parts.length)]);
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.analysis.filesystem;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.InputFileFilter;
+import org.sonar.api.utils.MessageException;
+import org.sonarsource.sonarlint.core.OnDiskTestClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.client.api.standalone.StandaloneAnalysisConfiguration;
+import org.sonarsource.sonarlint.core.container.analysis.issue.cache.AnalysisIssueCache;
+import org.sonarsource.sonarlint.core.container.analysis.issue.ignore.scanner.IssueExclusionsLoader;
+import org.sonarsource.sonarlint.core.container.global.MapSettings;
+import org.sonarsource.sonarlint.core.container.model.DefaultAnalysisResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FileIndexerTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private IssueExclusionsLoader issueExclusionsLoader = mock(IssueExclusionsLoader.class);
+  private AnalysisIssueCache issueCache = mock(AnalysisIssueCache.class);
+
+  // forces metadata generation, like filters provided by plugins may do
+  private final InputFileFilter filter = f -> f.lines() % 3 != 0;
+
+  @Before
+  public void prepare() {
+    // a mock returns an empty list of cached issues, which would replay every file
+    when(issueCache.lookup(any())).thenReturn(null);
+  }
+
+  @Test
+  public void should_index_in_input_order_in_parallel() throws IOException {
+    List<ClientInputFile> files = createFiles(300);
+
+    DefaultAnalysisResult serialResult = new DefaultAnalysisResult();
+    InputFileCache serial = index(files, 1, serialResult);
+    DefaultAnalysisResult parallelResult = new DefaultAnalysisResult();
+    InputFileCache parallel = index(files, 4, parallelResult);
+
+    assertThat(uris(parallel.inputFiles())).isNotEmpty().isEqualTo(uris(serial.inputFiles()));
+    assertThat(uris(parallel.getFilesByExtension("java"))).isEqualTo(uris(serial.getFilesByExtension("java")));
+    assertThat(parallel.languages()).isEqualTo(serial.languages());
+    assertThat(parallelResult.indexedFileCount()).isEqualTo(serialResult.indexedFileCount()).isEqualTo(200);
+    assertThat(new ArrayList<>(parallelResult.languagePerFile().keySet())).isEqualTo(new ArrayList<>(serialResult.languagePerFile().keySet()));
+  }
+
+  @Test
+  public void should_fail_on_duplicate_file_in_parallel() throws IOException {
+    List<ClientInputFile> files = createFiles(100);
+    // not excluded by the filter
+    files.add(files.get(48));
+
+    assertThatThrownBy(() -> index(files, 4, new DefaultAnalysisResult()))
+      .isInstanceOf(MessageException.class)
+      .hasMessageContaining("can't be indexed twice");
+  }
+
+  @Test
+  public void should_replay_cached_files_instead_of_indexing_them() throws IOException {
+    List<ClientInputFile> files = createFiles(30);
+    List<Issue> cachedIssues = singletonList(mock(Issue.class));
+    when(issueCache.lookup(any())).thenAnswer(invocation -> {
+      SonarLintInputFile inputFile = invocation.getArgument(0);
+      return inputFile.relativePath().endsWith(".js") ? cachedIssues : null;
+    });
+
+    for (int parallelism : new int[] {1, 4}) {
+      DefaultAnalysisResult result = new DefaultAnalysisResult();
+      InputFileCache cache = index(files, parallelism, result);
+
+      assertThat(uris(cache.inputFiles())).hasSize(10).noneMatch(uri -> uri.endsWith(".js"));
+      assertThat(result.indexedFileCount()).isEqualTo(20);
+      assertThat(result.languagePerFile()).hasSize(20);
+    }
+    // the 10 js files, for each of the 2 indexations
+    verify(issueCache, times(20)).replay(cachedIssues);
+  }
+
+  private InputFileCache index(List<ClientInputFile> files, int parallelism, DefaultAnalysisResult result) {
+    MapSettings settings = new MapSettings();
+    settings.setProperty(FileIndexer.PARALLELISM_PROPERTY, String.valueOf(parallelism));
+    InputFileBuilder builder = new InputFileBuilder(new LanguageDetection(settings.asConfig()), new FileMetadata(), issueExclusionsLoader);
+    StandaloneAnalysisConfiguration config = StandaloneAnalysisConfiguration.builder()
+      .setBaseDir(temp.getRoot().toPath())
+      .addInputFiles(files)
+      .build();
+    InputFileCache cache = new InputFileCache();
+    new FileIndexer(cache, builder, config, result, issueExclusionsLoader, settings.asConfig(), issueCache, new InputFileFilter[] {filter}).index();
+    return cache;
+  }
+
+  private List<ClientInputFile> createFiles(int count) throws IOException {
+    String[] extensions = {"java", "js", "txt"};
+    List<ClientInputFile> files = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      String relativePath = "file" + i + "." + extensions[i % extensions.length];
+      Path path = temp.getRoot().toPath().resolve(relativePath);
+      StringBuilder content = new StringBuilder();
+      for (int line = 0; line < i % 6; line++) {
+        content.append("line\n");
+      }
+      Files.write(path, content.toString().getBytes(StandardCharsets.UTF_8));
+      files.add(new OnDiskTestClientInputFile(path, relativePath, false, StandardCharsets.UTF_8));
+    }
+    return files;
+  }
+
+  private static List<String> uris(Iterable<InputFile> inputFiles) {
+    List<String> uris = new ArrayList<>();
+    inputFiles.forEach(f -> uris.add(f.uri().toString()));
+    return uris;
+  }
+}
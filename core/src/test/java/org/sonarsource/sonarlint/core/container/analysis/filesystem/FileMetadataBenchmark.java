@@ -0,0 +1,100 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.analysis.filesystem;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the throughput of {@link FileMetadata} with the former char by char implementation.
+ * Run with {@link #main(String[])} from the IDE, or through the JMH runner with the test classpath.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileMetadataBenchmark {
+
+  private static final URI FILE_URI = URI.create("file://benchmark");
+
+  @Param({"1", "50"})
+  public int sizeInMb;
+
+  private byte[] content;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    content = generateSource(sizeInMb * 1024 * 1024, new Random(42)).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public FileMetadata.Metadata bulkScanner() {
+    return new FileMetadata().readMetadata(new ByteArrayInputStream(content), StandardCharsets.UTF_8, FILE_URI, null);
+  }
+
+  @Benchmark
+  public FileMetadata.Metadata charByChar() throws IOException {
+    return ReferenceFileMetadata.readMetadata(new ByteArrayInputStream(content), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Source-like content: indented lines of varying length, mostly ending with "\n", some with "\r\n".
+   */
+  static String generateSource(int size, Random random) {
+    StringBuilder sb = new StringBuilder(size + 200);
+    while (sb.length() < size) {
+      int indent = random.nextInt(4) * 2;
+      for (int i = 0; i < indent; i++) {
+        sb.append(' ');
+      }
+      int length = random.nextInt(100);
+      for (int i = 0; i < length; i++) {
+        sb.append((char) ('a' + random.nextInt(26)));
+      }
+      sb.append(random.nextInt(10) == 0 ? "\r\n" : "\n");
+    }
+    return sb.toString();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(FileMetadataBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -19,9 +19,13 @@
  */
 package org.sonarsource.sonarlint.core.container.analysis.filesystem;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.net.URI;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Random;
 import org.apache.commons.io.FileUtils;
 import org.junit.AfterClass;
 import org.junit.Rule;
@@ -218,4 +222,66 @@ public class FileMetadataTest {
       "glyphicons-halflings-regular.woff' at line 1 for encoding UTF-8. Please fix file content or configure the encoding to be used using property 'sonar.sourceEncoding'.");
   }
 
+  @Test
+  public void should_match_char_by_char_implementation() throws Exception {
+    Random random = new Random(1);
+    char[] alphabet = {'a', ' ', '\n', '\r', '\ufffd', '\u00e9'};
+    for (int run = 0; run < 200; run++) {
+      // long enough to span several read chunks
+      int length = random.nextInt(3) == 0 ? random.nextInt(50_000) : random.nextInt(30);
+      StringBuilder sb = new StringBuilder(length);
+      for (int i = 0; i < length; i++) {
+        sb.append(alphabet[random.nextInt(alphabet.length)]);
+      }
+      assertSameAsReference(sb.toString());
+    }
+  }
+
+  @Test
+  public void should_handle_line_terminators_at_chunk_boundaries() throws Exception {
+    for (int position = 16 * 1024 - 2; position <= 16 * 1024 + 1; position++) {
+      String prefix = FileMetadataBenchmark.generateSource(position, new Random(position)).substring(0, position);
+      assertSameAsReference(prefix + "\r\nfoo");
+      assertSameAsReference(prefix + "\rfoo");
+      assertSameAsReference(prefix + "\r\rfoo\r");
+      assertSameAsReference(prefix + "\n\n");
+    }
+  }
+
+  private static void assertSameAsReference(String content) throws IOException {
+    byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+    RecordingHandler expectedEvents = new RecordingHandler();
+    FileMetadata.Metadata expected = ReferenceFileMetadata.readMetadata(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8, expectedEvents);
+    RecordingHandler actualEvents = new RecordingHandler();
+    FileMetadata.Metadata actual = new FileMetadata().readMetadata(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8, URI.create("file://test"), actualEvents);
+
+    assertThat(actual.lines()).isEqualTo(expected.lines());
+    assertThat(actual.originalLineOffsets()).isEqualTo(expected.originalLineOffsets());
+    assertThat(actual.lastValidOffset()).isEqualTo(expected.lastValidOffset());
+    assertThat(actualEvents.events.toString()).isEqualTo(expectedEvents.events.toString());
+  }
+
+  private static class RecordingHandler extends FileMetadata.CharHandler {
+    private final StringBuilder events = new StringBuilder();
+
+    @Override
+    protected void handleAll(char c) {
+      events.append('A').append(c);
+    }
+
+    @Override
+    protected void handleIgnoreEoL(char c) {
+      events.append('I').append(c);
+    }
+
+    @Override
+    protected void newLine() {
+      events.append('N');
+    }
+
+    @Override
+    protected void eof() {
+      events.append('E');
+    }
+  }
 }
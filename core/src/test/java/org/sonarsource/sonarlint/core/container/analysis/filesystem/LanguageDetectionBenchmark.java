@@ -0,0 +1,133 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.analysis.filesystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonarsource.sonarlint.core.client.api.common.Language;
+import org.sonarsource.sonarlint.core.container.global.MapSettings;
+
+/**
+ * Classifies 1M synthetic file names, with the trie of {@link LanguageDetection} and with the former scan of all the extensions.
+ * Run with {@link #main(String[])} from the IDE, or through the JMH runner with the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LanguageDetectionBenchmark {
+
+  private static final int FILE_COUNT = 1_000_000;
+
+  private LanguageDetection detection;
+  private List<String[]> extensions;
+  private String[] filenames;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    detection = new LanguageDetection(new MapSettings().asConfig());
+    extensions = new ArrayList<>();
+    for (Language language : Language.values()) {
+      extensions.add(language.getDefaultFileSuffixes());
+    }
+    filenames = generateFilenames(FILE_COUNT, new Random(42));
+  }
+
+  @Benchmark
+  public long trie() {
+    long result = 0;
+    for (String filename : filenames) {
+      result += detection.matchingLanguages(filename);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public long linearScan() {
+    long result = 0;
+    for (String filename : filenames) {
+      for (int i = 0; i < extensions.size(); i++) {
+        if (isCandidateForLanguage(filename, extensions.get(i))) {
+          result += i;
+        }
+      }
+    }
+    return result;
+  }
+
+  private static boolean isCandidateForLanguage(String filename, String[] extensions) {
+    for (String extension : extensions) {
+      if (filename.toLowerCase(Locale.ENGLISH).endsWith("." + extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Mostly known extensions, in various cases, plus some unknown extensions and files without extension.
+   */
+  static String[] generateFilenames(int count, Random random) {
+    List<String> knownExtensions = new ArrayList<>();
+    for (Language language : Language.values()) {
+      for (String extension : language.getDefaultFileSuffixes()) {
+        knownExtensions.add(extension);
+      }
+    }
+    String[] otherExtensions = {"txt", "md", "png", "JSON", "lock", "gitignore", "tar.gz", ""};
+    String[] filenames = new String[count];
+    for (int i = 0; i < count; i++) {
+      String base = "File" + random.nextInt(10_000);
+      int kind = random.nextInt(10);
+      if (kind < 7) {
+        String extension = knownExtensions.get(random.nextInt(knownExtensions.size()));
+        filenames[i] = base + "." + (kind == 0 ? extension.toUpperCase(Locale.ENGLISH) : extension);
+      } else if (kind < 9) {
+        filenames[i] = base + "." + otherExtensions[random.nextInt(otherExtensions.length)];
+      } else {
+        filenames[i] = base;
+      }
+    }
+    return filenames;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(LanguageDetectionBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -21,6 +21,8 @@ package org.sonarsource.sonarlint.core.container.analysis.filesystem;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -87,6 +89,36 @@ public class LanguageDetectionTest {
       .contains("XML: xhtml");
   }
 
+  @Test
+  public void should_match_extensions_with_dots_and_nested_suffixes() throws Exception {
+    MapSettings settings = new MapSettings();
+    settings.setProperty(org.sonarsource.sonarlint.core.client.api.common.Language.XML.getFileSuffixesPropKey(), "xml,.Conf.XML");
+    settings.setProperty(org.sonarsource.sonarlint.core.client.api.common.Language.HTML.getFileSuffixesPropKey(), "conf.xml");
+    LanguageDetection detection = new LanguageDetection(settings.asConfig());
+
+    assertThat(detection.language(newInputFile("a.xml"))).isEqualTo(org.sonarsource.sonarlint.core.client.api.common.Language.XML);
+    assertThat(detection.language(newInputFile("aconf.xml"))).isEqualTo(org.sonarsource.sonarlint.core.client.api.common.Language.XML);
+    assertThat(detection.language(newInputFile("conf.xml"))).isEqualTo(org.sonarsource.sonarlint.core.client.api.common.Language.XML);
+    assertThrows(MessageException.class, () -> detection.language(newInputFile("a.conf.xml")));
+  }
+
+  @Test
+  public void should_detect_same_languages_as_scanning_all_extensions() {
+    LanguageDetection detection = new LanguageDetection(new MapSettings().asConfig());
+    for (String filename : LanguageDetectionBenchmark.generateFilenames(10_000, new Random(1))) {
+      long expected = 0;
+      String lowerCaseFilename = filename.toLowerCase(Locale.ENGLISH);
+      for (org.sonarsource.sonarlint.core.client.api.common.Language language : org.sonarsource.sonarlint.core.client.api.common.Language.values()) {
+        for (String extension : language.getDefaultFileSuffixes()) {
+          if (lowerCaseFilename.endsWith("." + LanguageDetection.sanitizeExtension(extension))) {
+            expected |= 1L << language.ordinal();
+          }
+        }
+      }
+      assertThat(detection.matchingLanguages(filename)).as(filename).isEqualTo(expected);
+    }
+  }
+
   private InputFile newInputFile(String path) throws IOException {
     File basedir = temp.newFolder();
     return new TestInputFileBuilder(path).setBaseDir(basedir.toPath()).build();
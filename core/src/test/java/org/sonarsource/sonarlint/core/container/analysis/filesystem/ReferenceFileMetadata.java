@@ -0,0 +1,138 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.analysis.filesystem;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import org.sonarsource.sonarlint.core.container.analysis.filesystem.FileMetadata.CharHandler;
+import org.sonarsource.sonarlint.core.container.analysis.filesystem.FileMetadata.Metadata;
+
+/**
+ * Former implementation of {@link FileMetadata}, reading one char at a time and dispatching each char to all handlers.
+ * Kept as a reference for tests and benchmarks.
+ */
+class ReferenceFileMetadata {
+
+  private static final char LINE_FEED = '\n';
+  private static final char CARRIAGE_RETURN = '\r';
+
+  private ReferenceFileMetadata() {
+  }
+
+  private static class LineCounter extends CharHandler {
+    private int lines = 1;
+
+    @Override
+    protected void newLine() {
+      lines++;
+    }
+  }
+
+  private static class LineOffsetCounter extends CharHandler {
+    private int currentOriginalOffset = 0;
+    private List<Integer> originalLineOffsets = new ArrayList<>();
+    private int lastValidOffset = 0;
+
+    LineOffsetCounter() {
+      originalLineOffsets.add(0);
+    }
+
+    @Override
+    protected void handleAll(char c) {
+      currentOriginalOffset++;
+    }
+
+    @Override
+    protected void newLine() {
+      originalLineOffsets.add(currentOriginalOffset);
+    }
+
+    @Override
+    protected void eof() {
+      lastValidOffset = currentOriginalOffset;
+    }
+  }
+
+  static Metadata readMetadata(InputStream stream, Charset encoding, CharHandler... otherHandlers) throws IOException {
+    LineCounter lineCounter = new LineCounter();
+    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
+    CharHandler[] handlers = new CharHandler[otherHandlers.length + 2];
+    handlers[0] = lineCounter;
+    handlers[1] = lineOffsetCounter;
+    System.arraycopy(otherHandlers, 0, handlers, 2, otherHandlers.length);
+    try (Reader reader = new BufferedReader(new InputStreamReader(stream, encoding))) {
+      read(reader, handlers);
+    }
+    return new Metadata(lineCounter.lines, lineOffsetCounter.originalLineOffsets.stream().mapToInt(i -> i).toArray(), lineOffsetCounter.lastValidOffset);
+  }
+
+  private static void read(Reader reader, CharHandler... handlers) throws IOException {
+    char c;
+    int i = reader.read();
+    boolean afterCR = false;
+    while (i != -1) {
+      c = (char) i;
+      if (afterCR) {
+        for (CharHandler handler : handlers) {
+          if (c == CARRIAGE_RETURN) {
+            handler.newLine();
+            handler.handleAll(c);
+          } else if (c == LINE_FEED) {
+            handler.handleAll(c);
+            handler.newLine();
+          } else {
+            handler.newLine();
+            handler.handleIgnoreEoL(c);
+            handler.handleAll(c);
+          }
+        }
+        afterCR = c == CARRIAGE_RETURN;
+      } else if (c == LINE_FEED) {
+        for (CharHandler handler : handlers) {
+          handler.handleAll(c);
+          handler.newLine();
+        }
+      } else if (c == CARRIAGE_RETURN) {
+        afterCR = true;
+        for (CharHandler handler : handlers) {
+          handler.handleAll(c);
+        }
+      } else {
+        for (CharHandler handler : handlers) {
+          handler.handleIgnoreEoL(c);
+          handler.handleAll(c);
+        }
+      }
+      i = reader.read();
+    }
+    for (CharHandler handler : handlers) {
+      if (afterCR) {
+        handler.newLine();
+      }
+      handler.eof();
+    }
+  }
+}
@@ -28,6 +28,12 @@ import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -98,6 +104,37 @@ class SonarLintInputFileTests {
     assertThat(file.selectLine(3).end().lineOffset()).isEqualTo(0);
   }
 
+  @Test
+  public void recordExclusionsConcurrently() throws Exception {
+    ClientInputFile inputFile = new InMemoryTestClientInputFile("foo", "src/Foo.php", null, false, null);
+    SonarLintInputFile file = new SonarLintInputFile(inputFile, f -> new FileMetadata.Metadata(1, new int[] {0}, 3));
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        int first = thread * 1000;
+        futures.add(executor.submit(() -> {
+          for (int line = first; line < first + 1000; line++) {
+            file.noSonarAt(Collections.singleton(line));
+            file.addIgnoreIssuesOnLineRanges(Collections.singletonList(new int[] {line, line}));
+            file.hasNoSonarAt(line - 1);
+            file.isIgnoreAllIssuesOnLine(line - 1);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    for (int line = 0; line < 4000; line++) {
+      assertThat(file.hasNoSonarAt(line)).isTrue();
+      assertThat(file.isIgnoreAllIssuesOnLine(line)).isTrue();
+    }
+  }
+
   @Test
   public void testRangeOverlap() {
     ClientInputFile inputFile = new InMemoryTestClientInputFile("foo", "src/Foo.php", null, false, null);
@@ -0,0 +1,219 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.analysis.issue.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.rule.ActiveRule;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.rule.RuleKey;
+import org.sonarsource.sonarlint.core.OnDiskTestClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.Language;
+import org.sonarsource.sonarlint.core.client.api.common.TextRange;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueLocation;
+import org.sonarsource.sonarlint.core.client.api.standalone.StandaloneAnalysisConfiguration;
+import org.sonarsource.sonarlint.core.client.api.standalone.StandaloneGlobalConfiguration;
+import org.sonarsource.sonarlint.core.container.analysis.MutableAnalysisSettings;
+import org.sonarsource.sonarlint.core.container.analysis.filesystem.SonarLintInputFile;
+import org.sonarsource.sonarlint.core.container.model.DefaultAnalysisResult;
+import org.sonarsource.sonarlint.core.plugin.PluginRepository;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AnalysisIssueCacheTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private IssueCache issueCache;
+  private ActiveRules activeRules;
+  private MutableAnalysisSettings settings = mock(MutableAnalysisSettings.class);
+  private PluginRepository pluginRepository = mock(PluginRepository.class);
+  private List<Issue> listenedIssues = new ArrayList<>();
+  private DefaultAnalysisResult analysisResult;
+  private Path file;
+  private ClientInputFile clientInputFile;
+
+  @Before
+  public void prepare() throws IOException {
+    issueCache = new IssueCache(temp.newFolder().toPath(), true, 1024 * 1024);
+    activeRules = activeRules("MAJOR");
+    when(settings.getProperties()).thenReturn(Collections.singletonMap("sonar.java.source", "8"));
+    when(pluginRepository.getActivePluginInfos()).thenReturn(Collections.emptyList());
+    file = temp.getRoot().toPath().resolve("Foo.java");
+    Files.write(file, "class Foo {}".getBytes(StandardCharsets.UTF_8));
+    clientInputFile = new OnDiskTestClientInputFile(file, "Foo.java", false, StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void should_replay_issues_of_unchanged_file() {
+    AnalysisIssueCache first = newAnalysisIssueCache();
+    assertThat(first.lookup(inputFile(clientInputFile))).isNull();
+    Issue issue = issue(clientInputFile, new TextRange(1, 6, 1, 9), clientInputFile);
+    first.record(issue);
+    first.save();
+
+    // client objects are not the same from one analysis to the other
+    ClientInputFile sameFile = new OnDiskTestClientInputFile(file, "Foo.java", false, StandardCharsets.UTF_8);
+    AnalysisIssueCache second = newAnalysisIssueCache();
+    List<Issue> cached = second.lookup(inputFile(sameFile));
+    second.replay(cached);
+    second.save();
+
+    assertThat(listenedIssues).extracting(Issue::getRuleKey, Issue::getRuleName, Issue::getSeverity, Issue::getType, Issue::getMessage, Issue::getInputFile,
+      Issue::getStartLine, Issue::getStartLineOffset, Issue::getEndLine, Issue::getEndLineOffset)
+      .containsExactly(tuple("java:S100", "Rule name", "MAJOR", "CODE_SMELL", "Message", sameFile, 1, 6, 1, 9));
+    assertThat(listenedIssues.get(0).flows()).hasSize(1);
+    assertThat(listenedIssues.get(0).flows().get(0).locations())
+      .extracting(IssueLocation::getInputFile, IssueLocation::getStartLine, IssueLocation::getMessage)
+      .containsExactly(tuple(sameFile, 1, "Secondary"));
+    assertThat(issueCache.hits()).isEqualTo(1);
+    assertThat(issueCache.misses()).isEqualTo(1);
+    assertThat(analysisResult.cachedFileCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void should_replay_files_without_issues() {
+    AnalysisIssueCache first = newAnalysisIssueCache();
+    first.lookup(inputFile(clientInputFile));
+    first.save();
+
+    assertThat(newAnalysisIssueCache().lookup(inputFile(clientInputFile))).isEmpty();
+  }
+
+  @Test
+  public void should_analyze_changed_file() throws IOException {
+    analyzeWithoutIssues();
+    Files.write(file, "class Foo { }".getBytes(StandardCharsets.UTF_8));
+
+    assertThat(newAnalysisIssueCache().lookup(inputFile(clientInputFile))).isNull();
+  }
+
+  @Test
+  public void should_analyze_again_when_active_rules_change() {
+    analyzeWithoutIssues();
+    activeRules = activeRules("BLOCKER");
+
+    assertThat(newAnalysisIssueCache().lookup(inputFile(clientInputFile))).isNull();
+  }
+
+  @Test
+  public void should_analyze_again_when_settings_change() {
+    analyzeWithoutIssues();
+    when(settings.getProperties()).thenReturn(Collections.singletonMap("sonar.java.source", "11"));
+
+    assertThat(newAnalysisIssueCache().lookup(inputFile(clientInputFile))).isNull();
+  }
+
+  @Test
+  public void should_not_store_files_that_failed() {
+    AnalysisIssueCache first = newAnalysisIssueCache();
+    first.lookup(inputFile(clientInputFile));
+    analysisResult.addFailedAnalysisFile(clientInputFile);
+    first.save();
+
+    assertThat(newAnalysisIssueCache().lookup(inputFile(clientInputFile))).isNull();
+  }
+
+  @Test
+  public void should_not_store_issues_located_in_other_files() {
+    ClientInputFile otherFile = new OnDiskTestClientInputFile(temp.getRoot().toPath().resolve("Bar.java"), "Bar.java", false, StandardCharsets.UTF_8);
+    AnalysisIssueCache first = newAnalysisIssueCache();
+    first.lookup(inputFile(clientInputFile));
+    first.record(issue(clientInputFile, new TextRange(1, 6, 1, 9), otherFile));
+    first.save();
+
+    assertThat(newAnalysisIssueCache().lookup(inputFile(clientInputFile))).isNull();
+  }
+
+  @Test
+  public void should_do_nothing_when_disabled() {
+    issueCache = new IssueCache(temp.getRoot().toPath().resolve("disabled"), false, 1024 * 1024);
+    AnalysisIssueCache underTest = newAnalysisIssueCache();
+    assertThat(underTest.lookup(inputFile(clientInputFile))).isNull();
+    underTest.record(issue(clientInputFile, null, clientInputFile));
+    underTest.save();
+
+    assertThat(temp.getRoot().toPath().resolve("disabled")).doesNotExist();
+    assertThat(issueCache.misses()).isZero();
+  }
+
+  private void analyzeWithoutIssues() {
+    AnalysisIssueCache first = newAnalysisIssueCache();
+    first.lookup(inputFile(clientInputFile));
+    first.save();
+  }
+
+  private AnalysisIssueCache newAnalysisIssueCache() {
+    analysisResult = new DefaultAnalysisResult();
+    StandaloneAnalysisConfiguration analysisConfiguration = StandaloneAnalysisConfiguration.builder()
+      .setBaseDir(temp.getRoot().toPath())
+      .build();
+    return new AnalysisIssueCache(issueCache, StandaloneGlobalConfiguration.builder().build(), analysisConfiguration, activeRules, settings,
+      pluginRepository, listenedIssues::add, analysisResult);
+  }
+
+  private static SonarLintInputFile inputFile(ClientInputFile clientInputFile) {
+    return new SonarLintInputFile(clientInputFile, f -> null).setLanguage(Language.JAVA);
+  }
+
+  private static ActiveRules activeRules(String severity) {
+    ActiveRule activeRule = mock(ActiveRule.class);
+    when(activeRule.ruleKey()).thenReturn(RuleKey.of("java", "S100"));
+    when(activeRule.severity()).thenReturn(severity);
+    when(activeRule.params()).thenReturn(Collections.emptyMap());
+    ActiveRules activeRules = mock(ActiveRules.class);
+    when(activeRules.findAll()).thenReturn(singletonList(activeRule));
+    return activeRules;
+  }
+
+  private static Issue issue(ClientInputFile inputFile, @Nullable TextRange textRange, ClientInputFile secondaryFile) {
+    IssueLocation secondary = mock(IssueLocation.class);
+    when(secondary.getInputFile()).thenReturn(secondaryFile);
+    when(secondary.getTextRange()).thenReturn(new TextRange(1, 0, 1, 5));
+    when(secondary.getMessage()).thenReturn("Secondary");
+    Issue.Flow flow = () -> singletonList(secondary);
+    Issue issue = mock(Issue.class);
+    when(issue.getRuleKey()).thenReturn("java:S100");
+    when(issue.getRuleName()).thenReturn("Rule name");
+    when(issue.getSeverity()).thenReturn("MAJOR");
+    when(issue.getType()).thenReturn("CODE_SMELL");
+    when(issue.getMessage()).thenReturn("Message");
+    when(issue.getInputFile()).thenReturn(inputFile);
+    when(issue.getTextRange()).thenReturn(textRange);
+    when(issue.flows()).thenReturn(singletonList(flow));
+    return issue;
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.analysis.issue.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.CachedIssues;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IssueCacheTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_count_hits_and_misses() throws IOException {
+    IssueCache cache = new IssueCache(temp.newFolder().toPath(), true, 1024 * 1024);
+    CachedIssues issues = issues("java:S100");
+
+    assertThat(cache.get("0123")).isNull();
+    cache.put("0123", issues);
+    assertThat(cache.get("0123")).isEqualTo(issues);
+    assertThat(cache.get("0123")).isEqualTo(issues);
+
+    assertThat(cache.hits()).isEqualTo(2);
+    assertThat(cache.misses()).isEqualTo(1);
+  }
+
+  @Test
+  public void should_store_empty_issues() throws IOException {
+    IssueCache cache = new IssueCache(temp.newFolder().toPath(), true, 1024 * 1024);
+    cache.put("0123", CachedIssues.getDefaultInstance());
+
+    assertThat(cache.get("0123")).isEqualTo(CachedIssues.getDefaultInstance());
+  }
+
+  @Test
+  public void should_ignore_corrupted_entries() throws IOException {
+    Path dir = temp.newFolder().toPath();
+    IssueCache cache = new IssueCache(dir, true, 1024 * 1024);
+    cache.put("0123", issues("java:S100"));
+    Files.write(dir.resolve("01").resolve("0123.pb"), "corrupted".getBytes(StandardCharsets.UTF_8));
+
+    assertThat(cache.get("0123")).isNull();
+    assertThat(cache.misses()).isEqualTo(1);
+  }
+
+  @Test
+  public void should_evict_least_recently_used_entries() throws IOException {
+    Path dir = temp.newFolder().toPath();
+    CachedIssues issues = issues("java:S100");
+    int entrySize = issues.getSerializedSize();
+    IssueCache cache = new IssueCache(dir, true, 4L * entrySize);
+    cache.put("aa01", issues);
+    cache.put("bb02", issues);
+    cache.put("cc03", issues);
+    cache.put("dd04", issues);
+    setLastModified(dir, "aa01", 4000);
+    setLastModified(dir, "bb02", 1000);
+    setLastModified(dir, "cc03", 2000);
+    setLastModified(dir, "dd04", 3000);
+
+    // over the maximum size: evicted down to 3 entries
+    cache.put("ee05", issues);
+
+    assertThat(entryCount(dir)).isEqualTo(3);
+    assertThat(cache.get("bb02")).isNull();
+    assertThat(cache.get("cc03")).isNull();
+    assertThat(cache.get("aa01")).isNotNull();
+    assertThat(cache.get("dd04")).isNotNull();
+    assertThat(cache.get("ee05")).isNotNull();
+  }
+
+  @Test
+  public void should_delete_stale_temp_files_on_eviction() throws IOException {
+    Path dir = temp.newFolder().toPath();
+    CachedIssues issues = issues("java:S100");
+    int entrySize = issues.getSerializedSize();
+    IssueCache cache = new IssueCache(dir, true, 4L * entrySize);
+    Path subdir = Files.createDirectories(dir.resolve("aa"));
+    Path staleTempFile = Files.write(subdir.resolve("aa01123.tmp"), new byte[4 * entrySize]);
+    Files.setLastModifiedTime(staleTempFile, FileTime.fromMillis(System.currentTimeMillis() - IssueCache.STALE_TEMP_FILE_AGE_MS - 1000));
+    Path tempFileBeingWritten = Files.write(subdir.resolve("aa02456.tmp"), new byte[1]);
+
+    // over the maximum size because of the temp files
+    cache.put("bb01", issues);
+
+    assertThat(staleTempFile).doesNotExist();
+    assertThat(tempFileBeingWritten).exists();
+    assertThat(cache.get("bb01")).isNotNull();
+  }
+
+  @Test
+  public void should_be_disabled_by_default() {
+    assertThat(new IssueCache(temp.getRoot().toPath(), false, 0).isEnabled()).isFalse();
+  }
+
+  private static CachedIssues issues(String ruleKey) {
+    return CachedIssues.newBuilder()
+      .addIssue(CachedIssues.Issue.newBuilder().setRuleKey(ruleKey).setSeverity("MAJOR").setMessage("message"))
+      .build();
+  }
+
+  private static void setLastModified(Path dir, String key, long time) throws IOException {
+    Files.setLastModifiedTime(dir.resolve(key.substring(0, 2)).resolve(key + ".pb"), FileTime.fromMillis(time));
+  }
+
+  private static long entryCount(Path dir) throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      return files.filter(f -> f.toString().endsWith(".pb")).count();
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.connected;
+
+import org.junit.Test;
+import org.sonarsource.sonarlint.core.client.api.connected.ServerConfiguration;
+import org.sonarsource.sonarlint.core.util.ws.HttpConnector;
+import org.sonarsource.sonarlint.core.util.ws.WsConnector;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HttpConnectorRegistryTest {
+
+  private final HttpConnectorRegistry underTest = new HttpConnectorRegistry();
+
+  @Test
+  public void reuse_connector_of_same_configuration() {
+    ServerConfiguration serverConfig = serverConfig();
+
+    WsConnector connector = underTest.connector(serverConfig);
+
+    assertThat(connector.baseUrl()).isEqualTo("http://localhost:9000/");
+    assertThat(underTest.connector(serverConfig)).isSameAs(connector);
+  }
+
+  @Test
+  public void compare_configurations_by_identity() {
+    ServerConfiguration serverConfig = serverConfig();
+    ServerConfiguration equalServerConfig = serverConfig();
+
+    assertThat(equalServerConfig).isEqualTo(serverConfig);
+    assertThat(underTest.connector(equalServerConfig)).isNotSameAs(underTest.connector(serverConfig));
+  }
+
+  @Test
+  public void share_connection_pool_between_connectors() {
+    HttpConnector connector = (HttpConnector) underTest.connector(serverConfig());
+    HttpConnector otherConnector = (HttpConnector) underTest.connector(ServerConfiguration.builder()
+      .url("http://other:9000")
+      .userAgent("agent")
+      .credentials("login", "password")
+      .build());
+
+    assertThat(otherConnector.okHttpClient().connectionPool()).isSameAs(connector.okHttpClient().connectionPool());
+    assertThat(otherConnector.okHttpClient().dispatcher()).isSameAs(connector.okHttpClient().dispatcher());
+    assertThat(otherConnector.okHttpClient().sslSocketFactory()).isSameAs(connector.okHttpClient().sslSocketFactory());
+  }
+
+  private static ServerConfiguration serverConfig() {
+    return ServerConfiguration.builder()
+      .url("http://localhost:9000")
+      .userAgent("agent")
+      .build();
+  }
+}
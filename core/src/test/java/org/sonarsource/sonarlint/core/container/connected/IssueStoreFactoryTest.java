@@ -34,6 +34,6 @@ public class IssueStoreFactoryTest {
     IssueStoreFactory factory = new IssueStoreFactory();
     IssueStore store = factory.apply(temp.getRoot().toPath());
 
-    assertThat(store).isInstanceOf(IssueStore.class);
+    assertThat(store).isInstanceOf(SegmentServerIssueStore.class);
   }
 }
@@ -0,0 +1,163 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.connected;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarsource.sonarlint.core.client.api.exceptions.StorageException;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.ServerIssue;
+import org.sonarsource.sonarlint.core.util.ProgressWrapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SegmentServerIssueStoreTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path root;
+
+  @Before
+  public void start() throws IOException {
+    root = temporaryFolder.newFolder().toPath().resolve("issues");
+  }
+
+  @Test
+  public void should_pack_all_issues_in_a_single_file() throws IOException {
+    List<ServerIssue> issues = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      int file = i % 100;
+      issues.add(issue("dir" + (file % 7) + "/file" + file + ".java", i));
+    }
+    new SegmentServerIssueStore(root).save(issues);
+
+    try (Stream<Path> files = Files.list(root)) {
+      assertThat(files).containsExactly(root.resolve(SegmentServerIssueStore.SEGMENT_FILENAME));
+    }
+    SegmentServerIssueStore store = new SegmentServerIssueStore(root);
+    for (int i = 0; i < 100; i++) {
+      String path = "dir" + (i % 7) + "/file" + i + ".java";
+      assertThat(store.load(path)).hasSize(10).allMatch(issue -> issue.getPath().equals(path));
+    }
+    assertThat(store.load("dir0/file1.java")).isEmpty();
+    assertThat(store.load("nonexistent")).isEmpty();
+  }
+
+  @Test
+  public void should_save_spooled_issues() throws IOException {
+    SegmentServerIssueStore store = new SegmentServerIssueStore(root);
+    try (ServerIssueSpool spool = new ServerIssueSpool(temporaryFolder.newFolder().toPath())) {
+      spool.add(issue("path1", 1));
+      spool.add(issue("path2", 2));
+      spool.add(issue("path1", 3));
+      store.save(spool, new ProgressWrapper(null));
+    }
+
+    assertThat(root.resolve(SegmentServerIssueStore.SEGMENT_FILENAME)).exists();
+    assertThat(store.load("path1")).containsExactly(issue("path1", 1), issue("path1", 3));
+    assertThat(store.load("path2")).containsExactly(issue("path2", 2));
+  }
+
+  @Test
+  public void should_order_paths_by_code_points() {
+    List<String> paths = Arrays.asList("a", "été", "z", "😀", "￮", "", "ab", "A");
+    List<ServerIssue> issues = new ArrayList<>();
+    for (int i = 0; i < paths.size(); i++) {
+      issues.add(issue(paths.get(i), i));
+    }
+    SegmentServerIssueStore store = new SegmentServerIssueStore(root);
+    store.save(issues);
+
+    for (int i = 0; i < paths.size(); i++) {
+      assertThat(store.load(paths.get(i))).containsExactly(issues.get(i));
+    }
+  }
+
+  @Test
+  public void should_override_segment_with_updates_of_single_files() {
+    SegmentServerIssueStore store = new SegmentServerIssueStore(root);
+    store.save(Arrays.asList(issue("path1", 1), issue("path2", 2), issue("path3", 3)));
+
+    ServerIssue updated = issue("path1", 11);
+    store.save(Collections.singletonList(updated));
+    store.delete("path2");
+    store.delete("nonexistent");
+
+    SegmentServerIssueStore reopened = new SegmentServerIssueStore(root);
+    assertThat(reopened.load("path1")).containsExactly(updated);
+    assertThat(reopened.load("path2")).isEmpty();
+    assertThat(reopened.load("path3")).containsExactly(issue("path3", 3));
+  }
+
+  @Test
+  public void should_read_store_written_with_one_file_per_path() {
+    ServerIssue issue = issue("path1", 1);
+    new ServerIssueStore(root).save(Collections.singletonList(issue));
+
+    SegmentServerIssueStore store = new SegmentServerIssueStore(root);
+    assertThat(store.load("path1")).containsExactly(issue);
+
+    ServerIssue other = issue("path2", 2);
+    store.save(Collections.singletonList(other));
+    assertThat(root.resolve(SegmentServerIssueStore.SEGMENT_FILENAME)).doesNotExist();
+    assertThat(store.load("path2")).containsExactly(other);
+  }
+
+  @Test
+  public void should_map_segment_again_after_close() throws IOException {
+    SegmentServerIssueStore store = new SegmentServerIssueStore(root);
+    store.save(Collections.singletonList(issue("path1", 1)));
+    assertThat(store.load("path1")).containsExactly(issue("path1", 1));
+
+    store.close();
+    Files.delete(root.resolve(SegmentServerIssueStore.SEGMENT_FILENAME));
+    new SegmentServerIssueStore(root).save(Collections.singletonList(issue("path1", 2)));
+
+    assertThat(store.load("path1")).containsExactly(issue("path1", 2));
+  }
+
+  @Test
+  public void should_fail_on_invalid_segment() throws IOException {
+    Files.createDirectories(root);
+    Files.write(root.resolve(SegmentServerIssueStore.SEGMENT_FILENAME), "garbage".getBytes());
+
+    SegmentServerIssueStore store = new SegmentServerIssueStore(root);
+    assertThatThrownBy(() -> store.load("path1")).isInstanceOf(StorageException.class);
+  }
+
+  private static ServerIssue issue(String path, int line) {
+    return ServerIssue.newBuilder()
+      .setPath(path)
+      .setModuleKey("module")
+      .setLine(line)
+      .setMsg("message " + line)
+      .build();
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.connected;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.ServerIssue;
+import org.sonarsource.sonarlint.core.util.ProgressWrapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class ServerIssueSpoolTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path dir;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = temporaryFolder.newFolder().toPath().resolve("spool");
+  }
+
+  @Test
+  public void should_group_issues_by_file() {
+    List<ServerIssue> issues = issues(5000, 300);
+    Map<String, List<ServerIssue>> issuesPerFile;
+    try (ServerIssueSpool spool = new ServerIssueSpool(dir)) {
+      issues.forEach(spool::add);
+      assertThat(spool.count()).isEqualTo(5000);
+      issuesPerFile = drain(spool);
+    }
+
+    assertThat(issuesPerFile).hasSize(300);
+    for (ServerIssue issue : issues) {
+      assertThat(issuesPerFile.get(issue.getPath())).contains(issue);
+    }
+    // order within a file is kept
+    assertThat(issuesPerFile.get("file0").get(0).getLine()).isZero();
+    assertThat(issuesPerFile.get("file0").get(1).getLine()).isEqualTo(300);
+    assertThat(dir).doesNotExist();
+  }
+
+  @Test
+  public void should_split_large_partitions() {
+    List<ServerIssue> issues = issues(5000, 1000);
+    Map<String, List<ServerIssue>> issuesPerFile;
+    try (ServerIssueSpool spool = new ServerIssueSpool(dir, 100)) {
+      issues.forEach(spool::add);
+      issuesPerFile = drain(spool);
+    }
+
+    assertThat(issuesPerFile).hasSize(1000);
+    assertThat(issuesPerFile.values().stream().mapToInt(List::size).sum()).isEqualTo(5000);
+    assertThat(dir).doesNotExist();
+  }
+
+  @Test
+  public void should_accept_no_issues() {
+    try (ServerIssueSpool spool = new ServerIssueSpool(dir)) {
+      assertThat(drain(spool)).isEmpty();
+    }
+  }
+
+  private static Map<String, List<ServerIssue>> drain(ServerIssueSpool spool) {
+    Map<String, List<ServerIssue>> issuesPerFile = new HashMap<>();
+    spool.forEachFile(new ProgressWrapper(null), (path, fileIssues) -> {
+      if (issuesPerFile.put(path, fileIssues) != null) {
+        fail("Issues of " + path + " passed twice");
+      }
+    });
+    return issuesPerFile;
+  }
+
+  private static List<ServerIssue> issues(int count, int files) {
+    List<ServerIssue> issues = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      issues.add(ServerIssue.newBuilder()
+        .setPath("file" + (i % files))
+        .setLine(i)
+        .setMsg("message " + i)
+        .build());
+    }
+    return issues;
+  }
+}
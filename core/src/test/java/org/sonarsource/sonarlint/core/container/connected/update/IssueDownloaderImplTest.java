@@ -20,18 +20,27 @@
 package org.sonarsource.sonarlint.core.container.connected.update;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.sonarsource.sonarlint.core.container.storage.ProtobufUtilTest.toByteArray;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
 import org.sonar.scanner.protocol.input.ScannerInput;
 import org.sonarsource.sonarlint.core.WsClientTestUtils;
+import org.sonarsource.sonarlint.core.client.api.common.ProgressMonitor;
 import org.sonarsource.sonarlint.core.container.connected.SonarLintWsClient;
+import org.sonarsource.sonarlint.core.util.ProgressWrapper;
 
 public class IssueDownloaderImplTest {
   @Rule
@@ -52,6 +61,48 @@ public class IssueDownloaderImplTest {
     assertThat(issueDownloader.apply(key)).containsOnly(issue);
   }
 
+  @Test
+  public void test_download_streaming() throws IOException {
+    SonarLintWsClient wsClient = WsClientTestUtils.createMock();
+    List<ScannerInput.ServerIssue> issues = new ArrayList<>();
+    for (int i = 0; i < 2500; i++) {
+      issues.add(ScannerInput.ServerIssue.newBuilder().setKey("issue" + i).build());
+    }
+    String key = "dummyKey";
+    try (InputStream inputStream = new ByteArrayInputStream(toByteArray(issues.toArray(new ScannerInput.ServerIssue[0])))) {
+      WsClientTestUtils.addResponse(wsClient, "/batch/issues?key=" + key, inputStream);
+    }
+    ProgressMonitor monitor = mock(ProgressMonitor.class);
+
+    List<ScannerInput.ServerIssue> downloaded = new ArrayList<>();
+    new IssueDownloaderImpl(wsClient).download(key, new ProgressWrapper(monitor), downloaded::add);
+
+    assertThat(downloaded).isEqualTo(issues);
+    verify(monitor).setMessage("2000 issues");
+  }
+
+  @Test
+  public void test_download_progress_of_content_with_known_length() throws IOException {
+    SonarLintWsClient wsClient = WsClientTestUtils.createMock();
+    ScannerInput.ServerIssue[] issues = new ScannerInput.ServerIssue[2500];
+    for (int i = 0; i < issues.length; i++) {
+      issues[i] = ScannerInput.ServerIssue.newBuilder().setKey("issue" + i).build();
+    }
+    byte[] content = toByteArray(issues);
+    String key = "dummyKey";
+    WsClientTestUtils.addResponse(wsClient, "/batch/issues?key=" + key, new ByteArrayInputStream(content));
+    when(wsClient.rawGet("/batch/issues?key=" + key).contentLength()).thenReturn((long) content.length);
+    ProgressMonitor monitor = mock(ProgressMonitor.class);
+
+    new IssueDownloaderImpl(wsClient).download(key, new ProgressWrapper(monitor), issue -> {
+    });
+
+    ArgumentCaptor<Float> fractions = ArgumentCaptor.forClass(Float.class);
+    verify(monitor, times(2)).setFraction(fractions.capture());
+    assertThat(fractions.getAllValues().get(0)).isBetween(0.35f, 0.4f);
+    assertThat(fractions.getAllValues().get(1)).isBetween(0.75f, 0.8f);
+  }
+
   @Test
   public void test_code403() throws IOException {
     SonarLintWsClient wsClient = WsClientTestUtils.createMock();
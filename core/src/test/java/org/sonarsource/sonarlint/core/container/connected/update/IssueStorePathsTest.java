@@ -60,6 +60,18 @@ public class IssueStorePathsTest {
     assertThat(fileKey).isEqualTo("projectKey:unknown/path1");
   }
 
+  @Test
+  public void sq_path_to_module_key_uses_most_specific_module() {
+    Sonarlint.ProjectConfiguration projectConfiguration = Sonarlint.ProjectConfiguration.newBuilder()
+      .putModulePathByKey("root", "project")
+      .putModulePathByKey("moduleA", "project/A")
+      .build();
+
+    assertThat(issueStorePaths.sqPathToModuleKey(projectConfiguration, "projectKey", "project/A/dir:1/path1")).isEqualTo("moduleA");
+    assertThat(issueStorePaths.sqPathToModuleKey(projectConfiguration, "projectKey", "project/path1")).isEqualTo("root");
+    assertThat(issueStorePaths.sqPathToModuleKey(projectConfiguration, "projectKey", "unknown/dir:1/path1")).isEqualTo("projectKey");
+  }
+
   @Test
   public void local_path_to_fileKey_uses_modules_and_prefixes() {
     ProjectBinding projectBinding = new ProjectBinding("project", "project", "ide");
@@ -27,6 +27,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonarqube.ws.Common.Paging;
 import org.sonarqube.ws.Components.Component;
+import org.sonarqube.ws.Components.ShowWsResponse;
 import org.sonarqube.ws.Components.TreeWsResponse;
 import org.sonarsource.sonarlint.core.WsClientTestUtils;
 import org.sonarsource.sonarlint.core.container.connected.SonarLintWsClient;
@@ -35,6 +36,9 @@ import org.sonarsource.sonarlint.core.util.ProgressWrapper;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.sonarsource.sonarlint.core.container.connected.update.ModuleHierarchyDownloader.MAX_CONCURRENT_REQUESTS;
 import static org.sonarsource.sonarlint.core.container.connected.update.ModuleHierarchyDownloader.PAGE_SIZE;
 
 public class ModuleHierarchyDownloaderTest {
@@ -72,6 +76,32 @@ public class ModuleHierarchyDownloaderTest {
       entry("testRoot:module1:module11", "module1/module11"));
   }
 
+  @Test
+  public void reuseAncestorsOfOtherModules() throws IOException {
+    TreeWsResponse.Builder tree = TreeWsResponse.newBuilder()
+      .setPaging(Paging.newBuilder().setTotal(MAX_CONCURRENT_REQUESTS + 2));
+    tree.addComponents(Component.newBuilder().setKey("testRoot:module1").setPath("module1"));
+    for (int i = 0; i <= MAX_CONCURRENT_REQUESTS; i++) {
+      tree.addComponents(Component.newBuilder().setKey("testRoot:module1:leaf" + i).setPath("leaf" + i));
+      WsClientTestUtils.addResponse(wsClient, "api/components/show.protobuf?component=testRoot%3Amodule1%3Aleaf" + i, ShowWsResponse.newBuilder()
+        .setComponent(Component.newBuilder().setKey("testRoot:module1:leaf" + i))
+        .addAncestors(Component.newBuilder().setKey("testRoot:module1"))
+        .addAncestors(Component.newBuilder().setKey("testRoot"))
+        .build());
+    }
+    WsClientTestUtils.addResponse(wsClient, "api/components/tree.protobuf?qualifiers=BRC&component=testRoot&ps=500&p=1", tree.build());
+
+    Map<String, String> fetchModuleHierarchy = downloader.fetchModuleHierarchy("testRoot", new ProgressWrapper(null));
+
+    assertThat(fetchModuleHierarchy).hasSize(MAX_CONCURRENT_REQUESTS + 3)
+      .contains(
+        entry("testRoot", ""),
+        entry("testRoot:module1", "module1"),
+        entry("testRoot:module1:leaf0", "module1/leaf0"),
+        entry("testRoot:module1:leaf" + MAX_CONCURRENT_REQUESTS, "module1/leaf" + MAX_CONCURRENT_REQUESTS));
+    verify(wsClient, never()).rawGet("api/components/show.protobuf?component=testRoot%3Amodule1");
+  }
+
   @Test
   public void testNoPaginationWhenJustUnderPageSize() throws IOException {
     TreeWsResponse.Builder responseBuilder = TreeWsResponse.newBuilder()
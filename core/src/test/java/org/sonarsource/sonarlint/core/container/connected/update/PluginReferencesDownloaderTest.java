@@ -19,40 +19,58 @@
  */
 package org.sonarsource.sonarlint.core.container.connected.update;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
 import org.sonarsource.sonarlint.core.WsClientTestUtils;
+import org.sonarsource.sonarlint.core.client.api.common.ProgressMonitor;
 import org.sonarsource.sonarlint.core.client.api.common.Version;
+import org.sonarsource.sonarlint.core.client.api.connected.ConnectedGlobalConfiguration;
 import org.sonarsource.sonarlint.core.client.api.connected.SonarAnalyzer;
 import org.sonarsource.sonarlint.core.container.connected.SonarLintWsClient;
 import org.sonarsource.sonarlint.core.container.model.DefaultSonarAnalyzer;
 import org.sonarsource.sonarlint.core.container.storage.ProtobufUtil;
 import org.sonarsource.sonarlint.core.container.storage.StoragePaths;
 import org.sonarsource.sonarlint.core.plugin.cache.PluginCache;
-import org.sonarsource.sonarlint.core.plugin.cache.PluginCache.Copier;
+import org.sonarsource.sonarlint.core.plugin.cache.PluginCache.Downloader;
 import org.sonarsource.sonarlint.core.proto.Sonarlint.PluginReferences;
 import org.sonarsource.sonarlint.core.util.ProgressWrapper;
+import org.sonarsource.sonarlint.core.util.ws.GetRequest;
+import org.sonarsource.sonarlint.core.util.ws.WsResponse;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class PluginReferencesDownloaderTest {
   private PluginCache pluginCache = mock(PluginCache.class);
   private Path dest;
   private SonarLintWsClient wsClient = WsClientTestUtils.createMock();
   private List<SonarAnalyzer> pluginList = new LinkedList<>();
-  private PluginReferencesDownloader pluginUpdate = new PluginReferencesDownloader(wsClient, pluginCache);
+  private PluginReferencesDownloader pluginUpdate = new PluginReferencesDownloader(wsClient, pluginCache, ConnectedGlobalConfiguration.builder().build());
 
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
@@ -80,15 +98,20 @@ public class PluginReferencesDownloaderTest {
         tuple("groovy", "14908dd5f3a9b9d795dbc103f0af546f", "sonar-groovy-plugin-1.2.jar"),
         tuple("java", "de5308f43260d357acc97712ce4c5475", "sonar-java-plugin-3.12-SNAPSHOT.jar"));
 
-    verify(pluginCache).get(eq("sonar-java-plugin-3.12-SNAPSHOT.jar"), eq("de5308f43260d357acc97712ce4c5475"), any(Copier.class));
+    verify(pluginCache).get(eq("sonar-java-plugin-3.12-SNAPSHOT.jar"), eq("de5308f43260d357acc97712ce4c5475"), any(Downloader.class));
 
-    ArgumentCaptor<Copier> downloaderCaptor = ArgumentCaptor.forClass(Copier.class);
-    verify(pluginCache).get(eq("sonar-java-plugin-3.12-SNAPSHOT.jar"), eq("de5308f43260d357acc97712ce4c5475"), downloaderCaptor.capture());
-    Copier downloader = downloaderCaptor.getValue();
-    WsClientTestUtils.addResponse(wsClient, "/deploy/plugins/java/test.jar", "content");
-    Path testFile = temp.newFile().toPath();
-    downloader.copy("test.jar", testFile);
-    assertThat(testFile).hasContent("content");
+    Downloader downloader = captureDownloader();
+    mockDownload("/deploy/plugins/java/test.jar", 200, "content");
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    downloader.download("test.jar", 0, (in, fromOffset) -> {
+      assertThat(fromOffset).isFalse();
+      IOUtils.copy(in, content);
+    });
+    assertThat(content.toString("UTF-8")).isEqualTo("content");
+    ArgumentCaptor<GetRequest> request = ArgumentCaptor.forClass(GetRequest.class);
+    verify(wsClient).getWithHeaders(request.capture());
+    assertThat(request.getValue().getPath()).isEqualTo("/deploy/plugins/java/test.jar");
+    assertThat(request.getValue().getHeaders()).isEmpty();
   }
 
   @Test
@@ -109,15 +132,82 @@ public class PluginReferencesDownloaderTest {
         tuple("groovy", "14908dd5f3a9b9d795dbc103f0af546f", "sonar-groovy-plugin-1.2.jar"),
         tuple("java", "de5308f43260d357acc97712ce4c5475", "sonar-java-plugin-3.12-SNAPSHOT.jar"));
 
-    verify(pluginCache).get(eq("sonar-java-plugin-3.12-SNAPSHOT.jar"), eq("de5308f43260d357acc97712ce4c5475"), any(Copier.class));
+    verify(pluginCache).get(eq("sonar-java-plugin-3.12-SNAPSHOT.jar"), eq("de5308f43260d357acc97712ce4c5475"), any(Downloader.class));
 
-    ArgumentCaptor<Copier> downloaderCaptor = ArgumentCaptor.forClass(Copier.class);
-    verify(pluginCache).get(eq("sonar-java-plugin-3.12-SNAPSHOT.jar"), eq("de5308f43260d357acc97712ce4c5475"), downloaderCaptor.capture());
-    Copier downloader = downloaderCaptor.getValue();
-    WsClientTestUtils.addResponse(wsClient, "api/plugins/download?plugin=java", "content");
-    Path testFile = temp.newFile().toPath();
-    downloader.copy("test.jar", testFile);
-    assertThat(testFile).hasContent("content");
+    Downloader downloader = captureDownloader();
+    mockDownload("api/plugins/download?plugin=java", 200, "content");
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    downloader.download("test.jar", 0, (in, fromOffset) -> {
+      assertThat(fromOffset).isFalse();
+      IOUtils.copy(in, content);
+    });
+    assertThat(content.toString("UTF-8")).isEqualTo("content");
+    ArgumentCaptor<GetRequest> request = ArgumentCaptor.forClass(GetRequest.class);
+    verify(wsClient).getWithHeaders(request.capture());
+    assertThat(request.getValue().getPath()).isEqualTo("api/plugins/download?plugin=java");
+    assertThat(request.getValue().getHeaders()).isEmpty();
+  }
+
+  @Test
+  public void resume_download_with_range_request() throws Exception {
+    pluginList.add(new DefaultSonarAnalyzer("java", "sonar-java-plugin-3.12-SNAPSHOT.jar", "de5308f43260d357acc97712ce4c5475", "3.12-SNAPSHOT", true));
+
+    pluginUpdate.fetchPluginsTo(Version.create("7.2"), dest, pluginList, new ProgressWrapper(null));
+
+    Downloader downloader = captureDownloader();
+    mockDownload("api/plugins/download?plugin=java", 206, "tent");
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    downloader.download("test.jar", 3, (in, fromOffset) -> {
+      assertThat(fromOffset).isTrue();
+      IOUtils.copy(in, content);
+    });
+    assertThat(content.toString("UTF-8")).isEqualTo("tent");
+    ArgumentCaptor<GetRequest> request = ArgumentCaptor.forClass(GetRequest.class);
+    verify(wsClient).getWithHeaders(request.capture());
+    assertThat(request.getValue().getHeaders()).containsOnly(entry("Range", "bytes=3-"));
+  }
+
+  @Test
+  public void download_plugins_concurrently() throws Exception {
+    pluginList.add(new DefaultSonarAnalyzer("scmsvn", "sonar-scm-svn-plugin-1.3-SNAPSHOT.jar", "d0a68d150314d96d3469e0f2246f3537", "1.3-SNAPSHOT", true));
+    pluginList.add(new DefaultSonarAnalyzer("javascript", "sonar-javascript-plugin-2.10.jar", "79dba9cab72d8d31767f47c03d169598", "2.10", true));
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    when(pluginCache.get(anyString(), anyString(), any(Downloader.class))).thenAnswer(invocation -> {
+      bothStarted.countDown();
+      assertThat(bothStarted.await(10, TimeUnit.SECONDS)).isTrue();
+      return null;
+    });
+    ProgressMonitor monitor = mock(ProgressMonitor.class);
+
+    pluginUpdate.fetchPluginsTo(Version.create("7.2"), dest, pluginList, new ProgressWrapper(monitor));
+
+    verify(pluginCache, times(2)).get(anyString(), anyString(), any(Downloader.class));
+    verify(monitor).setMessage("Loading analyzer scmsvn");
+    verify(monitor).setMessage("Loading analyzer javascript");
+    verify(monitor).setFraction(0.5f);
+  }
+
+  @Test
+  public void download_plugins_one_by_one_if_configured() throws Exception {
+    pluginList.add(new DefaultSonarAnalyzer("scmsvn", "sonar-scm-svn-plugin-1.3-SNAPSHOT.jar", "d0a68d150314d96d3469e0f2246f3537", "1.3-SNAPSHOT", true));
+    pluginList.add(new DefaultSonarAnalyzer("javascript", "sonar-javascript-plugin-2.10.jar", "79dba9cab72d8d31767f47c03d169598", "2.10", true));
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    when(pluginCache.get(anyString(), anyString(), any(Downloader.class))).thenAnswer(invocation -> {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      Thread.sleep(10);
+      running.decrementAndGet();
+      return null;
+    });
+    Map<String, String> extraProperties = new HashMap<>();
+    extraProperties.put(PluginReferencesDownloader.DOWNLOAD_PARALLELISM_PROPERTY, "1");
+    PluginReferencesDownloader pluginUpdate = new PluginReferencesDownloader(wsClient, pluginCache,
+      ConnectedGlobalConfiguration.builder().setExtraProperties(extraProperties).build());
+
+    pluginUpdate.fetchPluginsTo(Version.create("7.2"), dest, pluginList, new ProgressWrapper(null));
+
+    verify(pluginCache, times(2)).get(anyString(), anyString(), any(Downloader.class));
+    assertThat(maxRunning.get()).isEqualTo(1);
   }
 
   @Test
@@ -128,7 +218,7 @@ public class PluginReferencesDownloaderTest {
     pluginList.add(new DefaultSonarAnalyzer("groovy", "sonar-groovy-plugin-1.2.jar", "14908dd5f3a9b9d795dbc103f0af546f", "1.2", true));
     pluginList.add(new DefaultSonarAnalyzer("java", "sonar-java-plugin-3.12-SNAPSHOT.jar", "de5308f43260d357acc97712ce4c5475", "3.12-SNAPSHOT", true));
 
-    PluginReferencesDownloader pluginUpdate = new PluginReferencesDownloader(wsClient, pluginCache);
+    PluginReferencesDownloader pluginUpdate = new PluginReferencesDownloader(wsClient, pluginCache, ConnectedGlobalConfiguration.builder().build());
     pluginUpdate.fetchPluginsTo(Version.create("7.1"), dest, pluginList, new ProgressWrapper(null));
 
     PluginReferences pluginReferences = ProtobufUtil.readFile(dest.resolve(StoragePaths.PLUGIN_REFERENCES_PB), PluginReferences.parser());
@@ -137,7 +227,7 @@ public class PluginReferencesDownloaderTest {
         tuple("groovy", "14908dd5f3a9b9d795dbc103f0af546f", "sonar-groovy-plugin-1.2.jar"),
         tuple("javascript", "79dba9cab72d8d31767f47c03d169598", "sonar-javascript-plugin-2.10.jar"));
 
-    verify(pluginCache).get(eq("sonar-java-plugin-3.12-SNAPSHOT.jar"), eq("de5308f43260d357acc97712ce4c5475"), any(Copier.class));
+    verify(pluginCache).get(eq("sonar-java-plugin-3.12-SNAPSHOT.jar"), eq("de5308f43260d357acc97712ce4c5475"), any(Downloader.class));
   }
 
   @Test
@@ -149,7 +239,7 @@ public class PluginReferencesDownloaderTest {
     pluginList.add(new DefaultSonarAnalyzer("groovy", "sonar-groovy-plugin-1.2.jar", "14908dd5f3a9b9d795dbc103f0af546f", "1.2", true));
     pluginList.add(new DefaultSonarAnalyzer("java", "sonar-java-plugin-3.12-SNAPSHOT.jar", "de5308f43260d357acc97712ce4c5475", "3.12-SNAPSHOT", true));
 
-    PluginReferencesDownloader pluginUpdate = new PluginReferencesDownloader(wsClient, pluginCache);
+    PluginReferencesDownloader pluginUpdate = new PluginReferencesDownloader(wsClient, pluginCache, ConnectedGlobalConfiguration.builder().build());
     pluginUpdate.fetchPluginsTo(Version.create("7.1"), dest, pluginList, new ProgressWrapper(null));
 
     PluginReferences pluginReferences = ProtobufUtil.readFile(dest.resolve(StoragePaths.PLUGIN_REFERENCES_PB), PluginReferences.parser());
@@ -158,6 +248,19 @@ public class PluginReferencesDownloaderTest {
         tuple("groovy", "14908dd5f3a9b9d795dbc103f0af546f", "sonar-groovy-plugin-1.2.jar"),
         tuple("javascript", "79dba9cab72d8d31767f47c03d169598", "sonar-javascript-plugin-2.10.jar"));
 
-    verify(pluginCache).get(eq("sonar-java-plugin-3.12-SNAPSHOT.jar"), eq("de5308f43260d357acc97712ce4c5475"), any(Copier.class));
+    verify(pluginCache).get(eq("sonar-java-plugin-3.12-SNAPSHOT.jar"), eq("de5308f43260d357acc97712ce4c5475"), any(Downloader.class));
+  }
+
+  private Downloader captureDownloader() {
+    ArgumentCaptor<Downloader> downloaderCaptor = ArgumentCaptor.forClass(Downloader.class);
+    verify(pluginCache).get(eq("sonar-java-plugin-3.12-SNAPSHOT.jar"), eq("de5308f43260d357acc97712ce4c5475"), downloaderCaptor.capture());
+    return downloaderCaptor.getValue();
+  }
+
+  private void mockDownload(String url, int code, String content) {
+    WsResponse response = mock(WsResponse.class);
+    when(response.code()).thenReturn(code);
+    when(response.contentStream()).thenReturn(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    when(wsClient.getWithHeaders(argThat((GetRequest request) -> request.getPath().equals(url)))).thenReturn(response);
   }
 }
@@ -23,16 +23,29 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonarqube.ws.Common.Paging;
+import org.sonarqube.ws.Components;
 import org.sonarsource.sonarlint.core.WsClientTestUtils;
+import org.sonarsource.sonarlint.core.client.api.exceptions.CanceledException;
 import org.sonarsource.sonarlint.core.container.connected.SonarLintWsClient;
 import org.sonarsource.sonarlint.core.util.ProgressWrapper;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ProjectFileListDownloaderTest {
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
   private SonarLintWsClient wsClient = WsClientTestUtils.createMock();
   private final static String PROJECT_KEY = "project1";
 
@@ -63,6 +76,46 @@ public class ProjectFileListDownloaderTest {
     }
   }
 
+  @Test
+  public void should_get_files_of_all_pages_in_order() throws IOException {
+    int total = 3 * SonarLintWsClient.PAGE_SIZE - 10;
+    for (int page = 1; page <= 3; page++) {
+      Components.TreeWsResponse.Builder response = Components.TreeWsResponse.newBuilder()
+        .setPaging(Paging.newBuilder().setPageIndex(page).setTotal(total));
+      for (int i = (page - 1) * SonarLintWsClient.PAGE_SIZE; i < Math.min(page * SonarLintWsClient.PAGE_SIZE, total); i++) {
+        response.addComponents(Components.Component.newBuilder().setKey("file" + i));
+      }
+      WsClientTestUtils.addResponse(wsClient, "api/components/tree.protobuf?qualifiers=FIL,UTS&component=project1&ps=500&p=" + page, response.build());
+    }
+
+    ProjectFileListDownloader underTest = new ProjectFileListDownloader(wsClient);
+    List<String> files = underTest.get(PROJECT_KEY, progressWrapper);
+
+    assertThat(files).hasSize(total);
+    for (int i = 0; i < total; i++) {
+      assertThat(files.get(i)).isEqualTo("file" + i);
+    }
+    verify(wsClient, never()).get("api/components/tree.protobuf?qualifiers=FIL,UTS&component=project1&ps=500&p=4");
+  }
+
+  @Test
+  public void should_stop_downloading_pages_when_canceled() throws IOException {
+    int total = 10 * SonarLintWsClient.PAGE_SIZE;
+    for (int page = 1; page <= 10; page++) {
+      WsClientTestUtils.addResponse(wsClient, "api/components/tree.protobuf?qualifiers=FIL,UTS&component=project1&ps=500&p=" + page,
+        Components.TreeWsResponse.newBuilder()
+          .setPaging(Paging.newBuilder().setPageIndex(page).setTotal(total))
+          .addComponents(Components.Component.newBuilder().setKey("file" + page))
+          .build());
+    }
+    doNothing().doThrow(new CanceledException()).when(progressWrapper).setProgressAndCheckCancel(anyString(), anyFloat());
+
+    ProjectFileListDownloader underTest = new ProjectFileListDownloader(wsClient);
+
+    exception.expect(CanceledException.class);
+    underTest.get(PROJECT_KEY, progressWrapper);
+  }
+
   @Test
   public void should_get_empty_files_if_tree_is_empty() throws IOException {
     try (InputStream in = this.getClass().getResourceAsStream("/update/empty_component_tree.pb")) {
@@ -24,6 +24,9 @@ import java.util.Optional;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.sonarqube.ws.Common.Paging;
+import org.sonarqube.ws.Components.Component;
+import org.sonarqube.ws.Components.SearchWsResponse;
 import org.sonarsource.sonarlint.core.WsClientTestUtils;
 import org.sonarsource.sonarlint.core.container.connected.SonarLintWsClient;
 import org.sonarsource.sonarlint.core.container.storage.ProtobufUtil;
@@ -32,6 +35,8 @@ import org.sonarsource.sonarlint.core.proto.Sonarlint.ProjectList;
 import org.sonarsource.sonarlint.core.util.ProgressWrapper;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ProjectListDownloaderTest {
@@ -69,4 +74,25 @@ public class ProjectListDownloaderTest {
     ProjectList moduleList = ProtobufUtil.readFile(tempDir.toPath().resolve(StoragePaths.PROJECT_LIST_PB), ProjectList.parser());
     assertThat(moduleList.getProjectsByKeyMap()).hasSize(282);
   }
+
+  @Test
+  public void limit_to_twenty_pages() throws Exception {
+    SonarLintWsClient wsClient = WsClientTestUtils.createMock();
+    int total = 2 * SonarLintWsClient.MAX_PAGES * SonarLintWsClient.PAGE_SIZE;
+    for (int page = 1; page <= SonarLintWsClient.MAX_PAGES; page++) {
+      WsClientTestUtils.addResponse(wsClient, "api/components/search.protobuf?qualifiers=TRK&ps=500&p=" + page, SearchWsResponse.newBuilder()
+        .setPaging(Paging.newBuilder().setPageIndex(page).setTotal(total))
+        .addComponents(Component.newBuilder().setKey("project" + page).setName("Project " + page))
+        .build());
+    }
+
+    File tempDir = temp.newFolder();
+
+    ProjectListDownloader moduleListUpdate = new ProjectListDownloader(wsClient);
+    moduleListUpdate.fetchTo(tempDir.toPath(), new ProgressWrapper(null));
+
+    ProjectList moduleList = ProtobufUtil.readFile(tempDir.toPath().resolve(StoragePaths.PROJECT_LIST_PB), ProjectList.parser());
+    assertThat(moduleList.getProjectsByKeyMap()).hasSize(SonarLintWsClient.MAX_PAGES);
+    verify(wsClient, never()).get("api/components/search.protobuf?qualifiers=TRK&ps=500&p=" + (SonarLintWsClient.MAX_PAGES + 1));
+  }
 }
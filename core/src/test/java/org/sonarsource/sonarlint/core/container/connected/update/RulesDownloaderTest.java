@@ -24,7 +24,18 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -32,9 +43,14 @@ import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.rule.Severity;
 import org.sonar.api.server.rule.RulesDefinition.Context;
+import org.sonarqube.ws.Common.RuleType;
+import org.sonarqube.ws.Rules.Active;
+import org.sonarqube.ws.Rules.ActiveList;
+import org.sonarqube.ws.Rules.Actives;
 import org.sonarqube.ws.Rules.SearchResponse;
 import org.sonarsource.sonarlint.core.WsClientTestUtils;
 import org.sonarsource.sonarlint.core.client.api.common.ProgressMonitor;
+import org.sonarsource.sonarlint.core.client.api.connected.ServerConfiguration;
 import org.sonarsource.sonarlint.core.container.connected.SonarLintWsClient;
 import org.sonarsource.sonarlint.core.container.storage.ProtobufUtil;
 import org.sonarsource.sonarlint.core.container.storage.StoragePaths;
@@ -188,6 +204,63 @@ public class RulesDownloaderTest {
     rulesUpdate.fetchRulesTo(tempDir.toPath(), progressWrapper);
   }
 
+  @Test
+  public void store_same_rules_as_sequential_download() throws Exception {
+    Map<String, SearchResponse> responsesByUrl = new HashMap<>();
+    Rules.Builder expectedRules = Rules.newBuilder();
+    Map<String, ActiveRules.Builder> expectedActiveRules = new HashMap<>();
+    int ruleIndex = 0;
+    for (Severity severity : Severity.values()) {
+      int total = severity.ordinal() * 600;
+      int pageCount = Math.max(1, (total + RulesDownloader.PAGE_SIZE - 1) / RulesDownloader.PAGE_SIZE);
+      for (int page = 1; page <= pageCount; page++) {
+        SearchResponse.Builder response = SearchResponse.newBuilder().setTotal(total).setP(page).setPs(RulesDownloader.PAGE_SIZE);
+        Actives.Builder actives = Actives.newBuilder();
+        for (int i = 0; i < Math.min(RulesDownloader.PAGE_SIZE, total - (page - 1) * RulesDownloader.PAGE_SIZE); i++) {
+          String key = "repo" + (ruleIndex % 3) + ":S" + ruleIndex++;
+          response.addRules(org.sonarqube.ws.Rules.Rule.newBuilder().setKey(key).setName("Rule " + key).setSeverity(severity.name()).setLang("java")
+            .setType(RuleType.CODE_SMELL));
+          actives.putActives(key, ActiveList.newBuilder()
+            .addActiveList(Active.newBuilder().setQProfile("qp" + (ruleIndex % 2)).setSeverity(severity.name()))
+            .build());
+        }
+        response.setActives(actives);
+        responsesByUrl.put(RULES_SEARCH_URL + "&severities=" + severity.name() + "&p=" + page + "&ps=" + RulesDownloader.PAGE_SIZE, response.build());
+        RulesDownloader.readPage(expectedRules, expectedActiveRules, response.build());
+      }
+    }
+
+    try (MockWebServer server = new MockWebServer()) {
+      server.setDispatcher(new Dispatcher() {
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+          SearchResponse response = responsesByUrl.get(request.getPath());
+          if (response == null) {
+            return new MockResponse().setResponseCode(404);
+          }
+          return new MockResponse()
+            .setBodyDelay(ThreadLocalRandom.current().nextInt(20), TimeUnit.MILLISECONDS)
+            .setBody(new Buffer().write(response.toByteArray()));
+        }
+      });
+      server.start();
+      SonarLintWsClient wsClient = new SonarLintWsClient(ServerConfiguration.builder()
+        .url(server.url("/").toString())
+        .userAgent("UT")
+        .build());
+
+      new RulesDownloader(wsClient).fetchRulesTo(tempDir.toPath(), progressWrapper);
+
+      assertThat(server.getRequestCount()).isEqualTo(responsesByUrl.size());
+    }
+
+    assertThat(Files.readAllBytes(tempDir.toPath().resolve(StoragePaths.RULES_PB))).isEqualTo(expectedRules.build().toByteArray());
+    for (Map.Entry<String, ActiveRules.Builder> entry : expectedActiveRules.entrySet()) {
+      Path activeRulesPath = tempDir.toPath().resolve(StoragePaths.ACTIVE_RULES_FOLDER).resolve(StoragePaths.encodeForFs(entry.getKey()) + ".pb");
+      assertThat(Files.readAllBytes(activeRulesPath)).isEqualTo(entry.getValue().build().toByteArray());
+    }
+  }
+
   private void emptyMockForAllSeverities(SonarLintWsClient mock) {
     emptyMockForAllSeverities(mock, RULES_SEARCH_URL);
   }
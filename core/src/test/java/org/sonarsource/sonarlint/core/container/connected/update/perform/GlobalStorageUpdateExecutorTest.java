@@ -39,6 +39,7 @@ import org.sonarsource.sonarlint.core.container.connected.update.SettingsDownloa
 import org.sonarsource.sonarlint.core.container.connected.validate.ServerVersionAndStatusChecker;
 import org.sonarsource.sonarlint.core.container.storage.ProtobufUtil;
 import org.sonarsource.sonarlint.core.container.storage.StoragePaths;
+import org.sonarsource.sonarlint.core.container.storage.StorageSwap;
 import org.sonarsource.sonarlint.core.proto.Sonarlint.ServerInfos;
 import org.sonarsource.sonarlint.core.proto.Sonarlint.StorageStatus;
 import org.sonarsource.sonarlint.core.util.ProgressWrapper;
@@ -80,7 +81,7 @@ public class GlobalStorageUpdateExecutorTest {
     when(storageManager.getGlobalStorageRoot()).thenReturn(destDir.toPath());
     globalUpdate = new GlobalStorageUpdateExecutor(storageManager, wsClient, new ServerVersionAndStatusChecker(wsClient),
       mock(PluginReferencesDownloader.class), mock(SettingsDownloader.class), rulesDownloader, mock(ProjectListDownloader.class),
-      mock(QualityProfilesDownloader.class), mock(PluginListDownloader.class), tempFolder);
+      mock(QualityProfilesDownloader.class), mock(PluginListDownloader.class), tempFolder, StorageSwap.immediate());
   }
 
   @Test
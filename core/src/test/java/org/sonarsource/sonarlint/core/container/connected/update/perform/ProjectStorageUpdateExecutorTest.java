@@ -58,6 +58,7 @@ import org.sonarsource.sonarlint.core.container.connected.update.SettingsDownloa
 import org.sonarsource.sonarlint.core.container.storage.ProtobufUtil;
 import org.sonarsource.sonarlint.core.container.storage.StoragePaths;
 import org.sonarsource.sonarlint.core.container.storage.StorageReader;
+import org.sonarsource.sonarlint.core.container.storage.StorageSwap;
 import org.sonarsource.sonarlint.core.proto.Sonarlint;
 import org.sonarsource.sonarlint.core.proto.Sonarlint.GlobalProperties;
 import org.sonarsource.sonarlint.core.proto.Sonarlint.ProjectConfiguration;
@@ -156,7 +157,7 @@ public class ProjectStorageUpdateExecutorTest {
     projectConfigurationDownloader = new ProjectConfigurationDownloader(moduleHierarchy, new ProjectQualityProfilesDownloader(wsClient), mock(SettingsDownloader.class));
 
     projectUpdate = new ProjectStorageUpdateExecutor(storageReader, storagePaths, wsClient, tempFolder,
-      projectConfigurationDownloader, projectFileListDownloader, serverIssueUpdater);
+      projectConfigurationDownloader, projectFileListDownloader, serverIssueUpdater, StorageSwap.immediate());
   }
 
   @Test
@@ -250,20 +251,20 @@ public class ProjectStorageUpdateExecutorTest {
     IssueDownloader issueDownloader = projectKey -> Arrays.asList(fileIssue1, fileIssue2, anotherFileIssue);
 
     projectUpdate = new ProjectStorageUpdateExecutor(storageReader, storagePaths, wsClient, tempFolder, projectConfigurationDownloader,
-      projectFileListDownloader, serverIssueUpdater);
+      projectFileListDownloader, serverIssueUpdater, StorageSwap.immediate());
     projectUpdate.update(MODULE_KEY_WITH_BRANCH, new ProgressWrapper(null));
 
     // TODO
     // assertThat(issueStore.load("TODO")).containsOnly(fileIssue1, fileIssue2);
     // assertThat(issueStore.load("TODO")).containsOnly(anotherFileIssue);
-    verify(serverIssueUpdater).updateServerIssues(eq(MODULE_KEY_WITH_BRANCH), any(ProjectConfiguration.class), any(Path.class));
+    verify(serverIssueUpdater).updateServerIssues(eq(MODULE_KEY_WITH_BRANCH), any(ProjectConfiguration.class), any(Path.class), any(ProgressWrapper.class));
   }
 
   @Test
   public void test_update_components() {
     Path temp = tempFolder.newDir().toPath();
     projectUpdate = new ProjectStorageUpdateExecutor(storageReader, storagePaths, wsClient, tempFolder, projectConfigurationDownloader,
-      projectFileListDownloader, serverIssueUpdater);
+      projectFileListDownloader, serverIssueUpdater, StorageSwap.immediate());
     ProjectConfiguration.Builder projectConfigurationBuilder = ProjectConfiguration.newBuilder();
     projectConfigurationBuilder.getMutableModulePathByKey().put("rootModule", "");
     projectConfigurationBuilder.getMutableModulePathByKey().put("moduleA", "A");
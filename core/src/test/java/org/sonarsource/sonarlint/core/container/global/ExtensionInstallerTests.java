@@ -42,8 +42,11 @@ import org.sonarsource.sonarlint.core.plugin.PluginRepository;
 
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -157,6 +160,36 @@ public class ExtensionInstallerTests {
     verify(container).addExtension(pluginInfo, TypeScriptSensor.class);
   }
 
+  @Test
+  public void define_plugins_only_once_per_scope() {
+    PluginInfo pluginInfo = new PluginInfo("foo");
+    pluginInfo.setSonarLintSupported(true);
+    when(pluginRepository.getActivePluginInfos()).thenReturn(singletonList(pluginInfo));
+    when(pluginRepository.getPluginInstance("foo")).thenReturn(new FakePlugin());
+
+    underTest.install(container, false);
+    underTest.install(container, false);
+
+    verify(pluginRepository, times(1)).getPluginInstance("foo");
+    verify(container, times(2)).addExtension(pluginInfo, FakeComponent.class);
+  }
+
+  @Test
+  public void define_plugins_providing_instances_once_per_container() {
+    PluginInfo pluginInfo = new PluginInfo("foo");
+    pluginInfo.setSonarLintSupported(true);
+    when(pluginRepository.getActivePluginInfos()).thenReturn(singletonList(pluginInfo));
+    FakeInstancePlugin plugin = new FakeInstancePlugin();
+    when(pluginRepository.getPluginInstance("foo")).thenReturn(plugin);
+
+    underTest.install(container, false);
+    assertThat(plugin.defineCalls).isEqualTo(1);
+
+    underTest.install(container, false);
+    assertThat(plugin.defineCalls).isEqualTo(2);
+    verify(container, times(2)).addExtension(eq(pluginInfo), any(FakeComponent.class));
+  }
+
   private static class FakePlugin implements Plugin {
 
     @Override
@@ -168,6 +201,17 @@ public class ExtensionInstallerTests {
 
   }
 
+  private static class FakeInstancePlugin implements Plugin {
+    private int defineCalls;
+
+    @Override
+    public void define(Context context) {
+      defineCalls++;
+      context.addExtension(new FakeComponent());
+    }
+
+  }
+
   @SonarLintSide
   private static class FakeComponent {
   }
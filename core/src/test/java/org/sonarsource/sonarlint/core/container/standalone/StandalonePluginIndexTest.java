@@ -41,6 +41,7 @@ import org.junit.rules.TemporaryFolder;
 import org.sonarsource.sonarlint.core.client.api.exceptions.StorageException;
 import org.sonarsource.sonarlint.core.plugin.PluginIndex.PluginReference;
 import org.sonarsource.sonarlint.core.plugin.cache.PluginCache;
+import org.sonarsource.sonarlint.core.plugin.cache.PluginMetadataCache;
 
 public class StandalonePluginIndexTest {
   private StandalonePluginIndex index;
@@ -59,7 +60,8 @@ public class StandalonePluginIndexTest {
     URL plugin = file.toURI().toURL();
     StandalonePluginUrls urls = new StandalonePluginUrls(Collections.singletonList(plugin));
     cache = mock(PluginCache.class);
-    index = new StandalonePluginIndex(urls, cache);
+    when(cache.getCacheDir()).thenReturn(temp.newFolder().toPath());
+    index = new StandalonePluginIndex(urls, cache, new PluginMetadataCache(cache));
   }
 
   @Test
@@ -43,6 +43,8 @@ import org.sonarsource.sonarlint.core.proto.Sonarlint.ProjectConfiguration.Build
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class IssueStoreReaderTest {
@@ -57,10 +59,11 @@ public class IssueStoreReaderTest {
   @Rule
   public ExpectedException exception = ExpectedException.none();
 
+  private IssueStoreFactory issueStoreFactory = mock(IssueStoreFactory.class);
+  private Path storagePath = mock(Path.class);
+
   @Before
   public void setUp() {
-    IssueStoreFactory issueStoreFactory = mock(IssueStoreFactory.class);
-    Path storagePath = mock(Path.class);
     when(storagePaths.getServerIssuesPath(PROJECT_KEY)).thenReturn(storagePath);
     when(issueStoreFactory.apply(storagePath)).thenReturn(issueStore);
 
@@ -74,6 +77,20 @@ public class IssueStoreReaderTest {
     when(storageReader.readProjectConfig(PROJECT_KEY)).thenReturn(moduleConfigBuilder.build());
   }
 
+  @Test
+  public void open_store_once_until_closed() {
+    setModulePaths(Collections.singletonMap(PROJECT_KEY, ""));
+    issueStore.save(Collections.singletonList(createServerIssue(PROJECT_KEY, "path1")));
+
+    issueStoreReader.getServerIssues(projectBinding, "path1");
+    issueStoreReader.getServerIssues(projectBinding, "path2");
+    verify(issueStoreFactory, times(1)).apply(storagePath);
+
+    issueStoreReader.closeStores();
+    assertThat(issueStoreReader.getServerIssues(projectBinding, "path1")).hasSize(1);
+    verify(issueStoreFactory, times(2)).apply(storagePath);
+  }
+
   @Test
   public void testMultiModule() {
     // setup module hierarchy
@@ -0,0 +1,57 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.storage;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Test;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonarsource.sonarlint.core.container.global.DefaultActiveRules;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StorageActiveRulesCacheTest {
+
+  private StorageActiveRulesCache underTest = new StorageActiveRulesCache();
+  private AtomicInteger loads = new AtomicInteger();
+  private Supplier<ActiveRules> loader = () -> {
+    loads.incrementAndGet();
+    return new DefaultActiveRules(Collections.emptyList());
+  };
+
+  @Test
+  public void should_share_active_rules_of_a_project() {
+    ActiveRules activeRules = underTest.get("project", loader);
+
+    assertThat(underTest.get("project", loader)).isSameAs(activeRules);
+    assertThat(underTest.get(null, loader)).isNotSameAs(activeRules);
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  public void should_reload_active_rules_of_an_invalidated_project() {
+    ActiveRules activeRules = underTest.get("project", loader);
+    underTest.invalidateProject("project");
+
+    assertThat(underTest.get("project", loader)).isNotSameAs(activeRules);
+    assertThat(loads).hasValue(2);
+  }
+}
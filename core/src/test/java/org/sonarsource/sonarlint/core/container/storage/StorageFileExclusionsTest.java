@@ -0,0 +1,87 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonarsource.sonarlint.core.client.api.connected.ProjectBinding;
+import org.sonarsource.sonarlint.core.container.connected.update.IssueStorePaths;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.GlobalProperties;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.ProjectConfiguration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StorageFileExclusionsTest {
+
+  private static final String PROJECT_KEY = "project";
+  private static final ProjectBinding BINDING = new ProjectBinding(PROJECT_KEY, "", "");
+  private static final List<String> FILES = Arrays.asList("src/Foo.java", "test/FooTest.java", "Bar.java");
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  private Path projectConfigPath;
+  private StorageFileExclusions underTest;
+
+  @Before
+  public void prepare() throws IOException {
+    logTester.setLevel(LoggerLevel.DEBUG);
+    Path globalPropsPath = temp.newFile().toPath();
+    projectConfigPath = temp.newFile().toPath();
+    ProtobufUtil.writeToFile(GlobalProperties.newBuilder().build(), globalPropsPath);
+    StoragePaths storagePaths = mock(StoragePaths.class);
+    when(storagePaths.getGlobalPropertiesPath()).thenReturn(globalPropsPath);
+    when(storagePaths.getProjectConfigurationPath(PROJECT_KEY)).thenReturn(projectConfigPath);
+    StorageReader storageReader = mock(StorageReader.class);
+    when(storageReader.getStoragePaths()).thenReturn(storagePaths);
+    underTest = new StorageFileExclusions(storageReader, new IssueStorePaths());
+  }
+
+  @Test
+  public void should_prepare_filters_once_per_generation_of_the_storage() {
+    writeProjectConfig("sonar.exclusions", "src/**");
+
+    assertThat(underTest.getExcludedFiles(BINDING, FILES, Function.identity(), f -> f.contains("Test"))).containsOnly("src/Foo.java");
+    assertThat(underTest.getExcludedFiles(BINDING, FILES, Function.identity(), f -> f.contains("Test"))).containsOnly("src/Foo.java");
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).containsOnlyOnce("Server excluded sources: ");
+
+    // same size, new content
+    writeProjectConfig("sonar.exclusions", "Bar.**");
+
+    assertThat(underTest.getExcludedFiles(BINDING, FILES, Function.identity(), f -> f.contains("Test"))).containsOnly("Bar.java");
+  }
+
+  private void writeProjectConfig(String key, String value) {
+    ProtobufUtil.writeToFile(ProjectConfiguration.newBuilder().putProperties(key, value).build(), projectConfigPath);
+  }
+}
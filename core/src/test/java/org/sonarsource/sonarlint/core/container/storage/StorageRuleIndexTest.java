@@ -0,0 +1,100 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.container.storage;
+
+import java.nio.file.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarsource.sonarlint.core.proto.Sonarlint;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.ActiveRules;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.ActiveRules.ActiveRule;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.ProjectConfiguration;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.QProfiles;
+import org.sonarsource.sonarlint.core.proto.Sonarlint.Rules;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StorageRuleIndexTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private StoragePaths storagePaths = mock(StoragePaths.class);
+  private StorageReader storageReader = mock(StorageReader.class);
+  private StorageRuleIndex underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    Path rulesPath = temp.newFile().toPath();
+    Rules.Builder rules = Rules.newBuilder();
+    rules.putRulesByKey("java:S1", Rules.Rule.newBuilder().setRepo("java").setKey("S1").setName("Rule 1").setHtmlDesc("<p>desc 1</p>").setSeverity("MAJOR").build());
+    rules.putRulesByKey("java:S2", Rules.Rule.newBuilder().setRepo("java").setKey("S2").setName("Rule 2").setHtmlDesc("<p>desc 2</p>").build());
+    ProtobufUtil.writeToFile(rules.build(), rulesPath);
+    when(storagePaths.getRulesPath()).thenReturn(rulesPath);
+
+    underTest = new StorageRuleIndex(storagePaths, storageReader);
+  }
+
+  @Test
+  public void should_index_rules_without_description() {
+    assertThat(underTest.getRule("java:S1").getName()).isEqualTo("Rule 1");
+    assertThat(underTest.getRule("java:S1").getSeverity()).isEqualTo("MAJOR");
+    assertThat(underTest.getRule("java:S1").getHtmlDesc()).isEmpty();
+    assertThat(underTest.getRule("java:S3")).isNull();
+  }
+
+  @Test
+  public void should_read_description_lazily() {
+    assertThat(underTest.getHtmlDescription("java:S1")).isEqualTo("<p>desc 1</p>");
+    assertThat(underTest.getHtmlDescription("java:S2")).isEqualTo("<p>desc 2</p>");
+  }
+
+  @Test
+  public void should_cache_active_severities_until_project_is_invalidated() {
+    when(storageReader.readProjectConfig("project")).thenReturn(ProjectConfiguration.newBuilder().putQprofilePerLanguage("java", "qp1").build());
+    when(storageReader.readActiveRules("qp1")).thenReturn(ActiveRules.newBuilder()
+      .putActiveRulesByKey("java:S1", ActiveRule.newBuilder().setSeverity("BLOCKER").build())
+      .build());
+
+    assertThat(underTest.getActiveSeverity("java:S1", "project")).isEqualTo("BLOCKER");
+    assertThat(underTest.getActiveSeverity("java:S2", "project")).isNull();
+    verify(storageReader, times(1)).readProjectConfig("project");
+
+    underTest.invalidateProject("project");
+    assertThat(underTest.getActiveSeverity("java:S1", "project")).isEqualTo("BLOCKER");
+    verify(storageReader, times(2)).readProjectConfig("project");
+    verify(storageReader, times(1)).readActiveRules("qp1");
+  }
+
+  @Test
+  public void should_use_default_quality_profiles_without_project() {
+    when(storageReader.readQProfiles()).thenReturn(QProfiles.newBuilder().putDefaultQProfilesByLanguage("java", "qp1").build());
+    when(storageReader.readActiveRules("qp1")).thenReturn(Sonarlint.ActiveRules.newBuilder()
+      .putActiveRulesByKey("java:S2", ActiveRule.newBuilder().setSeverity("MINOR").build())
+      .build());
+
+    assertThat(underTest.getActiveSeverity("java:S2", null)).isEqualTo("MINOR");
+  }
+}
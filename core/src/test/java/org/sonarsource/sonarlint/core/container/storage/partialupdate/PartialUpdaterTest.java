@@ -20,9 +20,13 @@
 package org.sonarsource.sonarlint.core.container.storage.partialupdate;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -34,19 +38,26 @@ import org.sonarsource.sonarlint.core.client.api.connected.ProjectBinding;
 import org.sonarsource.sonarlint.core.client.api.exceptions.DownloadException;
 import org.sonarsource.sonarlint.core.container.connected.IssueStore;
 import org.sonarsource.sonarlint.core.container.connected.IssueStoreFactory;
+import org.sonarsource.sonarlint.core.container.connected.ServerIssueSpool;
 import org.sonarsource.sonarlint.core.container.connected.update.IssueDownloader;
 import org.sonarsource.sonarlint.core.container.connected.update.IssueStorePaths;
 import org.sonarsource.sonarlint.core.container.connected.update.ProjectListDownloader;
 import org.sonarsource.sonarlint.core.container.storage.StoragePaths;
+import org.sonarsource.sonarlint.core.container.storage.StorageSwap;
 import org.sonarsource.sonarlint.core.proto.Sonarlint;
 import org.sonarsource.sonarlint.core.util.ProgressWrapper;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyListOf;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
@@ -71,8 +82,9 @@ public class PartialUpdaterTest {
 
   @Before
   public void setUp() {
-    updater = new PartialUpdater(issueStoreFactory, downloader, storagePaths, projectListDownloader, issueStorePaths, tempFolder);
+    updater = new PartialUpdater(issueStoreFactory, downloader, storagePaths, projectListDownloader, issueStorePaths, tempFolder, StorageSwap.immediate());
     when(issueStoreFactory.apply(any(Path.class))).thenReturn(issueStore);
+    when(issueStorePaths.sqPathToModuleKey(any(), any(), any())).thenReturn("module");
   }
 
   @Test
@@ -113,16 +125,94 @@ public class PartialUpdaterTest {
 
     when(storagePaths.getServerIssuesPath(projectBinding.projectKey())).thenReturn(temp.newFolder().toPath());
     when(downloader.apply(projectBinding.projectKey())).thenReturn(issues);
+    doCallRealMethod().when(downloader).download(eq(projectBinding.projectKey()), any(ProgressWrapper.class), any());
+    when(issueStorePaths.toStorageIssue(issue, projectConfiguration)).thenReturn(Sonarlint.ServerIssue.newBuilder().setKey("issue1").build());
 
     updater.updateFileIssues(projectBinding.projectKey(), projectConfiguration);
 
-    verify(issueStore).save(anyListOf(Sonarlint.ServerIssue.class));
+    verify(issueStore).save(any(ServerIssueSpool.class), any(ProgressWrapper.class));
+  }
+
+  @Test
+  public void update_issues_of_several_files_one_by_one() {
+    when(issueStorePaths.idePathToFileKey(projectConfiguration, projectBinding, "file1")).thenReturn("module:file1");
+    when(issueStorePaths.idePathToFileKey(projectConfiguration, projectBinding, "file2")).thenReturn("module:file2");
+    when(issueStorePaths.idePathToSqPath(projectBinding, "file1")).thenReturn("file1");
+    when(issueStorePaths.idePathToSqPath(projectBinding, "file2")).thenReturn("file2");
+    ServerIssue issue = ServerIssue.newBuilder().setKey("issue1").build();
+    mockDownload("module:file1", issue);
+    mockDownload("module:file2");
+    when(issueStorePaths.toStorageIssue(issue, projectConfiguration)).thenReturn(Sonarlint.ServerIssue.newBuilder().setKey("issue1").setPath("file1").build());
+    when(storagePaths.getServerIssuesPath("module")).thenReturn(temp.getRoot().toPath());
+
+    updater.updateFileIssues(projectBinding, projectConfiguration, Arrays.asList("file1", "file2"));
+
+    verify(issueStore).save(Collections.singletonList(Sonarlint.ServerIssue.newBuilder().setKey("issue1").setPath("file1").build()));
+    verify(issueStore).delete("file2");
+  }
+
+  @Test
+  public void update_issues_of_many_files_of_a_module_at_once() {
+    List<String> files = new ArrayList<>();
+    for (int i = 0; i < PartialUpdater.MODULE_DOWNLOAD_THRESHOLD; i++) {
+      String file = "file" + i;
+      files.add(file);
+      when(issueStorePaths.idePathToFileKey(projectConfiguration, projectBinding, file)).thenReturn("module:" + file);
+      when(issueStorePaths.idePathToSqPath(projectBinding, file)).thenReturn(file);
+    }
+    ServerIssue issue = ServerIssue.newBuilder().setKey("issue1").build();
+    ServerIssue otherFileIssue = ServerIssue.newBuilder().setKey("issue2").build();
+    mockDownload("module", issue, otherFileIssue);
+    when(issueStorePaths.toStorageIssue(issue, projectConfiguration)).thenReturn(Sonarlint.ServerIssue.newBuilder().setKey("issue1").setPath("file0").build());
+    when(issueStorePaths.toStorageIssue(otherFileIssue, projectConfiguration)).thenReturn(Sonarlint.ServerIssue.newBuilder().setKey("issue2").setPath("other").build());
+    when(storagePaths.getServerIssuesPath("module")).thenReturn(temp.getRoot().toPath());
+
+    updater.updateFileIssues(projectBinding, projectConfiguration, files);
+
+    verify(downloader).download(eq("module"), any(ProgressWrapper.class), any());
+    verifyNoMoreInteractions(downloader);
+    verify(issueStore).save(Collections.singletonList(Sonarlint.ServerIssue.newBuilder().setKey("issue1").setPath("file0").build()));
+    verify(issueStore, never()).delete("file0");
+    verify(issueStore).delete("file1");
+  }
+
+  @Test
+  public void group_files_by_module_key_when_paths_contain_colons() {
+    List<String> files = new ArrayList<>();
+    for (int i = 0; i < PartialUpdater.MODULE_DOWNLOAD_THRESHOLD; i++) {
+      String file = "dir:" + i + "/file";
+      files.add(file);
+      when(issueStorePaths.idePathToFileKey(projectConfiguration, projectBinding, file)).thenReturn("module:" + file);
+      when(issueStorePaths.idePathToSqPath(projectBinding, file)).thenReturn(file);
+    }
+    mockDownload("module");
+    when(storagePaths.getServerIssuesPath("module")).thenReturn(temp.getRoot().toPath());
+
+    updater.updateFileIssues(projectBinding, projectConfiguration, files);
+
+    verify(downloader).download(eq("module"), any(ProgressWrapper.class), any());
+    verifyNoMoreInteractions(downloader);
+  }
+
+  @Test
+  public void error_downloading_issues_of_several_files() {
+    when(issueStorePaths.idePathToFileKey(projectConfiguration, projectBinding, "file1")).thenReturn("module:file1");
+    when(issueStorePaths.idePathToFileKey(projectConfiguration, projectBinding, "file2")).thenReturn("module:file2");
+    mockDownload("module:file1");
+    doThrow(IllegalArgumentException.class).when(downloader).download(eq("module:file2"), any(ProgressWrapper.class), any());
+
+    exception.expect(DownloadException.class);
+    try {
+      updater.updateFileIssues(projectBinding, projectConfiguration, Arrays.asList("file1", "file2"));
+    } finally {
+      verifyZeroInteractions(issueStore);
+    }
   }
 
   @Test
   public void error_downloading_modules() {
     when(storagePaths.getGlobalStorageRoot()).thenReturn(temp.getRoot().toPath());
-    doThrow(IllegalArgumentException.class).when(projectListDownloader).fetchTo(eq(temp.getRoot().toPath()), any(ProgressWrapper.class));
+    doThrow(IllegalArgumentException.class).when(projectListDownloader).fetchTo(any(Path.class), any(ProgressWrapper.class));
     exception.expect(DownloadException.class);
 
     updater.updateProjectList(new ProgressWrapper(null));
@@ -131,7 +221,38 @@ public class PartialUpdaterTest {
   @Test
   public void update_module_list() {
     when(storagePaths.getGlobalStorageRoot()).thenReturn(temp.getRoot().toPath());
+    doAnswer(invocation -> {
+      Files.write(invocation.<Path>getArgument(0).resolve(StoragePaths.PROJECT_LIST_PB), new byte[] {42});
+      return null;
+    }).when(projectListDownloader).fetchTo(any(Path.class), any(ProgressWrapper.class));
+
     updater.updateProjectList(new ProgressWrapper(null));
-    verify(projectListDownloader).fetchTo(eq(temp.getRoot().toPath()), any(ProgressWrapper.class));
+
+    assertThat(temp.getRoot().toPath().resolve(StoragePaths.PROJECT_LIST_PB)).hasBinaryContent(new byte[] {42});
+  }
+
+  @Test
+  public void store_downloaded_issues_during_swap() {
+    List<Runnable> swaps = new ArrayList<>();
+    updater = new PartialUpdater(issueStoreFactory, downloader, storagePaths, projectListDownloader, issueStorePaths, tempFolder, new StorageSwap(swaps::add));
+    when(issueStorePaths.idePathToFileKey(projectConfiguration, projectBinding, "file")).thenReturn("module:file");
+    when(storagePaths.getServerIssuesPath("module")).thenReturn(temp.getRoot().toPath());
+    when(downloader.apply("module:file")).thenReturn(Collections.singletonList(ServerIssue.newBuilder().setKey("issue1").build()));
+
+    updater.updateFileIssues(projectBinding, projectConfiguration, "file");
+
+    verify(downloader).apply("module:file");
+    verifyZeroInteractions(issueStore);
+    assertThat(swaps).hasSize(1);
+    swaps.get(0).run();
+    verify(issueStore).save(anyListOf(Sonarlint.ServerIssue.class));
+  }
+
+  private void mockDownload(String componentKey, ServerIssue... issues) {
+    doAnswer(invocation -> {
+      Consumer<ServerIssue> consumer = invocation.getArgument(2);
+      Arrays.stream(issues).forEach(consumer);
+      return null;
+    }).when(downloader).download(eq(componentKey), any(ProgressWrapper.class), any());
   }
 }
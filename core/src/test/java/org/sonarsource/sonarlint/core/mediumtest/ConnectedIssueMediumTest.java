@@ -34,9 +34,11 @@ import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.log.Loggers;
 import org.sonarsource.sonarlint.core.ConnectedSonarLintEngineImpl;
 import org.sonarsource.sonarlint.core.NodeJsHelper;
 import org.sonarsource.sonarlint.core.TestUtils;
+import org.sonarsource.sonarlint.core.client.api.common.LogOutput;
 import org.sonarsource.sonarlint.core.client.api.common.Language;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
@@ -218,6 +220,30 @@ public class ConnectedIssueMediumTest {
       tuple(ruleKey, 2, inputFile.getPath()));
   }
 
+  @Test
+  public void restoreLogOutputOfCallingThreadAfterAnalysis() throws Exception {
+    ClientInputFile inputFile = prepareInputFile("foo.js", "function foo() {\n"
+      + "  var x; //TODO\n"
+      + "}", false);
+
+    LogOutput previousLogOutput = Loggers.getTarget();
+    LogOutput threadLogOutput = createNoOpLogOutput();
+    List<String> analysisLogs = new ArrayList<>();
+    try {
+      Loggers.setTarget(threadLogOutput);
+      sonarlint.analyze(ConnectedAnalysisConfiguration.builder()
+        .setBaseDir(baseDir.toPath())
+        .addInputFile(inputFile)
+        .build(),
+        createNoOpIssueListener(), (m, l) -> analysisLogs.add(m), null);
+
+      assertThat(Loggers.getTarget()).isSameAs(threadLogOutput);
+      assertThat(analysisLogs).isNotEmpty();
+    } finally {
+      Loggers.setTarget(previousLogOutput);
+    }
+  }
+
   @Test
   public void simpleJavaUnbinded() throws Exception {
     ClientInputFile inputFile = prepareJavaInputFile();
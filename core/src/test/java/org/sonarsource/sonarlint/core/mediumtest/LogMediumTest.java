@@ -24,12 +24,17 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.log.Loggers;
 import org.sonarsource.sonarlint.core.StandaloneSonarLintEngineImpl;
 import org.sonarsource.sonarlint.core.TestUtils;
 import org.sonarsource.sonarlint.core.client.api.common.LogOutput;
@@ -109,6 +114,42 @@ public class LogMediumTest {
     assertThat(logs2.get(LogOutput.Level.DEBUG)).isNotEmpty();
   }
 
+  @Test
+  public void routeLogsOfConcurrentAnalysesToTheirOwnLogOutput() throws Exception {
+    ClientInputFile fooFile = prepareInputFile("foo.js", "function foo() {var x;}", false);
+    ClientInputFile barFile = prepareInputFile("bar.js", "function bar() {var y;}", false);
+    final Multimap<LogOutput.Level, String> fooLogs = Multimaps.synchronizedListMultimap(LinkedListMultimap.create());
+    final Multimap<LogOutput.Level, String> barLogs = Multimaps.synchronizedListMultimap(LinkedListMultimap.create());
+    final LogOutput threadLogOutput = createLogOutput(LinkedListMultimap.create());
+    final CountDownLatch started = new CountDownLatch(2);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<LogOutput> foo = executor.submit(() -> {
+        Loggers.setTarget(threadLogOutput);
+        started.countDown();
+        started.await();
+        sonarlint.analyze(createConfig(fooFile), createNoOpIssueListener(), createLogOutput(fooLogs), null);
+        return Loggers.getTarget();
+      });
+      Future<LogOutput> bar = executor.submit(() -> {
+        Loggers.setTarget(threadLogOutput);
+        started.countDown();
+        started.await();
+        sonarlint.analyze(createConfig(barFile), createNoOpIssueListener(), createLogOutput(barLogs), null);
+        return Loggers.getTarget();
+      });
+
+      assertThat(foo.get()).isSameAs(threadLogOutput);
+      assertThat(bar.get()).isSameAs(threadLogOutput);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(fooLogs.get(LogOutput.Level.DEBUG)).anyMatch(m -> m.contains("foo.js")).noneMatch(m -> m.contains("bar.js"));
+    assertThat(barLogs.get(LogOutput.Level.DEBUG)).anyMatch(m -> m.contains("bar.js")).noneMatch(m -> m.contains("foo.js"));
+  }
+
   private ClientInputFile prepareInputFile(String relativePath, String content, final boolean isTest) throws IOException {
     final File file = new File(baseDir, relativePath);
     FileUtils.write(file, content);
@@ -0,0 +1,189 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonarsource.sonarlint.core.client.api.standalone.StandaloneGlobalConfiguration;
+import org.sonarsource.sonarlint.core.plugin.cache.PluginCache;
+
+/**
+ * First start of the engine with 10 plugins bundling 20 libraries each: the plugins are prepared for classloading, either by
+ * extracting their libraries (as done before any start) or in place, and a resource is loaded from each library.
+ * Run with {@link #main(String[])} from the IDE, or through the JMH runner with the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NestedJarPluginExploderBenchmark {
+
+  private static final int PLUGIN_COUNT = 10;
+  private static final int LIB_COUNT = 20;
+  private static final int ENTRY_COUNT = 100;
+  private static final int ENTRY_SIZE = 2048;
+
+  private Path dir;
+  private PluginInfo[] plugins;
+  private NestedJarPluginExploder exploder;
+  private NestedJarPluginExploder inPlaceExploder;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("plugins");
+    PluginCache pluginCache = PluginCache.create(dir.resolve("cache"));
+    exploder = new NestedJarPluginExploder(pluginCache, StandaloneGlobalConfiguration.builder().build());
+    inPlaceExploder = new NestedJarPluginExploder(pluginCache, StandaloneGlobalConfiguration.builder()
+      .setExtraProperties(Collections.singletonMap(NestedJarPluginExploder.IN_PLACE_PROPERTY, "true")).build());
+    plugins = new PluginInfo[PLUGIN_COUNT];
+    Random random = new Random(42);
+    for (int i = 0; i < PLUGIN_COUNT; i++) {
+      Path jar = dir.resolve("plugin" + i).resolve("plugin" + i + ".jar");
+      Files.createDirectories(jar.getParent());
+      writePlugin(jar, random);
+      plugins[i] = new PluginInfo("plugin" + i).setJarFile(jar.toFile());
+    }
+  }
+
+  /**
+   * Each invocation is a first start: the libraries extracted by the previous one are deleted.
+   */
+  @Setup(Level.Invocation)
+  public void deleteExtractedLibs() {
+    for (PluginInfo plugin : plugins) {
+      File jar = plugin.getNonNullJarFile();
+      FileUtils.deleteQuietly(new File(jar.getParentFile(), jar.getName() + "_unzip"));
+    }
+  }
+
+  @TearDown(Level.Invocation)
+  public void releaseMappings() {
+    inPlaceExploder.stop();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    FileUtils.deleteQuietly(dir.toFile());
+  }
+
+  @Benchmark
+  public long extractLibs() throws IOException {
+    return start(exploder);
+  }
+
+  @Benchmark
+  public long inPlace() throws IOException {
+    return start(inPlaceExploder);
+  }
+
+  private long start(PluginJarExploder jarExploder) throws IOException {
+    long result = 0;
+    for (PluginInfo plugin : plugins) {
+      ExplodedPlugin exploded = jarExploder.explode(plugin);
+      List<URL> urls = new ArrayList<>();
+      for (File lib : exploded.getLibs()) {
+        urls.add(lib.toURI().toURL());
+      }
+      urls.addAll(exploded.getNestedLibs());
+      try (URLClassLoader classLoader = new URLClassLoader(urls.toArray(new URL[0]), null)) {
+        for (int lib = 0; lib < LIB_COUNT; lib++) {
+          try (InputStream resource = classLoader.getResourceAsStream(entryName(lib, ENTRY_COUNT / 2))) {
+            result += resource.read();
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private static String entryName(int lib, int entry) {
+    return "lib" + lib + "/entry" + entry + ".bin";
+  }
+
+  /**
+   * Libraries of compressed entries, stored without compression in the plugin jar: the libraries that are read in place.
+   */
+  private static void writePlugin(Path jar, Random random) throws IOException {
+    try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+      for (int lib = 0; lib < LIB_COUNT; lib++) {
+        byte[] content = lib(lib, random);
+        ZipEntry entry = new ZipEntry(PluginJarExploder.LIB_RELATIVE_PATH_IN_JAR + "/lib" + lib + ".jar");
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        entry.setCrc(crc.getValue());
+        out.putNextEntry(entry);
+        out.write(content);
+        out.closeEntry();
+      }
+    }
+  }
+
+  private static byte[] lib(int lib, Random random) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+      byte[] content = new byte[ENTRY_SIZE];
+      for (int entry = 0; entry < ENTRY_COUNT; entry++) {
+        random.nextBytes(content);
+        out.putNextEntry(new ZipEntry(entryName(lib, entry)));
+        out.write(content);
+        out.closeEntry();
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(NestedJarPluginExploderBenchmark.class.getSimpleName()).build()).run();
+  }
+}
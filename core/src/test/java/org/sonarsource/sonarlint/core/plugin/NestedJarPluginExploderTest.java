@@ -0,0 +1,192 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarsource.sonarlint.core.client.api.standalone.StandaloneGlobalConfiguration;
+import org.sonarsource.sonarlint.core.plugin.cache.PluginCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class NestedJarPluginExploderTest {
+
+  private static final String GREETING_CLASS = Greeting.class.getName().replace('.', '/') + ".class";
+  private static final String RESOURCE = "data/with space.txt";
+  private static final Map<String, String> IN_PLACE = Collections.singletonMap(NestedJarPluginExploder.IN_PLACE_PROPERTY, "true");
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private PluginCache pluginCache;
+
+  @Before
+  public void setUp() throws IOException {
+    pluginCache = PluginCache.create(temp.newFolder().toPath());
+  }
+
+  @Test
+  public void load_classes_and_resources_from_nested_libs() throws Exception {
+    byte[] classesLib = jar(Collections.singletonMap(GREETING_CLASS, greetingClass()), Collections.emptyMap());
+    byte[] resourcesLib = jar(Collections.emptyMap(), Collections.singletonMap(RESOURCE, "hello".getBytes(StandardCharsets.UTF_8)));
+    Map<String, byte[]> deflatedLibs = new LinkedHashMap<>();
+    deflatedLibs.put("META-INF/lib/resources.jar", resourcesLib);
+    deflatedLibs.put("META-INF/lib/sub/ignored.jar", resourcesLib);
+    Path pluginJar = write("plugin.jar", jar(Collections.singletonMap("META-INF/lib/classes.jar", classesLib), deflatedLibs));
+
+    ExplodedPlugin exploded = underTest(IN_PLACE).explode(pluginInfo(pluginJar));
+
+    assertThat(exploded.getMain()).isEqualTo(pluginJar.toFile());
+    assertThat(exploded.getNestedLibs()).hasSize(1);
+    // compressed libraries are extracted rather than inflated in memory
+    assertThat(exploded.getLibs()).extracting(File::getName).containsOnly("resources.jar");
+    assertThat(pluginJar.resolveSibling("plugin.jar_unzip")).doesNotExist();
+    try (URLClassLoader classLoader = new URLClassLoader(classpath(exploded), null)) {
+      Class<?> greeting = classLoader.loadClass(Greeting.class.getName());
+      assertThat(greeting.getClassLoader()).isSameAs(classLoader);
+      assertThat(greeting.newInstance()).hasToString("hello");
+      try (InputStream resource = classLoader.getResourceAsStream(RESOURCE)) {
+        assertThat(IOUtils.toString(resource, StandardCharsets.UTF_8)).isEqualTo("hello");
+      }
+      assertThat(classLoader.getResource("data/missing.txt")).isNull();
+    }
+  }
+
+  @Test
+  public void extract_libs_by_default() throws IOException {
+    byte[] lib = jar(Collections.singletonMap(RESOURCE, new byte[1]), Collections.emptyMap());
+    Path pluginJar = write("plugin.jar", jar(Collections.singletonMap("META-INF/lib/lib.jar", lib), Collections.emptyMap()));
+
+    ExplodedPlugin exploded = underTest(Collections.emptyMap()).explode(pluginInfo(pluginJar));
+
+    assertThat(exploded.getNestedLibs()).isEmpty();
+    assertThat(exploded.getLibs()).extracting(File::getName).containsOnly("lib.jar");
+    assertThat(pluginJar.resolveSibling("plugin.jar_unzip")).isDirectory();
+  }
+
+  @Test
+  public void extract_libs_that_are_not_readable_in_place() throws IOException {
+    byte[] lib = "not a jar".getBytes(StandardCharsets.UTF_8);
+    Path pluginJar = write("plugin.jar", jar(Collections.singletonMap("META-INF/lib/lib.jar", lib), Collections.emptyMap()));
+
+    ExplodedPlugin exploded = underTest(IN_PLACE).explode(pluginInfo(pluginJar));
+
+    assertThat(exploded.getNestedLibs()).isEmpty();
+    assertThat(exploded.getLibs()).extracting(File::getName).containsOnly("lib.jar");
+  }
+
+  @Test
+  public void release_mappings_on_stop() throws IOException {
+    byte[] lib = jar(Collections.singletonMap(RESOURCE, "hello".getBytes(StandardCharsets.UTF_8)), Collections.emptyMap());
+    Path pluginJar = write("plugin.jar", jar(Collections.singletonMap("META-INF/lib/lib.jar", lib), Collections.emptyMap()));
+    NestedJarPluginExploder underTest = underTest(IN_PLACE);
+    URL resource = new URL(underTest.explode(pluginInfo(pluginJar)).getNestedLibs().iterator().next(), RESOURCE);
+
+    try (InputStream content = resource.openStream()) {
+      assertThat(IOUtils.toString(content, StandardCharsets.UTF_8)).isEqualTo("hello");
+    }
+    underTest.stop();
+
+    try (InputStream content = resource.openStream()) {
+      assertThatThrownBy(content::read).isInstanceOf(ZipException.class);
+    }
+  }
+
+  private NestedJarPluginExploder underTest(Map<String, String> extraProperties) {
+    return new NestedJarPluginExploder(pluginCache, StandaloneGlobalConfiguration.builder().setExtraProperties(extraProperties).build());
+  }
+
+  private static URL[] classpath(ExplodedPlugin exploded) throws IOException {
+    List<URL> urls = new ArrayList<>();
+    for (File lib : exploded.getLibs()) {
+      urls.add(lib.toURI().toURL());
+    }
+    urls.addAll(exploded.getNestedLibs());
+    return urls.toArray(new URL[0]);
+  }
+
+  private static PluginInfo pluginInfo(Path jar) {
+    return new PluginInfo("plugin").setJarFile(jar.toFile());
+  }
+
+  private Path write(String filename, byte[] content) throws IOException {
+    Path file = temp.newFolder().toPath().resolve(filename);
+    Files.write(file, content);
+    return file;
+  }
+
+  private static byte[] jar(Map<String, byte[]> storedEntries, Map<String, byte[]> deflatedEntries) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+      for (Map.Entry<String, byte[]> entry : storedEntries.entrySet()) {
+        ZipEntry zipEntry = new ZipEntry(entry.getKey());
+        zipEntry.setMethod(ZipEntry.STORED);
+        zipEntry.setSize(entry.getValue().length);
+        CRC32 crc = new CRC32();
+        crc.update(entry.getValue());
+        zipEntry.setCrc(crc.getValue());
+        out.putNextEntry(zipEntry);
+        out.write(entry.getValue());
+        out.closeEntry();
+      }
+      for (Map.Entry<String, byte[]> entry : deflatedEntries.entrySet()) {
+        out.putNextEntry(new ZipEntry(entry.getKey()));
+        out.write(entry.getValue());
+        out.closeEntry();
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private static byte[] greetingClass() throws IOException {
+    try (InputStream input = NestedJarPluginExploderTest.class.getResourceAsStream("/" + GREETING_CLASS)) {
+      return IOUtils.toByteArray(input);
+    }
+  }
+
+  public static class Greeting {
+    @Override
+    public String toString() {
+      return "hello";
+    }
+  }
+}
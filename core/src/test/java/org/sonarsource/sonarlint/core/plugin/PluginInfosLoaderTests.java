@@ -49,6 +49,7 @@ import org.sonarsource.sonarlint.core.client.api.exceptions.StorageException;
 import org.sonarsource.sonarlint.core.container.connected.validate.PluginVersionChecker;
 import org.sonarsource.sonarlint.core.plugin.PluginIndex.PluginReference;
 import org.sonarsource.sonarlint.core.plugin.cache.PluginCache;
+import org.sonarsource.sonarlint.core.plugin.cache.PluginMetadataCache;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
@@ -71,6 +72,9 @@ class PluginInfosLoaderTests {
   @RegisterExtension
   public LogTesterJUnit5 logTester = new LogTesterJUnit5();
 
+  @TempDir
+  Path cacheDir;
+
   private PluginInfosLoader underTest;
   private PluginIndex pluginIndex;
   private PluginCache pluginCache;
@@ -88,7 +92,8 @@ class PluginInfosLoaderTests {
     globalConfig = mock(AbstractGlobalConfiguration.class);
     enabledLanguages = new HashSet<>();
     when(globalConfig.getEnabledLanguages()).thenReturn(enabledLanguages);
-    underTest = new PluginInfosLoader(pluginVersionChecker, pluginCache, pluginIndex, globalConfig, system2);
+    when(pluginCache.getCacheDir()).thenReturn(cacheDir);
+    underTest = new PluginInfosLoader(pluginVersionChecker, pluginCache, new PluginMetadataCache(pluginCache), pluginIndex, globalConfig, system2);
 
     when(system2.property("java.specification.version")).thenReturn(System.getProperty("java.specification.version"));
     doReturn(V1_0).when(pluginVersionChecker).getMinimumVersion(FAKE_PLUGIN_KEY);
@@ -296,6 +301,25 @@ class PluginInfosLoaderTests {
     assertThat(logsWithoutStartStop()).contains("Plugin 'pluginkey' dependency on 'required2' is unsatisfied. Skip loading it.");
   }
 
+  @Test
+  void load_plugin_skip_plugins_having_transitively_skipped_required_plugin(@TempDir Path storage) throws IOException {
+    PluginReference fakePlugin = fakePlugin(storage, "fake.jar",
+      path -> createPluginManifest(path, FAKE_PLUGIN_KEY, V1_0, withSonarLintSupported(true), withRequiredPlugins("required2:1.0")));
+    PluginReference fakeDepPlugin = fakePlugin(storage, "dep.jar",
+      path -> createPluginManifest(path, "required2", V1_0, withSonarLintSupported(true), withRequiredPlugins("required3:1.0")));
+    PluginReference fakeTransitiveDepPlugin = fakePlugin(storage, "transitive.jar",
+      path -> createPluginManifest(path, "required3", V1_0, withSonarLintSupported(true)));
+    when(pluginIndex.references()).thenReturn(asList(fakePlugin, fakeDepPlugin, fakeTransitiveDepPlugin));
+
+    // Ensure transitive dep plugin is skipped because of min version
+    doReturn("2.0").when(pluginVersionChecker).getMinimumVersion("required3");
+
+    assertThat(underTest.load().values()).extracting(PluginInfo::getName, PluginInfo::isSkipped, p -> p.getSkipReason().orElse(null))
+      .containsExactly(tuple("pluginkey", true, new SkipReason.UnsatisfiedDependency("required2")),
+        tuple("required2", true, new SkipReason.UnsatisfiedDependency("required3")),
+        tuple("required3", true, new SkipReason.IncompatiblePluginVersion("2.0")));
+  }
+
   // SLCORE-259
   @Test
   void load_plugin_ignore_dependency_between_sonarjs_and_sonarts(@TempDir Path storage) throws IOException {
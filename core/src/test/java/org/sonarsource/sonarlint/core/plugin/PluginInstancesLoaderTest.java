@@ -21,18 +21,23 @@ package org.sonarsource.sonarlint.core.plugin;
 
 import com.google.common.collect.ImmutableMap;
 import java.io.File;
+import java.net.URL;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import org.assertj.core.data.MapEntry;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.Plugin;
 import org.sonar.api.SonarPlugin;
-import org.sonarsource.sonarlint.core.JUnitTempFolder;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
 import org.sonarsource.sonarlint.core.client.api.common.Version;
+import org.sonarsource.sonarlint.core.plugin.cache.PluginCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
@@ -45,10 +50,15 @@ public class PluginInstancesLoaderTest {
   public TemporaryFolder temp = new TemporaryFolder();
 
   @Rule
-  public JUnitTempFolder tempFolder = new JUnitTempFolder();
+  public LogTester logTester = new LogTester();
 
   PluginClassloaderFactory classloaderFactory = mock(PluginClassloaderFactory.class);
-  PluginInstancesLoader loader = new PluginInstancesLoader(new FakePluginExploder(), classloaderFactory, tempFolder);
+  PluginInstancesLoader loader;
+
+  @Before
+  public void setUp() throws Exception {
+    loader = new PluginInstancesLoader(new FakePluginExploder(), classloaderFactory, PluginCache.create(temp.newFolder("cache").toPath()), new PluginTasks(4));
+  }
 
   @Test
   public void instantiate_plugin_entry_point() {
@@ -58,6 +68,7 @@ public class PluginInstancesLoaderTest {
     Map<String, Plugin> instances = loader.instantiatePluginClasses(ImmutableMap.of(def, getClass().getClassLoader()));
     assertThat(instances).containsOnlyKeys("fake");
     assertThat(instances.get("fake")).isInstanceOf(FakePlugin.class);
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).anyMatch(log -> log.matches("Instantiated plugin 'fake' in \\d+ms"));
   }
 
   @Test
@@ -90,9 +101,36 @@ public class PluginInstancesLoaderTest {
     assertThat(def.isSelfFirstStrategy()).isFalse();
     assertThat(def.getFiles()).containsExactly(slf4jAdapter, jarFile);
     assertThat(def.getMainClassesByPluginKey()).containsOnly(MapEntry.entry("foo", "org.foo.FooPlugin"));
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).anyMatch(log -> log.matches("Prepared jar of plugin 'foo' in \\d+ms"));
     // TODO test mask - require change in sonar-classloader
   }
 
+  @Test
+  public void define_base_plugins_before_extensions() throws Exception {
+    PluginInfo base = new PluginInfo("zbase")
+      .setJarFile(temp.newFile())
+      .setMainClass("org.foo.BasePlugin");
+    PluginInfo extension = new PluginInfo("aextension")
+      .setJarFile(temp.newFile())
+      .setMainClass("org.foo.ExtensionPlugin")
+      .setBasePlugin("zbase");
+    PluginInfo other = new PluginInfo("other")
+      .setJarFile(temp.newFile())
+      .setMainClass("org.foo.OtherPlugin");
+    Map<String, PluginInfo> infos = new LinkedHashMap<>();
+    infos.put(extension.getKey(), extension);
+    infos.put(other.getKey(), other);
+    infos.put(base.getKey(), base);
+    File slf4jAdapter = temp.newFile();
+
+    Collection<PluginClassLoaderDef> defs = loader.defineClassloaders(infos, slf4jAdapter);
+
+    assertThat(defs).extracting(PluginClassLoaderDef::getBasePluginKey).containsExactly("other", "zbase");
+    PluginClassLoaderDef baseDef = defs.stream().filter(def -> def.getBasePluginKey().equals("zbase")).findFirst().get();
+    assertThat(baseDef.getMainClassesByPluginKey().keySet()).containsExactly("zbase", "aextension");
+    assertThat(baseDef.getFiles()).containsExactly(slf4jAdapter, base.getNonNullJarFile(), slf4jAdapter, extension.getNonNullJarFile());
+  }
+
   /**
    * A plugin (the "base" plugin) can be extended by other plugins. In this case they share the same classloader.
    */
@@ -164,6 +202,37 @@ public class PluginInstancesLoaderTest {
       entry("fooExtension1", "org.foo.Extension1Plugin"));
   }
 
+  @Test
+  public void define_classloader_with_nested_libs() throws Exception {
+    File jarFile = temp.newFile();
+    URL nestedLib = new URL("file:/plugin.jar!/META-INF/lib/lib.jar!/");
+    PluginInfo info = new PluginInfo("foo")
+      .setJarFile(jarFile)
+      .setMainClass("org.foo.FooPlugin");
+    PluginInstancesLoader nestedLoader = new PluginInstancesLoader(new PluginJarExploder() {
+      @Override
+      public ExplodedPlugin explode(PluginInfo pluginInfo) {
+        return new ExplodedPlugin(pluginInfo.getKey(), pluginInfo.getNonNullJarFile(), Collections.emptyList(), Collections.singletonList(nestedLib));
+      }
+    }, classloaderFactory, PluginCache.create(temp.newFolder().toPath()), new PluginTasks(1));
+
+    Collection<PluginClassLoaderDef> defs = nestedLoader.defineClassloaders(ImmutableMap.of("foo", info), temp.newFile());
+
+    PluginClassLoaderDef def = defs.iterator().next();
+    assertThat(def.getUrls()).hasSize(3).endsWith(nestedLib);
+  }
+
+  @Test
+  public void share_slf4j_adapter_in_plugin_cache() throws Exception {
+    File adapter = loader.extractSlf4jAdapterJar();
+    long lastModified = adapter.lastModified();
+
+    assertThat(adapter).exists().hasName("sonarlint-slf4j-sonar-log.jar");
+    assertThat(adapter.toPath()).startsWith(temp.getRoot().toPath().resolve("cache"));
+    assertThat(loader.extractSlf4jAdapterJar()).isEqualTo(adapter);
+    assertThat(adapter.lastModified()).isEqualTo(lastModified);
+  }
+
   /**
    * Does not unzip jar file. It directly returns the JAR file defined on PluginDetails.
    */
@@ -0,0 +1,115 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.plugin;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonarsource.sonarlint.core.client.api.standalone.StandaloneGlobalConfiguration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PluginTasksTest {
+
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  @Test
+  public void keep_order_of_items() {
+    List<Integer> items = Arrays.asList(5, 1, 4, 2, 3);
+
+    List<String> results = new PluginTasks(4).map(items, item -> {
+      sleep(item * 10L);
+      return "result" + item;
+    });
+
+    assertThat(results).containsExactly("result5", "result1", "result4", "result2", "result3");
+  }
+
+  @Test
+  public void run_tasks_concurrently() {
+    CountDownLatch started = new CountDownLatch(2);
+
+    // each task waits for the other one to start
+    List<Boolean> results = new PluginTasks(2).map(Arrays.asList(1, 2), item -> {
+      started.countDown();
+      try {
+        return started.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+
+    assertThat(results).containsExactly(true, true);
+  }
+
+  @Test
+  public void run_tasks_in_calling_thread_without_parallelism() {
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    new PluginTasks(1).map(Arrays.asList(1, 2, 3), item -> threads.add(Thread.currentThread()));
+
+    assertThat(threads).containsOnly(Thread.currentThread());
+  }
+
+  @Test
+  public void rethrow_exception_of_failed_task() {
+    PluginTasks tasks = new PluginTasks(2);
+    List<Integer> items = Arrays.asList(1, 2);
+
+    assertThatThrownBy(() -> tasks.map(items, item -> {
+      throw new IllegalStateException("failed " + item);
+    })).isInstanceOf(IllegalStateException.class).hasMessage("failed 1");
+  }
+
+  @Test
+  public void configure_parallelism() {
+    assertThat(create(null).parallelism()).isEqualTo(Math.min(PluginTasks.DEFAULT_LOAD_PARALLELISM, Runtime.getRuntime().availableProcessors()));
+    assertThat(create("8").parallelism()).isEqualTo(8);
+    assertThat(create("0").parallelism()).isEqualTo(1);
+    assertThat(create("foo").parallelism()).isEqualTo(create(null).parallelism());
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsExactly("Invalid value for 'sonarlint.plugins.loadParallelism': foo");
+  }
+
+  private static PluginTasks create(String parallelism) {
+    StandaloneGlobalConfiguration.Builder builder = StandaloneGlobalConfiguration.builder();
+    if (parallelism != null) {
+      builder.setExtraProperties(Collections.singletonMap(PluginTasks.LOAD_PARALLELISM_PROPERTY, parallelism));
+    }
+    return PluginTasks.create(builder.build());
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ZipIndexTest {
+
+  private static final byte[] CONTENT = "some content, some content, some content".getBytes(StandardCharsets.UTF_8);
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void read_stored_and_deflated_entries() throws IOException {
+    ZipIndex zip = new ZipIndex(ByteBuffer.wrap(zip(null)));
+
+    assertThat(zip.entries()).extracting(ZipIndex.Entry::name).containsExactly("dir/", "dir/stored.txt", "deflated.txt");
+    ZipIndex.Entry stored = zip.get("dir/stored.txt");
+    ZipIndex.Entry deflated = zip.get("deflated.txt");
+    assertThat(stored.method()).isEqualTo(ZipIndex.STORED);
+    assertThat(deflated.method()).isEqualTo(ZipIndex.DEFLATED);
+    assertThat(deflated.size()).isEqualTo(CONTENT.length);
+    assertThat(zip.read(stored)).isEqualTo(CONTENT);
+    assertThat(zip.read(deflated)).isEqualTo(CONTENT);
+    assertThat(zip.get("missing.txt")).isNull();
+  }
+
+  @Test
+  public void slice_stored_entries_only() throws IOException {
+    ZipIndex zip = new ZipIndex(ByteBuffer.wrap(zip(null)));
+
+    ByteBuffer slice = zip.slice(zip.get("dir/stored.txt"));
+    byte[] bytes = new byte[slice.remaining()];
+    slice.get(bytes);
+    assertThat(bytes).isEqualTo(CONTENT);
+    assertThatThrownBy(() -> zip.slice(zip.get("deflated.txt"))).isInstanceOf(ZipException.class);
+  }
+
+  @Test
+  public void map_file_with_comment() throws IOException {
+    Path file = temp.newFile("test.zip").toPath();
+    Files.write(file, zip("a comment"));
+
+    ZipIndex zip = ZipIndex.map(file);
+
+    assertThat(zip.read(zip.get("deflated.txt"))).isEqualTo(CONTENT);
+  }
+
+  @Test
+  public void fail_to_read_once_closed() throws IOException {
+    Path file = temp.newFile("test.zip").toPath();
+    Files.write(file, zip(null));
+    ZipIndex zip = ZipIndex.map(file);
+    ZipIndex.Entry deflated = zip.get("deflated.txt");
+
+    zip.close();
+
+    assertThatThrownBy(() -> zip.read(deflated)).isInstanceOf(ZipException.class).hasMessage("Zip file is closed");
+  }
+
+  @Test
+  public void fail_on_invalid_zip() throws IOException {
+    byte[] zip = zip(null);
+    byte[] truncated = new byte[zip.length - 10];
+    System.arraycopy(zip, 0, truncated, 0, truncated.length);
+
+    assertThatThrownBy(() -> new ZipIndex(ByteBuffer.wrap("not a zip".getBytes(StandardCharsets.UTF_8)))).isInstanceOf(ZipException.class);
+    assertThatThrownBy(() -> new ZipIndex(ByteBuffer.wrap(truncated))).isInstanceOf(ZipException.class);
+  }
+
+  private static byte[] zip(String comment) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+      out.setComment(comment);
+      out.putNextEntry(new ZipEntry("dir/"));
+      out.closeEntry();
+      ZipEntry stored = new ZipEntry("dir/stored.txt");
+      stored.setMethod(ZipEntry.STORED);
+      stored.setSize(CONTENT.length);
+      CRC32 crc = new CRC32();
+      crc.update(CONTENT);
+      stored.setCrc(crc.getValue());
+      out.putNextEntry(stored);
+      out.write(CONTENT);
+      out.closeEntry();
+      out.putNextEntry(new ZipEntry("deflated.txt"));
+      out.write(CONTENT);
+      out.closeEntry();
+    }
+    return bytes.toByteArray();
+  }
+}
@@ -19,9 +19,15 @@
  */
 package org.sonarsource.sonarlint.core.plugin.cache;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
@@ -29,11 +35,14 @@ import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class PluginCacheTest {
+  private static final String BODY_HASH = new PluginHashes().of(new ByteArrayInputStream("body".getBytes(StandardCharsets.UTF_8)));
+
   @Rule
   public TemporaryFolder tempFolder = new TemporaryFolder();
 
@@ -115,4 +124,178 @@ public class PluginCacheTest {
     assertThat(cachedFile.getParentFile().getParentFile()).isEqualTo(cache.getCacheDir().toFile());
     assertThat(FileUtils.readFileToString(cachedFile)).contains("downloaded by");
   }
+
+  @Test
+  public void hash_while_downloading() throws IOException {
+    PluginCache cache = PluginCache.create(tempFolder.newFolder().toPath());
+    PluginCache.Downloader downloader = (filename, offset, consumer) -> consumer.accept(stream("body"), false);
+
+    File cachedFile = cache.get("sonar-foo-plugin-1.5.jar", BODY_HASH, downloader).toFile();
+
+    assertThat(cachedFile.getParentFile().getName()).isEqualTo(BODY_HASH);
+    assertThat(FileUtils.readFileToString(cachedFile)).isEqualTo("body");
+    assertThat(partFile(cache)).doesNotExist();
+  }
+
+  @Test
+  public void resume_interrupted_download() throws IOException {
+    PluginCache cache = PluginCache.create(tempFolder.newFolder().toPath());
+    List<Long> offsets = new ArrayList<>();
+    PluginCache.Downloader downloader = (filename, offset, consumer) -> {
+      offsets.add(offset);
+      if (offset == 0) {
+        consumer.accept(new SequenceInputStream(stream("bo"), new InterruptedInputStream()), false);
+      } else {
+        consumer.accept(stream("dy"), true);
+      }
+    };
+
+    File cachedFile = cache.get("sonar-foo-plugin-1.5.jar", BODY_HASH, downloader).toFile();
+
+    assertThat(offsets).containsExactly(0L, 2L);
+    assertThat(FileUtils.readFileToString(cachedFile)).isEqualTo("body");
+  }
+
+  @Test
+  public void download_whole_file_if_range_not_supported() throws IOException {
+    PluginCache cache = PluginCache.create(tempFolder.newFolder().toPath());
+    PluginCache.Downloader downloader = (filename, offset, consumer) -> {
+      if (offset == 0) {
+        consumer.accept(new SequenceInputStream(stream("bo"), new InterruptedInputStream()), false);
+      } else {
+        consumer.accept(stream("body"), false);
+      }
+    };
+
+    File cachedFile = cache.get("sonar-foo-plugin-1.5.jar", BODY_HASH, downloader).toFile();
+
+    assertThat(FileUtils.readFileToString(cachedFile)).isEqualTo("body");
+  }
+
+  @Test
+  public void resume_download_of_previous_process() throws IOException {
+    PluginCache cache = PluginCache.create(tempFolder.newFolder().toPath());
+    FileUtils.write(partFile(cache).toFile(), "bo");
+    List<Long> offsets = new ArrayList<>();
+    PluginCache.Downloader downloader = (filename, offset, consumer) -> {
+      offsets.add(offset);
+      consumer.accept(stream("dy"), true);
+    };
+
+    File cachedFile = cache.get("sonar-foo-plugin-1.5.jar", BODY_HASH, downloader).toFile();
+
+    assertThat(offsets).containsExactly(2L);
+    assertThat(FileUtils.readFileToString(cachedFile)).isEqualTo("body");
+  }
+
+  @Test
+  public void download_whole_file_if_stale_partial_file_is_too_long() throws IOException {
+    PluginCache cache = PluginCache.create(tempFolder.newFolder().toPath());
+    FileUtils.write(partFile(cache).toFile(), "stale content longer than the file");
+    List<Long> offsets = new ArrayList<>();
+    PluginCache.Downloader downloader = (filename, offset, consumer) -> {
+      offsets.add(offset);
+      if (offset > 0) {
+        // like the web service client on a 416 response
+        throw new IllegalStateException("Error 416 on range request");
+      }
+      consumer.accept(stream("body"), false);
+    };
+
+    File cachedFile = cache.get("sonar-foo-plugin-1.5.jar", BODY_HASH, downloader).toFile();
+
+    assertThat(offsets).containsExactly(34L, 0L);
+    assertThat(FileUtils.readFileToString(cachedFile)).isEqualTo("body");
+    assertThat(partFile(cache)).doesNotExist();
+  }
+
+  @Test
+  public void restart_download_only_once() throws IOException {
+    PluginCache cache = PluginCache.create(tempFolder.newFolder().toPath());
+    FileUtils.write(partFile(cache).toFile(), "stale");
+    List<Long> offsets = new ArrayList<>();
+    PluginCache.Downloader downloader = (filename, offset, consumer) -> {
+      offsets.add(offset);
+      if (offset == 0) {
+        consumer.accept(new SequenceInputStream(stream("bo"), new InterruptedInputStream()), false);
+      } else {
+        throw new IllegalStateException("Error 416 on range request");
+      }
+    };
+
+    try {
+      cache.get("sonar-foo-plugin-1.5.jar", BODY_HASH, downloader);
+      fail("Expected exception");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Error 416 on range request");
+    }
+    assertThat(offsets).containsExactly(5L, 0L, 2L);
+  }
+
+  @Test
+  public void release_lock_of_interrupted_download() throws IOException {
+    Path file = tempFolder.newFile().toPath();
+    PartialDownload download = PartialDownload.resume(file);
+    Thread.currentThread().interrupt();
+    try {
+      download.write(stream("body"), true);
+      fail("Expected exception");
+    } catch (IOException e) {
+      // channel closed by the interruption
+    } finally {
+      Thread.interrupted();
+    }
+
+    download.close();
+
+    try (PartialDownload resumed = PartialDownload.resume(file)) {
+      assertThat(resumed).isNotNull();
+    }
+  }
+
+  @Test
+  public void keep_partial_file_if_download_fails() throws IOException {
+    PluginCache cache = PluginCache.create(tempFolder.newFolder().toPath());
+    PluginCache.Downloader downloader = (filename, offset, consumer) -> consumer.accept(new SequenceInputStream(stream("b"), new InterruptedInputStream()), true);
+
+    try {
+      cache.get("sonar-foo-plugin-1.5.jar", BODY_HASH, downloader);
+      fail("Expected exception");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessageStartingWith("Fail to download sonar-foo-plugin-1.5.jar");
+    }
+
+    assertThat(partFile(cache)).hasContent("bbb");
+    assertThat(cache.get("sonar-foo-plugin-1.5.jar", BODY_HASH)).isNull();
+  }
+
+  @Test
+  public void delete_partial_file_if_hash_is_invalid() throws IOException {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("INVALID HASH");
+
+    PluginCache cache = PluginCache.create(tempFolder.newFolder().toPath());
+    PluginCache.Downloader downloader = (filename, offset, consumer) -> consumer.accept(stream("corrupted body"), false);
+
+    try {
+      cache.get("sonar-foo-plugin-1.5.jar", BODY_HASH, downloader);
+    } finally {
+      assertThat(partFile(cache)).doesNotExist();
+    }
+  }
+
+  private static Path partFile(PluginCache cache) {
+    return cache.getCacheDir().resolve("_tmp").resolve(BODY_HASH + PluginCache.PART_FILE_SUFFIX);
+  }
+
+  private static InputStream stream(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static class InterruptedInputStream extends InputStream {
+    @Override
+    public int read() throws IOException {
+      throw new IOException("connection reset");
+    }
+  }
 }
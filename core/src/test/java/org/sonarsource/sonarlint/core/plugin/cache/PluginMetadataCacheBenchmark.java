@@ -0,0 +1,139 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.plugin.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonarsource.sonarlint.core.plugin.PluginManifest;
+
+/**
+ * Reads the hash and the manifest of 15 plugin jars of 8MB, as done at engine startup: without {@link PluginMetadataCache}, with a
+ * cold cache (first start, the metadata file is written) and with a warm cache (next starts).
+ * Run with {@link #main(String[])} from the IDE, or through the JMH runner with the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PluginMetadataCacheBenchmark {
+
+  private static final int PLUGIN_COUNT = 15;
+  private static final int PLUGIN_SIZE = 8 * 1024 * 1024;
+
+  private final PluginHashes hashes = new PluginHashes();
+  private Path dir;
+  private PluginCache pluginCache;
+  private Path[] jars;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("plugins");
+    pluginCache = PluginCache.create(dir.resolve("cache"));
+    jars = new Path[PLUGIN_COUNT];
+    Random random = new Random(42);
+    for (int i = 0; i < PLUGIN_COUNT; i++) {
+      jars[i] = dir.resolve("plugin" + i + ".jar");
+      writeJar(jars[i], "plugin" + i, random);
+    }
+    startup(new PluginMetadataCache(pluginCache));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    FileUtils.deleteQuietly(dir.toFile());
+  }
+
+  @Benchmark
+  public int noCache() throws IOException {
+    int result = 0;
+    for (Path jar : jars) {
+      result += hashes.of(jar).hashCode() + new PluginManifest(jar).getKey().hashCode();
+    }
+    return result;
+  }
+
+  @Benchmark
+  public int coldCache() throws IOException {
+    Files.deleteIfExists(pluginCache.getCacheDir().resolve(PluginMetadataCache.FILENAME));
+    return startup(new PluginMetadataCache(pluginCache));
+  }
+
+  @Benchmark
+  public int warmCache() throws IOException {
+    return startup(new PluginMetadataCache(pluginCache));
+  }
+
+  private int startup(PluginMetadataCache cache) throws IOException {
+    int result = 0;
+    for (Path jar : jars) {
+      result += cache.hash(jar, hashes::of).hashCode() + cache.manifest(jar).getKey().hashCode();
+    }
+    cache.save();
+    return result;
+  }
+
+  /**
+   * A manifest and a stored (not compressed) entry of random bytes, so that the jar has the expected size.
+   */
+  private static void writeJar(Path path, String pluginKey, Random random) throws IOException {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().putValue(PluginManifest.KEY_ATTRIBUTE, pluginKey);
+    manifest.getMainAttributes().putValue(PluginManifest.VERSION_ATTRIBUTE, "1.0");
+    manifest.getMainAttributes().putValue(PluginManifest.SONARLINT_SUPPORTED, "true");
+    byte[] content = new byte[PLUGIN_SIZE];
+    random.nextBytes(content);
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(path), manifest)) {
+      out.setLevel(0);
+      out.putNextEntry(new JarEntry("content.bin"));
+      out.write(content);
+      out.closeEntry();
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(PluginMetadataCacheBenchmark.class.getSimpleName()).build()).run();
+  }
+}
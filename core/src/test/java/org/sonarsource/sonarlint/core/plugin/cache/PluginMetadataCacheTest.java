@@ -0,0 +1,143 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.plugin.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarsource.sonarlint.core.plugin.PluginManifest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PluginMetadataCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private PluginCache pluginCache;
+  private Path jar;
+  private AtomicInteger hashes = new AtomicInteger();
+  private PluginMetadataCache.Hasher hasher = file -> {
+    hashes.incrementAndGet();
+    return new PluginHashes().of(file);
+  };
+
+  @Before
+  public void prepare() throws IOException {
+    pluginCache = mock(PluginCache.class);
+    when(pluginCache.getCacheDir()).thenReturn(temp.newFolder().toPath());
+    jar = temp.getRoot().toPath().resolve("plugin.jar");
+    writeJar(jar, "java");
+  }
+
+  @Test
+  public void should_hash_unchanged_jars_once() throws IOException {
+    PluginMetadataCache underTest = new PluginMetadataCache(pluginCache);
+    String hash = underTest.hash(jar, hasher);
+    assertThat(underTest.hash(jar, hasher)).isEqualTo(hash);
+    underTest.save();
+
+    assertThat(new PluginMetadataCache(pluginCache).hash(jar, hasher)).isEqualTo(hash);
+    assertThat(hashes).hasValue(1);
+  }
+
+  @Test
+  public void should_hash_again_changed_jars() throws IOException {
+    PluginMetadataCache underTest = new PluginMetadataCache(pluginCache);
+    String hash = underTest.hash(jar, hasher);
+    underTest.save();
+
+    writeJar(jar, "javascript");
+
+    assertThat(new PluginMetadataCache(pluginCache).hash(jar, hasher)).isNotEqualTo(hash);
+    assertThat(hashes).hasValue(2);
+  }
+
+  @Test
+  public void should_not_read_manifest_of_unchanged_jars() throws IOException {
+    PluginMetadataCache underTest = new PluginMetadataCache(pluginCache);
+    assertThat(underTest.manifest(jar).getKey()).isEqualTo("java");
+    underTest.save();
+
+    // same size and modification time, but not a jar anymore
+    FileTime lastModified = Files.getLastModifiedTime(jar);
+    Files.write(jar, new byte[(int) Files.size(jar)]);
+    Files.setLastModifiedTime(jar, lastModified);
+
+    PluginManifest manifest = new PluginMetadataCache(pluginCache).manifest(jar);
+    assertThat(manifest.getKey()).isEqualTo("java");
+    assertThat(manifest.getVersion()).isEqualTo("1.0");
+    assertThat(manifest.isSonarLintSupported()).isTrue();
+    assertThat(manifest.getBasePlugin()).isNull();
+  }
+
+  @Test
+  public void should_ignore_unreadable_metadata() throws IOException {
+    Files.write(pluginCache.getCacheDir().resolve(PluginMetadataCache.FILENAME), "garbage".getBytes(StandardCharsets.UTF_8));
+
+    PluginMetadataCache underTest = new PluginMetadataCache(pluginCache);
+    assertThat(underTest.manifest(jar).getKey()).isEqualTo("java");
+    underTest.hash(jar, hasher);
+    underTest.save();
+
+    new PluginMetadataCache(pluginCache).hash(jar, hasher);
+    assertThat(hashes).hasValue(1);
+  }
+
+  @Test
+  public void should_forget_deleted_jars() throws IOException {
+    PluginMetadataCache underTest = new PluginMetadataCache(pluginCache);
+    underTest.hash(jar, hasher);
+    underTest.save();
+    Files.delete(jar);
+    Path otherJar = temp.getRoot().toPath().resolve("other.jar");
+    writeJar(otherJar, "php");
+    underTest.hash(otherJar, hasher);
+    underTest.save();
+
+    writeJar(jar, "java");
+    new PluginMetadataCache(pluginCache).hash(jar, hasher);
+    assertThat(hashes).hasValue(3);
+  }
+
+  private static void writeJar(Path path, String pluginKey) throws IOException {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().putValue(PluginManifest.KEY_ATTRIBUTE, pluginKey);
+    manifest.getMainAttributes().putValue(PluginManifest.VERSION_ATTRIBUTE, "1.0");
+    manifest.getMainAttributes().putValue(PluginManifest.SONARLINT_SUPPORTED, "true");
+    try (OutputStream out = new JarOutputStream(Files.newOutputStream(path), manifest)) {
+      out.flush();
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.tracking;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarsource.sonarlint.core.proto.Sonarlint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// note: most methods of the subject are already tested by higher level uses
+public class JournaledStoreIndexTest {
+  private static final String INDEX_FILENAME = "index.pb";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path storeBasePath;
+  private Path journalPath;
+
+  @Before
+  public void setUp() throws IOException {
+    storeBasePath = temporaryFolder.newFolder().toPath();
+    journalPath = storeBasePath.resolve(INDEX_FILENAME + ".journal");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void should_throw_if_cannot_read_from_index_file() throws IOException {
+    StoreIndex<String> index = newIndex(1000);
+    Files.write(storeBasePath.resolve(INDEX_FILENAME), "garbage index data".getBytes());
+
+    index.keys();
+  }
+
+  @Test
+  public void should_reload_saved_and_deleted_keys() {
+    StoreIndex<String> index = newIndex(1000);
+    index.save("a", storeBasePath.resolve("1"));
+    index.save("b", storeBasePath.resolve("2"));
+    index.save("a", storeBasePath.resolve("3"));
+    index.delete("b");
+
+    assertThat(newIndex(1000).keys()).containsOnly("a");
+  }
+
+  @Test
+  public void should_only_append_changes() throws IOException {
+    StoreIndex<String> index = newIndex(1000);
+    index.save("a", storeBasePath.resolve("1"));
+    long size = Files.size(journalPath);
+
+    index.save("a", storeBasePath.resolve("1"));
+    index.delete("unknown");
+
+    assertThat(Files.size(journalPath)).isEqualTo(size);
+  }
+
+  @Test
+  public void should_read_index_written_before_journal_existed() throws IOException {
+    Sonarlint.StorageIndex snapshot = Sonarlint.StorageIndex.newBuilder()
+      .putMappedPathByKey("a", "1")
+      .putMappedPathByKey("b", "2")
+      .build();
+    try (OutputStream out = Files.newOutputStream(storeBasePath.resolve(INDEX_FILENAME))) {
+      snapshot.writeTo(out);
+    }
+
+    StoreIndex<String> index = newIndex(1000);
+    index.delete("a");
+    index.save("c", storeBasePath.resolve("3"));
+
+    assertThat(newIndex(1000).keys()).containsOnly("b", "c");
+  }
+
+  @Test
+  public void should_compact_journal_into_snapshot() {
+    StoreIndex<String> index = newIndex(3);
+    index.save("a", storeBasePath.resolve("1"));
+    index.save("a", storeBasePath.resolve("2"));
+    assertThat(journalPath).exists();
+
+    index.save("a", storeBasePath.resolve("3"));
+
+    assertThat(journalPath).doesNotExist();
+    assertThat(newIndex(3).keys()).containsOnly("a");
+  }
+
+  @Test
+  public void should_recover_from_torn_tail() throws IOException {
+    StoreIndex<String> index = newIndex(1000);
+    index.save("a", storeBasePath.resolve("1"));
+    index.save("b", storeBasePath.resolve("2"));
+    long validSize = Files.size(journalPath);
+    // simulate a crash in the middle of appending a record
+    Files.write(journalPath, new byte[] {0, 0, 0, 42, 1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+    StoreIndex<String> reloaded = newIndex(1000);
+    assertThat(reloaded.keys()).containsOnly("a", "b");
+    assertThat(Files.size(journalPath)).isEqualTo(validSize);
+
+    reloaded.save("c", storeBasePath.resolve("3"));
+    assertThat(newIndex(1000).keys()).containsOnly("a", "b", "c");
+  }
+
+  @Test
+  public void should_stop_at_corrupted_record() throws IOException {
+    StoreIndex<String> index = newIndex(1000);
+    index.save("a", storeBasePath.resolve("1"));
+    long validSize = Files.size(journalPath);
+    index.save("b", storeBasePath.resolve("2"));
+    byte[] content = Files.readAllBytes(journalPath);
+    content[content.length - 1]++;
+    Files.write(journalPath, content);
+
+    assertThat(newIndex(1000).keys()).containsOnly("a");
+    assertThat(Files.size(journalPath)).isEqualTo(validSize);
+  }
+
+  @Test
+  public void should_clear_keys_and_files() {
+    StoreIndex<String> index = newIndex(1);
+    index.save("a", storeBasePath.resolve("1"));
+    index.save("b", storeBasePath.resolve("2"));
+
+    index.clear();
+
+    assertThat(index.keys()).isEmpty();
+    assertThat(storeBasePath.resolve(INDEX_FILENAME)).doesNotExist();
+    assertThat(journalPath).doesNotExist();
+  }
+
+  private StoreIndex<String> newIndex(int minRecordsBeforeCompaction) {
+    return new JournaledStoreIndex(storeBasePath, INDEX_FILENAME, minRecordsBeforeCompaction);
+  }
+}
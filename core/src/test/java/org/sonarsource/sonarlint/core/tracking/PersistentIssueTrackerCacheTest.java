@@ -20,21 +20,28 @@
 package org.sonarsource.sonarlint.core.tracking;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -194,4 +201,112 @@ public class PersistentIssueTrackerCacheTest {
       cache.put("dummy" + i, Collections.emptyList());
     }
   }
+
+  @Test
+  public void should_persist_issues_when_estimated_bytes_limit_reached() {
+    Collection<Trackable> trackables = Arrays.asList(mock(Trackable.class), mock(Trackable.class));
+    long entrySize = PersistentIssueTrackerCache.estimateSize(trackables);
+    cache = PersistentIssueTrackerCache.builder(stubIssueStore)
+      .maxEstimatedBytes(3 * entrySize)
+      .build();
+
+    cache.put("file1", trackables);
+    cache.put("file2", trackables);
+    cache.put("file3", trackables);
+    assertThat(stubIssueStore.size()).isEqualTo(0);
+
+    cache.put("file4", trackables);
+    assertThat(stubIssueStore.size()).isEqualTo(1);
+    assertThat(cache.getLiveOrFail("file4")).isEqualTo(trackables);
+  }
+
+  @Test
+  public void should_persist_evicted_issues_in_background_in_write_behind_mode() {
+    cache = PersistentIssueTrackerCache.builder(stubIssueStore)
+      .maxEntries(2)
+      .writeBehind(true)
+      .build();
+    List<Trackable> trackables = Collections.singletonList(mock(Trackable.class));
+
+    cache.put("file1", trackables);
+    cache.put("file2", Collections.emptyList());
+    cache.put("file3", Collections.emptyList());
+
+    await().untilAsserted(() -> assertThat(stubIssueStore.size()).isEqualTo(1));
+    assertThat(cache.isFirstAnalysis("file1")).isFalse();
+    assertThat(cache.getCurrentTrackables("file1")).containsExactlyElementsOf(trackables);
+
+    cache.shutdown();
+    assertThat(stubIssueStore.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void should_read_pending_issues_before_they_are_persisted() throws Exception {
+    CountDownLatch writeStarted = new CountDownLatch(1);
+    CountDownLatch releaseWrite = new CountDownLatch(1);
+    IssueStore store = mock(IssueStore.class);
+    doAnswer(invocation -> {
+      writeStarted.countDown();
+      releaseWrite.await();
+      return null;
+    }).when(store).save(anyString(), any());
+    cache = PersistentIssueTrackerCache.builder(store)
+      .maxEntries(1)
+      .writeBehind(true)
+      .build();
+    List<Trackable> trackables1 = Collections.singletonList(mock(Trackable.class));
+    List<Trackable> trackables2 = Collections.singletonList(mock(Trackable.class));
+
+    cache.put("file1", trackables1);
+    cache.put("file2", trackables2);
+    assertThat(writeStarted.await(5, TimeUnit.SECONDS)).isTrue();
+    // put is not blocked by the slow store
+    cache.put("file3", Collections.emptyList());
+
+    assertThat(cache.isFirstAnalysis("file1")).isFalse();
+    assertThat(cache.getCurrentTrackables("file1")).containsExactlyElementsOf(trackables1);
+    assertThat(cache.getCurrentTrackables("file2")).containsExactlyElementsOf(trackables2);
+    verify(store, never()).read(anyString());
+
+    releaseWrite.countDown();
+    cache.shutdown();
+    verify(store).save("file1", trackables1);
+    verify(store).save("file2", trackables2);
+    verify(store).save("file3", Collections.emptyList());
+  }
+
+  @Test
+  public void should_enable_write_behind_mode_from_system_property() throws Exception {
+    List<String> writerThreads = Collections.synchronizedList(new ArrayList<>());
+    IssueStore store = mock(IssueStore.class);
+    doAnswer(invocation -> writerThreads.add(Thread.currentThread().getName())).when(store).save(anyString(), any());
+    System.setProperty(PersistentIssueTrackerCache.WRITE_BEHIND_PROPERTY, "true");
+    try {
+      cache = new PersistentIssueTrackerCache(store);
+    } finally {
+      System.clearProperty(PersistentIssueTrackerCache.WRITE_BEHIND_PROPERTY);
+    }
+
+    for (int i = 0; i <= PersistentIssueTrackerCache.MAX_ENTRIES; i++) {
+      cache.put("file" + i, Collections.emptyList());
+    }
+    cache.shutdown();
+
+    assertThat(writerThreads).startsWith("sonarlint-issue-store-writer");
+  }
+
+  @Test
+  public void should_discard_pending_issues_on_clear() {
+    cache = PersistentIssueTrackerCache.builder(stubIssueStore)
+      .maxEntries(1)
+      .writeBehind(true)
+      .build();
+
+    cache.put("file1", Collections.emptyList());
+    cache.put("file2", Collections.emptyList());
+    cache.clear();
+    cache.shutdown();
+
+    assertThat(stubIssueStore.size()).isEqualTo(0);
+  }
 }
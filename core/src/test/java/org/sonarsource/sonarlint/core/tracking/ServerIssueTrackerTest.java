@@ -19,13 +19,19 @@
  */
 package org.sonarsource.sonarlint.core.tracking;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import org.junit.Test;
 import org.sonarsource.sonarlint.core.client.api.connected.ConnectedSonarLintEngine;
 import org.sonarsource.sonarlint.core.client.api.connected.ProjectBinding;
 import org.sonarsource.sonarlint.core.client.api.connected.ServerConfiguration;
+import org.sonarsource.sonarlint.core.client.api.connected.ServerIssue;
 import org.sonarsource.sonarlint.core.client.api.exceptions.DownloadException;
 
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -50,15 +56,31 @@ public class ServerIssueTrackerTest {
   @Test
   public void should_download_issues_from_engine() {
     tracker.update(serverConfiguration, engine, projectBinding, Collections.singleton(filePath));
-    verify(engine).downloadServerIssues(serverConfiguration, projectBinding, filePath);
+    verify(engine).downloadServerIssues(serverConfiguration, projectBinding, Collections.singleton(filePath));
     verifyNoMoreInteractions(engine);
   }
 
+  @Test
+  public void should_download_issues_of_all_files_at_once() {
+    CachingIssueTracker issueTracker = mock(CachingIssueTracker.class);
+    ServerIssueTracker tracker = new ServerIssueTracker(issueTracker);
+    List<String> filePaths = Arrays.asList("file1", "file2");
+    ServerIssue serverIssue = mock(ServerIssue.class);
+    when(engine.downloadServerIssues(serverConfiguration, projectBinding, filePaths)).thenReturn(Collections.singletonMap("file1", Collections.singletonList(serverIssue)));
+
+    tracker.update(serverConfiguration, engine, projectBinding, filePaths);
+
+    verify(engine).downloadServerIssues(serverConfiguration, projectBinding, filePaths);
+    verifyNoMoreInteractions(engine);
+    verify(issueTracker).matchAndTrackAsBase(eq("file1"), argThat(issues -> issues.size() == 1));
+    verify(issueTracker).matchAndTrackAsBase(eq("file2"), argThat(Collection::isEmpty));
+  }
+
   @Test
   public void should_get_issues_from_engine_if_download_failed() {
-    when(engine.downloadServerIssues(serverConfiguration, projectBinding, filePath)).thenThrow(new DownloadException());
+    when(engine.downloadServerIssues(serverConfiguration, projectBinding, Collections.singleton(filePath))).thenThrow(new DownloadException());
     tracker.update(serverConfiguration, engine, projectBinding, Collections.singleton(filePath));
-    verify(engine).downloadServerIssues(serverConfiguration, projectBinding, filePath);
+    verify(engine).downloadServerIssues(serverConfiguration, projectBinding, Collections.singleton(filePath));
     verify(engine).getServerIssues(projectBinding, filePath);
     verifyNoMoreInteractions(engine);
   }
@@ -0,0 +1,86 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.tracking;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare {@link TextHasher} with the former regex and hex string based hashing, on 1000 source lines.
+ * The reference creates a {@link java.security.MessageDigest} per call, as sharing one between threads is not safe.
+ * Not run by the build: launch {@link #main(String[])}, or <code>org.openjdk.jmh.Main TextHasherBenchmark</code> with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class TextHasherBenchmark {
+
+  @Param({"40", "200"})
+  private int maxLineLength;
+
+  private String[] lines;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(maxLineLength);
+    lines = new String[1000];
+    for (int i = 0; i < lines.length; i++) {
+      lines[i] = TextHasherTest.randomContent(random, maxLineLength);
+    }
+  }
+
+  @Benchmark
+  public void reference(Blackhole blackhole) throws Exception {
+    for (String line : lines) {
+      blackhole.consume(TextHasherTest.referenceHash(line));
+    }
+  }
+
+  @Benchmark
+  public void textHasher(Blackhole blackhole) {
+    for (String line : lines) {
+      blackhole.consume(TextHasher.hash(line));
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(TextHasherBenchmark.class.getSimpleName()).build()).run();
+  }
+}
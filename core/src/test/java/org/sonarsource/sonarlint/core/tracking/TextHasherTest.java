@@ -0,0 +1,114 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.tracking;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TextHasherTest {
+
+  private static final char[] ALPHABET = {'a', 'Z', '0', ';', ' ', '\t', '\n', '\u000B', '\f', '\r', 'é', '€', ' ', ' ', '\ud83d', '\ude00'};
+
+  @Test
+  public void should_be_compatible_with_md5_of_content_without_whitespaces() throws Exception {
+    Random random = new Random(42);
+    for (int i = 0; i < 10_000; i++) {
+      String content = randomContent(random, i % 100 == 0 ? 3000 : 50);
+      assertThat(TextHasher.hash(content)).as(content).isEqualTo(referenceHash(content));
+      assertThat(DigestUtils.digest(content)).as(content).isEqualTo(referenceDigest(content));
+    }
+  }
+
+  @Test
+  public void should_ignore_whitespaces() {
+    assertThat(TextHasher.hash(" foo\t(bar);\r\n")).isEqualTo(TextHasher.hash("foo(bar);"));
+    assertThat(TextHasher.hash("")).isEqualTo(DigestUtils.digest("").hashCode());
+  }
+
+  @Test
+  public void should_join_surrogates_separated_by_whitespaces() throws Exception {
+    String content = "\ud83d \ude00";
+    assertThat(TextHasher.hash(content)).isEqualTo(referenceHash(content));
+    assertThat(TextHasher.hash(content)).isEqualTo(TextHasher.hash("😀"));
+  }
+
+  @Test
+  public void should_be_thread_safe() throws Exception {
+    Random random = new Random(7);
+    List<String> contents = new ArrayList<>();
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 2_000; i++) {
+      String content = randomContent(random, 200);
+      contents.add(content);
+      expected.add(referenceHash(content));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<List<Integer>>> results = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        results.add(executor.submit(() -> {
+          List<Integer> hashes = new ArrayList<>();
+          for (int round = 0; round < 10; round++) {
+            hashes.clear();
+            for (String content : contents) {
+              hashes.add(TextHasher.hash(content));
+            }
+          }
+          return hashes;
+        }));
+      }
+      for (Future<List<Integer>> result : results) {
+        assertThat(result.get()).isEqualTo(expected);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  static String randomContent(Random random, int maxLength) {
+    int length = random.nextInt(maxLength);
+    StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      sb.append(random.nextInt(4) == 0 ? (char) random.nextInt(0x10000) : ALPHABET[random.nextInt(ALPHABET.length)]);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Former implementation of {@link DigestUtils#digest(String)}.
+   */
+  static String referenceDigest(String content) throws Exception {
+    return DigestUtils.encodeHexString(MessageDigest.getInstance("MD5").digest(content.replaceAll("[\\s]", "").getBytes(UTF_8)));
+  }
+
+  static int referenceHash(String content) throws Exception {
+    return referenceDigest(content).hashCode();
+  }
+}
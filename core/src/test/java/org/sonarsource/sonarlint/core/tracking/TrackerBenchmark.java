@@ -0,0 +1,84 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.tracking;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare {@link Tracker} with {@link ReferenceTracker} on files with many issues.
+ * Not run by the build: launch {@link #main(String[])}, or <code>org.openjdk.jmh.Main TrackerBenchmark</code> with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackerBenchmark {
+
+  @Param({"1000", "10000"})
+  private int issueCount;
+
+  /**
+   * Number of distinct values for rule keys, messages, lines and hashes. Low values mean many candidates per key.
+   */
+  @Param({"50", "5000"})
+  private int distinctValues;
+
+  private List<Trackable> bases;
+  private List<Trackable> raws;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(issueCount);
+    bases = TrackerTest.randomTrackables(random, issueCount, distinctValues);
+    raws = TrackerTest.mutate(random, bases, distinctValues);
+  }
+
+  @Benchmark
+  public Tracking<Trackable, Trackable> reference() {
+    return new ReferenceTracker<>().track(() -> raws, () -> bases);
+  }
+
+  @Benchmark
+  public Tracking<Trackable, Trackable> indexed() {
+    return new Tracker<>().track(() -> raws, () -> bases);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(TrackerBenchmark.class.getSimpleName()).build()).run();
+  }
+}
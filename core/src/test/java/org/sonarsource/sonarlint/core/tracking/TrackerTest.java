@@ -0,0 +1,232 @@
+/*
+ * SonarLint Core - Implementation
+ * Copyright (C) 2016-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.core.tracking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.junit.Test;
+import org.sonarsource.sonarlint.core.client.api.common.TextRange;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TrackerTest {
+
+  @Test
+  public void should_track_nothing_when_no_base() {
+    List<Trackable> raws = Collections.singletonList(new SimpleTrackable("rule", "msg", 1, 2, 3, null));
+
+    Tracking<Trackable, Trackable> tracking = new Tracker<>().track(() -> raws, Collections::emptyList);
+
+    assertThat(tracking.getMatchedRaws()).isEmpty();
+    assertThat(tracking.getUnmatchedRaws()).containsExactlyElementsOf(raws);
+  }
+
+  @Test
+  public void should_never_match_blank_server_issue_keys() {
+    Trackable raw = new SimpleTrackable("rule1", "msg1", 1, 2, 3, "");
+    Trackable base = new SimpleTrackable("rule2", "msg2", 4, 5, 6, "");
+
+    Tracking<Trackable, Trackable> tracking = new Tracker<>().track(() -> Collections.singletonList(raw), () -> Collections.singletonList(base));
+
+    assertThat(tracking.getMatchedRaws()).isEmpty();
+  }
+
+  @Test
+  public void should_match_missing_values_together() {
+    Trackable raw = new SimpleTrackable("rule", "msg1", null, null, null, null);
+    Trackable base = new SimpleTrackable("rule", "msg2", null, null, null, null);
+    Trackable otherBase = new SimpleTrackable("rule", "msg2", 0, 0, 0, null);
+
+    Tracking<Trackable, Trackable> tracking = new Tracker<>().track(() -> Collections.singletonList(raw), () -> Arrays.asList(otherBase, base));
+
+    assertThat(tracking.getMatchedRaws()).containsEntry(raw, base);
+  }
+
+  @Test
+  public void should_pick_first_base_in_order_when_several_match() {
+    Trackable raw1 = new SimpleTrackable("rule", "msg", 1, 2, 3, null);
+    Trackable raw2 = new SimpleTrackable("rule", "msg", 1, 2, 3, null);
+    Trackable base1 = new SimpleTrackable("rule", "msg", 1, 2, 3, null);
+    Trackable base2 = new SimpleTrackable("rule", "msg", 1, 2, 3, null);
+
+    Tracking<Trackable, Trackable> tracking = new Tracker<>().track(() -> Arrays.asList(raw1, raw2), () -> Arrays.asList(base1, base2));
+
+    assertThat(tracking.getMatchedRaws()).containsEntry(raw1, base1).containsEntry(raw2, base2);
+  }
+
+  @Test
+  public void should_give_same_results_as_reference_implementation() {
+    Random random = new Random(42);
+    for (int i = 0; i < 200; i++) {
+      int size = 1 + random.nextInt(300);
+      // small value ranges to get plenty of collisions between the strategies
+      int range = 1 + random.nextInt(20);
+      List<Trackable> bases = randomTrackables(random, size, range);
+      List<Trackable> raws = mutate(random, bases, range);
+
+      Tracking<Trackable, Trackable> expected = new ReferenceTracker<>().track(() -> raws, () -> bases);
+      Tracking<Trackable, Trackable> actual = new Tracker<>().track(() -> raws, () -> bases);
+
+      assertThat(actual.getMatchedRaws()).isEqualTo(expected.getMatchedRaws());
+      assertThat(actual.getUnmatchedRaws()).containsExactlyElementsOf(expected.getUnmatchedRaws());
+      assertThat(actual.getUnmatchedBases()).containsExactlyElementsOf(expected.getUnmatchedBases());
+    }
+  }
+
+  static List<Trackable> randomTrackables(Random random, int size, int range) {
+    List<Trackable> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      result.add(new SimpleTrackable(
+        "rule" + random.nextInt(range),
+        "message" + random.nextInt(range),
+        randomOrNull(random, range),
+        randomOrNull(random, range),
+        randomOrNull(random, range),
+        random.nextInt(4) == 0 ? ("AX" + random.nextInt(size)) : (random.nextBoolean() ? null : "")));
+    }
+    return result;
+  }
+
+  /**
+   * Simulate a new analysis of the same file: some issues moved, changed, appeared or disappeared.
+   */
+  static List<Trackable> mutate(Random random, List<Trackable> bases, int range) {
+    List<Trackable> result = new ArrayList<>(bases.size());
+    for (Trackable base : bases) {
+      switch (random.nextInt(6)) {
+        case 0:
+          // disappeared
+          break;
+        case 1:
+          result.addAll(randomTrackables(random, 1, range));
+          break;
+        case 2:
+          result.add(new SimpleTrackable(base.getRuleKey(), base.getMessage(), randomOrNull(random, range), base.getLineHash(), base.getTextRangeHash(), null));
+          break;
+        case 3:
+          result.add(new SimpleTrackable(base.getRuleKey(), "changed", base.getLine(), base.getLineHash(), randomOrNull(random, range), null));
+          break;
+        default:
+          result.add(new SimpleTrackable(base.getRuleKey(), base.getMessage(), base.getLine(), base.getLineHash(), base.getTextRangeHash(), base.getServerIssueKey()));
+      }
+    }
+    Collections.shuffle(result, random);
+    return result;
+  }
+
+  @CheckForNull
+  private static Integer randomOrNull(Random random, int range) {
+    return random.nextInt(10) == 0 ? null : random.nextInt(range);
+  }
+
+  static class SimpleTrackable implements Trackable {
+    private final String ruleKey;
+    private final String message;
+    private final Integer line;
+    private final Integer lineHash;
+    private final Integer textRangeHash;
+    private final String serverIssueKey;
+
+    SimpleTrackable(String ruleKey, String message, @Nullable Integer line, @Nullable Integer lineHash, @Nullable Integer textRangeHash, @Nullable String serverIssueKey) {
+      this.ruleKey = ruleKey;
+      this.message = message;
+      this.line = line;
+      this.lineHash = lineHash;
+      this.textRangeHash = textRangeHash;
+      this.serverIssueKey = serverIssueKey;
+    }
+
+    @Override
+    public Issue getIssue() {
+      return null;
+    }
+
+    @Override
+    public String getRuleKey() {
+      return ruleKey;
+    }
+
+    @Override
+    public String getRuleName() {
+      return ruleKey;
+    }
+
+    @Override
+    public String getSeverity() {
+      return "MAJOR";
+    }
+
+    @Override
+    public String getMessage() {
+      return message;
+    }
+
+    @Override
+    public String getType() {
+      return null;
+    }
+
+    @Override
+    public Integer getLine() {
+      return line;
+    }
+
+    @Override
+    public Integer getLineHash() {
+      return lineHash;
+    }
+
+    @Override
+    public TextRange getTextRange() {
+      return null;
+    }
+
+    @Override
+    public Integer getTextRangeHash() {
+      return textRangeHash;
+    }
+
+    @Override
+    public Long getCreationDate() {
+      return null;
+    }
+
+    @Override
+    public String getServerIssueKey() {
+      return serverIssueKey;
+    }
+
+    @Override
+    public boolean isResolved() {
+      return false;
+    }
+
+    @Override
+    public String getAssignee() {
+      return "";
+    }
+  }
+}
@@ -19,11 +19,17 @@
  */
 package org.sonarsource.sonarlint.core.util.ws;
 
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
 import javax.net.ssl.SSLSocketFactory;
 import okhttp3.OkHttpClient;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.contrib.java.lang.system.RestoreSystemProperties;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -32,6 +38,10 @@ public class OkHttpClientBuilderTest {
 
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public final RestoreSystemProperties restoreSystemProperties = new RestoreSystemProperties();
 
   private OkHttpClientBuilder underTest = new OkHttpClientBuilder();
 
@@ -54,6 +64,23 @@ public class OkHttpClientBuilderTest {
     assertThat(okHttpClient.sslSocketFactory()).isEqualTo(sslSocketFactory);
   }
 
+  @Test
+  public void share_default_ssl_until_trust_store_changes() throws Exception {
+    SSLSocketFactory defaultFactory = underTest.build().sslSocketFactory();
+    assertThat(new OkHttpClientBuilder().build().sslSocketFactory()).isSameAs(defaultFactory);
+
+    Path trustStore = temp.newFile("truststore").toPath();
+    KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+    keyStore.load(null, null);
+    try (OutputStream out = Files.newOutputStream(trustStore)) {
+      keyStore.store(out, "password".toCharArray());
+    }
+    System.setProperty("javax.net.ssl.trustStore", trustStore.toString());
+    System.setProperty("javax.net.ssl.trustStorePassword", "password");
+
+    assertThat(new OkHttpClientBuilder().build().sslSocketFactory()).isNotSameAs(defaultFactory);
+  }
+
   @Test
   public void build_throws_IAE_if_connect_timeout_is_negative() {
     expectedException.expect(IllegalArgumentException.class);